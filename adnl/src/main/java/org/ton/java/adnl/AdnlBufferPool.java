@@ -0,0 +1,75 @@
+package org.ton.java.adnl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Pool of direct buffers in power-of-two size classes, used for outgoing ADNL frames so that
+ * sending a query does not allocate a new buffer each time. Buffers larger than {@link
+ * #MAX_POOLED_SIZE} are allocated on demand and not retained.
+ */
+public final class AdnlBufferPool {
+
+  public static final int MIN_POOLED_SIZE = 256;
+  public static final int MAX_POOLED_SIZE = 1024 * 1024;
+  private static final int MAX_BUFFERS_PER_CLASS = 64;
+
+  private static final AdnlBufferPool SHARED = new AdnlBufferPool();
+
+  private final ConcurrentLinkedQueue<ByteBuffer>[] classes;
+  private final AtomicIntegerArray sizes;
+
+  @SuppressWarnings("unchecked")
+  public AdnlBufferPool() {
+    int count = sizeClass(MAX_POOLED_SIZE) + 1;
+    classes = new ConcurrentLinkedQueue[count];
+    for (int i = 0; i < count; i++) {
+      classes[i] = new ConcurrentLinkedQueue<>();
+    }
+    sizes = new AtomicIntegerArray(count);
+  }
+
+  public static AdnlBufferPool shared() {
+    return SHARED;
+  }
+
+  private static int sizeClass(int size) {
+    int rounded = Math.max(MIN_POOLED_SIZE, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+    return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_POOLED_SIZE);
+  }
+
+  /**
+   * @return cleared little-endian direct buffer with capacity of at least {@code size} bytes and
+   *     limit set to {@code size}
+   */
+  public ByteBuffer acquire(int size) {
+    if (size > MAX_POOLED_SIZE) {
+      return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    int sizeClass = sizeClass(size);
+    ByteBuffer buffer = classes[sizeClass].poll();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(MIN_POOLED_SIZE << sizeClass);
+    } else {
+      sizes.decrementAndGet(sizeClass);
+    }
+    buffer.clear().limit(size);
+    return buffer.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** Returns a buffer obtained from {@link #acquire(int)}, it must not be used afterwards */
+  public void release(ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    if (!buffer.isDirect() || capacity > MAX_POOLED_SIZE || Integer.bitCount(capacity) != 1) {
+      return;
+    }
+    int sizeClass = sizeClass(capacity);
+    if (sizes.incrementAndGet(sizeClass) > MAX_BUFFERS_PER_CLASS) {
+      sizes.decrementAndGet(sizeClass);
+      return;
+    }
+    classes[sizeClass].offer(buffer);
+  }
+}
@@ -0,0 +1,302 @@
+package org.ton.java.adnl;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single selector thread shared by all {@link AdnlNioTransport} connections. Besides socket
+ * readiness it drives one timer queue used for query timeouts and keep-alive pings, so the number
+ * of platform threads does not grow with the number of lite-server connections.
+ */
+@Slf4j
+public class AdnlEventLoop implements Runnable {
+
+  /** Handler of readiness events of one registered channel, invoked on the event loop thread */
+  interface ChannelHandler {
+    void onReadable() throws IOException;
+
+    void onWritable() throws IOException;
+
+    void onError(Throwable cause);
+  }
+
+  private static volatile AdnlEventLoop shared;
+
+  private final Selector selector;
+  private final Thread thread;
+  private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+  private final AtomicLong timerSequence = new AtomicLong();
+
+  /** cancelled timers still queued, purged once they are half of the queue */
+  private final AtomicInteger cancelledTimers = new AtomicInteger();
+
+  private volatile boolean running = true;
+
+  /** Timer entry ordered by deadline, then by submission order */
+  private static final class Timer implements Comparable<Timer> {
+    final long deadlineNanos;
+    final long sequence;
+    final Runnable task;
+
+    /** completed once the task ran, cancelled to drop the timer */
+    final CompletableFuture<Void> handle = new CompletableFuture<>();
+
+    Timer(long deadlineNanos, long sequence, Runnable task) {
+      this.deadlineNanos = deadlineNanos;
+      this.sequence = sequence;
+      this.task = task;
+    }
+
+    boolean isCancelled() {
+      return handle.isCancelled();
+    }
+
+    @Override
+    public int compareTo(Timer other) {
+      int c = Long.compare(deadlineNanos - other.deadlineNanos, 0);
+      return c != 0 ? c : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  public AdnlEventLoop(String name) throws IOException {
+    this.selector = Selector.open();
+    this.thread = new Thread(this, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * @return event loop shared by all NIO transports of this JVM, started on first use
+   */
+  public static AdnlEventLoop shared() {
+    AdnlEventLoop loop = shared;
+    if (loop == null) {
+      synchronized (AdnlEventLoop.class) {
+        loop = shared;
+        if (loop == null) {
+          try {
+            loop = new AdnlEventLoop("adnl-event-loop");
+          } catch (IOException e) {
+            throw new IllegalStateException("Cannot open selector", e);
+          }
+          shared = loop;
+        }
+      }
+    }
+    return loop;
+  }
+
+  /** Runs the task on the event loop thread */
+  public void execute(Runnable task) {
+    tasks.add(task);
+    if (Thread.currentThread() != thread) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Runs the task once on the event loop thread after the given delay, unless the returned future
+   * is cancelled before
+   */
+  public Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    long deadline = System.nanoTime() + unit.toNanos(delay);
+    Timer timer = new Timer(deadline, timerSequence.incrementAndGet(), task);
+    timer.handle.whenComplete(
+        (v, e) -> {
+          if (timer.isCancelled()) {
+            cancelledTimers.incrementAndGet();
+          }
+        });
+    execute(() -> timers.add(timer));
+    return timer.handle;
+  }
+
+  /**
+   * Runs the task periodically on the event loop thread until the returned future is cancelled.
+   * The task must not block.
+   */
+  public Future<?> scheduleAtFixedRate(
+      Runnable task, long initialDelay, long period, TimeUnit unit) {
+    CompletableFuture<Void> handle = new CompletableFuture<>();
+    AtomicReference<Future<?>> next = new AtomicReference<>();
+    Runnable[] tick = new Runnable[1];
+    tick[0] =
+        () -> {
+          if (handle.isDone() || !running) {
+            return;
+          }
+          try {
+            task.run();
+          } catch (Exception e) {
+            log.warn("Periodic task failed", e);
+          }
+          next.set(schedule(tick[0], period, unit));
+          if (handle.isDone()) {
+            next.get().cancel(false);
+          }
+        };
+    next.set(schedule(tick[0], initialDelay, unit));
+    handle.whenComplete((v, e) -> next.get().cancel(false));
+    return handle;
+  }
+
+  /**
+   * Registers a connected non-blocking channel for read events
+   *
+   * @return future completed with the selection key on the event loop thread
+   */
+  CompletableFuture<SelectionKey> register(SelectableChannel channel, ChannelHandler handler) {
+    CompletableFuture<SelectionKey> result = new CompletableFuture<>();
+    execute(
+        () -> {
+          try {
+            result.complete(channel.register(selector, SelectionKey.OP_READ, handler));
+          } catch (Exception e) {
+            result.completeExceptionally(e);
+          }
+        });
+    return result;
+  }
+
+  /** Asks the selector to also report write readiness of the key */
+  void enableWrite(SelectionKey key) {
+    if (key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+      key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      if (Thread.currentThread() != thread) {
+        selector.wakeup();
+      }
+    }
+  }
+
+  void disableWrite(SelectionKey key) {
+    if (key.isValid()) {
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+  }
+
+  public boolean inEventLoop() {
+    return Thread.currentThread() == thread;
+  }
+
+  /**
+   * @return number of queued timers, cancelled ones included until dropped, read on the event
+   *     loop thread
+   */
+  int getTimerCount() {
+    return timers.size();
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      try {
+        long waitMs = 0;
+        Timer next = peekTimer();
+        if (next != null) {
+          waitMs =
+              Math.max(
+                  1, TimeUnit.NANOSECONDS.toMillis(next.deadlineNanos - System.nanoTime()));
+        }
+        if (tasks.isEmpty()) {
+          selector.select(waitMs);
+        } else {
+          selector.selectNow();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          ChannelHandler handler = (ChannelHandler) key.attachment();
+          try {
+            if (key.isValid() && key.isReadable()) {
+              handler.onReadable();
+            }
+            if (key.isValid() && key.isWritable()) {
+              handler.onWritable();
+            }
+          } catch (Throwable e) {
+            key.cancel();
+            handler.onError(e);
+          }
+        }
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          runSafely(task);
+        }
+
+        long now = System.nanoTime();
+        while ((next = peekTimer()) != null && next.deadlineNanos - now <= 0) {
+          timers.poll();
+          runSafely(next.task);
+          next.handle.complete(null);
+        }
+        purgeTimers();
+      } catch (ClosedSelectorException e) {
+        break;
+      } catch (Throwable e) {
+        log.warn("Error in adnl event loop", e);
+      }
+    }
+  }
+
+  /**
+   * @return earliest timer that is not cancelled, cancelled timers before it are dropped
+   */
+  private Timer peekTimer() {
+    Timer next;
+    while ((next = timers.peek()) != null && next.isCancelled()) {
+      timers.poll();
+      cancelledTimers.decrementAndGet();
+    }
+    return next;
+  }
+
+  /** Removes cancelled timers once they are half of the queue, e.g. timeouts of answered queries */
+  private void purgeTimers() {
+    int cancelled = cancelledTimers.get();
+    if (cancelled > 64 && cancelled > timers.size() / 2) {
+      int size = timers.size();
+      timers.removeIf(Timer::isCancelled);
+      cancelledTimers.addAndGet(timers.size() - size);
+    }
+  }
+
+  private void runSafely(Runnable task) {
+    try {
+      task.run();
+    } catch (Throwable e) {
+      log.warn("Error in adnl event loop task", e);
+    }
+  }
+
+  /** Stops the loop and closes its selector; channels registered on it are closed as well */
+  public void shutdown() {
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join(5000);
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      selector.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      log.info("Error closing selector", e);
+    }
+    synchronized (AdnlEventLoop.class) {
+      if (shared == this) {
+        shared = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package org.ton.java.adnl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import javax.crypto.Cipher;
+
+/**
+ * Allocation-free codec of ADNL-TCP frames
+ *
+ * <pre>
+ * [size:4][nonce:32][payload:N][checksum:32], checksum = sha256(nonce + payload)
+ * </pre>
+ *
+ * Frames are encoded into and decoded from caller supplied buffers. SHA-256 digests are reused per
+ * thread, and decoded payloads are returned as views of the frame buffer instead of copies.
+ */
+public final class AdnlFrameCodec {
+
+  public static final int SIZE_LENGTH = 4;
+  public static final int NONCE_LENGTH = 32;
+  public static final int CHECKSUM_LENGTH = 32;
+  public static final int MAX_PACKET_SIZE = 16 * 1024 * 1024;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private static final ThreadLocal<MessageDigest> SHA256 =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+              throw new IllegalStateException(e);
+            }
+          });
+
+  /** Per-thread scratch for nonce and checksum, [0..32) nonce, [32..64) checksum */
+  private static final ThreadLocal<byte[]> SCRATCH =
+      ThreadLocal.withInitial(() -> new byte[NONCE_LENGTH + CHECKSUM_LENGTH]);
+
+  private AdnlFrameCodec() {}
+
+  /**
+   * @return size of the whole frame, including the size prefix, carrying a payload of given length
+   */
+  public static int frameLength(int payloadLength) {
+    return SIZE_LENGTH + NONCE_LENGTH + payloadLength + CHECKSUM_LENGTH;
+  }
+
+  /**
+   * Writes a plain (not yet encrypted) frame with a random nonce at the position of {@code out}
+   * and advances it past the frame.
+   *
+   * @param payload serialized TL message
+   * @param out buffer with at least {@link #frameLength(int)} bytes remaining
+   */
+  public static void encode(byte[] payload, ByteBuffer out) {
+    byte[] scratch = SCRATCH.get();
+    RANDOM.nextBytes(scratch);
+
+    MessageDigest sha256 = SHA256.get();
+    sha256.update(scratch, 0, NONCE_LENGTH);
+    sha256.update(payload);
+    try {
+      sha256.digest(scratch, NONCE_LENGTH, CHECKSUM_LENGTH);
+    } catch (Exception e) {
+      throw new IllegalStateException("Cannot calculate packet checksum", e);
+    }
+
+    out.order(ByteOrder.LITTLE_ENDIAN);
+    out.putInt(NONCE_LENGTH + payload.length + CHECKSUM_LENGTH);
+    out.put(scratch, 0, NONCE_LENGTH);
+    out.put(payload);
+    out.put(scratch, NONCE_LENGTH, CHECKSUM_LENGTH);
+  }
+
+  /**
+   * Encodes and encrypts a frame in place
+   *
+   * @param payload serialized TL message
+   * @param out buffer with at least {@link #frameLength(int)} bytes remaining, its position is
+   *     advanced past the frame
+   * @param writeCipher AES-CTR cipher of the connection, must be called in frame send order
+   */
+  public static void encodeEncrypted(byte[] payload, ByteBuffer out, Cipher writeCipher) {
+    int start = out.position();
+    encode(payload, out);
+    CryptoUtils.aesCtrTransformInPlace(writeCipher, out, start, out.position() - start);
+  }
+
+  /**
+   * Verifies the checksum of a decrypted packet (frame without size prefix) in place.
+   *
+   * @param packet buffer whose remaining bytes are [nonce][payload][checksum], not modified
+   * @return view of the payload, little-endian, or null if the packet is too short or its checksum
+   *     does not match
+   */
+  public static ByteBuffer decode(ByteBuffer packet) {
+    int start = packet.position();
+    int length = packet.remaining();
+    if (length < NONCE_LENGTH + CHECKSUM_LENGTH) {
+      return null;
+    }
+    int checksumOffset = start + length - CHECKSUM_LENGTH;
+
+    ByteBuffer signed = packet.duplicate();
+    signed.limit(checksumOffset).position(start);
+    MessageDigest sha256 = SHA256.get();
+    sha256.update(signed);
+
+    byte[] calculated = SCRATCH.get();
+    try {
+      sha256.digest(calculated, NONCE_LENGTH, CHECKSUM_LENGTH);
+    } catch (Exception e) {
+      throw new IllegalStateException("Cannot calculate packet checksum", e);
+    }
+    for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+      if (packet.get(checksumOffset + i) != calculated[NONCE_LENGTH + i]) {
+        return null;
+      }
+    }
+
+    ByteBuffer payload = packet.duplicate();
+    payload.limit(checksumOffset).position(start + NONCE_LENGTH);
+    return payload.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Unwraps a TL {@code bytes} value without copying it, the same way as {@code
+   * Utils.fromBytes(byte[])}.
+   *
+   * @param buffer buffer positioned at the length prefix of the value
+   * @return little-endian view of exactly the value bytes, without padding
+   */
+  public static ByteBuffer unwrapBytes(ByteBuffer buffer) {
+    int start = buffer.position();
+    if (!buffer.hasRemaining()) {
+      throw new IllegalArgumentException("failed to load length, too short data");
+    }
+    ByteBuffer le = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int offset = 1;
+    long ln = Byte.toUnsignedInt(le.get(start));
+    if (ln == 0xFE) {
+      if (le.remaining() < 4) {
+        throw new IllegalArgumentException("failed to read 4 bytes for extended length");
+      }
+      ln = le.getInt(start) >>> 8;
+      offset = 4;
+    } else if (ln == 0xFF) {
+      if (le.remaining() < 8) {
+        throw new IllegalArgumentException("Insufficient data to read 7-byte length");
+      }
+      ln = le.getLong(start) >>> 8;
+      if (ln > Integer.MAX_VALUE - 3) {
+        throw new IllegalArgumentException("Too big string found");
+      }
+      ln = (ln + 3) & ~3;
+      offset = 8;
+    }
+    if (buffer.remaining() < offset + ln) {
+      throw new IllegalArgumentException(
+          "failed to get payload with len " + ln + ", too short data");
+    }
+    le.limit(start + offset + (int) ln).position(start + offset);
+    return le.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -4,9 +4,13 @@ import static java.util.Objects.nonNull;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -45,8 +49,9 @@ public class AdnlLiteClient {
     return new Builder();
   }
 
-  private final AdnlTcpTransport transport;
+  private final AdnlTransport transport;
   private final ScheduledExecutorService pingScheduler;
+  private Future<?> pingTask;
   private volatile boolean connected = false;
   private final TonGlobalConfig globalConfig;
   private final int liteServerIndex;
@@ -54,16 +59,37 @@ public class AdnlLiteClient {
   private final int maxRetries;
   private final int queryTimeout;
   private final AtomicInteger currentServerIndex = new AtomicInteger(0);
+  private final ResponseCache responseCache;
+  private final long masterchainInfoTtlMillis;
+  private volatile MasterchainInfo latestMasterchainInfo;
+  private volatile long latestMasterchainInfoMillis;
+  private final Object configSnapshotLock = new Object();
+  private volatile BlockchainConfigSnapshot configSnapshot;
+  private volatile BlockSubscriber blockSubscriber;
 
   private AdnlLiteClient(Builder builder) {
-    this.transport =
-        builder.client != null ? new AdnlTcpTransport(builder.client) : new AdnlTcpTransport();
-    this.pingScheduler = Executors.newSingleThreadScheduledExecutor();
-    this.globalConfig = builder.globalConfig;
+    Client client = builder.client != null ? builder.client : Client.generate();
+    if (builder.useNio) {
+      // socket I/O, timeouts and pings all run on the event loop shared by NIO transports
+      this.transport = new AdnlNioTransport(client, builder.maxInFlightQueries);
+      this.pingScheduler = null;
+    } else {
+      this.transport = new AdnlTcpTransport(client, builder.maxInFlightQueries);
+      this.pingScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+    if (builder.liteServer != null) {
+      // single lite-server, e.g. one connection of LiteClientConnectionPool
+      this.globalConfig =
+          TonGlobalConfig.builder().liteservers(new LiteServers[] {builder.liteServer}).build();
+    } else {
+      this.globalConfig = builder.globalConfig;
+    }
     this.liteServerIndex = builder.liteServerIndex;
     this.useServerRotation = builder.useServerRotation;
     this.maxRetries = builder.maxRetries;
     this.queryTimeout = builder.queryTimeout;
+    this.responseCache = builder.responseCache;
+    this.masterchainInfoTtlMillis = builder.masterchainInfoTtlMillis;
 
     if (this.liteServerIndex >= 0) {
       this.currentServerIndex.set(this.liteServerIndex);
@@ -167,21 +193,46 @@ public class AdnlLiteClient {
 
   /** Start ping scheduler to maintain connection */
   private void startPingScheduler() {
-    pingScheduler.scheduleAtFixedRate(
-        () -> {
-          try {
-            if (connected && transport.isConnected()) {
-              transport.ping().get(5, TimeUnit.SECONDS);
-              //              log.info("Ping successful");
-            }
-          } catch (Exception e) {
-            log.warn("Adnl tcp.Ping failed: ", e);
-            // Connection might be lost, could implement reconnection logic here
-          }
-        },
-        5,
-        5,
-        TimeUnit.SECONDS);
+    if (pingTask != null) {
+      pingTask.cancel(false);
+    }
+    if (pingScheduler == null) {
+      pingTask =
+          ((AdnlNioTransport) transport)
+              .getEventLoop()
+              .scheduleAtFixedRate(
+                  () -> {
+                    if (connected && transport.isConnected()) {
+                      transport
+                          .ping()
+                          .exceptionally(
+                              e -> {
+                                log.warn("Adnl tcp.Ping failed: ", e);
+                                return null;
+                              });
+                    }
+                  },
+                  5,
+                  5,
+                  TimeUnit.SECONDS);
+      return;
+    }
+    pingTask =
+        pingScheduler.scheduleAtFixedRate(
+            () -> {
+              try {
+                if (connected && transport.isConnected()) {
+                  transport.ping().get(5, TimeUnit.SECONDS);
+                  //              log.info("Ping successful");
+                }
+              } catch (Exception e) {
+                log.warn("Adnl tcp.Ping failed: ", e);
+                // Connection might be lost, could implement reconnection logic here
+              }
+            },
+            5,
+            5,
+            TimeUnit.SECONDS);
   }
 
   /**
@@ -201,7 +252,10 @@ public class AdnlLiteClient {
           LiteServerAnswer response;
           response = transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
           try {
-            return (MasterchainInfo) response;
+            MasterchainInfo masterchainInfo = (MasterchainInfo) response;
+            latestMasterchainInfo = masterchainInfo;
+            latestMasterchainInfoMillis = System.currentTimeMillis();
+            return masterchainInfo;
           } catch (Exception e) {
             if (response instanceof LiteServerError) {
               throw new Exception(((LiteServerError) response).getMessage());
@@ -211,6 +265,92 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Masterchain info fetched less than masterchainInfoTtlMillis ago, or a fresh one. Used by
+   * helpers like getBalance, getSeqno and getAccount, which read at the latest block.
+   *
+   * @return MasterchainInfo
+   * @throws Exception if query fails
+   */
+  public MasterchainInfo getLatestMasterchainInfo() throws Exception {
+    MasterchainInfo masterchainInfo = latestMasterchainInfo;
+    if (masterchainInfo != null
+        && System.currentTimeMillis() - latestMasterchainInfoMillis < masterchainInfoTtlMillis) {
+      return masterchainInfo;
+    }
+    return getMasterchainInfo();
+  }
+
+  /**
+   * Same as getLatestMasterchainInfo() without waiting for the answer and without retries
+   *
+   * @return future completed with the masterchain info
+   */
+  public CompletableFuture<MasterchainInfo> getLatestMasterchainInfoAsync() {
+    MasterchainInfo masterchainInfo = latestMasterchainInfo;
+    if (masterchainInfo != null
+        && System.currentTimeMillis() - latestMasterchainInfoMillis < masterchainInfoTtlMillis) {
+      return CompletableFuture.completedFuture(masterchainInfo);
+    }
+    return queryAsync(MasterchainInfoQuery.builder().build(), MasterchainInfo.class)
+        .thenApply(
+            info -> {
+              updateLatestMasterchainInfo(info);
+              return info;
+            });
+  }
+
+  /** Takes masterchain info received outside of getMasterchainInfo, unless it is older */
+  void updateLatestMasterchainInfo(MasterchainInfo masterchainInfo) {
+    MasterchainInfo latest = latestMasterchainInfo;
+    if (latest == null || latest.getLast().getSeqno() <= masterchainInfo.getLast().getSeqno()) {
+      latestMasterchainInfo = masterchainInfo;
+      latestMasterchainInfoMillis = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Subscriber to masterchain blocks shared by the waiting helpers of this client, started on first
+   * use and closed with the client. It also keeps getLatestMasterchainInfo() up to date.
+   *
+   * @return started BlockSubscriber without shard blocks
+   */
+  public BlockSubscriber getBlockSubscriber() {
+    BlockSubscriber subscriber = blockSubscriber;
+    if (subscriber == null) {
+      synchronized (this) {
+        subscriber = blockSubscriber;
+        if (subscriber == null) {
+          subscriber = new BlockSubscriber(this, false).start();
+          blockSubscriber = subscriber;
+        }
+      }
+    }
+    return subscriber;
+  }
+
+  /**
+   * Waits for the next masterchain block
+   *
+   * @param deadlineMillis time to give up at
+   * @return false if there was no new block before the deadline
+   */
+  private boolean awaitNextBlock(long deadlineMillis) {
+    long remaining = deadlineMillis - System.currentTimeMillis();
+    if (remaining <= 0) {
+      return false;
+    }
+    try {
+      getBlockSubscriber().nextMasterchainBlock().get(remaining, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException | CancellationException | ExecutionException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
   public MasterchainInfoExt getMasterchainInfoExt(int mode) throws Exception {
     return executeWithRetry(
         () -> {
@@ -287,8 +427,7 @@ public class AdnlLiteClient {
           byte[] queryBytes =
               LiteServerQuery.pack(ConfigAllQuery.builder().mode(mode).id(id).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (ConfigInfo) response;
           } catch (Exception e) {
@@ -300,6 +439,67 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Blockchain config at the latest masterchain block. The config is fetched with getConfigAll only
+   * when a key block changed it since the previous call, otherwise the previous snapshot with the
+   * params it has deserialized so far is returned. Costs one getBlockHeader per new masterchain
+   * block.
+   *
+   * @return BlockchainConfigSnapshot shared by all threads
+   * @throws Exception if query fails
+   */
+  public BlockchainConfigSnapshot getBlockchainConfig() throws Exception {
+    BlockIdExt last = getLatestMasterchainInfo().getLast();
+    BlockchainConfigSnapshot snapshot = configSnapshot;
+    if (snapshot != null && snapshot.getBlock().getSeqno() >= last.getSeqno()) {
+      return snapshot;
+    }
+    synchronized (configSnapshotLock) {
+      snapshot = configSnapshot;
+      if (snapshot != null && snapshot.getBlock().getSeqno() >= last.getSeqno()) {
+        return snapshot;
+      }
+      long keyBlockSeqno = getKeyBlockSeqno(last);
+      if (snapshot != null && snapshot.getKeyBlockSeqno() == keyBlockSeqno) {
+        snapshot = snapshot.withBlock(last, keyBlockSeqno);
+      } else {
+        BlockchainConfigSnapshot fetched = getBlockchainConfig(last, keyBlockSeqno);
+        snapshot =
+            snapshot != null && snapshot.hasSameConfig(fetched)
+                ? snapshot.withBlock(last, keyBlockSeqno)
+                : fetched;
+      }
+      configSnapshot = snapshot;
+      return snapshot;
+    }
+  }
+
+  /**
+   * Blockchain config at the given masterchain block, fetched with one getConfigAll
+   *
+   * @param id masterchain block
+   * @return BlockchainConfigSnapshot
+   * @throws Exception if query fails
+   */
+  public BlockchainConfigSnapshot getBlockchainConfig(BlockIdExt id) throws Exception {
+    return getBlockchainConfig(id, getKeyBlockSeqno(id));
+  }
+
+  private BlockchainConfigSnapshot getBlockchainConfig(BlockIdExt id, long keyBlockSeqno)
+      throws Exception {
+    ConfigInfo configInfo = getConfigAll(id, 0);
+    return new BlockchainConfigSnapshot(
+        id, keyBlockSeqno, configInfo.getConfigParams().getConfig());
+  }
+
+  /** Seqno of the block if it is a key block, otherwise of the previous key block */
+  private long getKeyBlockSeqno(BlockIdExt id) throws Exception {
+    BlockHeader header = getBlockHeader(id, 0);
+    Cell block = Cell.fromBoc(header.headerProof).getRefs().get(0);
+    BlockInfo info = BlockInfo.deserialize(CellSlice.beginParse(block.getRefs().get(0)));
+    return info.isKeyBlock() ? info.getSeqno() : info.getPrevKeyBlockSeqno();
+  }
+
   public ConfigInfo getConfigParams(BlockIdExt id, int mode, int[] paramList) throws Exception {
     return executeWithRetry(
         () -> {
@@ -311,8 +511,7 @@ public class AdnlLiteClient {
               LiteServerQuery.pack(
                   ConfigParamsQuery.builder().mode(mode).id(id).paramList(paramList).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (ConfigInfo) response;
           } catch (Exception e) {
@@ -327,8 +526,7 @@ public class AdnlLiteClient {
   /** config address */
   public ConfigParams0 getConfigParam0() {
     try {
-      Cell c = getConfigParamCell(0);
-      return ConfigParams0.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(0, ConfigParams0.class);
     } catch (Throwable e) {
       return ConfigParams0.builder().configAddr(BigInteger.ZERO).build();
     }
@@ -337,8 +535,7 @@ public class AdnlLiteClient {
   /** elector address */
   public ConfigParams1 getConfigParam1() {
     try {
-      Cell c = getConfigParamCell(1);
-      return ConfigParams1.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(1, ConfigParams1.class);
     } catch (Throwable e) {
       return ConfigParams1.builder().electorAddr(BigInteger.ONE.negate()).build();
     }
@@ -347,8 +544,7 @@ public class AdnlLiteClient {
   /** minter address */
   public ConfigParams2 getConfigParam2() {
     try {
-      Cell c = getConfigParamCell(2);
-      return ConfigParams2.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(2, ConfigParams2.class);
     } catch (Throwable e) {
       return ConfigParams2.builder().minterAddr(BigInteger.ONE.negate()).build();
     }
@@ -357,8 +553,7 @@ public class AdnlLiteClient {
   /** fee collector address */
   public ConfigParams3 getConfigParam3() {
     try {
-      Cell c = getConfigParamCell(3);
-      return ConfigParams3.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(3, ConfigParams3.class);
     } catch (Throwable e) {
       return ConfigParams3.builder().build();
     }
@@ -367,8 +562,7 @@ public class AdnlLiteClient {
   /** dns root address */
   public ConfigParams4 getConfigParam4() {
     try {
-      Cell c = getConfigParamCell(4);
-      return ConfigParams4.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(4, ConfigParams4.class);
     } catch (Throwable e) {
       return ConfigParams4.builder().build();
     }
@@ -377,8 +571,7 @@ public class AdnlLiteClient {
   /** burning_config */
   public ConfigParams5 getConfigParam5() {
     try {
-      Cell c = getConfigParamCell(5);
-      return ConfigParams5.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(5, ConfigParams5.class);
     } catch (Throwable e) {
       return ConfigParams5.builder().build();
     }
@@ -387,8 +580,7 @@ public class AdnlLiteClient {
   /** mint_new_price:Grams mint_add_price:Grams */
   public ConfigParams6 getConfigParam6() {
     try {
-      Cell c = getConfigParamCell(6);
-      return ConfigParams6.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(6, ConfigParams6.class);
     } catch (Throwable e) {
       return ConfigParams6.builder().build();
     }
@@ -400,8 +592,7 @@ public class AdnlLiteClient {
    */
   public ConfigParams8 getConfigParam8() {
     try {
-      Cell c = getConfigParamCell(8);
-      return ConfigParams8.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(8, ConfigParams8.class);
     } catch (Throwable e) {
       return ConfigParams8.builder().build();
     }
@@ -410,8 +601,7 @@ public class AdnlLiteClient {
   /** mandatory_params */
   public ConfigParams9 getConfigParam9() {
     try {
-      Cell c = getConfigParamCell(9);
-      return ConfigParams9.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(9, ConfigParams9.class);
     } catch (Throwable e) {
       return ConfigParams9.builder().build();
     }
@@ -420,8 +610,7 @@ public class AdnlLiteClient {
   /** critical_params */
   public ConfigParams10 getConfigParam10() {
     try {
-      Cell c = getConfigParamCell(10);
-      return ConfigParams10.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(10, ConfigParams10.class);
     } catch (Throwable e) {
       return ConfigParams10.builder().build();
     }
@@ -433,8 +622,7 @@ public class AdnlLiteClient {
    */
   public ConfigParams11 getConfigParam11() {
     try {
-      Cell c = getConfigParamCell(11);
-      return ConfigParams11.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(11, ConfigParams11.class);
     } catch (Throwable e) {
       return ConfigParams11.builder().build();
     }
@@ -443,8 +631,7 @@ public class AdnlLiteClient {
   /** workchains */
   public ConfigParams12 getConfigParam12() {
     try {
-      Cell c = getConfigParamCell(12);
-      return ConfigParams12.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(12, ConfigParams12.class);
     } catch (Throwable e) {
       return ConfigParams12.builder().build();
     }
@@ -453,8 +640,7 @@ public class AdnlLiteClient {
   /** ComplaintPricing */
   public ConfigParams13 getConfigParam13() {
     try {
-      Cell c = getConfigParamCell(13);
-      return ConfigParams13.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(13, ConfigParams13.class);
     } catch (Throwable e) {
       return ConfigParams13.builder().build();
     }
@@ -463,8 +649,7 @@ public class AdnlLiteClient {
   /** BlockCreateFees */
   public ConfigParams14 getConfigParam14() {
     try {
-      Cell c = getConfigParamCell(14);
-      return ConfigParams14.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(14, ConfigParams14.class);
     } catch (Throwable e) {
       return ConfigParams14.builder().build();
     }
@@ -473,8 +658,7 @@ public class AdnlLiteClient {
   /** election timing */
   public ConfigParams15 getConfigParam15() {
     try {
-      Cell c = getConfigParamCell(15);
-      return ConfigParams15.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(15, ConfigParams15.class);
     } catch (Throwable e) {
       return ConfigParams15.builder().build();
     }
@@ -483,8 +667,7 @@ public class AdnlLiteClient {
   /** max min validators */
   public ConfigParams16 getConfigParam16() {
     try {
-      Cell c = getConfigParamCell(16);
-      return ConfigParams16.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(16, ConfigParams16.class);
     } catch (Throwable e) {
       return ConfigParams16.builder().build();
     }
@@ -493,8 +676,7 @@ public class AdnlLiteClient {
   /** max min stake */
   public ConfigParams17 getConfigParam17() {
     try {
-      Cell c = getConfigParamCell(17);
-      return ConfigParams17.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(17, ConfigParams17.class);
     } catch (Throwable e) {
       return ConfigParams17.builder().build();
     }
@@ -503,8 +685,7 @@ public class AdnlLiteClient {
   /** storage prices */
   public ConfigParams18 getConfigParam18() {
     try {
-      Cell c = getConfigParamCell(18);
-      return ConfigParams18.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(18, ConfigParams18.class);
     } catch (Throwable e) {
       return ConfigParams18.builder().build();
     }
@@ -513,8 +694,7 @@ public class AdnlLiteClient {
   /** GasLimitsPrices masterchain */
   public ConfigParams20 getConfigParam20() {
     try {
-      Cell c = getConfigParamCell(20);
-      return ConfigParams20.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(20, ConfigParams20.class);
     } catch (Throwable e) {
       return ConfigParams20.builder().build();
     }
@@ -523,8 +703,7 @@ public class AdnlLiteClient {
   /** GasLimitsPrices workchains */
   public ConfigParams21 getConfigParam21() {
     try {
-      Cell c = getConfigParamCell(21);
-      return ConfigParams21.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(21, ConfigParams21.class);
     } catch (Throwable e) {
       return ConfigParams21.builder().build();
     }
@@ -533,8 +712,7 @@ public class AdnlLiteClient {
   /** BlockLimits masterchain */
   public ConfigParams22 getConfigParam22() {
     try {
-      Cell c = getConfigParamCell(22);
-      return ConfigParams22.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(22, ConfigParams22.class);
     } catch (Throwable e) {
       return ConfigParams22.builder().build();
     }
@@ -543,8 +721,7 @@ public class AdnlLiteClient {
   /** BlockLimits workchains */
   public ConfigParams23 getConfigParam23() {
     try {
-      Cell c = getConfigParamCell(23);
-      return ConfigParams23.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(23, ConfigParams23.class);
     } catch (Throwable e) {
       return ConfigParams23.builder().build();
     }
@@ -553,8 +730,7 @@ public class AdnlLiteClient {
   /** MsgForwardPrices masterchain */
   public ConfigParams24 getConfigParam24() {
     try {
-      Cell c = getConfigParamCell(24);
-      return ConfigParams24.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(24, ConfigParams24.class);
     } catch (Throwable e) {
       return ConfigParams24.builder().build();
     }
@@ -563,8 +739,7 @@ public class AdnlLiteClient {
   /** MsgForwardPrices */
   public ConfigParams25 getConfigParam25() {
     try {
-      Cell c = getConfigParamCell(25);
-      return ConfigParams25.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(25, ConfigParams25.class);
     } catch (Throwable e) {
       return ConfigParams25.builder().build();
     }
@@ -573,8 +748,7 @@ public class AdnlLiteClient {
   /** CatchainConfig */
   public ConfigParams28 getConfigParam28() {
     try {
-      Cell c = getConfigParamCell(28);
-      return ConfigParams28.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(28, ConfigParams28.class);
     } catch (Throwable e) {
       return ConfigParams28.builder().build();
     }
@@ -583,8 +757,7 @@ public class AdnlLiteClient {
   /** ConsensusConfig */
   public ConfigParams29 getConfigParam29() {
     try {
-      Cell c = getConfigParamCell(29);
-      return ConfigParams29.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(29, ConfigParams29.class);
     } catch (Throwable e) {
       return ConfigParams29.builder().build();
     }
@@ -593,8 +766,7 @@ public class AdnlLiteClient {
   /** fundamental_smc_addr */
   public ConfigParams31 getConfigParam31() {
     try {
-      Cell c = getConfigParamCell(31);
-      return ConfigParams31.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(31, ConfigParams31.class);
     } catch (Throwable e) {
       return ConfigParams31.builder().build();
     }
@@ -603,8 +775,7 @@ public class AdnlLiteClient {
   /** prev_validators */
   public ConfigParams32 getConfigParam32() {
     try {
-      Cell c = getConfigParamCell(32);
-      return ConfigParams32.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(32, ConfigParams32.class);
     } catch (Throwable e) {
       return ConfigParams32.builder().prevValidatorSet(Validators.builder().build()).build();
     }
@@ -613,8 +784,7 @@ public class AdnlLiteClient {
   /** prev_temp_validators */
   public ConfigParams33 getConfigParam33() {
     try {
-      Cell c = getConfigParamCell(33);
-      return ConfigParams33.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(33, ConfigParams33.class);
     } catch (Throwable e) {
       return ConfigParams33.builder().prevTempValidatorSet(Validators.builder().build()).build();
     }
@@ -623,8 +793,7 @@ public class AdnlLiteClient {
   /** cur_validators */
   public ConfigParams34 getConfigParam34() {
     try {
-      Cell c = getConfigParamCell(34);
-      return ConfigParams34.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(34, ConfigParams34.class);
     } catch (Throwable e) {
       return ConfigParams34.builder().currValidatorSet(Validators.builder().build()).build();
     }
@@ -633,8 +802,7 @@ public class AdnlLiteClient {
   /** cur_temp_validators */
   public ConfigParams35 getConfigParam35() {
     try {
-      Cell c = getConfigParamCell(35);
-      return ConfigParams35.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(35, ConfigParams35.class);
     } catch (Throwable e) {
       return ConfigParams35.builder().currTempValidatorSet(Validators.builder().build()).build();
     }
@@ -643,8 +811,7 @@ public class AdnlLiteClient {
   /** next_validators */
   public ConfigParams36 getConfigParam36() {
     try {
-      Cell c = getConfigParamCell(36);
-      return ConfigParams36.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(36, ConfigParams36.class);
     } catch (Throwable e) {
       return ConfigParams36.builder().nextValidatorSet(Validators.builder().build()).build();
     }
@@ -653,23 +820,24 @@ public class AdnlLiteClient {
   /** next_temp_validators */
   public ConfigParams37 getConfigParam37() {
     try {
-      Cell c = getConfigParamCell(37);
-      return ConfigParams37.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(37, ConfigParams37.class);
     } catch (Throwable e) {
       return ConfigParams37.builder().nextTempValidatorSet(Validators.builder().build()).build();
     }
   }
 
-  private Cell getConfigParamCell(int val) throws Exception {
-    ConfigInfo configInfo = getConfigAll(getMasterchainInfo().getLast(), 0);
-    return (Cell) configInfo.getConfigParams().getConfig().elements.get(BigInteger.valueOf(val));
+  private <T> T getConfigParam(int index, Class<T> type) throws Exception {
+    T param = getBlockchainConfig().getConfigParam(index, type);
+    if (param == null) {
+      throw new Error("Config param " + index + " not found");
+    }
+    return param;
   }
 
   /** ValidatorSignedTempKey */
   public ConfigParams39 getConfigParam39() {
     try {
-      Cell c = getConfigParamCell(39);
-      return ConfigParams39.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(39, ConfigParams39.class);
     } catch (Throwable e) {
       return ConfigParams39.builder().validatorSignedTemp(new TonHashMapE(0)).build();
     }
@@ -678,8 +846,7 @@ public class AdnlLiteClient {
   /** MisbehaviourPunishmentConfig */
   public ConfigParams40 getConfigParam40() {
     try {
-      Cell c = getConfigParamCell(40);
-      return ConfigParams40.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(40, ConfigParams40.class);
     } catch (Throwable e) {
       log.error("Error getting config params 40");
       return ConfigParams40.builder().build();
@@ -689,8 +856,7 @@ public class AdnlLiteClient {
   /** SuspendedAddressList */
   public ConfigParams44 getConfigParam44() {
     try {
-      Cell c = getConfigParamCell(44);
-      return ConfigParams44.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(44, ConfigParams44.class);
     } catch (Throwable e) {
       return ConfigParams44.builder().build();
     }
@@ -699,8 +865,7 @@ public class AdnlLiteClient {
   /** PrecompiledContractsConfig */
   public ConfigParams45 getConfigParam45() {
     try {
-      Cell c = getConfigParamCell(45);
-      return ConfigParams45.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(45, ConfigParams45.class);
     } catch (Throwable e) {
       return ConfigParams45.builder().build();
     }
@@ -709,8 +874,7 @@ public class AdnlLiteClient {
   /** Ethereum bridges */
   public ConfigParams71 getConfigParam71() {
     try {
-      Cell c = getConfigParamCell(71);
-      return ConfigParams71.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(71, ConfigParams71.class);
     } catch (Throwable e) {
       return ConfigParams71.builder().build();
     }
@@ -719,8 +883,7 @@ public class AdnlLiteClient {
   /** Binance Smart Chain bridges */
   public ConfigParams72 getConfigParam72() {
     try {
-      Cell c = getConfigParamCell(72);
-      return ConfigParams72.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(72, ConfigParams72.class);
     } catch (Throwable e) {
       return ConfigParams72.builder().build();
     }
@@ -729,8 +892,7 @@ public class AdnlLiteClient {
   /** Polygon bridges */
   public ConfigParams73 getConfigParam73() {
     try {
-      Cell c = getConfigParamCell(73);
-      return ConfigParams73.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(73, ConfigParams73.class);
     } catch (Throwable e) {
       return ConfigParams73.builder().polygonBridge(OracleBridgeParams.builder().build()).build();
     }
@@ -739,8 +901,7 @@ public class AdnlLiteClient {
   /** ETH-&gt;TON token bridges */
   public ConfigParams79 getConfigParam79() {
     try {
-      Cell c = getConfigParamCell(79);
-      return ConfigParams79.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(79, ConfigParams79.class);
     } catch (Throwable e) {
       return ConfigParams79.builder().build();
     }
@@ -749,8 +910,7 @@ public class AdnlLiteClient {
   /** BNB-&gt;TON token bridges */
   public ConfigParams81 getConfigParam81() {
     try {
-      Cell c = getConfigParamCell(81);
-      return ConfigParams81.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(81, ConfigParams81.class);
     } catch (Throwable e) {
       return ConfigParams81.builder().build();
     }
@@ -759,8 +919,7 @@ public class AdnlLiteClient {
   /** Polygon-&gt;TON token bridges */
   public ConfigParams82 getConfigParam82() {
     try {
-      Cell c = getConfigParamCell(82);
-      return ConfigParams82.deserialize(CellSlice.beginParse(c));
+      return getConfigParam(82, ConfigParams82.class);
     } catch (Throwable e) {
       return ConfigParams82.builder()
           .polygonTonTokenBridge(JettonBridgeParamsV1.builder().build())
@@ -777,8 +936,7 @@ public class AdnlLiteClient {
 
           byte[] queryBytes = LiteServerQuery.pack(BlockQuery.builder().id(id).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (BlockData) response;
           } catch (Exception e) {
@@ -822,8 +980,7 @@ public class AdnlLiteClient {
           byte[] queryBytes =
               LiteServerQuery.pack(BlockHeaderQuery.builder().id(id).mode(mode).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (BlockHeader) response;
           } catch (Exception e) {
@@ -875,8 +1032,7 @@ public class AdnlLiteClient {
 
           byte[] queryBytes = LiteServerQuery.pack(ShardBlockProofQuery.builder().id(id).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (ShardBlockProof) response;
           } catch (Exception e) {
@@ -926,11 +1082,11 @@ public class AdnlLiteClient {
   }
 
   public Account getAccount(Address address) throws Exception {
-    return getAccountState(getMasterchainInfo().getLast(), address).getAccount();
+    return getAccountState(getLatestMasterchainInfo().getLast(), address).getAccount();
   }
 
   public String getAccountStatus(Address address) throws Exception {
-    Account account = getAccountState(getMasterchainInfo().getLast(), address).getAccount();
+    Account account = getAccountState(getLatestMasterchainInfo().getLast(), address).getAccount();
     if (account == null) {
       return "UNINIT";
     }
@@ -948,8 +1104,7 @@ public class AdnlLiteClient {
               LiteServerQuery.pack(
                   AccountStateQuery.builder().id(id).account(accountAddress).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (AccountState) response;
           } catch (Exception e) {
@@ -961,6 +1116,47 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Sends liteServer.getAccountState without waiting for the answer. Cancelling the returned future
+   * cancels the query on the connection.
+   */
+  public CompletableFuture<AccountState> getAccountStateAsync(
+      BlockIdExt id, Address accountAddress) {
+    return queryAsync(
+        AccountStateQuery.builder().id(id).account(accountAddress).build(), AccountState.class);
+  }
+
+  /**
+   * Reads the states of many accounts at one block. Queries are pipelined on the connection with
+   * at most 64 of them in flight.
+   *
+   * @param id block all states are read at, the latest masterchain block if null
+   * @param addresses accounts
+   * @return states in the order of addresses
+   * @throws Exception the failure of the first failed query
+   */
+  public List<AccountState> getAccountStates(BlockIdExt id, List<Address> addresses)
+      throws Exception {
+    return BatchQueries.join(
+        getAccountStatesAsync(id, addresses, BatchQueries.DEFAULT_CONCURRENCY));
+  }
+
+  /**
+   * Sends liteServer.getAccountState for many accounts at one block, keeping at most {@code
+   * concurrency} queries in flight, and returns without waiting for the answers
+   *
+   * @param id block all states are read at, the latest masterchain block if null
+   * @param addresses accounts
+   * @param concurrency maximum number of queries in flight
+   * @return futures of the states in the order of addresses
+   */
+  public List<CompletableFuture<AccountState>> getAccountStatesAsync(
+      BlockIdExt id, List<Address> addresses, int concurrency) throws Exception {
+    BlockIdExt block = id != null ? id : getLatestMasterchainInfo().getLast();
+    return BatchQueries.execute(
+        addresses, concurrency, address -> getAccountStateAsync(block, address));
+  }
+
   public AccountState getAccountStatePruned(BlockIdExt id, Address accountAddress)
       throws Exception {
     return executeWithRetry(
@@ -973,8 +1169,7 @@ public class AdnlLiteClient {
               LiteServerQuery.pack(
                   AccountStatePrunedQuery.builder().id(id).account(accountAddress).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (AccountState) response;
           } catch (Exception e) {
@@ -990,7 +1185,7 @@ public class AdnlLiteClient {
     try {
       RunMethodResult runMethodResult =
           runMethod(
-              getMasterchainInfo().getLast(),
+              getLatestMasterchainInfo().getLast(),
               4,
               accountAddress,
               Utils.calculateMethodId("seqno"),
@@ -1013,7 +1208,7 @@ public class AdnlLiteClient {
     try {
       RunMethodResult runMethodResult =
           runMethod(
-              getMasterchainInfo().getLast(),
+              getLatestMasterchainInfo().getLast(),
               4,
               accountAddress,
               Utils.calculateMethodId("get_public_key"),
@@ -1036,7 +1231,7 @@ public class AdnlLiteClient {
     try {
       RunMethodResult runMethodResult =
           runMethod(
-              getMasterchainInfo().getLast(),
+              getLatestMasterchainInfo().getLast(),
               4,
               accountAddress,
               Utils.calculateMethodId("get_subwallet_id"),
@@ -1074,7 +1269,7 @@ public class AdnlLiteClient {
 
       RunMethodResult runMethodResult =
           runMethod(
-              getMasterchainInfo().getLast(),
+              getLatestMasterchainInfo().getLast(),
               4,
               Address.of("-1:3333333333333333333333333333333333333333333333333333333333333333"),
               Utils.calculateMethodId("compute_returned_stake"),
@@ -1098,7 +1293,7 @@ public class AdnlLiteClient {
   public RunMethodResult runMethod(Address accountAddress, String methodName) {
     try {
       return runMethod(
-          getMasterchainInfo().getLast(),
+          getLatestMasterchainInfo().getLast(),
           4,
           accountAddress,
           Utils.calculateMethodId(methodName),
@@ -1112,7 +1307,7 @@ public class AdnlLiteClient {
       throws Exception {
     try {
       return runMethod(
-          getMasterchainInfo().getLast(),
+          getLatestMasterchainInfo().getLast(),
           4,
           accountAddress,
           Utils.calculateMethodId(methodName),
@@ -1134,7 +1329,7 @@ public class AdnlLiteClient {
               .build();
 
       return runMethod(
-          getMasterchainInfo().getLast(),
+          getLatestMasterchainInfo().getLast(),
           4,
           accountAddress,
           Utils.calculateMethodId(methodName),
@@ -1176,6 +1371,61 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Sends liteServer.runSmcMethod without waiting for the answer. Cancelling the returned future
+   * cancels the query on the connection.
+   */
+  public CompletableFuture<RunMethodResult> runMethodAsync(
+      BlockIdExt id, int mode, Address accountAddress, long methodId, byte[] methodParams) {
+    return queryAsync(
+        RunSmcMethodQuery.builder()
+            .mode(mode)
+            .id(id)
+            .account(accountAddress)
+            .methodId(methodId)
+            .params(methodParams)
+            .build(),
+        RunMethodResult.class);
+  }
+
+  /**
+   * Runs get-methods of many accounts at one block. Queries are pipelined on the connection with at
+   * most 64 of them in flight.
+   *
+   * @param id block all methods run at, the latest masterchain block if null
+   * @param calls get-method calls
+   * @return results in the order of calls
+   * @throws Exception the failure of the first failed query
+   */
+  public List<RunMethodResult> runMethods(BlockIdExt id, List<MethodCall> calls)
+      throws Exception {
+    return BatchQueries.join(runMethodsAsync(id, calls, BatchQueries.DEFAULT_CONCURRENCY));
+  }
+
+  /**
+   * Sends liteServer.runSmcMethod for many calls at one block, keeping at most {@code concurrency}
+   * queries in flight, and returns without waiting for the answers
+   *
+   * @param id block all methods run at, the latest masterchain block if null
+   * @param calls get-method calls
+   * @param concurrency maximum number of queries in flight
+   * @return futures of the results in the order of calls
+   */
+  public List<CompletableFuture<RunMethodResult>> runMethodsAsync(
+      BlockIdExt id, List<MethodCall> calls, int concurrency) throws Exception {
+    BlockIdExt block = id != null ? id : getLatestMasterchainInfo().getLast();
+    return BatchQueries.execute(
+        calls,
+        concurrency,
+        call ->
+            runMethodAsync(
+                block,
+                call.getModeOrDefault(),
+                call.getAddress(),
+                call.getMethodId(),
+                call.getParamsOrEmpty()));
+  }
+
   public ShardInfo getShardInfo(BlockIdExt id, int workchain, long shard, boolean exact)
       throws Exception {
     return executeWithRetry(
@@ -1193,8 +1443,7 @@ public class AdnlLiteClient {
                       .exact(exact)
                       .build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (ShardInfo) response;
           } catch (Exception e) {
@@ -1215,8 +1464,7 @@ public class AdnlLiteClient {
 
           byte[] queryBytes = LiteServerQuery.pack(AllShardsInfoQuery.builder().id(id).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (AllShardsInfo) response;
           } catch (Exception e) {
@@ -1240,8 +1488,7 @@ public class AdnlLiteClient {
               LiteServerQuery.pack(
                   OneTransactionQuery.builder().id(id).account(accountAddress).lt(lt).build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (TransactionInfo) response;
           } catch (Exception e) {
@@ -1263,7 +1510,7 @@ public class AdnlLiteClient {
           long tempLt = 0;
           byte[] tempHash = new byte[0];
           if ((lt == 0) || (hash == null)) {
-            MasterchainInfo masterchainInfo = getMasterchainInfo();
+            MasterchainInfo masterchainInfo = getLatestMasterchainInfo();
             AccountState account = getAccountState(masterchainInfo.getLast(), accountAddress);
             if ((account.getShardAccounts() != null) && (!account.getShardAccounts().isEmpty())) {
               tempLt = account.getShardAccounts().get(0).getLastTransLt().longValue();
@@ -1281,8 +1528,8 @@ public class AdnlLiteClient {
                       .hash((tempHash.length != 0) ? tempHash : hash)
                       .build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          // transactions before lt and hash never change
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (TransactionList) response;
           } catch (Exception e) {
@@ -1294,6 +1541,56 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Sends liteServer.getTransactions without waiting for the answer. Cancelling the returned future
+   * cancels the query on the connection.
+   *
+   * @param accountAddress account
+   * @param lt logical time of the newest transaction to return
+   * @param hash hash of the newest transaction to return
+   * @param count number of transactions, lite-servers return at most 16
+   */
+  public CompletableFuture<TransactionList> getTransactionsAsync(
+      Address accountAddress, long lt, byte[] hash, int count) {
+    return queryAsync(
+        TransactionListQuery.builder()
+            .count(count)
+            .account(accountAddress)
+            .lt(lt)
+            .hash(hash)
+            .build(),
+        TransactionList.class);
+  }
+
+  /**
+   * Iterates all transactions of the account from the last one, fetching lookAhead pages ahead of
+   * the caller and deserializing them in the common pool
+   *
+   * @param accountAddress account
+   * @param pageSize transactions per query, lite-servers return at most 16
+   * @param lookAhead pages fetched ahead of the caller
+   * @return iterator to close when not read to the end
+   */
+  public TransactionIterator getTransactionIterator(
+      Address accountAddress, int pageSize, int lookAhead) {
+    return new TransactionIterator(
+        this, accountAddress, 0, null, pageSize, lookAhead, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @return lazy stream of all transactions of the account from the last one, 16 per page and 4
+   *     pages ahead, to close when not read to the end
+   */
+  public Stream<Transaction> streamTransactions(Address accountAddress) {
+    TransactionIterator iterator =
+        getTransactionIterator(accountAddress, TransactionIterator.MAX_PAGE_SIZE, 4);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(iterator::close);
+  }
+
   public BlockHeader lookupBlock(BlockId id, int mode, long lt, int utime) throws Exception {
     return executeWithRetry(
         () -> {
@@ -1318,6 +1615,17 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Sends liteServer.lookupBlock without waiting for the answer. Cancelling the returned future
+   * cancels the query on the connection.
+   */
+  public CompletableFuture<BlockHeader> lookupBlockAsync(
+      BlockId id, int mode, long lt, int utime) {
+    return queryAsync(
+        LookupBlockQuery.builder().id(id).mode(mode).lt(lt).utime(utime).build(),
+        BlockHeader.class);
+  }
+
   public LookupBlockResult lookupBlockWithProof(
       int mode, BlockId id, BlockIdExt mcId, long lt, int utime) throws Exception {
     return executeWithRetry(
@@ -1366,8 +1674,7 @@ public class AdnlLiteClient {
                       .afterTx(transactionId3)
                       .build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (BlockTransactions) response;
           } catch (Exception e) {
@@ -1404,8 +1711,7 @@ public class AdnlLiteClient {
                       .wantProof(wantProof)
                       .build());
 
-          LiteServerAnswer response =
-              transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+          LiteServerAnswer response = queryCached(queryBytes);
           try {
             return (BlockTransactionsExt) response;
           } catch (Exception e) {
@@ -1417,11 +1723,26 @@ public class AdnlLiteClient {
         });
   }
 
-  /** Close connection */
+  /** Close connection and stop the block subscriber */
   public void close() {
+    BlockSubscriber subscriber = blockSubscriber;
+    if (subscriber != null) {
+      subscriber.close();
+      blockSubscriber = null;
+    }
+    disconnect();
+  }
+
+  private void disconnect() {
     connected = false;
-    pingScheduler.shutdown();
+    if (pingTask != null) {
+      pingTask.cancel(false);
+    }
     transport.close();
+    if (pingScheduler == null) {
+      return;
+    }
+    pingScheduler.shutdown();
 
     try {
       if (!pingScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -1621,6 +1942,87 @@ public class AdnlLiteClient {
         });
   }
 
+  /**
+   * Sends a query pinned to a block, answering from the response cache if possible. Answers other
+   * than liteServer.error are added to the cache.
+   *
+   * @param queryBytes serialized liteServer.query
+   * @return deserialized answer
+   */
+  private LiteServerAnswer queryCached(byte[] queryBytes) throws Exception {
+    if (responseCache == null) {
+      return transport.query(queryBytes).get(queryTimeout, TimeUnit.SECONDS);
+    }
+    RawAnswer cached = responseCache.get(queryBytes);
+    if (cached != null) {
+      return decode(cached);
+    }
+    RawAnswer raw =
+        (RawAnswer) transport.query(queryBytes, true).get(queryTimeout, TimeUnit.SECONDS);
+    LiteServerAnswer answer = decode(raw);
+    if (!(answer instanceof LiteServerError)) {
+      responseCache.put(queryBytes, raw);
+    }
+    return answer;
+  }
+
+  private LiteServerAnswer decode(RawAnswer raw) {
+    return transport
+        .getAnswerRegistry()
+        .deserialize(raw.getId(), ByteBuffer.wrap(raw.data).order(ByteOrder.LITTLE_ENDIAN));
+  }
+
+  /**
+   * @return cache of block pinned answers, null if caching is disabled
+   */
+  public ResponseCache getResponseCache() {
+    return responseCache;
+  }
+
+  /**
+   * Sends a query without waiting for its answer and without retries
+   *
+   * @param query lite-server query
+   * @param answerType expected answer
+   * @return future completed with the answer, exceptionally with the message of a
+   *     liteServer.error, or after queryTimeout seconds with a TimeoutException. Cancelling it
+   *     cancels the query on the connection.
+   */
+  <T extends LiteServerAnswer> CompletableFuture<T> queryAsync(
+      LiteServerQueryData query, Class<T> answerType) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    if (!connected || !transport.isConnected()) {
+      result.completeExceptionally(new IllegalStateException("Not connected to lite-server"));
+      return result;
+    }
+
+    CompletableFuture<LiteServerAnswer> answer = transport.query(LiteServerQuery.pack(query));
+    answer.whenComplete(
+        (response, error) -> {
+          if (error != null) {
+            result.completeExceptionally(error);
+          } else if (answerType.isInstance(response)) {
+            result.complete(answerType.cast(response));
+          } else if (response instanceof LiteServerError) {
+            result.completeExceptionally(
+                new Exception(((LiteServerError) response).getMessage()));
+          } else {
+            result.completeExceptionally(
+                new ClassCastException(
+                    "Expected " + answerType.getSimpleName() + " but received " + response));
+          }
+        });
+    result.orTimeout(queryTimeout, TimeUnit.SECONDS);
+    // cancellation and timeout release the query on the transport
+    result.whenComplete(
+        (response, error) -> {
+          if (error != null) {
+            answer.cancel(false);
+          }
+        });
+    return result;
+  }
+
   /**
    * Execute a query with retry mechanism
    *
@@ -1708,7 +2110,7 @@ public class AdnlLiteClient {
 
       try {
         // Close current connection
-        close();
+        disconnect();
         // Connect to next server
         connect(globalConfig.getLiteservers()[nextIndex]);
         log.info("Switched to lite-server at index: {}", nextIndex);
@@ -1744,6 +2146,10 @@ public class AdnlLiteClient {
     private boolean useServerRotation = true;
     private int maxRetries = 5;
     private int queryTimeout = 60;
+    private int maxInFlightQueries = AdnlTransport.DEFAULT_MAX_IN_FLIGHT_QUERIES;
+    private boolean useNio = false;
+    private ResponseCache responseCache;
+    private long masterchainInfoTtlMillis = 1000;
 
     /** Create a new builder */
     public Builder() {}
@@ -1770,6 +2176,12 @@ public class AdnlLiteClient {
       return this;
     }
 
+    /**
+     * Connect to this lite-server only, instead of the lite-servers of the global config
+     *
+     * @param liteServer lite-server from the global config
+     * @return Builder
+     */
     public Builder liteServer(LiteServers liteServer) {
       this.liteServer = liteServer;
       return this;
@@ -1857,6 +2269,55 @@ public class AdnlLiteClient {
       return this;
     }
 
+    /**
+     * Set the maximum number of queries that may wait for an answer on the connection at the same
+     * time. Answers are matched to queries by query id, so concurrent calls share one connection.
+     *
+     * @param maxInFlightQueries Size of the in-flight query window
+     * @return Builder
+     */
+    public Builder maxInFlightQueries(int maxInFlightQueries) {
+      this.maxInFlightQueries = maxInFlightQueries;
+      return this;
+    }
+
+    /**
+     * Use the non-blocking transport. All clients built with this flag share a single event loop
+     * thread for socket I/O, query timeouts and pings instead of owning three threads each.
+     *
+     * @param useNio Whether to use {@link AdnlNioTransport}
+     * @return Builder
+     */
+    public Builder useNio(boolean useNio) {
+      this.useNio = useNio;
+      return this;
+    }
+
+    /**
+     * Cache answers of queries pinned to a block, like getBlock, getBlockHeader, getConfigAll,
+     * getAllShardsInfo, listBlockTransactions, getAccountState and getTransactions, e.g. in a
+     * {@link LruResponseCache} or a persistent {@link DiskResponseCache}. Disabled by default.
+     *
+     * @param responseCache cache shared by any number of clients
+     * @return Builder
+     */
+    public Builder responseCache(ResponseCache responseCache) {
+      this.responseCache = responseCache;
+      return this;
+    }
+
+    /**
+     * Set for how long helpers like getBalance, getSeqno and getAccount reuse the latest
+     * masterchain info instead of fetching it again, default 1000 ms
+     *
+     * @param masterchainInfoTtlMillis Time to live in milliseconds, 0 to always fetch
+     * @return Builder
+     */
+    public Builder masterchainInfoTtlMillis(long masterchainInfoTtlMillis) {
+      this.masterchainInfoTtlMillis = masterchainInfoTtlMillis;
+      return this;
+    }
+
     /**
      * Build the AdnlLiteClient
      *
@@ -1878,28 +2339,27 @@ public class AdnlLiteClient {
     }
   }
 
+  /** Checks on every new masterchain block for timeoutSeconds if the account was deployed */
   public void waitForDeployment(Address address, int timeoutSeconds) {
-
-    int i = 0;
+    long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
     do {
-      if (++i * 2 >= timeoutSeconds) {
+      if (!awaitNextBlock(deadline)) {
         throw new Error("Can't deploy contract within specified timeout.");
       }
-      Utils.sleep(2);
       log.info("Waiting for deployment to be deployed, balance {}", getBalance(address));
     } while (!isDeployed(address));
   }
 
+  /** Checks on every new masterchain block for timeoutSeconds if the balance was changed */
   public void waitForBalanceChange(Address address, int timeoutSeconds) {
     log.info("Waiting for balance change (up to {}s) - ({})", timeoutSeconds, address.toRaw());
     BigInteger initialBalance = getBalance(address);
-    int i = 0;
+    long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
     do {
-      if (++i * 2 >= timeoutSeconds) {
+      if (!awaitNextBlock(deadline)) {
         throw new Error(
             "Balance of " + address.toRaw() + " was not changed within specified timeout.");
       }
-      Utils.sleep(2);
     } while (initialBalance.equals(getBalance(address)));
   }
 
@@ -1908,15 +2368,14 @@ public class AdnlLiteClient {
 
     BigInteger initialBalance = getBalance(address);
     long diff;
-    int i = 0;
+    long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
     do {
-      if (++i * 2 >= timeoutSeconds) {
+      if (!awaitNextBlock(deadline)) {
         throw new Error(
             "Balance was not changed by +/- "
                 + Utils.formatNanoValue(tolerateNanoCoins)
                 + " within specified timeout.");
       }
-      Utils.sleep(2);
       BigInteger currentBalance = getBalance(address);
 
       diff =
@@ -1927,8 +2386,8 @@ public class AdnlLiteClient {
 
   /**
    * Sends Message with deliver confirmation. After the message has been sent to the network this
-   * method looks up specified account transactions and returns true if message was found among
-   * them. Timeout 60 seconds.
+   * method looks up specified account transactions on every new masterchain block and returns if
+   * the message was found among them. Timeout 60 seconds.
    *
    * @param externalMessage - Message
    * @throws TimeoutException if message not found within a timeout
@@ -1941,7 +2400,8 @@ public class AdnlLiteClient {
           Utils.bytesToHex(externalMessage.getNormalizedHash()));
 
       TransactionList rawTransactions;
-      for (int i = 0; i < 12; i++) {
+      long deadline = System.currentTimeMillis() + 60_000;
+      while (awaitNextBlock(deadline)) {
         rawTransactions = getTransactions(account, 0, null, 2);
         for (Transaction tx : rawTransactions.getTransactionsParsed()) {
           if (nonNull(tx.getInOut().getIn())
@@ -1951,7 +2411,6 @@ public class AdnlLiteClient {
             return;
           }
         }
-        Utils.sleep(5);
       }
       log.error("Timeout waiting for message hash");
       throw new Error("Cannot find hash of the sent message");
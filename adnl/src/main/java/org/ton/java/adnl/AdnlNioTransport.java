@@ -0,0 +1,240 @@
+package org.ton.java.adnl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.*;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Non-blocking ADNL-TCP transport. All instances share one {@link AdnlEventLoop} thread for socket
+ * I/O and timeouts instead of owning a listener thread and a timeout executor each. Incoming bytes
+ * are read and decrypted in place in a reusable direct buffer and handed over to deserializers as
+ * views of it, outgoing frames are encoded into pooled direct buffers.
+ */
+@Slf4j
+public class AdnlNioTransport extends AdnlTransport implements AdnlEventLoop.ChannelHandler {
+
+  private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+
+  private final AdnlEventLoop eventLoop;
+  private final AdnlBufferPool bufferPool = AdnlBufferPool.shared();
+  private final ConcurrentLinkedQueue<ByteBuffer> pendingWrites = new ConcurrentLinkedQueue<>();
+
+  private SocketChannel channel;
+  private volatile SelectionKey key;
+  private volatile CompletableFuture<Void> handshakeFuture;
+
+  /** Read buffer, holds already decrypted bytes between position 0 and its position */
+  private ByteBuffer readBuffer =
+      ByteBuffer.allocateDirect(INITIAL_READ_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+  public AdnlNioTransport() {
+    this(Client.generate());
+  }
+
+  public AdnlNioTransport(Client client) {
+    this(client, DEFAULT_MAX_IN_FLIGHT_QUERIES, AdnlEventLoop.shared());
+  }
+
+  public AdnlNioTransport(Client client, int maxInFlightQueries) {
+    this(client, maxInFlightQueries, AdnlEventLoop.shared());
+  }
+
+  public AdnlNioTransport(Client client, int maxInFlightQueries, AdnlEventLoop eventLoop) {
+    super(client, maxInFlightQueries);
+    this.eventLoop = eventLoop;
+  }
+
+  @Override
+  public void connect(String host, int port, byte[] serverPublicKey, byte[] authKey)
+      throws Exception {
+    log.info("Connecting to {}:{}", host, port);
+
+    pendingWrites.clear();
+    readBuffer.clear();
+    handshakeFuture = new CompletableFuture<>();
+
+    channel = SocketChannel.open();
+    try {
+      channel.socket().connect(new InetSocketAddress(host, port), 10000);
+      channel.socket().setTcpNoDelay(true);
+
+      // Handshake packet goes out unencrypted and unframed, before the channel becomes non-blocking
+      ByteBuffer handshake = ByteBuffer.wrap(createHandshakePacket(serverPublicKey));
+      while (handshake.hasRemaining()) {
+        channel.write(handshake);
+      }
+
+      channel.configureBlocking(false);
+      key = eventLoop.register(channel, this).get(10, TimeUnit.SECONDS);
+
+      // The server confirms the handshake with an empty packet
+      handshakeFuture.get(10, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      closeChannel(new IOException("Handshake confirmation timeout"));
+      throw new Exception("Handshake confirmation timeout");
+    } catch (Exception e) {
+      closeChannel(e);
+      throw e;
+    }
+
+    connected = true;
+
+    // Authentication is optional for lite-servers
+    if (authKey != null) {
+      try {
+        authenticate(authKey);
+      } catch (Exception e) {
+        close();
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  protected void processIncomingPacket(ByteBuffer packet) {
+    super.processIncomingPacket(packet);
+    if (connected && !handshakeFuture.isDone()) {
+      handshakeFuture.complete(null);
+    }
+  }
+
+  @Override
+  public void onReadable() throws IOException {
+    int start = readBuffer.position();
+    int read = channel.read(readBuffer);
+    if (read < 0) {
+      throw new IOException("Connection closed by peer");
+    }
+    if (read == 0) {
+      return;
+    }
+
+    // AES-CTR is a stream cipher, so bytes are decrypted in arrival order regardless of framing
+    CryptoUtils.aesCtrTransformInPlace(readCipher, readBuffer, start, read);
+
+    readBuffer.flip();
+    while (readBuffer.remaining() >= 4) {
+      long packetSize = readBuffer.getInt(readBuffer.position()) & 0xFFFFFFFFL;
+      if (packetSize > AdnlFrameCodec.MAX_PACKET_SIZE) {
+        throw new IOException("Packet too large: " + packetSize);
+      }
+      if (readBuffer.remaining() < 4 + packetSize) {
+        ensureCapacity(4 + (int) packetSize);
+        return;
+      }
+      int packetStart = readBuffer.position() + 4;
+      int packetEnd = packetStart + (int) packetSize;
+      ByteBuffer packet = readBuffer.duplicate();
+      packet.limit(packetEnd).position(packetStart);
+      processIncomingPacket(packet.slice());
+      readBuffer.position(packetEnd);
+    }
+    readBuffer.compact();
+  }
+
+  /**
+   * Compacts the read buffer, which is in read mode, and grows it when a whole frame does not fit.
+   * Leaves the buffer in write mode.
+   */
+  private void ensureCapacity(int frameSize) {
+    if (frameSize > readBuffer.capacity()) {
+      int capacity = readBuffer.capacity();
+      while (capacity < frameSize) {
+        capacity *= 2;
+      }
+      ByteBuffer larger = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+      larger.put(readBuffer);
+      readBuffer = larger;
+    } else {
+      readBuffer.compact();
+    }
+  }
+
+  @Override
+  public void onWritable() throws IOException {
+    ByteBuffer head;
+    while ((head = pendingWrites.peek()) != null) {
+      channel.write(head);
+      if (head.hasRemaining()) {
+        return; // socket buffer is full, wait for the next write readiness
+      }
+      pendingWrites.poll();
+      bufferPool.release(head);
+    }
+    eventLoop.disableWrite(key);
+    // a frame may have been queued after the queue was seen empty
+    if (!pendingWrites.isEmpty()) {
+      eventLoop.enableWrite(key);
+    }
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    log.info("Connection error: {}", cause.getMessage());
+    closeChannel(cause);
+  }
+
+  @Override
+  protected ByteBuffer acquireFrameBuffer(int length) {
+    return bufferPool.acquire(length);
+  }
+
+  @Override
+  protected void writeFrame(ByteBuffer frame) throws IOException {
+    SelectionKey selectionKey = key;
+    if (selectionKey == null || !selectionKey.isValid()) {
+      bufferPool.release(frame);
+      throw new IOException("Channel is closed");
+    }
+    pendingWrites.add(frame);
+    eventLoop.enableWrite(selectionKey);
+  }
+
+  @Override
+  protected Future<?> scheduleTimeout(Runnable task, long delay, TimeUnit unit) {
+    return eventLoop.schedule(task, delay, unit);
+  }
+
+  /**
+   * @return event loop this transport is registered with
+   */
+  public AdnlEventLoop getEventLoop() {
+    return eventLoop;
+  }
+
+  private void closeChannel(Throwable cause) {
+    connected = false;
+    SelectionKey selectionKey = key;
+    if (selectionKey != null) {
+      selectionKey.cancel();
+    }
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      log.info("Error closing channel", e);
+    }
+    // frames still queued may be in use by the event loop, leave them to the garbage collector
+    pendingWrites.clear();
+    if (handshakeFuture != null) {
+      handshakeFuture.completeExceptionally(cause);
+    }
+    failPendingQueries(cause);
+  }
+
+  @Override
+  public void close() {
+    closeChannel(new IOException("Connection closed"));
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connected && channel != null && channel.isOpen();
+  }
+}
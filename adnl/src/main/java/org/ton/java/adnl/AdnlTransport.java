@@ -0,0 +1,593 @@
+package org.ton.java.adnl;
+
+import com.iwebpp.crypto.TweetNaclFast;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import javax.crypto.Cipher;
+import lombok.extern.slf4j.Slf4j;
+import org.ton.ton4j.tl.liteserver.queries.AdnlMessageQuery;
+import org.ton.ton4j.tl.liteserver.queries.PingQuery;
+import org.ton.ton4j.tl.liteserver.responses.*;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Base class of ADNL-TCP transports for lite-server communication. Implements the handshake,
+ * packet framing and encryption, and correlation of answers with pending queries; subclasses only
+ * move encrypted bytes over the network.
+ */
+@Slf4j
+public abstract class AdnlTransport {
+
+  /** Default number of adnl.message.query frames that may await an answer on one connection */
+  public static final int DEFAULT_MAX_IN_FLIGHT_QUERIES = 512;
+
+  /** tcp.authentificate nonce:bytes = tcp.Message */
+  private static final int TCP_AUTHENTIFICATE = 0x445bab12;
+
+  /** tcp.authentificationNonce nonce:bytes = tcp.Message */
+  private static final int TCP_AUTHENTIFICATION_NONCE = 0xe35d4ab6;
+
+  /** tcp.authentificationComplete key:PublicKey signature:bytes = tcp.Message */
+  private static final int TCP_AUTHENTIFICATION_COMPLETE = 0xf7ad9ea6;
+
+  /** pub.ed25519 key:int256 = PublicKey */
+  private static final int PUB_ED25519 = 0x4813b4c6;
+
+  protected static final SecureRandom RANDOM = new SecureRandom();
+
+  protected Cipher readCipher;
+  protected Cipher writeCipher;
+  protected volatile boolean connected = false;
+
+  protected final Client client;
+  private final Object writeLock = new Object();
+  private final ConcurrentHashMap<Long, PendingQuery> activeQueries = new ConcurrentHashMap<>();
+
+  private volatile LiteServerAnswerRegistry answerRegistry = LiteServerAnswerRegistry.shared();
+  private final ConcurrentHashMap<Long, CompletableFuture<TcpPong>> activePings =
+      new ConcurrentHashMap<>();
+  private volatile CompletableFuture<byte[]> authNonceFuture;
+  private final Semaphore inFlightWindow;
+  private final int maxInFlightQueries;
+  private final ConcurrentLinkedQueue<WaitingQuery> waitingQueries = new ConcurrentLinkedQueue<>();
+
+  /** Query waiting for a free slot of the in-flight window */
+  private static final class WaitingQuery {
+    final byte[] query;
+    final CompletableFuture<LiteServerAnswer> future;
+    final boolean raw;
+
+    WaitingQuery(byte[] query, CompletableFuture<LiteServerAnswer> future, boolean raw) {
+      this.query = query;
+      this.future = future;
+      this.raw = raw;
+    }
+  }
+
+  /** Query waiting for its adnl.message.answer, indexed by the first 8 bytes of its query_id */
+  private static final class PendingQuery {
+    final byte[] queryId;
+    final CompletableFuture<LiteServerAnswer> future;
+    final boolean raw;
+
+    PendingQuery(byte[] queryId, CompletableFuture<LiteServerAnswer> future, boolean raw) {
+      this.queryId = queryId;
+      this.future = future;
+      this.raw = raw;
+    }
+
+    boolean matches(ByteBuffer buffer, int offset) {
+      for (int i = 0; i < queryId.length; i++) {
+        if (buffer.get(offset + i) != queryId[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @param client client keys
+   * @param maxInFlightQueries maximum number of queries waiting for an answer at the same time,
+   *     further queries are sent in order as slots are freed
+   */
+  protected AdnlTransport(Client client, int maxInFlightQueries) {
+    if (maxInFlightQueries <= 0) {
+      throw new IllegalArgumentException("maxInFlightQueries must be positive");
+    }
+    this.client = client;
+    this.maxInFlightQueries = maxInFlightQueries;
+    this.inFlightWindow = new Semaphore(maxInFlightQueries);
+  }
+
+  public void connect(String host, int port, byte[] serverPublicKey) throws Exception {
+    connect(host, port, serverPublicKey, null);
+  }
+
+  public abstract void connect(String host, int port, byte[] serverPublicKey, byte[] authKey)
+      throws Exception;
+
+  public abstract void close();
+
+  public abstract boolean isConnected();
+
+  /**
+   * Provides a buffer for an outgoing frame of the given length. Called under the write lock.
+   *
+   * @return buffer with position 0 and at least {@code length} bytes remaining
+   */
+  protected abstract ByteBuffer acquireFrameBuffer(int length);
+
+  /**
+   * Writes one already encrypted frame, between position and limit of the buffer, to the
+   * connection. Called under the write lock, so frames reach the network in the order the write
+   * cipher produced them. The buffer was obtained from {@link #acquireFrameBuffer(int)}.
+   */
+  protected abstract void writeFrame(ByteBuffer frame) throws Exception;
+
+  /**
+   * Runs the task once after the given delay, used for query and ping timeouts
+   *
+   * @return handle cancelling the task once it is no longer needed
+   */
+  protected abstract Future<?> scheduleTimeout(Runnable task, long delay, TimeUnit unit);
+
+  /**
+   * Builds the raw 256-byte ADNL handshake packet and initializes the read and write ciphers of
+   * this connection
+   */
+  protected byte[] createHandshakePacket(byte[] serverPublicKey) throws Exception {
+    //    log.debug("Performing ADNL handshake");
+
+    // Generate 160 random bytes for encryption keys (matching Go implementation)
+    byte[] randomData = new byte[160];
+    RANDOM.nextBytes(randomData);
+
+    // Build ciphers for incoming and outgoing packets (matching Go implementation)
+    readCipher =
+        CryptoUtils.createAESCtrCipher(
+            Arrays.copyOfRange(randomData, 0, 32), // rnd[:32]
+            Arrays.copyOfRange(randomData, 64, 80), // rnd[64:80]
+            Cipher.DECRYPT_MODE);
+
+    writeCipher =
+        CryptoUtils.createAESCtrCipher(
+            Arrays.copyOfRange(randomData, 32, 64), // rnd[32:64]
+            Arrays.copyOfRange(randomData, 80, 96), // rnd[80:96]
+            Cipher.ENCRYPT_MODE);
+
+    // Calculate server key ID using TL hash (matching Go implementation)
+    byte[] serverKeyId = calculateKeyId(serverPublicKey);
+    byte[] clientPublicKey = client.getEd25519Public();
+
+    // Calculate checksum of random data
+    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+    byte[] checksum = sha256.digest(randomData);
+
+    // Calculate shared key using proper Ed25519 to X25519 conversion
+    byte[] sharedKey = CryptoUtils.sharedKey(client.getEd25519Private(), serverPublicKey);
+
+    // Build handshake encryption key and IV (matching Go implementation exactly)
+    // k := key[0:16] + checksum[16:32]
+    // iv := checksum[0:4] + key[20:32]
+    byte[] k = new byte[32];
+    System.arraycopy(sharedKey, 0, k, 0, 16); // key[0:16]
+    System.arraycopy(checksum, 16, k, 16, 16); // checksum[16:32]
+
+    byte[] iv = new byte[16];
+    System.arraycopy(checksum, 0, iv, 0, 4); // checksum[0:4]
+    System.arraycopy(sharedKey, 20, iv, 4, 12); // key[20:32]
+
+    // Create handshake cipher and encrypt the random data
+    Cipher handshakeCipher = CryptoUtils.createAESCtrCipher(k, iv, Cipher.ENCRYPT_MODE);
+    byte[] encryptedData = CryptoUtils.aesCtrTransform(handshakeCipher, randomData);
+
+    //    log.debug("Server key ID: " + CryptoUtils.hex(serverKeyId));
+    //    log.debug("Client public key: " + CryptoUtils.hex(clientPublicKey));
+
+    // Build handshake packet: serverKeyId(32) + clientPublicKey(32) + checksum(32) +
+    // encryptedData(160)
+    ByteBuffer handshakePacket = ByteBuffer.allocate(256);
+    handshakePacket.put(serverKeyId); // 32 bytes
+    handshakePacket.put(clientPublicKey); // 32 bytes
+    handshakePacket.put(checksum); // 32 bytes
+    handshakePacket.put(encryptedData); // 160 bytes
+
+    // Handshake packet is sent directly (no encryption, no framing)
+    // This is the raw 256-byte handshake packet as per ADNL specification
+    return handshakePacket.array();
+  }
+
+  /**
+   * Authenticates the connection with an Ed25519 key after the handshake. The client sends
+   * tcp.authentificate with a random nonce, the server answers with tcp.authentificationNonce, and
+   * the client completes with tcp.authentificationComplete signing both nonces.
+   *
+   * @param authKey Ed25519 private key, 32 bytes seed or 64 bytes secret key
+   */
+  protected void authenticate(byte[] authKey) throws Exception {
+    TweetNaclFast.Signature.KeyPair keyPair =
+        authKey.length == 64
+            ? TweetNaclFast.Signature.keyPair_fromSecretKey(authKey)
+            : TweetNaclFast.Signature.keyPair_fromSeed(authKey);
+    Client authClient = new Client(keyPair.getSecretKey(), keyPair.getPublicKey());
+
+    byte[] nonce = new byte[32];
+    RANDOM.nextBytes(nonce);
+    authNonceFuture = new CompletableFuture<>();
+    try {
+      byte[] serializedNonce = Utils.toBytes(nonce);
+      ByteBuffer request =
+          ByteBuffer.allocate(4 + serializedNonce.length).order(ByteOrder.LITTLE_ENDIAN);
+      request.putInt(TCP_AUTHENTIFICATE);
+      request.put(serializedNonce);
+      sendPacket(request.array());
+
+      byte[] serverNonce;
+      try {
+        serverNonce = authNonceFuture.get(10, TimeUnit.SECONDS);
+      } catch (TimeoutException e) {
+        throw new Exception("Authentication nonce timeout");
+      }
+
+      byte[] signed = new byte[nonce.length + serverNonce.length];
+      System.arraycopy(nonce, 0, signed, 0, nonce.length);
+      System.arraycopy(serverNonce, 0, signed, nonce.length, serverNonce.length);
+      byte[] signature = Utils.toBytes(authClient.sign(signed));
+
+      ByteBuffer complete =
+          ByteBuffer.allocate(4 + 4 + 32 + signature.length).order(ByteOrder.LITTLE_ENDIAN);
+      complete.putInt(TCP_AUTHENTIFICATION_COMPLETE);
+      complete.putInt(PUB_ED25519);
+      complete.put(keyPair.getPublicKey());
+      complete.put(signature);
+      sendPacket(complete.array());
+      log.info("Authenticated with key {}", CryptoUtils.hex(keyPair.getPublicKey()));
+    } finally {
+      authNonceFuture = null;
+    }
+  }
+
+  private byte[] calculateKeyId(byte[] publicKey) throws Exception {
+    // Calculate TL constructor ID for pub.ed25519 schema
+    String tlSchema = "pub.ed25519 key:int256 = PublicKey";
+    CRC32 crc32 = new CRC32();
+    crc32.update(tlSchema.getBytes(StandardCharsets.UTF_8));
+    long constructorId = crc32.getValue();
+
+    // Build TL-serialized structure: constructor_id + key
+    ByteBuffer buffer = ByteBuffer.allocate(4 + publicKey.length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt((int) constructorId);
+    buffer.put(publicKey);
+
+    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+    return sha256.digest(buffer.array());
+  }
+
+  /** Completes exceptionally all queries and pings still waiting for an answer or a slot */
+  protected void failPendingQueries(Throwable cause) {
+    for (WaitingQuery waiting = waitingQueries.poll();
+        waiting != null;
+        waiting = waitingQueries.poll()) {
+      waiting.future.completeExceptionally(cause);
+    }
+    for (Long key : activeQueries.keySet()) {
+      PendingQuery pending = activeQueries.remove(key);
+      if (pending != null) {
+        pending.future.completeExceptionally(cause);
+      }
+    }
+    for (Long randomId : activePings.keySet()) {
+      CompletableFuture<TcpPong> future = activePings.remove(randomId);
+      if (future != null) {
+        future.completeExceptionally(cause);
+      }
+    }
+  }
+
+  /**
+   * Handles one decrypted packet, without its size prefix. The buffer is only valid for the
+   * duration of the call, answers are deserialized from views of it.
+   */
+  protected void processIncomingPacket(ByteBuffer packet) {
+    try {
+      if (!packet.hasRemaining()) {
+        // Empty packet = handshake confirmation
+        connected = true;
+        //        log.info("Received handshake confirmation (empty packet)");
+        return;
+      }
+
+      // Validate packet checksum
+      if (packet.remaining() < 64) { // 32 bytes nonce + 32 bytes checksum minimum
+        log.info("Packet too small: {}", packet.remaining());
+        return;
+      }
+
+      ByteBuffer payload = AdnlFrameCodec.decode(packet);
+      if (payload == null) {
+        log.info("Invalid packet checksum");
+        return;
+      }
+
+      // Handle handshake confirmation (empty payload)
+      if (!payload.hasRemaining()) {
+        connected = true;
+        //        log.info("Received handshake confirmation (empty packet)");
+        return;
+      }
+
+      // Log payload for debugging
+      //      log.info("Received payload of size: {}", payload.remaining() + " bytes");
+
+      if (payload.remaining() >= 4) {
+        try {
+          // Check for known constructor IDs
+          int constructor = payload.getInt(0);
+
+          if (constructor == TcpPong.constructorId) {
+            payload.position(4);
+            TcpPong tcpPong = TcpPong.deserialize(payload);
+            //            log.debug("received adnl tcp.pong {}", tcpPong.getRandomId());
+            CompletableFuture<TcpPong> future = activePings.remove(tcpPong.getRandomId());
+            if (future != null) {
+              future.complete(tcpPong);
+            }
+          } else if (constructor == TCP_AUTHENTIFICATION_NONCE) {
+            CompletableFuture<byte[]> future = authNonceFuture;
+            if (future != null) {
+              payload.position(4);
+              ByteBuffer nonce = AdnlFrameCodec.unwrapBytes(payload);
+              byte[] serverNonce = new byte[nonce.remaining()];
+              nonce.get(serverNonce);
+              future.complete(serverNonce);
+            }
+          } else if (constructor == AdnlMessagePart.constructorId) {
+            log.info("AdnlMessagePart");
+          } else if (constructor == AdnlMessageAnswer.constructorId) {
+            //            log.info("AdnlMessageAnswer");
+
+            // correlate the answer with the originating adnl.message.query by its query_id
+            long key = payload.getLong(4);
+            PendingQuery pending = activeQueries.get(key);
+            if (pending == null
+                || !pending.matches(payload, 4)
+                || !activeQueries.remove(key, pending)) {
+              log.info("answer for unknown or expired query {}", Long.toHexString(key));
+              return;
+            }
+            CompletableFuture<LiteServerAnswer> future = pending.future;
+
+            payload.position(36);
+            ByteBuffer answer = AdnlFrameCodec.unwrapBytes(payload);
+            int id = answer.getInt(0);
+            answer.position(4);
+            ByteBuffer queryBodyPayload = answer.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+            if (pending.raw) {
+              future.complete(RawAnswer.deserialize(id, queryBodyPayload));
+              return;
+            }
+
+            LiteServerAnswer result;
+            try {
+              ByteBuffer body = queryBodyPayload.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+              result = answerRegistry.deserialize(id, body);
+            } catch (Exception e) {
+              log.error("Could not deserialize constructor {} completing with raw bytes: ", id, e);
+              result = RawAnswer.deserialize(id, queryBodyPayload);
+            }
+            future.complete(result);
+          } else {
+            log.info("unknown adnl.message id {}", constructor);
+          }
+
+        } catch (Exception e) {
+          log.error("Error checking for TL response:", e);
+        }
+      }
+
+    } catch (Exception e) {
+      log.error("Error processing incoming packet", e);
+    }
+  }
+
+  public void sendPacket(byte[] payload) throws Exception {
+    if (!connected) {
+      throw new IllegalStateException("Not connected");
+    }
+
+    // [size:4][nonce:32][payload:N][checksum:32]
+    int frameLength = AdnlFrameCodec.frameLength(payload.length);
+
+    // AES-CTR keystream is shared by all writers, so encryption order must match write order
+    synchronized (writeLock) {
+      ByteBuffer frame = acquireFrameBuffer(frameLength);
+      // Encrypt in-place to maintain cipher state (matching Go implementation)
+      AdnlFrameCodec.encodeEncrypted(payload, frame, writeCipher);
+      frame.flip();
+      writeFrame(frame);
+    }
+  }
+
+  public CompletableFuture<TcpPong> ping() {
+    try {
+      long randomId = RANDOM.nextLong();
+
+      byte[] serialized = PingQuery.serialize(randomId);
+
+      CompletableFuture<TcpPong> future = new CompletableFuture<>();
+      activePings.put(randomId, future);
+
+      //      log.debug("sent adnl tcp.ping {}", randomId);
+      sendPacket(serialized);
+
+      // Set timeout
+      Future<?> timeout =
+          scheduleTimeout(
+              () -> {
+                if (activePings.remove(randomId) != null) {
+                  future.completeExceptionally(new Exception("Ping timeout"));
+                }
+              },
+              5,
+              TimeUnit.SECONDS);
+      future.whenComplete((pong, e) -> timeout.cancel(false));
+
+      return future;
+    } catch (Exception e) {
+      CompletableFuture<TcpPong> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+  }
+
+  public CompletableFuture<LiteServerAnswer> query(byte[] query) {
+    return query(query, false);
+  }
+
+  /**
+   * Send query
+   *
+   * @param query serialized liteServer.query
+   * @param raw complete with {@link RawAnswer} holding the undecoded answer, e.g. to cache it,
+   *     instead of the deserialized answer
+   * @return future completed with the answer
+   */
+  public CompletableFuture<LiteServerAnswer> query(byte[] query, boolean raw) {
+    CompletableFuture<LiteServerAnswer> future = new CompletableFuture<>();
+    if (!isConnected()) {
+      future.completeExceptionally(new IllegalStateException("Not connected or socket closed"));
+      return future;
+    }
+
+    // Set timeout - increased to 60 seconds for lite-server queries, including the time spent
+    // waiting for a free slot. The timer is cancelled once the query completes.
+    Future<?> timeout =
+        scheduleTimeout(
+            () -> {
+              if (future.completeExceptionally(new Exception("Query timeout"))) {
+                log.info("Query timed out");
+
+                // Check if we need to reconnect
+                if (connected && !isConnected()) {
+                  log.info("Socket closed during query, marking as disconnected");
+                  connected = false;
+                }
+              }
+            },
+            60,
+            TimeUnit.SECONDS);
+    future.whenComplete((answer, e) -> timeout.cancel(false));
+
+    // Bound the number of queries awaiting an answer on this connection, further queries wait
+    // in order for a slot without blocking the caller
+    if (inFlightWindow.tryAcquire()) {
+      send(query, future, raw);
+    } else {
+      waitingQueries.add(new WaitingQuery(query, future, raw));
+      sendWaiting();
+    }
+    return future;
+  }
+
+  /** Sends waiting queries while there are free slots */
+  private void sendWaiting() {
+    while (!waitingQueries.isEmpty() && inFlightWindow.tryAcquire()) {
+      WaitingQuery waiting = waitingQueries.poll();
+      if (waiting == null || waiting.future.isDone()) {
+        inFlightWindow.release(); // cancelled or timed out while waiting
+      } else {
+        send(waiting.query, waiting.future, waiting.raw);
+      }
+    }
+  }
+
+  /** Sends the query holding a slot of the in-flight window, the slot is freed on completion */
+  private void send(byte[] query, CompletableFuture<LiteServerAnswer> future, boolean raw) {
+    future.whenComplete(
+        (answer, error) -> {
+          inFlightWindow.release();
+          sendWaiting();
+        });
+    try {
+      if (!isConnected()) {
+        throw new IllegalStateException("Not connected or socket closed");
+      }
+
+      // Generate query ID
+      byte[] queryId = new byte[32];
+      RANDOM.nextBytes(queryId);
+
+      //      log.info("Sending query with ID: {}", CryptoUtils.hex(queryId));
+      //      log.info("liteQuery hex: {}", CryptoUtils.hex(query));
+
+      PendingQuery pending = new PendingQuery(queryId, future, raw);
+      long key = ByteBuffer.wrap(queryId).order(ByteOrder.LITTLE_ENDIAN).getLong();
+      while (activeQueries.putIfAbsent(key, pending) != null) {
+        RANDOM.nextBytes(queryId);
+        key = ByteBuffer.wrap(queryId).order(ByteOrder.LITTLE_ENDIAN).getLong();
+      }
+      long queryKey = key;
+
+      // a cancelled or timed out query, e.g. the losing request of a hedged pair, leaves the table
+      // at once and its late answer is dropped
+      future.whenComplete(
+          (answer, error) -> {
+            if (error != null) {
+              activeQueries.remove(queryKey, pending);
+            }
+          });
+
+      byte[] serialized = AdnlMessageQuery.serialize(queryId, query);
+      //      log.info("adnlQuery hex: {}", CryptoUtils.hex(serialized));
+      //      log.info("Added query to active queries with ID: {}", queryIdHex);
+
+      try {
+        sendPacket(serialized); // ADNLQuery
+        //        log.info("Query packet sent successfully");
+      } catch (Exception e) {
+        // If sending fails, remove the query from active queries and complete the future
+        // exceptionally
+        activeQueries.remove(queryKey, pending);
+        throw e;
+      }
+    } catch (Exception e) {
+      log.info("Error sending query", e);
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * @return number of queries sent on this connection that are still waiting for an answer
+   */
+  public int getInFlightQueryCount() {
+    return activeQueries.size();
+  }
+
+  /**
+   * @return registry used to deserialize answers by their constructor id
+   */
+  public LiteServerAnswerRegistry getAnswerRegistry() {
+    return answerRegistry;
+  }
+
+  /**
+   * Replaces the registry used to deserialize answers, e.g. with one containing custom answer
+   * types. Answers with ids missing in the registry are completed with {@link RawAnswer}.
+   */
+  public void setAnswerRegistry(LiteServerAnswerRegistry answerRegistry) {
+    this.answerRegistry = answerRegistry;
+  }
+
+  public int getMaxInFlightQueries() {
+    return maxInFlightQueries;
+  }
+}
@@ -0,0 +1,146 @@
+package org.ton.java.adnl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Sends a list of queries with a bounded number of them in flight. A new query is sent as soon as
+ * one of the previous ones is answered, so the connection stays pipelined without flooding its
+ * in-flight window. Answers are handled and the next queries sent on an executor, not on the I/O
+ * thread that completed the answer.
+ */
+final class BatchQueries<T, R> {
+
+  public static final int DEFAULT_CONCURRENCY = 64;
+
+  private final List<T> items;
+  private final Function<T, CompletableFuture<R>> query;
+  private final List<CompletableFuture<R>> results;
+  private final Executor executor;
+  private final AtomicInteger next = new AtomicInteger();
+
+  private BatchQueries(
+      List<T> items, Function<T, CompletableFuture<R>> query, Executor executor) {
+    this.items = items;
+    this.query = query;
+    this.executor = executor;
+    this.results = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      results.add(new CompletableFuture<>());
+    }
+  }
+
+  /**
+   * Starts the batch on the common pool and returns at once
+   *
+   * @param items query arguments
+   * @param concurrency maximum number of queries in flight
+   * @param query sends one query
+   * @return futures of the answers, in the order of items
+   */
+  static <T, R> List<CompletableFuture<R>> execute(
+      List<T> items, int concurrency, Function<T, CompletableFuture<R>> query) {
+    return execute(items, concurrency, query, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Starts the batch and returns at once
+   *
+   * @param items query arguments
+   * @param concurrency maximum number of queries in flight
+   * @param query sends one query
+   * @param executor completes the futures of the answers and sends the next queries
+   * @return futures of the answers, in the order of items
+   */
+  static <T, R> List<CompletableFuture<R>> execute(
+      List<T> items,
+      int concurrency,
+      Function<T, CompletableFuture<R>> query,
+      Executor executor) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be positive");
+    }
+    BatchQueries<T, R> batch = new BatchQueries<>(items, query, executor);
+    for (int i = 0; i < Math.min(concurrency, items.size()); i++) {
+      batch.sendNext();
+    }
+    return batch.results;
+  }
+
+  /**
+   * Waits for all answers of the batch
+   *
+   * @return answers in the order of the futures
+   * @throws Exception the failure of the first failed query
+   */
+  static <R> List<R> join(List<CompletableFuture<R>> futures) throws Exception {
+    List<R> answers = new ArrayList<>(futures.size());
+    try {
+      for (CompletableFuture<R> future : futures) {
+        answers.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(false));
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+    return answers;
+  }
+
+  private void sendNext() {
+    while (true) {
+      int i = next.getAndIncrement();
+      if (i >= items.size()) {
+        return;
+      }
+      CompletableFuture<R> result = results.get(i);
+      if (result.isDone()) {
+        continue; // cancelled by the caller before it was sent
+      }
+
+      CompletableFuture<R> answer;
+      try {
+        answer = query.apply(items.get(i));
+      } catch (Exception e) {
+        answer = new CompletableFuture<>();
+        answer.completeExceptionally(e);
+      }
+      CompletableFuture<R> sent = answer;
+      result.whenComplete(
+          (value, error) -> {
+            if (error != null) {
+              sent.cancel(false);
+            }
+          });
+
+      if (sent.isDone()) {
+        // completed synchronously, e.g. not connected, send the next one without recursion
+        complete(result, sent);
+        continue;
+      }
+      sent.whenCompleteAsync(
+          (value, error) -> {
+            complete(result, sent);
+            sendNext();
+          },
+          executor);
+      return;
+    }
+  }
+
+  private static <R> void complete(CompletableFuture<R> result, CompletableFuture<R> answer) {
+    try {
+      result.complete(answer.join());
+    } catch (Exception e) {
+      result.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+    }
+  }
+}
@@ -0,0 +1,659 @@
+package org.ton.java.adnl;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellBuilder;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.cell.TonHashMapAug;
+import org.ton.ton4j.cell.TonHashMapAugE;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tlb.BlockInfo;
+import org.ton.ton4j.tlb.CurrencyCollection;
+import org.ton.ton4j.tlb.ExtBlkRef;
+import org.ton.ton4j.tlb.Transaction;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Indexes all transactions of a range of masterchain blocks and of the shard blocks they commit.
+ *
+ * <p>Masterchain blocks are indexed concurrently, up to window at a time. The shard blocks of a
+ * masterchain block are found by walking back from the top blocks of its shards, through the
+ * parents of split and merged shards, to the top blocks of the previous masterchain block. Blocks
+ * are fetched through the connection pool by fetchConcurrency threads and decoded on a separate
+ * CPU pool; only the block info and the account blocks are deserialized.
+ *
+ * <p>Blocks are passed to the listener in the calling thread, in masterchain order: the shard
+ * blocks of a masterchain block by seqno, then the masterchain block itself. A slow listener holds
+ * back fetching, at most window masterchain blocks are kept. With a checkpoint file the seqno of
+ * every fully indexed masterchain block is saved, and the next run resumes after it.
+ *
+ * <pre>
+ * try (BlockIndexer indexer = BlockIndexer.builder().pool(pool).checkpoint(path).build()) {
+ *   indexer.run(from, to, (mcBlock, block, txs) -&gt; store(block, txs));
+ *   log.info("{}", indexer.getStats());
+ * }
+ * </pre>
+ */
+@Slf4j
+public class BlockIndexer implements AutoCloseable {
+
+  /** Receives the transactions of one block */
+  @FunctionalInterface
+  public interface Listener {
+    /**
+     * @param masterchainBlock masterchain block committing the block
+     * @param block shard block, or the masterchain block itself
+     * @param transactions transactions of the block ordered by logical time
+     * @throws Exception to stop the indexing, the block is not checkpointed
+     */
+    void onBlock(BlockIdExt masterchainBlock, BlockIdExt block, List<Transaction> transactions)
+        throws Exception;
+  }
+
+  /** Counters of the fetch, decode and emit stages */
+  public static class Stats {
+    private final long startNanos = System.nanoTime();
+    private final LongAdder fetchedBlocks = new LongAdder();
+    private final LongAdder fetchedBytes = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+    private final LongAdder decodedBlocks = new LongAdder();
+    private final LongAdder decodedTransactions = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder emittedBlocks = new LongAdder();
+    private final LongAdder emittedMasterchainBlocks = new LongAdder();
+    private final LongAdder emitNanos = new LongAdder();
+
+    public long getFetchedBlocks() {
+      return fetchedBlocks.sum();
+    }
+
+    public long getFetchedBytes() {
+      return fetchedBytes.sum();
+    }
+
+    /**
+     * @return time spent waiting for blocks, summed over the fetching threads
+     */
+    public long getFetchMillis() {
+      return fetchNanos.sum() / 1_000_000;
+    }
+
+    public long getDecodedBlocks() {
+      return decodedBlocks.sum();
+    }
+
+    public long getDecodedTransactions() {
+      return decodedTransactions.sum();
+    }
+
+    /**
+     * @return time spent decoding blocks, summed over the decoding threads
+     */
+    public long getDecodeMillis() {
+      return decodeNanos.sum() / 1_000_000;
+    }
+
+    public long getEmittedBlocks() {
+      return emittedBlocks.sum();
+    }
+
+    public long getEmittedMasterchainBlocks() {
+      return emittedMasterchainBlocks.sum();
+    }
+
+    /**
+     * @return time spent in the listener
+     */
+    public long getEmitMillis() {
+      return emitNanos.sum() / 1_000_000;
+    }
+
+    public long getElapsedMillis() {
+      return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static String perSecond(long count, long millis) {
+      return millis == 0 ? "-" : String.format("%.1f/s", count * 1000.0 / millis);
+    }
+
+    @Override
+    public String toString() {
+      long elapsed = getElapsedMillis();
+      return String.format(
+          "fetch %d blocks, %.1f MB, %s, busy %d ms; decode %d blocks, %d txs, %s, busy %d ms; "
+              + "emit %d blocks of %d mc blocks, %s, busy %d ms; elapsed %d ms",
+          getFetchedBlocks(),
+          getFetchedBytes() / 1048576.0,
+          perSecond(getFetchedBlocks(), elapsed),
+          getFetchMillis(),
+          getDecodedBlocks(),
+          getDecodedTransactions(),
+          perSecond(getDecodedTransactions(), elapsed),
+          getDecodeMillis(),
+          getEmittedBlocks(),
+          getEmittedMasterchainBlocks(),
+          perSecond(getEmittedBlocks(), elapsed),
+          getEmitMillis(),
+          elapsed);
+    }
+  }
+
+  private static final class Decoded {
+    final BlockIdExt id;
+    final List<BlockIdExt> prevs;
+    final List<Transaction> transactions;
+
+    Decoded(BlockIdExt id, List<BlockIdExt> prevs, List<Transaction> transactions) {
+      this.id = id;
+      this.prevs = prevs;
+      this.transactions = transactions;
+    }
+  }
+
+  /** Ancestors first, the masterchain block last */
+  private static final Comparator<Decoded> EMIT_ORDER =
+      Comparator.<Decoded>comparingInt(d -> d.id.getWorkchain() == -1 ? 1 : 0)
+          .thenComparingInt(d -> d.id.getSeqno())
+          .thenComparingInt(d -> d.id.getWorkchain())
+          .thenComparing((a, b) -> Long.compareUnsigned(a.id.shard, b.id.shard));
+
+  private final BlockSource source;
+  private final int window;
+  private final Path checkpoint;
+  private final ExecutorService fetcher;
+  private final ExecutorService coordinator;
+  private final ForkJoinPool decoder;
+  private final boolean ownDecoder;
+
+  private final Map<Integer, CompletableFuture<BlockIdExt>> masterchainBlocks =
+      new ConcurrentHashMap<>();
+  private final Map<Integer, CompletableFuture<List<BlockIdExt>>> topBlocks =
+      new ConcurrentHashMap<>();
+
+  /** masterchain blocks being indexed, in order */
+  private final ConcurrentLinkedDeque<CompletableFuture<List<Decoded>>> inflight =
+      new ConcurrentLinkedDeque<>();
+
+  private volatile Stats stats = new Stats();
+  private volatile int indexedSeqno = -1;
+  private volatile boolean closed;
+
+  private BlockIndexer(Builder builder) {
+    if (builder.pool == null && builder.source == null) {
+      throw new IllegalArgumentException("Connection pool is required");
+    }
+    if (builder.window < 1 || builder.fetchConcurrency < 1) {
+      throw new IllegalArgumentException("window and fetchConcurrency must be positive");
+    }
+    this.source = builder.source != null ? builder.source : BlockSource.of(builder.pool);
+    this.window = builder.window;
+    this.checkpoint = builder.checkpoint;
+    this.fetcher = Executors.newFixedThreadPool(builder.fetchConcurrency);
+    this.coordinator = Executors.newFixedThreadPool(builder.window);
+    this.ownDecoder = builder.decoder == null;
+    this.decoder = ownDecoder ? new ForkJoinPool(builder.decodeParallelism) : builder.decoder;
+  }
+
+  /**
+   * Create a new builder
+   *
+   * @return Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Indexes masterchain blocks fromSeqno to toSeqno, or from the block after the checkpoint if it
+   * is further
+   *
+   * @param fromSeqno first masterchain seqno, at least 1
+   * @param toSeqno last masterchain seqno, must exist already
+   * @param listener receives the blocks in order
+   * @throws Exception if a block cannot be fetched or the listener failed, indexed blocks stay
+   *     checkpointed
+   */
+  public void run(int fromSeqno, int toSeqno, Listener listener) throws Exception {
+    if (fromSeqno < 1) {
+      throw new IllegalArgumentException("fromSeqno must be at least 1");
+    }
+    int first = Math.max(fromSeqno, loadCheckpoint() + 1);
+    stats = new Stats();
+    log.info("Indexing masterchain blocks {}..{}", first, toSeqno);
+
+    int next = first;
+    try {
+      for (int seqno = first; seqno <= toSeqno; seqno++) {
+        while (next <= toSeqno && inflight.size() < window) {
+          int s = next++;
+          inflight.add(
+              CompletableFuture.supplyAsync(
+                  () -> {
+                    try {
+                      return index(s);
+                    } catch (Exception e) {
+                      throw new CompletionException(e);
+                    }
+                  },
+                  coordinator));
+        }
+        if (closed) {
+          throw new IllegalStateException("Indexer is closed");
+        }
+        List<Decoded> blocks = await(inflight.poll());
+        BlockIdExt masterchainBlock = blocks.get(blocks.size() - 1).id;
+        long start = System.nanoTime();
+        for (Decoded block : blocks) {
+          listener.onBlock(masterchainBlock, block.id, block.transactions);
+        }
+        stats.emitNanos.add(System.nanoTime() - start);
+        stats.emittedBlocks.add(blocks.size());
+        stats.emittedMasterchainBlocks.increment();
+
+        indexedSeqno = seqno;
+        saveCheckpoint(seqno);
+        masterchainBlocks.remove(seqno - 1);
+        topBlocks.remove(seqno - 1);
+        if ((seqno - first) % 100 == 99) {
+          log.info("Indexed masterchain block {}, {}", seqno, stats);
+        }
+      }
+    } finally {
+      cancelInflight();
+      masterchainBlocks.clear();
+      topBlocks.clear();
+    }
+  }
+
+  /**
+   * @return seqno of the last fully indexed masterchain block, -1 before the first one
+   */
+  public int getIndexedSeqno() {
+    return indexedSeqno;
+  }
+
+  /**
+   * @return counters of the current or last run
+   */
+  public Stats getStats() {
+    return stats;
+  }
+
+  /** Stops the running indexing, which fails without checkpointing the current block */
+  @Override
+  public void close() {
+    closed = true;
+    cancelInflight();
+    fetcher.shutdownNow();
+    coordinator.shutdownNow();
+    if (ownDecoder) {
+      decoder.shutdownNow();
+    }
+  }
+
+  private void cancelInflight() {
+    CompletableFuture<List<Decoded>> f;
+    while ((f = inflight.poll()) != null) {
+      f.cancel(false);
+    }
+  }
+
+  /**
+   * @return blocks of the masterchain block seqno in emit order, the masterchain block last
+   */
+  private List<Decoded> index(int seqno) throws Exception {
+    BlockIdExt masterchainBlock = await(masterchainBlock(seqno));
+    // seqno of the last block of every shard known to the previous masterchain block, the first
+    // masterchain block follows the zero state, which has no shard blocks
+    Map<String, Integer> known = new HashMap<>();
+    int minKnown = seqno == 1 ? 0 : Integer.MAX_VALUE;
+    if (seqno > 1) {
+      for (BlockIdExt top : await(topBlocks(seqno - 1))) {
+        known.put(top.getWorkchain() + ":" + top.shard, top.getSeqno());
+        minKnown = Math.min(minKnown, top.getSeqno());
+      }
+    }
+
+    Set<String> seen = new HashSet<>();
+    List<CompletableFuture<Decoded>> level = new ArrayList<>();
+    level.add(fetch(masterchainBlock));
+    for (BlockIdExt top : await(topBlocks(seqno))) {
+      if (isNew(top, known, minKnown, seen)) {
+        level.add(fetch(top));
+      }
+    }
+    List<Decoded> blocks = new ArrayList<>();
+    while (!level.isEmpty()) {
+      List<CompletableFuture<Decoded>> parents = new ArrayList<>();
+      for (CompletableFuture<Decoded> f : level) {
+        Decoded block = await(f);
+        blocks.add(block);
+        if (block.id.getWorkchain() == -1) {
+          continue;
+        }
+        for (BlockIdExt prev : block.prevs) {
+          if (isNew(prev, known, minKnown, seen)) {
+            parents.add(fetch(prev));
+          }
+        }
+      }
+      level = parents;
+    }
+    blocks.sort(EMIT_ORDER);
+    return blocks;
+  }
+
+  /**
+   * New blocks of a shard follow its last known block, a split shard follows the last block of
+   * its parent, so no new block has a seqno below the lowest known one
+   */
+  private static boolean isNew(
+      BlockIdExt block, Map<String, Integer> known, int minKnown, Set<String> seen) {
+    if (block.getSeqno() <= minKnown) {
+      return false;
+    }
+    Integer last = known.get(block.getWorkchain() + ":" + block.shard);
+    if (last != null && block.getSeqno() <= last) {
+      return false;
+    }
+    return seen.add(block.getWorkchain() + ":" + block.shard + ":" + block.getSeqno());
+  }
+
+  private CompletableFuture<BlockIdExt> masterchainBlock(int seqno) {
+    return masterchainBlocks.computeIfAbsent(
+        seqno,
+        s -> supply(() -> source.lookupBlock(-1, BlockSubscriber.MASTERCHAIN_SHARD, s)));
+  }
+
+  private CompletableFuture<List<BlockIdExt>> topBlocks(int seqno) {
+    return topBlocks.computeIfAbsent(
+        seqno,
+        s -> masterchainBlock(s).thenCompose(id -> supply(() -> source.topShardBlocks(id))));
+  }
+
+  private CompletableFuture<Decoded> fetch(BlockIdExt id) {
+    return supply(
+            () -> {
+              long start = System.nanoTime();
+              byte[] data = source.getBlock(id);
+              stats.fetchNanos.add(System.nanoTime() - start);
+              stats.fetchedBlocks.increment();
+              stats.fetchedBytes.add(data.length);
+              return data;
+            })
+        .thenApplyAsync(data -> decode(id, data), decoder);
+  }
+
+  private <T> CompletableFuture<T> supply(Callable<T> call) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return call.call();
+          } catch (Exception e) {
+            throw new CompletionException(e);
+          }
+        },
+        fetcher);
+  }
+
+  /**
+   * Deserializes the block info and the transactions of the account blocks only
+   *
+   * <pre>
+   * block#11ef55aa global_id:int32 info:^BlockInfo value_flow:^ValueFlow
+   *   state_update:^(MERKLE_UPDATE ShardState) extra:^BlockExtra = Block;
+   * block_extra in_msg_descr:^InMsgDescr out_msg_descr:^OutMsgDescr
+   *   account_blocks:^ShardAccountBlocks ... = BlockExtra;
+   * </pre>
+   */
+  private Decoded decode(BlockIdExt id, byte[] data) {
+    long start = System.nanoTime();
+    Cell root = Cell.fromBoc(data);
+    BlockInfo info = BlockInfo.deserialize(CellSlice.beginParse(root.getRefs().get(0)));
+    List<Transaction> transactions = transactions(root);
+    List<BlockIdExt> prevs = prevBlocks(id, info);
+    stats.decodeNanos.add(System.nanoTime() - start);
+    stats.decodedBlocks.increment();
+    stats.decodedTransactions.add(transactions.size());
+    return new Decoded(id, prevs, transactions);
+  }
+
+  /**
+   * @return previous blocks of the shard block, both children after a merge and the parent after
+   *     a split
+   */
+  static List<BlockIdExt> prevBlocks(BlockIdExt id, BlockInfo info) {
+    long shard = id.shard;
+    long bit = Long.lowestOneBit(shard);
+    if (info.isAfterMerge()) {
+      return Arrays.asList(
+          prev(id, shard - (bit >>> 1), info.getPrevRef().getPrev1()),
+          prev(id, shard + (bit >>> 1), info.getPrevRef().getPrev2()));
+    }
+    if (info.isAfterSplit()) {
+      long parent = (shard - bit) | (bit << 1);
+      return Collections.singletonList(prev(id, parent, info.getPrevRef().getPrev1()));
+    }
+    return Collections.singletonList(prev(id, shard, info.getPrevRef().getPrev1()));
+  }
+
+  /**
+   * Deserializes the transactions of the account blocks of the block, ordered by logical time.
+   * Leaves of ShardAccountBlocks hold the CurrencyCollection extra before the AccountBlock.
+   *
+   * <pre>
+   * _ (HashmapAugE 256 AccountBlock CurrencyCollection) = ShardAccountBlocks;
+   * </pre>
+   */
+  static List<Transaction> transactions(Cell block) {
+    Cell extra = block.getRefs().get(3);
+    TonHashMapAugE accountBlocks =
+        CellSlice.beginParse(extra.getRefs().get(2))
+            .loadDictAugE(
+                256,
+                k -> k.readUint(256),
+                BlockIndexer::accountTransactions,
+                CurrencyCollection::deserialize);
+
+    List<Transaction> transactions = new ArrayList<>();
+    for (Pair<Object, Object> accountBlock : accountBlocks.elements.values()) {
+      for (Object tx : (List<?>) accountBlock.getLeft()) {
+        transactions.add((Transaction) tx);
+      }
+    }
+    transactions.sort(Comparator.comparing(Transaction::getLt));
+    return transactions;
+  }
+
+  /**
+   * Deserializes the transactions of an AccountBlock. The transactions dictionary is inlined and
+   * followed by the state_update ref, which loadDictAug would take for a branch of the root, so
+   * the dictionary is read from a copy without it.
+   *
+   * <pre>
+   * acc_trans#5 account_addr:bits256
+   *   transactions:(HashmapAug 64 ^Transaction CurrencyCollection)
+   *   state_update:^(HASH_UPDATE Account) = AccountBlock;
+   * </pre>
+   */
+  private static List<Transaction> accountTransactions(CellSlice cs) {
+    cs.skipBits(4 + 256);
+    List<Cell> refs = cs.loadRefs(cs.getRefsCount());
+    Cell dict =
+        CellBuilder.beginCell()
+            .storeBitString(cs.loadBits(cs.getRestBits()))
+            .storeRefs(refs.subList(0, refs.size() - 1))
+            .endCell();
+    TonHashMapAug txs =
+        CellSlice.beginParse(dict)
+            .loadDictAug(
+                64,
+                k -> k.readUint(64),
+                v -> Transaction.deserialize(CellSlice.beginParse(v.loadRef())),
+                CurrencyCollection::deserialize);
+
+    List<Transaction> transactions = new ArrayList<>();
+    for (Pair<Object, Object> tx : txs.elements.values()) {
+      transactions.add((Transaction) tx.getLeft());
+    }
+    return transactions;
+  }
+
+  private static BlockIdExt prev(BlockIdExt block, long shard, ExtBlkRef ref) {
+    return BlockIdExt.builder()
+        .workchain(block.getWorkchain())
+        .shard(shard)
+        .seqno(ref.getSeqno())
+        .rootHash(Utils.to32ByteArray(new BigInteger(ref.getRootHash(), 16)))
+        .fileHash(Utils.to32ByteArray(new BigInteger(ref.getFileHash(), 16)))
+        .build();
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private int loadCheckpoint() throws IOException {
+    if (checkpoint == null || !Files.exists(checkpoint)) {
+      return -1;
+    }
+    String seqno = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+    return Integer.parseInt(seqno);
+  }
+
+  private void saveCheckpoint(int seqno) throws IOException {
+    if (checkpoint == null) {
+      return;
+    }
+    Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    Files.write(tmp, String.valueOf(seqno).getBytes(StandardCharsets.UTF_8));
+    Files.move(
+        tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Builder for BlockIndexer */
+  public static class Builder {
+    private LiteClientConnectionPool pool;
+    private BlockSource source;
+    private int window = 8;
+    private int fetchConcurrency = 16;
+    private int decodeParallelism = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool decoder;
+    private Path checkpoint;
+
+    /** Create a new builder */
+    public Builder() {}
+
+    /**
+     * Set the pool blocks are fetched through
+     *
+     * @param pool connected LiteClientConnectionPool
+     * @return Builder
+     */
+    public Builder pool(LiteClientConnectionPool pool) {
+      this.pool = pool;
+      return this;
+    }
+
+    /** Read blocks from the source instead of a pool */
+    Builder source(BlockSource source) {
+      this.source = source;
+      return this;
+    }
+
+    /**
+     * Set how many masterchain blocks are indexed ahead of the listener
+     *
+     * @param window Number of masterchain blocks
+     * @return Builder
+     */
+    public Builder window(int window) {
+      this.window = window;
+      return this;
+    }
+
+    /**
+     * Set how many blocks are fetched at a time
+     *
+     * @param fetchConcurrency Number of concurrent getBlock queries
+     * @return Builder
+     */
+    public Builder fetchConcurrency(int fetchConcurrency) {
+      this.fetchConcurrency = fetchConcurrency;
+      return this;
+    }
+
+    /**
+     * Set the number of threads decoding blocks, unless a decoder pool is given
+     *
+     * @param decodeParallelism Number of threads
+     * @return Builder
+     */
+    public Builder decodeParallelism(int decodeParallelism) {
+      this.decodeParallelism = decodeParallelism;
+      return this;
+    }
+
+    /**
+     * Decode blocks in the given pool, which is not shut down on close
+     *
+     * @param decoder CPU pool
+     * @return Builder
+     */
+    public Builder decoder(ForkJoinPool decoder) {
+      this.decoder = decoder;
+      return this;
+    }
+
+    /**
+     * Save the seqno of every indexed masterchain block to the file and resume after it
+     *
+     * @param checkpoint Checkpoint file
+     * @return Builder
+     */
+    public Builder checkpoint(Path checkpoint) {
+      this.checkpoint = checkpoint;
+      return this;
+    }
+
+    /**
+     * @return BlockIndexer
+     */
+    public BlockIndexer build() {
+      return new BlockIndexer(this);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package org.ton.java.adnl;
+
+import java.util.List;
+import org.ton.ton4j.tl.liteserver.responses.BlockId;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tl.liteserver.responses.BlockTransactionsExt;
+import org.ton.ton4j.tl.liteserver.responses.TransactionId3;
+
+/**
+ * Blocks read by BlockSubscriber, DeliveryTracker and BlockIndexer, from lite-servers or, in tests,
+ * from memory
+ */
+interface BlockSource {
+
+  /**
+   * @return block of the shard with the seqno
+   */
+  BlockIdExt lookupBlock(int workchain, long shard, int seqno) throws Exception;
+
+  /**
+   * @return latest blocks of all shards of all workchains committed by the masterchain block
+   */
+  List<BlockIdExt> topShardBlocks(BlockIdExt masterchainBlock) throws Exception;
+
+  /**
+   * @return BoC of the block
+   */
+  byte[] getBlock(BlockIdExt id) throws Exception;
+
+  /**
+   * @return page of transactions of the block, as liteServer.listBlockTransactionsExt without proof
+   */
+  BlockTransactionsExt listBlockTransactionsExt(
+      BlockIdExt id, int mode, int count, TransactionId3 after) throws Exception;
+
+  static BlockSource of(AdnlLiteClient client) {
+    return new BlockSource() {
+      @Override
+      public BlockIdExt lookupBlock(int workchain, long shard, int seqno) throws Exception {
+        BlockId id = BlockId.builder().workchain(workchain).shard(shard).seqno(seqno).build();
+        return client.lookupBlock(id, 1, 0, 0).getId();
+      }
+
+      @Override
+      public List<BlockIdExt> topShardBlocks(BlockIdExt masterchainBlock) throws Exception {
+        return BlockSubscriber.topShardBlocks(client.getAllShardsInfo(masterchainBlock));
+      }
+
+      @Override
+      public byte[] getBlock(BlockIdExt id) throws Exception {
+        return client.getBlock(id).data;
+      }
+
+      @Override
+      public BlockTransactionsExt listBlockTransactionsExt(
+          BlockIdExt id, int mode, int count, TransactionId3 after) throws Exception {
+        return client.listBlockTransactionsExt(id, mode, count, after, false, false);
+      }
+    };
+  }
+
+  static BlockSource of(LiteClientConnectionPool pool) {
+    return new BlockSource() {
+      @Override
+      public BlockIdExt lookupBlock(int workchain, long shard, int seqno) throws Exception {
+        BlockId id = BlockId.builder().workchain(workchain).shard(shard).seqno(seqno).build();
+        return pool.lookupBlock(id, 1, 0, 0).getId();
+      }
+
+      @Override
+      public List<BlockIdExt> topShardBlocks(BlockIdExt masterchainBlock) throws Exception {
+        return BlockSubscriber.topShardBlocks(
+            pool.execute(c -> c.getAllShardsInfo(masterchainBlock)));
+      }
+
+      @Override
+      public byte[] getBlock(BlockIdExt id) throws Exception {
+        return pool.execute(c -> c.getBlock(id)).data;
+      }
+
+      @Override
+      public BlockTransactionsExt listBlockTransactionsExt(
+          BlockIdExt id, int mode, int count, TransactionId3 after) throws Exception {
+        return pool.execute(c -> c.listBlockTransactionsExt(id, mode, count, after, false, false));
+      }
+    };
+  }
+}
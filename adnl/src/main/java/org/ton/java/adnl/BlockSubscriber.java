@@ -0,0 +1,329 @@
+package org.ton.java.adnl;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.cell.TonHashMapE;
+import org.ton.ton4j.tl.liteserver.queries.MasterchainInfoQuery;
+import org.ton.ton4j.tl.liteserver.queries.WaitMasterchainSeqnoQuery;
+import org.ton.ton4j.tl.liteserver.responses.AllShardsInfo;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tl.liteserver.responses.MasterchainInfo;
+import org.ton.ton4j.tlb.BlockInfo;
+
+/**
+ * Follows new masterchain blocks of a lite-server and publishes them, with the shard blocks they
+ * commit, to listeners. The next masterchain block is awaited with a single long-polling query
+ * prefixed by liteServer.waitMasterchainSeqno, so any number of waiters share one stream of blocks
+ * instead of polling the lite-server each.
+ *
+ * <p>Blocks are published in order and without gaps, skipped masterchain blocks and shard blocks
+ * are looked up. Blocks of a shard that has just split or merged are found by following the prev
+ * references of its blocks back to the last published blocks of the parent shards.
+ *
+ * <pre>
+ * BlockSubscriber subscriber = new BlockSubscriber(client, true);
+ * subscriber.addListener((mcBlock, shardBlocks) -&gt; index(mcBlock, shardBlocks));
+ * subscriber.start();
+ * BlockIdExt next = subscriber.nextMasterchainBlock().get(30, TimeUnit.SECONDS);
+ * subscriber.close();
+ * </pre>
+ */
+@Slf4j
+public class BlockSubscriber implements AutoCloseable {
+
+  /** Receives new blocks in the thread of the subscriber, must not block it for long */
+  public interface Listener {
+    /**
+     * @param masterchainBlock new masterchain block
+     * @param shardBlocks shard blocks committed since the previous masterchain block, empty if
+     *     shards are not resolved
+     */
+    void onBlocks(BlockIdExt masterchainBlock, List<BlockIdExt> shardBlocks);
+  }
+
+  public static final long MASTERCHAIN_SHARD = 0x8000000000000000L;
+
+  /** lite-servers do not hold a query longer than that */
+  private static final int WAIT_MILLIS = 10_000;
+
+  private static final long RETRY_DELAY_MILLIS = 1_000;
+
+  private final AdnlLiteClient client;
+  private final BlockSource source;
+  private final boolean resolveShards;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /** last published seqno of every shard, by workchain and shard id */
+  private final Map<Integer, Map<Long, Integer>> shardSeqnos = new HashMap<>();
+
+  private final Thread thread;
+  private volatile boolean running;
+  private volatile BlockIdExt last;
+  private volatile CompletableFuture<BlockIdExt> next = new CompletableFuture<>();
+
+  /**
+   * @param client connected lite client
+   * @param resolveShards publish shard blocks too, costs one getAllShardsInfo per masterchain
+   *     block
+   */
+  public BlockSubscriber(AdnlLiteClient client, boolean resolveShards) {
+    this(client, BlockSource.of(client), resolveShards);
+  }
+
+  BlockSubscriber(AdnlLiteClient client, BlockSource source, boolean resolveShards) {
+    this.client = client;
+    this.source = source;
+    this.resolveShards = resolveShards;
+    this.thread = new Thread(this::run, "block-subscriber");
+    this.thread.setDaemon(true);
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts following blocks from the current last masterchain block, which is not published
+   *
+   * @return this subscriber
+   */
+  public synchronized BlockSubscriber start() {
+    if (thread.getState() == Thread.State.NEW) {
+      running = true;
+      thread.start();
+    }
+    return this;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @return last published masterchain block, or the starting block, null before the start
+   */
+  public BlockIdExt getLast() {
+    return last;
+  }
+
+  /**
+   * @return future completed with the next published masterchain block, cancelled on close
+   */
+  public CompletableFuture<BlockIdExt> nextMasterchainBlock() {
+    return next;
+  }
+
+  /** Stops following blocks, waiters of the next block are cancelled */
+  @Override
+  public void close() {
+    running = false;
+    thread.interrupt();
+    next.cancel(false);
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        if (last == null) {
+          BlockIdExt first = client.getMasterchainInfo().getLast();
+          if (resolveShards) {
+            newShardBlocks(first);
+          }
+          last = first;
+          continue;
+        }
+        BlockIdExt latest = waitNext();
+        for (int seqno = last.getSeqno() + 1; running && seqno <= latest.getSeqno(); seqno++) {
+          publish(
+              seqno == latest.getSeqno()
+                  ? latest
+                  : source.lookupBlock(-1, MASTERCHAIN_SHARD, seqno));
+        }
+      } catch (InterruptedException e) {
+        break;
+      } catch (Exception e) {
+        if (!running) {
+          break;
+        }
+        log.warn("Block subscription failed, retrying: {}", e.getMessage());
+        try {
+          Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException ie) {
+          break;
+        }
+      }
+    }
+    next.cancel(false);
+  }
+
+  /**
+   * Waits for the masterchain block after the last one. When the lite-server does not support
+   * waiting or the wait times out, falls back to a single getMasterchainInfo, which also
+   * reconnects a lost connection.
+   */
+  private BlockIdExt waitNext() throws Exception {
+    WaitMasterchainSeqnoQuery query =
+        WaitMasterchainSeqnoQuery.builder()
+            .seqno(last.getSeqno() + 1)
+            .timeoutMs(WAIT_MILLIS)
+            .query(MasterchainInfoQuery.builder().build())
+            .build();
+    try {
+      MasterchainInfo info = client.queryAsync(query, MasterchainInfo.class).get();
+      client.updateLatestMasterchainInfo(info);
+      return info.getLast();
+    } catch (ExecutionException e) {
+      log.debug("waitMasterchainSeqno failed: {}", e.getCause().getMessage());
+      Thread.sleep(RETRY_DELAY_MILLIS);
+      return client.getMasterchainInfo().getLast();
+    }
+  }
+
+  /** Publishes the masterchain block and its new shard blocks, in the thread of the subscriber */
+  void publish(BlockIdExt masterchainBlock) throws Exception {
+    List<BlockIdExt> shardBlocks =
+        resolveShards ? newShardBlocks(masterchainBlock) : Collections.emptyList();
+    last = masterchainBlock;
+    for (Listener listener : listeners) {
+      try {
+        listener.onBlocks(masterchainBlock, shardBlocks);
+      } catch (RuntimeException e) {
+        log.error("Block listener failed", e);
+      }
+    }
+    CompletableFuture<BlockIdExt> published = next;
+    next = new CompletableFuture<>();
+    published.complete(masterchainBlock);
+  }
+
+  /**
+   * @return shard blocks committed by the masterchain block since the last published ones
+   */
+  private List<BlockIdExt> newShardBlocks(BlockIdExt masterchainBlock) throws Exception {
+    List<BlockIdExt> tops = source.topShardBlocks(masterchainBlock);
+    List<BlockIdExt> blocks = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    Map<Integer, Map<Long, Integer>> seqnos = new HashMap<>();
+    for (BlockIdExt top : tops) {
+      Map<Long, Integer> known = shardSeqnos.get(top.getWorkchain());
+      Integer previous = known == null ? null : known.get(top.shard);
+      if (previous != null) {
+        for (int seqno = previous + 1; seqno < top.getSeqno(); seqno++) {
+          blocks.add(source.lookupBlock(top.getWorkchain(), top.shard, seqno));
+        }
+      } else if (known != null) {
+        blocks.addAll(newAncestors(top, known, seen));
+      }
+      if (previous == null || top.getSeqno() > previous) {
+        blocks.add(top);
+      }
+      seqnos
+          .computeIfAbsent(top.getWorkchain(), wc -> new HashMap<>())
+          .put(top.shard, top.getSeqno());
+    }
+    shardSeqnos.clear();
+    shardSeqnos.putAll(seqnos);
+    return blocks;
+  }
+
+  /**
+   * Follows the prev references from the top block of a shard that has just split or merged to
+   * the last published blocks of its parent shards, costs one getBlock per block.
+   *
+   * @param known last published seqno of every shard of the workchain
+   * @param seen blocks already found by the walk from another top block
+   * @return unpublished ancestors of the top block by seqno
+   */
+  private List<BlockIdExt> newAncestors(
+      BlockIdExt top, Map<Long, Integer> known, Set<String> seen) throws Exception {
+    // new blocks of a shard follow its last published block, so none is below the lowest of them
+    int minKnown = Collections.min(known.values());
+    List<BlockIdExt> ancestors = new ArrayList<>();
+    Deque<BlockIdExt> unvisited = new ArrayDeque<>();
+    unvisited.add(top);
+    while (!unvisited.isEmpty()) {
+      BlockIdExt block = unvisited.poll();
+      Cell root = Cell.fromBoc(source.getBlock(block));
+      BlockInfo info = BlockInfo.deserialize(CellSlice.beginParse(root.getRefs().get(0)));
+      for (BlockIdExt prev : BlockIndexer.prevBlocks(block, info)) {
+        Integer published = known.get(prev.shard);
+        if (prev.getSeqno() <= minKnown
+            || (published != null && prev.getSeqno() <= published)
+            || !seen.add(prev.getWorkchain() + ":" + prev.shard + ":" + prev.getSeqno())) {
+          continue;
+        }
+        ancestors.add(prev);
+        unvisited.add(prev);
+      }
+    }
+    ancestors.sort(
+        Comparator.comparingInt(BlockIdExt::getSeqno)
+            .thenComparing((a, b) -> Long.compareUnsigned(a.shard, b.shard)));
+    return ancestors;
+  }
+
+  /**
+   * @return latest blocks of all shards of all workchains committed by the masterchain block
+   */
+  static List<BlockIdExt> topShardBlocks(AllShardsInfo info) {
+    List<BlockIdExt> tops = new ArrayList<>();
+    TonHashMapE workchains =
+        CellSlice.beginParse(Cell.fromBoc(info.data)).loadDictE(32, k -> k.readInt(32), v -> v);
+    for (Map.Entry<Object, Object> entry : workchains.elements.entrySet()) {
+      int workchain = ((BigInteger) entry.getKey()).intValue();
+      Cell binTree = ((Cell) entry.getValue()).getRefs().get(0);
+      collectShards(binTree, workchain, MASTERCHAIN_SHARD, tops);
+    }
+    return tops;
+  }
+
+  /**
+   * Collects top blocks of the leaves of a BinTree ShardDescr
+   *
+   * <pre>
+   * bt_leaf$0 {X:Type} leaf:X = BinTree X;
+   * bt_fork$1 {X:Type} left:^(BinTree X) right:^(BinTree X) = BinTree X;
+   * shard_descr#b seq_no:uint32 reg_mc_seqno:uint32 start_lt:uint64 end_lt:uint64
+   *   root_hash:bits256 file_hash:bits256 ... = ShardDescr;
+   * </pre>
+   */
+  private static void collectShards(Cell binTree, int workchain, long shard, List<BlockIdExt> out) {
+    CellSlice cs = CellSlice.beginParse(binTree);
+    if (cs.loadBit()) {
+      long step = Long.lowestOneBit(shard) >>> 1;
+      collectShards(cs.loadRef(), workchain, shard - step, out);
+      collectShards(cs.loadRef(), workchain, shard + step, out);
+      return;
+    }
+    cs.skipBits(4); // shard_descr#b or shard_descr_new#a
+    int seqno = (int) cs.loadUintAsLong(32);
+    cs.skipBits(32 + 64 + 64);
+    out.add(
+        BlockIdExt.builder()
+            .workchain(workchain)
+            .shard(shard)
+            .seqno(seqno)
+            .rootHash(cs.loadBytes(256))
+            .fileHash(cs.loadBytes(256))
+            .build());
+  }
+}
@@ -0,0 +1,237 @@
+package org.ton.java.adnl;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.cell.TonHashMap;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tlb.*;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Blockchain config at one masterchain block, fetched with a single getConfigAll. ConfigParamsN are
+ * deserialized from the config dictionary on first access and then kept, so fee calculations
+ * reading params 18, 20, 21, 24 and 25 cost one round-trip in total. A snapshot is immutable apart
+ * from its lazily filled params and can be shared across threads; the returned params are shared
+ * too and must not be modified.
+ *
+ * @see AdnlLiteClient#getBlockchainConfig()
+ */
+public class BlockchainConfigSnapshot {
+
+  private static final Map<Integer, Function<CellSlice, ?>> DESERIALIZERS = new HashMap<>();
+
+  static {
+    DESERIALIZERS.put(0, ConfigParams0::deserialize);
+    DESERIALIZERS.put(1, ConfigParams1::deserialize);
+    DESERIALIZERS.put(2, ConfigParams2::deserialize);
+    DESERIALIZERS.put(3, ConfigParams3::deserialize);
+    DESERIALIZERS.put(4, ConfigParams4::deserialize);
+    DESERIALIZERS.put(5, ConfigParams5::deserialize);
+    DESERIALIZERS.put(6, ConfigParams6::deserialize);
+    DESERIALIZERS.put(7, ConfigParams7::deserialize);
+    DESERIALIZERS.put(8, ConfigParams8::deserialize);
+    DESERIALIZERS.put(9, ConfigParams9::deserialize);
+    DESERIALIZERS.put(10, ConfigParams10::deserialize);
+    DESERIALIZERS.put(11, ConfigParams11::deserialize);
+    DESERIALIZERS.put(12, ConfigParams12::deserialize);
+    DESERIALIZERS.put(13, ConfigParams13::deserialize);
+    DESERIALIZERS.put(14, ConfigParams14::deserialize);
+    DESERIALIZERS.put(15, ConfigParams15::deserialize);
+    DESERIALIZERS.put(16, ConfigParams16::deserialize);
+    DESERIALIZERS.put(17, ConfigParams17::deserialize);
+    DESERIALIZERS.put(18, ConfigParams18::deserialize);
+    DESERIALIZERS.put(19, ConfigParams19::deserialize);
+    DESERIALIZERS.put(20, ConfigParams20::deserialize);
+    DESERIALIZERS.put(21, ConfigParams21::deserialize);
+    DESERIALIZERS.put(22, ConfigParams22::deserialize);
+    DESERIALIZERS.put(23, ConfigParams23::deserialize);
+    DESERIALIZERS.put(24, ConfigParams24::deserialize);
+    DESERIALIZERS.put(25, ConfigParams25::deserialize);
+    DESERIALIZERS.put(28, ConfigParams28::deserialize);
+    DESERIALIZERS.put(29, ConfigParams29::deserialize);
+    DESERIALIZERS.put(31, ConfigParams31::deserialize);
+    DESERIALIZERS.put(32, ConfigParams32::deserialize);
+    DESERIALIZERS.put(33, ConfigParams33::deserialize);
+    DESERIALIZERS.put(34, ConfigParams34::deserialize);
+    DESERIALIZERS.put(35, ConfigParams35::deserialize);
+    DESERIALIZERS.put(36, ConfigParams36::deserialize);
+    DESERIALIZERS.put(37, ConfigParams37::deserialize);
+    DESERIALIZERS.put(39, ConfigParams39::deserialize);
+    DESERIALIZERS.put(40, ConfigParams40::deserialize);
+    DESERIALIZERS.put(44, ConfigParams44::deserialize);
+    DESERIALIZERS.put(45, ConfigParams45::deserialize);
+    DESERIALIZERS.put(71, ConfigParams71::deserialize);
+    DESERIALIZERS.put(72, ConfigParams72::deserialize);
+    DESERIALIZERS.put(73, ConfigParams73::deserialize);
+    DESERIALIZERS.put(79, ConfigParams79::deserialize);
+    DESERIALIZERS.put(81, ConfigParams81::deserialize);
+    DESERIALIZERS.put(82, ConfigParams82::deserialize);
+  }
+
+  private final BlockIdExt block;
+  private final long keyBlockSeqno;
+  private final Map<Integer, Cell> cells;
+  private final byte[] configHash;
+  private final ConcurrentHashMap<Integer, Object> params;
+
+  BlockchainConfigSnapshot(BlockIdExt block, long keyBlockSeqno, TonHashMap config) {
+    Map<Integer, Cell> cells = new TreeMap<>();
+    for (Map.Entry<Object, Object> entry : config.elements.entrySet()) {
+      cells.put(((BigInteger) entry.getKey()).intValue(), (Cell) entry.getValue());
+    }
+    this.block = block;
+    this.keyBlockSeqno = keyBlockSeqno;
+    this.cells = Collections.unmodifiableMap(cells);
+    this.configHash = hash(cells);
+    this.params = new ConcurrentHashMap<>();
+  }
+
+  private BlockchainConfigSnapshot(
+      BlockchainConfigSnapshot snapshot, BlockIdExt block, long keyBlockSeqno) {
+    this.block = block;
+    this.keyBlockSeqno = keyBlockSeqno;
+    this.cells = snapshot.cells;
+    this.configHash = snapshot.configHash;
+    this.params = snapshot.params;
+  }
+
+  /**
+   * Same config at a later block, keeps the params deserialized so far
+   *
+   * @param block masterchain block
+   * @param keyBlockSeqno seqno of the latest key block not after block
+   * @return new snapshot
+   */
+  BlockchainConfigSnapshot withBlock(BlockIdExt block, long keyBlockSeqno) {
+    return new BlockchainConfigSnapshot(this, block, keyBlockSeqno);
+  }
+
+  /** sha256 of the indexes and cell hashes of all params, equal for equal configs */
+  private static byte[] hash(Map<Integer, Cell> cells) {
+    ByteBuffer buffer = ByteBuffer.allocate(cells.size() * (4 + 32));
+    for (Map.Entry<Integer, Cell> entry : cells.entrySet()) {
+      buffer.putInt(entry.getKey()).put(entry.getValue().getHash());
+    }
+    return Utils.sha256AsArray(buffer.array());
+  }
+
+  /**
+   * @return masterchain block the config was read at
+   */
+  public BlockIdExt getBlock() {
+    return block;
+  }
+
+  /**
+   * @return seqno of the key block the config was set by, or of an earlier one
+   */
+  public long getKeyBlockSeqno() {
+    return keyBlockSeqno;
+  }
+
+  public byte[] getConfigHash() {
+    return configHash.clone();
+  }
+
+  boolean hasSameConfig(BlockchainConfigSnapshot other) {
+    return Arrays.equals(configHash, other.configHash);
+  }
+
+  /**
+   * @return indexes of all params present in the config
+   */
+  public Set<Integer> getIndexes() {
+    return cells.keySet();
+  }
+
+  public boolean contains(int index) {
+    return cells.containsKey(index);
+  }
+
+  /**
+   * @param index config param number
+   * @return undecoded param cell, null if absent
+   */
+  public Cell getCell(int index) {
+    return cells.get(index);
+  }
+
+  /**
+   * Deserializes ConfigParamsN on first access
+   *
+   * @param index config param number
+   * @return ConfigParamsN, null if the param is absent
+   * @throws IllegalArgumentException if there is no ConfigParamsN class for the index
+   */
+  public Object getConfigParam(int index) {
+    Object param = params.get(index);
+    if (param != null) {
+      return param;
+    }
+    Function<CellSlice, ?> deserializer = DESERIALIZERS.get(index);
+    if (deserializer == null) {
+      throw new IllegalArgumentException("no deserializer for config param " + index);
+    }
+    Cell cell = cells.get(index);
+    if (cell == null) {
+      return null;
+    }
+    return params.computeIfAbsent(index, i -> deserializer.apply(CellSlice.beginParse(cell)));
+  }
+
+  /**
+   * @param index config param number
+   * @param type ConfigParamsN class
+   * @return ConfigParamsN, null if the param is absent
+   */
+  public <T> T getConfigParam(int index, Class<T> type) {
+    return type.cast(getConfigParam(index));
+  }
+
+  /** StoragePrices */
+  public ConfigParams18 getConfigParam18() {
+    return getConfigParam(18, ConfigParams18.class);
+  }
+
+  /** GasLimitsPrices of the masterchain */
+  public ConfigParams20 getConfigParam20() {
+    return getConfigParam(20, ConfigParams20.class);
+  }
+
+  /** GasLimitsPrices of the basechain */
+  public ConfigParams21 getConfigParam21() {
+    return getConfigParam(21, ConfigParams21.class);
+  }
+
+  /** MsgForwardPrices of the masterchain */
+  public ConfigParams24 getConfigParam24() {
+    return getConfigParam(24, ConfigParams24.class);
+  }
+
+  /** MsgForwardPrices of the basechain */
+  public ConfigParams25 getConfigParam25() {
+    return getConfigParam(25, ConfigParams25.class);
+  }
+
+  @Override
+  public String toString() {
+    return "BlockchainConfigSnapshot block="
+        + block.getSeqno()
+        + " keyBlock="
+        + keyBlockSeqno
+        + " params="
+        + cells.size()
+        + " decoded="
+        + params.size();
+  }
+}
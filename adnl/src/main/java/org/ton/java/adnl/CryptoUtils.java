@@ -2,6 +2,7 @@ package org.ton.java.adnl;
 
 import com.iwebpp.crypto.TweetNaclFast;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Arrays;
@@ -80,6 +81,28 @@ public class CryptoUtils {
     }
   }
 
+  /**
+   * Transform a region of a (possibly direct) buffer using AES-CTR in-place, without copying it to
+   * the heap. Buffer position and limit are left untouched.
+   *
+   * @param cipher Cipher
+   * @param buffer Buffer holding the data
+   * @param offset Absolute offset of the region in the buffer
+   * @param length Length of the region
+   */
+  public static void aesCtrTransformInPlace(
+      Cipher cipher, ByteBuffer buffer, int offset, int length) {
+    try {
+      ByteBuffer in = buffer.duplicate();
+      in.limit(offset + length).position(offset);
+      ByteBuffer out = buffer.duplicate();
+      out.limit(offset + length).position(offset);
+      cipher.update(in, out);
+    } catch (Exception e) {
+      throw new RuntimeException("Error transforming data with AES-CTR in-place", e);
+    }
+  }
+
   /**
    * Get random bytes
    *
@@ -0,0 +1,324 @@
+package org.ton.java.adnl;
+
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.ton.ton4j.address.Address;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellBuilder;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tl.liteserver.responses.BlockTransactionsExt;
+import org.ton.ton4j.tl.liteserver.responses.SendMsgStatus;
+import org.ton.ton4j.tl.liteserver.responses.TransactionId3;
+import org.ton.ton4j.tlb.ExternalMessageInInfo;
+import org.ton.ton4j.tlb.Message;
+import org.ton.ton4j.tlb.Transaction;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Tracks delivery of many external messages at once. Every new masterchain block and all shard
+ * blocks it commits, also those generated by a shard just before it split or merged, are scanned
+ * once with listBlockTransactionsExt. Transactions of watched accounts are matched by the
+ * normalized hash of their inbound external message.
+ *
+ * <p>The future of a message completes with its transaction, or fails with a TimeoutException
+ * once the chain has passed its valid_until.
+ *
+ * <pre>
+ * try (DeliveryTracker tracker = new DeliveryTracker(client).start()) {
+ *   CompletableFuture&lt;Transaction&gt; tx = tracker.send(externalMessage, validUntil);
+ *   ...
+ *   tx.get();
+ * }
+ * </pre>
+ */
+@Slf4j
+public class DeliveryTracker implements AutoCloseable {
+
+  /** Transactions per listBlockTransactionsExt query */
+  private static final int PAGE_SIZE = 256;
+
+  /** Shard blocks may be committed to the masterchain a few blocks after they were generated */
+  private static final long EXPIRY_MARGIN_SECONDS = 30;
+
+  /** A block whose scan keeps failing is given up after that many attempts */
+  private static final int MAX_SCAN_ATTEMPTS = 5;
+
+  private static final int MODE_AFTER = 128;
+
+  private final AdnlLiteClient client;
+  private final BlockSubscriber subscriber;
+  private final BlockSource source;
+
+  /** pending messages by normalized hash in hex */
+  private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+  /** blocks whose scan failed, scanned again with the next masterchain block */
+  private final List<FailedScan> failedScans = new ArrayList<>();
+
+  private static final class Pending {
+    final String account;
+    final long validUntil;
+    final CompletableFuture<Transaction> future = new CompletableFuture<>();
+
+    Pending(String account, long validUntil) {
+      this.account = account;
+      this.validUntil = validUntil;
+    }
+  }
+
+  private static final class FailedScan {
+    final BlockIdExt block;
+    final int attempts;
+
+    FailedScan(BlockIdExt block, int attempts) {
+      this.block = block;
+      this.attempts = attempts;
+    }
+  }
+
+  /**
+   * @param client connected lite client, used by an own BlockSubscriber with shard blocks
+   */
+  public DeliveryTracker(AdnlLiteClient client) {
+    this(client, new BlockSubscriber(client, true), BlockSource.of(client));
+  }
+
+  DeliveryTracker(AdnlLiteClient client, BlockSubscriber subscriber, BlockSource source) {
+    this.client = client;
+    this.subscriber = subscriber;
+    this.source = source;
+    this.subscriber.addListener(this::scan);
+  }
+
+  /**
+   * Starts scanning blocks from the current last masterchain block
+   *
+   * @return this tracker
+   */
+  public DeliveryTracker start() {
+    subscriber.start();
+    return this;
+  }
+
+  /**
+   * Sends the external message and tracks its delivery. The message is tracked before it is sent,
+   * so it is not missed in a block published in between.
+   *
+   * @param externalMessage message to send
+   * @param validUntil valid_until of the message in unix seconds, 0 to track until close
+   * @return future completed with the transaction of the message
+   */
+  public CompletableFuture<Transaction> send(Message externalMessage, long validUntil) {
+    CompletableFuture<Transaction> future = track(externalMessage, validUntil);
+    String hash = Utils.bytesToHex(externalMessage.getNormalizedHash());
+    SendMsgStatus status;
+    try {
+      status = client.sendMessage(externalMessage);
+    } catch (Exception | Error e) {
+      fail(hash, new Error("Cannot send message " + hash, e));
+      return future;
+    }
+    if (nonNull(status.getResponseMessage())) {
+      fail(
+          hash,
+          new Error(
+              "Cannot send message "
+                  + hash
+                  + ", "
+                  + status.getResponseCode()
+                  + ": "
+                  + status.getResponseMessage()));
+    }
+    return future;
+  }
+
+  /**
+   * Tracks delivery of an external message sent elsewhere
+   *
+   * @param externalMessage sent message, its destination is the watched account
+   * @param validUntil valid_until of the message in unix seconds, 0 to track until close
+   * @return future completed with the transaction of the message
+   */
+  public CompletableFuture<Transaction> track(Message externalMessage, long validUntil) {
+    if (!(externalMessage.getInfo() instanceof ExternalMessageInInfo)) {
+      throw new IllegalArgumentException("Only inbound external messages can be tracked");
+    }
+    return track(
+        externalMessage.getNormalizedHash(),
+        Address.of(externalMessage.getInfo().getDestinationAddress()),
+        validUntil);
+  }
+
+  /**
+   * Tracks delivery of an external message by its normalized hash. The same message tracked twice
+   * shares one future.
+   *
+   * @param normalizedHash normalized hash of the message, see Message.getNormalizedHash()
+   * @param account destination of the message
+   * @param validUntil valid_until of the message in unix seconds, 0 to track until close
+   * @return future completed with the transaction of the message
+   */
+  public CompletableFuture<Transaction> track(
+      byte[] normalizedHash, Address account, long validUntil) {
+    if (normalizedHash.length != 32) {
+      throw new IllegalArgumentException("Normalized hash must be 32 bytes");
+    }
+    return pending.computeIfAbsent(
+            Utils.bytesToHex(normalizedHash),
+            h -> new Pending(Utils.bytesToHex(account.hashPart), validUntil))
+        .future;
+  }
+
+  /**
+   * @return number of messages not yet delivered or expired
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /** Stops scanning blocks, futures of pending messages are cancelled */
+  @Override
+  public void close() {
+    subscriber.close();
+    for (String hash : new ArrayList<>(pending.keySet())) {
+      Pending p = pending.remove(hash);
+      if (nonNull(p)) {
+        p.future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Scans blocks that failed before, then the new blocks. Messages expire only once no scanned
+   * block is left to retry, so a message is not failed while its block could not be read.
+   */
+  private void scan(BlockIdExt masterchainBlock, List<BlockIdExt> shardBlocks) {
+    if (pending.isEmpty()) {
+      failedScans.clear();
+      return;
+    }
+    Set<String> accounts = new HashSet<>();
+    for (Pending p : pending.values()) {
+      accounts.add(p.account);
+    }
+    List<FailedScan> retries = new ArrayList<>(failedScans);
+    failedScans.clear();
+    for (FailedScan retry : retries) {
+      scan(retry.block, accounts, retry.attempts + 1);
+    }
+    long utime = scan(masterchainBlock, accounts, 1);
+    for (BlockIdExt shardBlock : shardBlocks) {
+      scan(shardBlock, accounts, 1);
+    }
+    if (utime != 0 && failedScans.isEmpty()) {
+      expire(utime - EXPIRY_MARGIN_SECONDS);
+    }
+  }
+
+  /**
+   * Scans the block, on failure it is queued for the next masterchain block
+   *
+   * @return latest transaction time in the block, 0 if it has no transactions or failed
+   */
+  private long scan(BlockIdExt block, Set<String> accounts, int attempt) {
+    try {
+      return scan(block, accounts);
+    } catch (Exception e) {
+      if (attempt < MAX_SCAN_ATTEMPTS) {
+        log.warn(
+            "Cannot scan transactions of block {}:{}:{}, attempt {}",
+            block.getWorkchain(),
+            block.getShard(),
+            block.getSeqno(),
+            attempt,
+            e);
+        failedScans.add(new FailedScan(block, attempt));
+      } else {
+        log.error(
+            "Cannot scan transactions of block {}:{}:{}, giving up after {} attempts",
+            block.getWorkchain(),
+            block.getShard(),
+            block.getSeqno(),
+            attempt,
+            e);
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Reads all transactions of the block, only transactions of watched accounts are deserialized
+   *
+   * @return latest transaction time in the block, 0 if it has no transactions
+   */
+  private long scan(BlockIdExt block, Set<String> accounts) throws Exception {
+    long utime = 0;
+    TransactionId3 after = null;
+    while (true) {
+      BlockTransactionsExt page =
+          source.listBlockTransactionsExt(block, after == null ? 0 : MODE_AFTER, PAGE_SIZE, after);
+      if (page.transactions == null || page.transactions.length == 0) {
+        return utime;
+      }
+      Cell last = null;
+      for (Cell c : CellBuilder.beginCell().fromBocMultiRoot(page.transactions).endCells()) {
+        last = c;
+        // transaction$0111 account_addr:bits256 lt:uint64 prev_trans_hash:bits256
+        // prev_trans_lt:uint64 now:uint32 ...
+        CellSlice cs = CellSlice.beginParse(c);
+        cs.skipBits(4);
+        String account = Utils.bytesToHex(cs.loadBytes(256));
+        cs.skipBits(64 + 256 + 64);
+        utime = Math.max(utime, cs.loadUintAsLong(32));
+        if (accounts.contains(account)) {
+          match(Transaction.deserialize(CellSlice.beginParse(c)));
+        }
+      }
+      if (!page.isIncomplete()) {
+        return utime;
+      }
+      CellSlice cs = CellSlice.beginParse(last);
+      cs.skipBits(4);
+      after = TransactionId3.builder().account(cs.loadBytes(256)).lt(cs.loadUintAsLong(64)).build();
+    }
+  }
+
+  private void match(Transaction tx) {
+    Message in = tx.getInOut().getIn();
+    if (in == null || !(in.getInfo() instanceof ExternalMessageInInfo)) {
+      return;
+    }
+    Pending p = pending.remove(Utils.bytesToHex(in.getNormalizedHash()));
+    if (nonNull(p)) {
+      p.future.complete(tx);
+    }
+  }
+
+  private void fail(String hash, Throwable cause) {
+    Pending p = pending.remove(hash);
+    if (nonNull(p)) {
+      p.future.completeExceptionally(cause);
+    }
+  }
+
+  private void expire(long utime) {
+    for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+      Pending p = entry.getValue();
+      if (p.validUntil != 0 && p.validUntil < utime && pending.remove(entry.getKey(), p)) {
+        p.future.completeExceptionally(
+            new TimeoutException(
+                "Message " + entry.getKey() + " expired at valid_until " + p.validUntil));
+      }
+    }
+  }
+}
@@ -0,0 +1,410 @@
+package org.ton.java.adnl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.ton.ton4j.tl.liteserver.responses.RawAnswer;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Persistent {@link ResponseCache} in a directory, so answers survive restarts of the process.
+ *
+ * <p>Entries are appended to memory-mapped segment files of segmentSizeBytes; hits are copied
+ * straight from the mapping into the answer, without system calls. The index by SHA-256 of the
+ * query is kept in memory and rebuilt by scanning the segments on open, a torn record at the end
+ * of the last segment is dropped.
+ *
+ * <p>When the segments would exceed maxSizeBytes, the oldest segment is dropped. Entries read since
+ * they were written are moved to the newest segment first, so frequently used answers stay. The
+ * directory must not be used by two caches at a time.
+ *
+ * <pre>
+ * DiskResponseCache cache = new DiskResponseCache(Paths.get("cache"), 16L &lt;&lt; 30);
+ * AdnlLiteClient client = AdnlLiteClient.builder().responseCache(cache).build();
+ * </pre>
+ */
+@Slf4j
+public class DiskResponseCache implements ResponseCache, AutoCloseable {
+
+  public static final long DEFAULT_SEGMENT_SIZE = 256L << 20;
+
+  private static final int MAGIC = 0x7a5e0c4e;
+
+  /** magic:int32 query_length:int32 answer_id:int32 data_length:int32 crc32:int32 query data */
+  private static final int HEADER_SIZE = 20;
+
+  private static final String SUFFIX = ".seg";
+
+  private final Path directory;
+  private final long maxSizeBytes;
+  private final int segmentSizeBytes;
+
+  private final Map<Key, Location> index = new ConcurrentHashMap<>();
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private Segment active;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /** SHA-256 of the query */
+  private static final class Key {
+    final byte[] digest;
+    final int hash;
+
+    Key(byte[] query) {
+      this.digest = Utils.sha256AsArray(query);
+      this.hash = Arrays.hashCode(digest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(digest, ((Key) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Segment {
+    final long number;
+    final Path path;
+    final MappedByteBuffer buffer;
+    int position;
+
+    Segment(long number, Path path, MappedByteBuffer buffer) {
+      this.number = number;
+      this.path = path;
+      this.buffer = buffer;
+    }
+  }
+
+  private static final class Location {
+    final Segment segment;
+    final int offset;
+    volatile boolean used;
+
+    Location(Segment segment, int offset) {
+      this.segment = segment;
+      this.offset = offset;
+    }
+  }
+
+  /**
+   * @param directory directory of the segment files, created if missing
+   * @param maxSizeBytes upper bound of the size of all segments
+   */
+  public DiskResponseCache(Path directory, long maxSizeBytes) throws IOException {
+    this(directory, maxSizeBytes, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * @param directory directory of the segment files, created if missing
+   * @param maxSizeBytes upper bound of the size of all segments, at least two segments
+   * @param segmentSizeBytes size of one segment file, answers larger than that are not cached
+   */
+  public DiskResponseCache(Path directory, long maxSizeBytes, long segmentSizeBytes)
+      throws IOException {
+    if (segmentSizeBytes <= HEADER_SIZE || segmentSizeBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("segmentSizeBytes must be within 20 bytes and 2 GB");
+    }
+    if (maxSizeBytes < 2 * segmentSizeBytes) {
+      throw new IllegalArgumentException("maxSizeBytes must hold at least two segments");
+    }
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+    this.segmentSizeBytes = (int) segmentSizeBytes;
+    Files.createDirectories(directory);
+    open();
+  }
+
+  @Override
+  public RawAnswer get(byte[] query) {
+    Location location = index.get(new Key(query));
+    RawAnswer answer = location == null ? null : read(location, query);
+    if (answer == null) {
+      misses.incrementAndGet();
+    } else {
+      location.used = true;
+      hits.incrementAndGet();
+    }
+    return answer;
+  }
+
+  @Override
+  public void put(byte[] query, RawAnswer answer) {
+    byte[] data = answer.data == null ? new byte[0] : answer.data;
+    long size = (long) HEADER_SIZE + query.length + data.length;
+    if (size > segmentSizeBytes) {
+      return; // would not fit into a segment
+    }
+    Key key = new Key(query);
+    synchronized (this) {
+      if (index.containsKey(key)) {
+        return; // answers never change
+      }
+      try {
+        // entries moved from a dropped segment may fill the new one, they are dropped next time
+        while (active.buffer.capacity() - active.position < size) {
+          roll();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      index.put(key, append(query, answer.getId(), data));
+    }
+  }
+
+  /** Removes all entries and deletes all segment files but a new empty one */
+  @Override
+  public synchronized void clear() {
+    index.clear();
+    try {
+      while (!segments.isEmpty()) {
+        Files.deleteIfExists(segments.poll().path);
+      }
+      active = newSegment(active.number + 1);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Writes the mapped segment being appended to the disk */
+  @Override
+  public synchronized void close() {
+    active.buffer.force();
+  }
+
+  private void open() throws IOException {
+    List<Path> paths = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path path : files) {
+        paths.add(path);
+      }
+    }
+    paths.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+    for (int i = 0; i < paths.size(); i++) {
+      Path path = paths.get(i);
+      boolean last = i == paths.size() - 1;
+      Segment segment = map(segmentNumber(path), path, last);
+      segments.add(segment);
+      scan(segment);
+      if (last) {
+        active = segment;
+      }
+    }
+    if (active == null) {
+      active = newSegment(0);
+    }
+    while ((long) segments.size() * segmentSizeBytes > maxSizeBytes && segments.size() > 1) {
+      evictOldest();
+    }
+    log.info("Opened {} with {} entries in {} segments", directory, index.size(), segments.size());
+  }
+
+  private static long segmentNumber(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+  }
+
+  /** Maps the segment, the segment to append to is mapped with its full size */
+  private Segment map(long number, Path path, boolean writable) throws IOException {
+    try (FileChannel channel =
+        writable
+            ? FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = writable ? Math.max(channel.size(), segmentSizeBytes) : channel.size();
+      MappedByteBuffer buffer =
+          channel.map(
+              writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+      return new Segment(number, path, buffer);
+    }
+  }
+
+  private Segment newSegment(long number) throws IOException {
+    Path path = directory.resolve(String.format("%012d%s", number, SUFFIX));
+    Segment segment = map(number, path, true);
+    segments.add(segment);
+    return segment;
+  }
+
+  /** Indexes the records of the segment up to the first missing or broken one */
+  private void scan(Segment segment) {
+    ByteBuffer b = segment.buffer.duplicate();
+    int position = 0;
+    while (position + HEADER_SIZE <= b.capacity()) {
+      b.position(position);
+      if (b.getInt() != MAGIC) {
+        break;
+      }
+      int queryLength = b.getInt();
+      b.getInt();
+      int dataLength = b.getInt();
+      int crc = b.getInt();
+      long end = (long) position + HEADER_SIZE + queryLength + dataLength;
+      if (queryLength < 0 || dataLength < 0 || end > b.capacity()) {
+        break;
+      }
+      byte[] query = new byte[queryLength];
+      b.get(query);
+      ByteBuffer data = b.slice();
+      data.limit(dataLength);
+      CRC32 crc32 = new CRC32();
+      crc32.update(query);
+      crc32.update(data);
+      if ((int) crc32.getValue() != crc) {
+        log.warn("Dropping broken record at {} of {}", position, segment.path);
+        break;
+      }
+      index.put(new Key(query), new Location(segment, position));
+      position = (int) end;
+    }
+    segment.position = position;
+  }
+
+  private RawAnswer read(Location location, byte[] query) {
+    ByteBuffer b = location.segment.buffer.duplicate();
+    b.position(location.offset + 4);
+    int queryLength = b.getInt();
+    int id = b.getInt();
+    int dataLength = b.getInt();
+    b.getInt();
+    byte[] stored = new byte[queryLength];
+    b.get(stored);
+    if (!Arrays.equals(stored, query)) {
+      return null;
+    }
+    byte[] data = new byte[dataLength];
+    b.get(data);
+    return RawAnswer.builder().id(id).data(data).build();
+  }
+
+  private Location append(byte[] query, int id, byte[] data) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(query);
+    crc32.update(data);
+    ByteBuffer b = active.buffer.duplicate();
+    b.position(active.position);
+    b.putInt(MAGIC)
+        .putInt(query.length)
+        .putInt(id)
+        .putInt(data.length)
+        .putInt((int) crc32.getValue())
+        .put(query)
+        .put(data);
+    Location location = new Location(active, active.position);
+    active.position = b.position();
+    return location;
+  }
+
+  /** Starts a new segment and drops the oldest ones while the segments exceed maxSizeBytes */
+  private void roll() throws IOException {
+    active = newSegment(active.number + 1);
+    while ((long) segments.size() * segmentSizeBytes > maxSizeBytes) {
+      evictOldest();
+    }
+  }
+
+  /** Moves entries read since they were written to the active segment, drops the others */
+  private void evictOldest() throws IOException {
+    Segment oldest = segments.poll();
+    Iterator<Map.Entry<Key, Location>> entries = index.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Key, Location> entry = entries.next();
+      Location location = entry.getValue();
+      if (location.segment != oldest) {
+        continue;
+      }
+      ByteBuffer b = oldest.buffer.duplicate();
+      b.position(location.offset + 4);
+      int queryLength = b.getInt();
+      int id = b.getInt();
+      int dataLength = b.getInt();
+      int size = HEADER_SIZE + queryLength + dataLength;
+      if (location.used && active.buffer.capacity() - active.position >= size) {
+        b.getInt();
+        byte[] query = new byte[queryLength];
+        b.get(query);
+        byte[] data = new byte[dataLength];
+        b.get(data);
+        entry.setValue(append(query, id, data));
+      } else {
+        entries.remove();
+        evictions.incrementAndGet();
+      }
+    }
+    Files.deleteIfExists(oldest.path);
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return share of lookups answered from the cache, 0..1
+   */
+  public double getHitRate() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  public int getEntryCount() {
+    return index.size();
+  }
+
+  /**
+   * @return disk space reserved by the segments
+   */
+  public synchronized long getSizeBytes() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.buffer.capacity();
+    }
+    return size;
+  }
+
+  public long getMaxSizeBytes() {
+    return maxSizeBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "DiskResponseCache %s entries=%d size=%d/%d hits=%d misses=%d evictions=%d",
+        directory,
+        getEntryCount(),
+        getSizeBytes(),
+        maxSizeBytes,
+        hits.get(),
+        misses.get(),
+        evictions.get());
+  }
+}
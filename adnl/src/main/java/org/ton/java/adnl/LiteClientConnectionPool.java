@@ -2,78 +2,272 @@ package org.ton.java.adnl;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.NotImplementedException;
 import org.ton.java.adnl.globalconfig.LiteServers;
 import org.ton.java.adnl.globalconfig.TonGlobalConfig;
+import org.ton.ton4j.address.Address;
+import org.ton.ton4j.tl.liteserver.responses.*;
 import org.ton.ton4j.utils.Utils;
 
 /**
- * Connection pool for managing multiple lite-server connections Provides load balancing and
- * failover capabilities
+ * Connection pool for managing multiple lite-server connections. Provides load balancing and
+ * failover capabilities.
+ *
+ * <p>Every query goes to the better of two randomly chosen healthy connections (power of two
+ * choices). A connection costs its EWMA latency multiplied by the number of its outstanding
+ * queries plus one, so slow lite-servers and busy ones both receive less traffic. A background
+ * health checker probes every connection with getMasterchainInfo, ejects connections that are
+ * disconnected, fail too often or lag behind the best known masterchain seqno, and reconnects
+ * ejected ones with exponential backoff.
+ *
+ * <p>With {@link Builder#hedging(boolean)} the latency critical reads getAccountState, runMethod
+ * and lookupBlock are hedged: if the first lite-server has not answered within the configured
+ * percentile of its observed latency, the same query is sent to a second one. The first answer
+ * wins and the other query is cancelled.
  */
 @Slf4j
 public class LiteClientConnectionPool {
 
-  private final List<AdnlLiteClient> connections = new ArrayList<>();
-  private final AtomicInteger currentIndex = new AtomicInteger(0);
+  /** Query executed on one connection of the pool */
+  @FunctionalInterface
+  public interface LiteClientCall<T> {
+    T apply(AdnlLiteClient client) throws Exception;
+  }
+
+  /** Lite-server connection of the pool together with its health statistics */
+  public static class PooledConnection {
+    private static final double LATENCY_ALPHA = 0.3;
+    private static final double ERROR_ALPHA = 0.1;
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final LiteServers liteServer;
+    private final String address;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile AdnlLiteClient client;
+    private volatile double ewmaLatencyMs = 1000;
+    private volatile double errorRate;
+    private volatile long lastSeqno;
+    private volatile long requests;
+    private volatile boolean ejected = true;
+    private volatile long reconnectAtMillis = Long.MAX_VALUE; // first attempt is made by the pool
+    private int reconnectAttempts;
+
+    /** Ring buffer of recent latencies in milliseconds */
+    private final double[] latencySamples = new double[LATENCY_SAMPLES];
+
+    private int latencySampleCount;
+
+    PooledConnection(LiteServers liteServer) {
+      this.liteServer = liteServer;
+      this.address = Utils.int2ip(liteServer.getIp()) + ":" + liteServer.getPort();
+    }
+
+    synchronized void recordSuccess(long latencyNanos) {
+      recordLatency(latencyNanos);
+      errorRate = errorRate * (1 - ERROR_ALPHA);
+      requests++;
+    }
+
+    /**
+     * Records the time a cancelled query had been waiting. Its latency is at least that long, so it
+     * is a sample only if the connection is slower than estimated.
+     */
+    synchronized void recordCancelled(long elapsedNanos) {
+      if (elapsedNanos / 1_000_000.0 > ewmaLatencyMs) {
+        recordLatency(elapsedNanos);
+      }
+    }
+
+    private void recordLatency(long latencyNanos) {
+      double latencyMs = latencyNanos / 1_000_000.0;
+      ewmaLatencyMs = ewmaLatencyMs + LATENCY_ALPHA * (latencyMs - ewmaLatencyMs);
+      latencySamples[latencySampleCount++ % LATENCY_SAMPLES] = latencyMs;
+    }
+
+    /**
+     * @param percentile 0..1
+     * @return latency percentile of recent queries in milliseconds, EWMA latency while there are
+     *     too few samples
+     */
+    public synchronized double getLatencyPercentileMs(double percentile) {
+      int count = Math.min(latencySampleCount, LATENCY_SAMPLES);
+      if (count < 8) {
+        return ewmaLatencyMs;
+      }
+      double[] sorted = Arrays.copyOf(latencySamples, count);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile * count) - 1;
+      return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    synchronized void recordFailure() {
+      errorRate = errorRate * (1 - ERROR_ALPHA) + ERROR_ALPHA;
+      requests++;
+    }
+
+    void recordSeqno(long seqno) {
+      if (seqno > lastSeqno) {
+        lastSeqno = seqno;
+      }
+    }
+
+    /**
+     * @return routing cost, lower is better
+     */
+    double cost() {
+      return ewmaLatencyMs * (outstanding.get() + 1) * (1 + errorRate);
+    }
+
+    boolean isAvailable() {
+      AdnlLiteClient c = client;
+      return !ejected && c != null && c.isConnected();
+    }
+
+    public LiteServers getLiteServer() {
+      return liteServer;
+    }
+
+    /**
+     * @return lite-server ip:port
+     */
+    public String getAddress() {
+      return address;
+    }
+
+    /**
+     * @return client of the connection, null while the lite-server is not connected
+     */
+    public AdnlLiteClient getClient() {
+      return client;
+    }
+
+    public int getOutstandingRequests() {
+      return outstanding.get();
+    }
+
+    public double getEwmaLatencyMs() {
+      return ewmaLatencyMs;
+    }
+
+    /**
+     * @return exponentially weighted share of failed queries, 0..1
+     */
+    public double getErrorRate() {
+      return errorRate;
+    }
+
+    /**
+     * @return latest masterchain seqno seen on this connection
+     */
+    public long getLastSeqno() {
+      return lastSeqno;
+    }
+
+    public long getRequests() {
+      return requests;
+    }
+
+    public boolean isEjected() {
+      return ejected;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s ejected=%s latency=%.1fms errors=%.2f outstanding=%d seqno=%d",
+          address, ejected, ewmaLatencyMs, errorRate, outstanding.get(), lastSeqno);
+    }
+  }
+
+  private final List<PooledConnection> connections = new CopyOnWriteArrayList<>();
   private final ScheduledExecutorService healthChecker;
+  private final ExecutorService connector;
+
+  /** clients of ejected connections, closed once queries still running on them have finished */
+  private final Set<AdnlLiteClient> retiring = ConcurrentHashMap.newKeySet();
+  private final boolean useNio;
+  private final int queryTimeout;
+  private final int maxAttempts;
+  private final double maxErrorRate;
+  private final long maxSeqnoLag;
+  private final long healthCheckInterval;
+  private final boolean hedging;
+  private final double hedgePercentile;
+  private final long minHedgeDelayMs;
+  private final AtomicLong hedgedQueries = new AtomicLong();
+  private final AtomicLong hedgeWins = new AtomicLong();
   private volatile boolean closed = false;
 
-  /** Create connection pool */
+  /** Create connection pool with default settings */
   public LiteClientConnectionPool() {
-    throw new NotImplementedException();
-    // this.healthChecker = Executors.newSingleThreadScheduledExecutor();
-    // startHealthChecker();
+    this(builder());
+  }
+
+  private LiteClientConnectionPool(Builder builder) {
+    this.useNio = builder.useNio;
+    this.queryTimeout = builder.queryTimeout;
+    this.maxAttempts = builder.maxAttempts;
+    this.maxErrorRate = builder.maxErrorRate;
+    this.maxSeqnoLag = builder.maxSeqnoLag;
+    this.healthCheckInterval = builder.healthCheckInterval;
+    this.hedging = builder.hedging;
+    this.hedgePercentile = builder.hedgePercentile;
+    this.minHedgeDelayMs = builder.minHedgeDelayMs;
+    this.healthChecker = Executors.newSingleThreadScheduledExecutor();
+    this.connector = Executors.newCachedThreadPool();
+    startHealthChecker();
   }
 
   /**
-   * Add connection from config
+   * Create a new builder
+   *
+   * @return Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Add connections to all lite-servers of the config
    *
    * @throws Exception if no connections could be established
    */
   public void addConnectionsFromConfig(String configPath) throws Exception {
-    TonGlobalConfig tonGlobalConfig = TonGlobalConfig.loadFromPath(configPath);
+    addConnectionsFromConfig(TonGlobalConfig.loadFromPath(configPath));
+  }
 
-    if (tonGlobalConfig.getLiteservers().length == 0) {
+  /**
+   * Connects to all lite-servers of the config in parallel. Lite-servers that cannot be reached
+   * stay in the pool as ejected and are retried in the background.
+   *
+   * @throws Exception if no connections could be established
+   */
+  public void addConnectionsFromConfig(TonGlobalConfig tonGlobalConfig) throws Exception {
+    if (tonGlobalConfig.getLiteservers() == null || tonGlobalConfig.getLiteservers().length == 0) {
       throw new Error("No lite-servers found in configuration");
     }
 
-    List<Exception> errors = new ArrayList<>();
-    int successCount = 0;
-
-    for (LiteServers liteserver : tonGlobalConfig.getLiteservers()) {
-      try {
-        String host = Utils.int2ip(liteserver.getIp());
-        int port = Math.toIntExact(liteserver.getPort());
-
-        AdnlLiteClient client = AdnlLiteClient.builder().liteServer(liteserver).build();
-
-        synchronized (connections) {
-          connections.add(client);
-        }
-
-        successCount++;
-        log.info("Connected to lite-server {}:{}", host, port);
-
-        // Try to connect to at least 2 servers for redundancy
-        if (successCount >= 2) {
-          break;
-        }
-
-      } catch (Exception e) {
-        errors.add(e);
-        log.info("Failed to connect to liteserver", e);
-      }
+    List<PooledConnection> added = new ArrayList<>();
+    List<CompletableFuture<Void>> attempts = new ArrayList<>();
+    for (LiteServers liteServer : tonGlobalConfig.getLiteservers()) {
+      PooledConnection connection = new PooledConnection(liteServer);
+      added.add(connection);
+      attempts.add(CompletableFuture.runAsync(() -> reconnect(connection), connector));
     }
+    connections.addAll(added);
+    CompletableFuture.allOf(attempts.toArray(new CompletableFuture[0])).join();
 
+    long successCount = added.stream().filter(PooledConnection::isAvailable).count();
     if (successCount == 0) {
-      throw new Exception("Failed to connect to any liteserver. Errors: " + errors);
+      throw new Exception("Failed to connect to any liteserver");
     }
 
-    log.info("Connected to {} lite-servers", successCount);
+    log.info("Connected to {} of {} lite-servers", successCount, added.size());
   }
 
   /**
@@ -83,109 +277,401 @@ public class LiteClientConnectionPool {
    * @throws Exception if connection fails
    */
   public void addConnection(LiteServers liteServer) throws Exception {
-    AdnlLiteClient client = AdnlLiteClient.builder().liteServer(liteServer).build();
+    PooledConnection connection = new PooledConnection(liteServer);
+    connection.client = connect(connection);
+    connection.ejected = false;
+    connections.add(connection);
 
-    synchronized (connections) {
-      connections.add(client);
-    }
-
-    log.info("Added connection to {}:{}", liteServer.getIp(), liteServer.getPort());
+    log.info("Added connection to {}", connection.address);
   }
 
   /**
-   * Execute query with load balancing and failover
+   * Execute query on the best available connection, falling over to other connections on failure
    *
    * @param query Query function
    * @return Query result
    * @throws Exception if all connections fail
    */
   public <T> T executeQuery(Function<AdnlLiteClient, T> query) throws Exception {
-    List<AdnlLiteClient> availableConnections;
-    synchronized (connections) {
-      availableConnections = new ArrayList<>(connections);
-    }
-
-    if (availableConnections.isEmpty()) {
-      throw new Exception("No available connections");
-    }
+    return execute(query::apply);
+  }
 
-    // Try each connection in round-robin fashion
+  /**
+   * Execute query on the best available connection, falling over to other connections on failure
+   *
+   * @param query Query function
+   * @return Query result
+   * @throws Exception if all connections fail
+   */
+  public <T> T execute(LiteClientCall<T> query) throws Exception {
     List<Exception> errors = new ArrayList<>();
-    int attempts = Math.min(availableConnections.size(), 3); // Try up to 3 connections
+    Set<PooledConnection> tried = new HashSet<>();
 
-    for (int i = 0; i < attempts; i++) {
-      int index = currentIndex.getAndIncrement() % availableConnections.size();
-      AdnlLiteClient client = availableConnections.get(index);
+    for (int i = 0; i < maxAttempts; i++) {
+      PooledConnection connection = select(tried);
+      if (connection == null) {
+        break;
+      }
+      tried.add(connection);
 
       try {
-        if (client.isConnected()) {
-          return query.apply(client);
-        }
+        return executeOn(connection, query);
       } catch (Exception e) {
         errors.add(e);
-        log.info("Query failed on connection " + index, e);
+        log.info("Query failed on lite-server {}: {}", connection.address, e.getMessage());
       }
     }
 
+    if (tried.isEmpty()) {
+      throw new Exception("No available connections");
+    }
     throw new Exception("All connection attempts failed. Errors: " + errors);
   }
 
-  //    /**
-  //     * Get masterchain info
-  //     * @return MasterchainInfo
-  //     * @throws Exception if query fails
-  //     */
-  //    public AdnlLiteClient.MasterchainInfo getMasterchainInfo() throws Exception {
-  //        return executeQuery(client -> {
-  //            try {
-  //                return client.getMasterchainInfo();
-  //            } catch (Exception e) {
-  //                throw new RuntimeException(e);
-  //            }
-  //        });
-  //    }
-  //
-  //    /**
-  //     * Run smart contract method
-  //     * @param blockId Block ID
-  //     * @param accountId Account ID
-  //     * @param methodId Method ID
-  //     * @param params Method parameters
-  //     * @return RunMethodResult
-  //     * @throws Exception if query fails
-  //     */
-  //    public AdnlLiteClient.RunMethodResult runSmcMethod(
-  //            AdnlLiteClient.BlockIdExt blockId,
-  //            AdnlLiteClient.AccountId accountId,
-  //            long methodId,
-  //            byte[] params) throws Exception {
-  //        return executeQuery(client -> {
-  //            try {
-  //                return client.runSmcMethod(blockId, accountId, methodId, params);
-  //            } catch (Exception e) {
-  //                throw new RuntimeException(e);
-  //            }
-  //        });
-  //    }
-  //
-  //    /**
-  //     * Get account state
-  //     * @param blockId Block ID
-  //     * @param accountId Account ID
-  //     * @return AccountState
-  //     * @throws Exception if query fails
-  //     */
-  //    public AdnlLiteClient.AccountState getAccountState(
-  //            AdnlLiteClient.BlockIdExt blockId,
-  //            AdnlLiteClient.AccountId accountId) throws Exception {
-  //        return executeQuery(client -> {
-  //            try {
-  //                return client.getAccountState(blockId, accountId);
-  //            } catch (Exception e) {
-  //                throw new RuntimeException(e);
-  //            }
-  //        });
-  //    }
+  /** Runs the query on the given connection and updates its statistics */
+  <T> T executeOn(PooledConnection connection, LiteClientCall<T> query) throws Exception {
+    AdnlLiteClient client = connection.client;
+    if (client == null) {
+      throw new IllegalStateException("Not connected to lite-server " + connection.address);
+    }
+    connection.outstanding.incrementAndGet();
+    long start = System.nanoTime();
+    try {
+      T result = query.apply(client);
+      connection.recordSuccess(System.nanoTime() - start);
+      if (result instanceof MasterchainInfo) {
+        connection.recordSeqno(((MasterchainInfo) result).getLast().getSeqno());
+      }
+      return result;
+    } catch (Exception e) {
+      connection.recordFailure();
+      if (!client.isConnected()) {
+        eject(connection, "connection lost");
+      }
+      throw e;
+    } finally {
+      connection.outstanding.decrementAndGet();
+    }
+  }
+
+  /** Sends the query on the given connection and updates its statistics once it completes */
+  <T> CompletableFuture<T> executeAsyncOn(
+      PooledConnection connection, Function<AdnlLiteClient, CompletableFuture<T>> query) {
+    AdnlLiteClient client = connection.client;
+    CompletableFuture<T> result;
+    if (client == null) {
+      result = new CompletableFuture<>();
+      result.completeExceptionally(
+          new IllegalStateException("Not connected to lite-server " + connection.address));
+      return result;
+    }
+    connection.outstanding.incrementAndGet();
+    long start = System.nanoTime();
+    try {
+      result = query.apply(client);
+    } catch (Exception e) {
+      result = new CompletableFuture<>();
+      result.completeExceptionally(e);
+    }
+    result.whenComplete(
+        (answer, error) -> {
+          connection.outstanding.decrementAndGet();
+          long latency = System.nanoTime() - start;
+          if (error == null) {
+            connection.recordSuccess(latency);
+          } else if (error instanceof CancellationException) {
+            connection.recordCancelled(latency);
+          } else {
+            connection.recordFailure();
+            if (!client.isConnected()) {
+              eject(connection, "connection lost");
+            }
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Sends the query to the best available connection. If it does not answer within the hedge
+   * percentile of its latency, or fails, the query is also sent to another connection. The first
+   * answer completes the result and the remaining queries are cancelled.
+   *
+   * @param query asynchronous query, e.g. {@code client -> client.getAccountStateAsync(id, addr)}
+   * @return future of the first answer, failed if all attempts fail
+   */
+  public <T> CompletableFuture<T> executeHedged(
+      Function<AdnlLiteClient, CompletableFuture<T>> query) {
+    HedgedQuery<T> hedgedQuery = new HedgedQuery<>(query);
+    PooledConnection first = hedgedQuery.launch();
+    if (first == null) {
+      hedgedQuery.result.completeExceptionally(new Exception("No available connections"));
+      return hedgedQuery.result;
+    }
+    long delayMs =
+        Math.max(minHedgeDelayMs, (long) first.getLatencyPercentileMs(hedgePercentile));
+    healthChecker.schedule(
+        () -> {
+          if (!hedgedQuery.result.isDone()) {
+            connector.execute(
+                () -> {
+                  // a failed first attempt has already been followed up
+                  if (hedgedQuery.attemptCount() == 1 && hedgedQuery.launch() != null) {
+                    hedgedQueries.incrementAndGet();
+                  }
+                });
+          }
+        },
+        delayMs,
+        TimeUnit.MILLISECONDS);
+    return hedgedQuery.result;
+  }
+
+  /** Attempts of one hedged query racing on different connections */
+  private final class HedgedQuery<T> {
+    final Function<AdnlLiteClient, CompletableFuture<T>> query;
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final List<CompletableFuture<T>> attempts = new ArrayList<>();
+    final Set<PooledConnection> tried = ConcurrentHashMap.newKeySet();
+    final List<Throwable> errors = new CopyOnWriteArrayList<>();
+    int running;
+
+    HedgedQuery(Function<AdnlLiteClient, CompletableFuture<T>> query) {
+      this.query = query;
+      // answered, failed or cancelled by the caller, no attempt is needed any longer
+      result.whenComplete((answer, error) -> cancelAll());
+    }
+
+    synchronized int attemptCount() {
+      return attempts.size();
+    }
+
+    /**
+     * Sends one more attempt to a connection not tried yet
+     *
+     * @return chosen connection, or null if none is left or the query is already answered
+     */
+    PooledConnection launch() {
+      PooledConnection connection;
+      boolean hedge;
+      synchronized (this) {
+        if (result.isDone() || attempts.size() >= Math.max(maxAttempts, 2)) {
+          return null;
+        }
+        connection = select(tried);
+        if (connection == null) {
+          return null;
+        }
+        tried.add(connection);
+        running++;
+        hedge = !attempts.isEmpty();
+      }
+      CompletableFuture<T> attempt = executeAsyncOn(connection, query);
+      boolean answered;
+      synchronized (this) {
+        attempts.add(attempt);
+        answered = result.isDone();
+      }
+      if (answered) {
+        // answered while this attempt was sent, cancelAll() has not seen it
+        attempt.cancel(false);
+      }
+      attempt.whenComplete(
+          (answer, error) -> {
+            if (error == null) {
+              if (result.complete(answer) && hedge) {
+                hedgeWins.incrementAndGet();
+              }
+              return;
+            }
+            if (!(error instanceof CancellationException)) {
+              errors.add(error);
+              log.info(
+                  "Query failed on lite-server {}: {}", connection.address, error.getMessage());
+            }
+            boolean last;
+            synchronized (this) {
+              last = --running == 0;
+            }
+            if (last && !result.isDone() && launch() == null) {
+              result.completeExceptionally(
+                  new Exception("All connection attempts failed. Errors: " + errors));
+            }
+          });
+      return connection;
+    }
+
+    void cancelAll() {
+      List<CompletableFuture<T>> pending;
+      synchronized (this) {
+        pending = new ArrayList<>(attempts);
+      }
+      for (CompletableFuture<T> attempt : pending) {
+        attempt.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Picks the cheaper of two random available connections
+   *
+   * @param exclude connections that must not be chosen
+   * @return connection or null if there is none available
+   */
+  PooledConnection select(Set<PooledConnection> exclude) {
+    List<PooledConnection> candidates = new ArrayList<>(connections.size());
+    for (PooledConnection connection : connections) {
+      if (connection.isAvailable() && !exclude.contains(connection)) {
+        candidates.add(connection);
+      }
+    }
+    int size = candidates.size();
+    if (size == 0) {
+      return null;
+    }
+    if (size == 1) {
+      return candidates.get(0);
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+    PooledConnection a = candidates.get(first);
+    PooledConnection b = candidates.get(second);
+    return a.cost() <= b.cost() ? a : b;
+  }
+
+  public MasterchainInfo getMasterchainInfo() throws Exception {
+    return execute(AdnlLiteClient::getMasterchainInfo);
+  }
+
+  public AccountState getAccountState(BlockIdExt id, Address accountAddress) throws Exception {
+    if (hedging) {
+      return await(executeHedged(client -> client.getAccountStateAsync(id, accountAddress)));
+    }
+    return execute(client -> client.getAccountState(id, accountAddress));
+  }
+
+  public RunMethodResult runMethod(
+      BlockIdExt id, int mode, Address accountAddress, long methodId, byte[] methodParams)
+      throws Exception {
+    if (hedging) {
+      return await(
+          executeHedged(
+              client -> client.runMethodAsync(id, mode, accountAddress, methodId, methodParams)));
+    }
+    return execute(client -> client.runMethod(id, mode, accountAddress, methodId, methodParams));
+  }
+
+  public BlockHeader lookupBlock(BlockId id, int mode, long lt, int utime) throws Exception {
+    if (hedging) {
+      return await(executeHedged(client -> client.lookupBlockAsync(id, mode, lt, utime)));
+    }
+    return execute(client -> client.lookupBlock(id, mode, lt, utime));
+  }
+
+  /**
+   * Reads the states of many accounts at one block, spreading the queries over the connections of
+   * the pool with at most {@code concurrency} of them in flight
+   *
+   * @param id block all states are read at, the latest masterchain block if null
+   * @param addresses accounts
+   * @param concurrency maximum number of queries in flight
+   * @return futures of the states in the order of addresses
+   */
+  public List<CompletableFuture<AccountState>> getAccountStatesAsync(
+      BlockIdExt id, List<Address> addresses, int concurrency) throws Exception {
+    BlockIdExt block = id != null ? id : getMasterchainInfo().getLast();
+    return BatchQueries.execute(
+        addresses,
+        concurrency,
+        address -> executeAsync(client -> client.getAccountStateAsync(block, address)));
+  }
+
+  public List<AccountState> getAccountStates(BlockIdExt id, List<Address> addresses)
+      throws Exception {
+    return BatchQueries.join(
+        getAccountStatesAsync(id, addresses, BatchQueries.DEFAULT_CONCURRENCY));
+  }
+
+  /**
+   * Runs get-methods of many accounts at one block, spreading the queries over the connections of
+   * the pool with at most {@code concurrency} of them in flight
+   *
+   * @param id block all methods run at, the latest masterchain block if null
+   * @param calls get-method calls
+   * @param concurrency maximum number of queries in flight
+   * @return futures of the results in the order of calls
+   */
+  public List<CompletableFuture<RunMethodResult>> runMethodsAsync(
+      BlockIdExt id, List<MethodCall> calls, int concurrency) throws Exception {
+    BlockIdExt block = id != null ? id : getMasterchainInfo().getLast();
+    return BatchQueries.execute(
+        calls,
+        concurrency,
+        call ->
+            executeAsync(
+                client ->
+                    client.runMethodAsync(
+                        block,
+                        call.getModeOrDefault(),
+                        call.getAddress(),
+                        call.getMethodId(),
+                        call.getParamsOrEmpty())));
+  }
+
+  public List<RunMethodResult> runMethods(BlockIdExt id, List<MethodCall> calls)
+      throws Exception {
+    return BatchQueries.join(runMethodsAsync(id, calls, BatchQueries.DEFAULT_CONCURRENCY));
+  }
+
+  /**
+   * Sends the query to the best available connection without waiting for the answer and without
+   * failover
+   */
+  public <T> CompletableFuture<T> executeAsync(
+      Function<AdnlLiteClient, CompletableFuture<T>> query) {
+    PooledConnection connection = select(Collections.emptySet());
+    if (connection == null) {
+      CompletableFuture<T> result = new CompletableFuture<>();
+      result.completeExceptionally(new Exception("No available connections"));
+      return result;
+    }
+    return executeAsyncOn(connection, query);
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return number of queries that were sent to a second lite-server because the first was slow
+   */
+  public long getHedgedQueryCount() {
+    return hedgedQueries.get();
+  }
+
+  /**
+   * @return number of hedged queries answered first by the second lite-server
+   */
+  public long getHedgeWinCount() {
+    return hedgeWins.get();
+  }
+
+  /**
+   * @return health statistics of all connections of the pool
+   */
+  public List<PooledConnection> getConnections() {
+    return Collections.unmodifiableList(connections);
+  }
 
   /**
    * Get number of active connections
@@ -193,9 +679,7 @@ public class LiteClientConnectionPool {
    * @return Number of active connections
    */
   public int getActiveConnectionCount() {
-    synchronized (connections) {
-      return (int) connections.stream().mapToLong(c -> c.isConnected() ? 1 : 0).sum();
-    }
+    return (int) connections.stream().filter(PooledConnection::isAvailable).count();
   }
 
   /**
@@ -204,8 +688,92 @@ public class LiteClientConnectionPool {
    * @return Total number of connections
    */
   public int getTotalConnectionCount() {
-    synchronized (connections) {
-      return connections.size();
+    return connections.size();
+  }
+
+  private AdnlLiteClient connect(PooledConnection connection) throws Exception {
+    return AdnlLiteClient.builder()
+        .liteServer(connection.liteServer)
+        .maxRetries(1)
+        .queryTimeout(queryTimeout)
+        .useNio(useNio)
+        .build();
+  }
+
+  /** Connects an ejected connection, on failure schedules the next attempt with backoff */
+  private void reconnect(PooledConnection connection) {
+    if (closed) {
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      AdnlLiteClient client = connect(connection);
+      synchronized (connection) {
+        connection.client = client;
+        connection.ewmaLatencyMs = (System.nanoTime() - start) / 1_000_000.0;
+        connection.errorRate = 0;
+        connection.lastSeqno = 0; // unknown until the next health check
+        connection.reconnectAttempts = 0;
+        connection.ejected = false;
+      }
+      log.info("Connected to lite-server {}", connection.address);
+    } catch (Exception e) {
+      synchronized (connection) {
+        long backoff =
+            Math.min(
+                TimeUnit.MINUTES.toMillis(5),
+                TimeUnit.SECONDS.toMillis(5) << Math.min(connection.reconnectAttempts, 6));
+        connection.reconnectAttempts++;
+        connection.reconnectAtMillis = System.currentTimeMillis() + backoff;
+      }
+      log.info("Failed to connect to lite-server {}: {}", connection.address, e.getMessage());
+    }
+  }
+
+  private void eject(PooledConnection connection, String reason) {
+    AdnlLiteClient client;
+    synchronized (connection) {
+      if (connection.ejected) {
+        return;
+      }
+      connection.ejected = true;
+      connection.reconnectAtMillis = System.currentTimeMillis();
+      client = connection.client;
+      connection.client = null;
+    }
+    log.warn("Ejected lite-server {}: {}", connection.address, reason);
+    if (client != null) {
+      // let queries still running on it finish
+      retiring.add(client);
+      try {
+        healthChecker.schedule(() -> retire(client), queryTimeout, TimeUnit.SECONDS);
+      } catch (RejectedExecutionException e) {
+        retire(client); // pool closed
+      }
+    }
+  }
+
+  private void retire(AdnlLiteClient client) {
+    if (retiring.remove(client)) {
+      try {
+        client.close();
+      } catch (Exception e) {
+        log.info("Error closing client", e);
+      }
+    }
+  }
+
+  /** Refreshes masterchain seqno and latency of a connection */
+  private void probe(PooledConnection connection) {
+    if (!connection.probing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executeOn(connection, AdnlLiteClient::getMasterchainInfo);
+    } catch (Exception e) {
+      log.info("Health check of lite-server {} failed: {}", connection.address, e.getMessage());
+    } finally {
+      connection.probing.set(false);
     }
   }
 
@@ -215,16 +783,33 @@ public class LiteClientConnectionPool {
         () -> {
           if (closed) return;
 
-          synchronized (connections) {
-            connections.removeIf(
-                client -> {
-                  if (!client.isConnected()) {
-                    log.info("Removing disconnected client");
-                    client.close();
-                    return true;
-                  }
-                  return false;
-                });
+          long bestSeqno = 0;
+          for (PooledConnection connection : connections) {
+            bestSeqno = Math.max(bestSeqno, connection.lastSeqno);
+          }
+
+          long now = System.currentTimeMillis();
+          for (PooledConnection connection : connections) {
+            if (connection.ejected) {
+              if (now >= connection.reconnectAtMillis) {
+                connection.reconnectAtMillis = Long.MAX_VALUE; // attempt in progress
+                connector.execute(() -> reconnect(connection));
+              }
+              continue;
+            }
+            AdnlLiteClient client = connection.client;
+            if (client == null || !client.isConnected()) {
+              eject(connection, "disconnected");
+            } else if (connection.errorRate > maxErrorRate) {
+              eject(connection, String.format("error rate %.2f", connection.errorRate));
+            } else if (connection.lastSeqno != 0
+                && bestSeqno - connection.lastSeqno > maxSeqnoLag) {
+              eject(
+                  connection,
+                  String.format("seqno %d lags behind %d", connection.lastSeqno, bestSeqno));
+            } else {
+              connector.execute(() -> probe(connection));
+            }
           }
 
           int activeCount = getActiveConnectionCount();
@@ -234,8 +819,8 @@ public class LiteClientConnectionPool {
             log.warn("Some connections are inactive: {}/{}", activeCount, totalCount);
           }
         },
-        30,
-        30,
+        healthCheckInterval,
+        healthCheckInterval,
         TimeUnit.SECONDS);
   }
 
@@ -243,27 +828,180 @@ public class LiteClientConnectionPool {
   public void close() {
     closed = true;
 
-    healthChecker.shutdown();
+    // delayed closes of ejected clients are run below instead of waiting for them
+    healthChecker.shutdownNow();
+    connector.shutdownNow();
     try {
-      if (!healthChecker.awaitTermination(5, TimeUnit.SECONDS)) {
-        healthChecker.shutdownNow();
-      }
+      healthChecker.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
-      healthChecker.shutdownNow();
       Thread.currentThread().interrupt();
     }
+    for (AdnlLiteClient client : new ArrayList<>(retiring)) {
+      retire(client);
+    }
 
-    synchronized (connections) {
-      for (AdnlLiteClient client : connections) {
+    for (PooledConnection connection : connections) {
+      AdnlLiteClient client = connection.client;
+      connection.client = null;
+      connection.ejected = true;
+      if (client != null) {
         try {
           client.close();
         } catch (Exception e) {
           log.info("Error closing client", e);
         }
       }
-      connections.clear();
     }
+    connections.clear();
 
     log.info("Connection pool closed");
   }
+
+  /** Builder for LiteClientConnectionPool */
+  public static class Builder {
+    private TonGlobalConfig globalConfig;
+    private boolean useNio = false;
+    private int queryTimeout = 60;
+    private int maxAttempts = 3;
+    private double maxErrorRate = 0.5;
+    private long maxSeqnoLag = 10;
+    private long healthCheckInterval = 10;
+    private boolean hedging = false;
+    private double hedgePercentile = 0.95;
+    private long minHedgeDelayMs = 10;
+
+    /** Create a new builder */
+    public Builder() {}
+
+    /**
+     * Connect to all lite-servers of the global config when the pool is built
+     *
+     * @param globalConfig TonGlobalConfig object
+     * @return Builder
+     */
+    public Builder globalConfig(TonGlobalConfig globalConfig) {
+      this.globalConfig = globalConfig;
+      return this;
+    }
+
+    /**
+     * Use the non-blocking transport, all connections then share one event loop thread
+     *
+     * @param useNio Whether to use {@link AdnlNioTransport}
+     * @return Builder
+     */
+    public Builder useNio(boolean useNio) {
+      this.useNio = useNio;
+      return this;
+    }
+
+    /**
+     * Set the timeout in seconds for each query
+     *
+     * @param queryTimeout Number of seconds to wait for query response
+     * @return Builder
+     */
+    public Builder queryTimeout(int queryTimeout) {
+      this.queryTimeout = queryTimeout;
+      return this;
+    }
+
+    /**
+     * Set the number of connections a failing query is tried on
+     *
+     * @param maxAttempts Maximum number of attempts
+     * @return Builder
+     */
+    public Builder maxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Set the error rate above which a connection is ejected
+     *
+     * @param maxErrorRate Exponentially weighted share of failed queries, 0..1
+     * @return Builder
+     */
+    public Builder maxErrorRate(double maxErrorRate) {
+      this.maxErrorRate = maxErrorRate;
+      return this;
+    }
+
+    /**
+     * Set how many masterchain blocks a connection may lag behind the best one before it is
+     * ejected
+     *
+     * @param maxSeqnoLag Number of masterchain blocks
+     * @return Builder
+     */
+    public Builder maxSeqnoLag(long maxSeqnoLag) {
+      this.maxSeqnoLag = maxSeqnoLag;
+      return this;
+    }
+
+    /**
+     * Set the interval of health checks and reconnection attempts
+     *
+     * @param healthCheckInterval Interval in seconds
+     * @return Builder
+     */
+    public Builder healthCheckInterval(long healthCheckInterval) {
+      this.healthCheckInterval = healthCheckInterval;
+      return this;
+    }
+
+    /**
+     * Hedge getAccountState, runMethod and lookupBlock: send the query to a second lite-server when
+     * the first one is slower than usual, and use the first answer
+     *
+     * @param hedging Whether to hedge latency critical reads
+     * @return Builder
+     */
+    public Builder hedging(boolean hedging) {
+      this.hedging = hedging;
+      return this;
+    }
+
+    /**
+     * Set the percentile of the first lite-server latency after which a query is hedged
+     *
+     * @param hedgePercentile Percentile, 0..1, e.g. 0.95
+     * @return Builder
+     */
+    public Builder hedgePercentile(double hedgePercentile) {
+      this.hedgePercentile = hedgePercentile;
+      return this;
+    }
+
+    /**
+     * Set the minimal delay before a query is hedged
+     *
+     * @param minHedgeDelayMs Delay in milliseconds
+     * @return Builder
+     */
+    public Builder minHedgeDelayMs(long minHedgeDelayMs) {
+      this.minHedgeDelayMs = minHedgeDelayMs;
+      return this;
+    }
+
+    /**
+     * Build the pool and connect to the lite-servers of the global config, if set
+     *
+     * @return LiteClientConnectionPool
+     * @throws Exception if no connections could be established
+     */
+    public LiteClientConnectionPool build() throws Exception {
+      LiteClientConnectionPool pool = new LiteClientConnectionPool(this);
+      if (globalConfig != null) {
+        try {
+          pool.addConnectionsFromConfig(globalConfig);
+        } catch (Exception e) {
+          pool.close();
+          throw e;
+        }
+      }
+      return pool;
+    }
+  }
 }
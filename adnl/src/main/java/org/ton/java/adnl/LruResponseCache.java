@@ -0,0 +1,152 @@
+package org.ton.java.adnl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ton.ton4j.tl.liteserver.responses.RawAnswer;
+
+/**
+ * In-memory {@link ResponseCache} bounded by the number of bytes of its queries and answers. Evicts
+ * least recently used entries first.
+ */
+public class LruResponseCache implements ResponseCache {
+
+  /** Estimated bookkeeping bytes of one entry besides query and answer */
+  private static final int ENTRY_OVERHEAD = 96;
+
+  private final long maxSizeBytes;
+  private final LinkedHashMap<Key, RawAnswer> entries = new LinkedHashMap<>(256, 0.75f, true);
+  private long sizeBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /** Query bytes with precomputed hash */
+  private static final class Key {
+    final byte[] query;
+    final int hash;
+
+    Key(byte[] query) {
+      this.query = query;
+      this.hash = Arrays.hashCode(query);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(query, ((Key) o).query);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * @param maxSizeBytes upper bound of the total size of cached queries and answers
+   */
+  public LruResponseCache(long maxSizeBytes) {
+    if (maxSizeBytes <= 0) {
+      throw new IllegalArgumentException("maxSizeBytes must be positive");
+    }
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  @Override
+  public RawAnswer get(byte[] query) {
+    RawAnswer answer;
+    synchronized (this) {
+      answer = entries.get(new Key(query));
+    }
+    if (answer == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return answer;
+  }
+
+  @Override
+  public void put(byte[] query, RawAnswer answer) {
+    long weight = weight(query, answer);
+    if (weight > maxSizeBytes) {
+      return; // would evict everything else
+    }
+    synchronized (this) {
+      RawAnswer previous = entries.put(new Key(query), answer);
+      if (previous != null) {
+        sizeBytes -= weight(query, previous);
+      }
+      sizeBytes += weight;
+
+      Iterator<Map.Entry<Key, RawAnswer>> eldest = entries.entrySet().iterator();
+      while (sizeBytes > maxSizeBytes && eldest.hasNext()) {
+        Map.Entry<Key, RawAnswer> entry = eldest.next();
+        sizeBytes -= weight(entry.getKey().query, entry.getValue());
+        eldest.remove();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries.clear();
+    sizeBytes = 0;
+  }
+
+  private static long weight(byte[] query, RawAnswer answer) {
+    return ENTRY_OVERHEAD + query.length + (answer.data == null ? 0 : answer.data.length);
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return share of lookups answered from the cache, 0..1
+   */
+  public double getHitRate() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * @return current estimated size of cached queries and answers
+   */
+  public synchronized long getSizeBytes() {
+    return sizeBytes;
+  }
+
+  public long getMaxSizeBytes() {
+    return maxSizeBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "LruResponseCache entries=%d size=%d/%d hits=%d misses=%d evictions=%d",
+        getEntryCount(),
+        getSizeBytes(),
+        maxSizeBytes,
+        hits.get(),
+        misses.get(),
+        evictions.get());
+  }
+}
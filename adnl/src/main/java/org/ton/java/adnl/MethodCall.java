@@ -0,0 +1,55 @@
+package org.ton.java.adnl;
+
+import java.util.Arrays;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+import org.ton.ton4j.address.Address;
+import org.ton.ton4j.tlb.VmStack;
+import org.ton.ton4j.tlb.VmStackList;
+import org.ton.ton4j.tlb.VmStackValue;
+import org.ton.ton4j.utils.Utils;
+
+/** Get-method call of one account, an item of {@link AdnlLiteClient#runMethods} */
+@Builder
+@Data
+public class MethodCall {
+
+  private Address address;
+  private long methodId;
+
+  /** Serialized VmStack with the method parameters, null or empty for no parameters */
+  private byte[] params;
+
+  /** Mode of liteServer.runSmcMethod, 4 (result stack only) if null */
+  private Integer mode;
+
+  int getModeOrDefault() {
+    return mode == null ? 4 : mode;
+  }
+
+  byte[] getParamsOrEmpty() {
+    return params == null ? new byte[0] : params;
+  }
+
+  public static MethodCall of(Address address, String methodName) {
+    return MethodCall.builder()
+        .address(address)
+        .methodId(Utils.calculateMethodId(methodName))
+        .build();
+  }
+
+  public static MethodCall of(Address address, String methodName, VmStackValue... params) {
+    List<VmStackValue> stackValues = Arrays.asList(params);
+    VmStack vmStackParams =
+        VmStack.builder()
+            .depth(stackValues.size())
+            .stack(VmStackList.builder().tos(stackValues).build())
+            .build();
+    return MethodCall.builder()
+        .address(address)
+        .methodId(Utils.calculateMethodId(methodName))
+        .params(vmStackParams.toCell().toBoc())
+        .build();
+  }
+}
@@ -0,0 +1,28 @@
+package org.ton.java.adnl;
+
+import org.ton.ton4j.tl.liteserver.responses.RawAnswer;
+
+/**
+ * Cache of lite-server answers to queries pinned to a block, which never change once answered.
+ * Entries are keyed by the serialized liteServer.query and hold the undecoded answer, so every hit
+ * is deserialized into a new object. Implementations must be thread safe.
+ *
+ * @see LruResponseCache
+ */
+public interface ResponseCache {
+
+  /**
+   * @param query serialized liteServer.query, must not be modified
+   * @return cached answer or null
+   */
+  RawAnswer get(byte[] query);
+
+  /**
+   * @param query serialized liteServer.query, must not be modified after the call
+   * @param answer undecoded answer, must not be modified after the call
+   */
+  void put(byte[] query, RawAnswer answer);
+
+  /** Removes all entries */
+  void clear();
+}
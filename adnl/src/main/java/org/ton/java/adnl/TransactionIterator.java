@@ -0,0 +1,231 @@
+package org.ton.java.adnl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import lombok.extern.slf4j.Slf4j;
+import org.ton.ton4j.address.Address;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellBuilder;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.tl.liteserver.responses.TransactionList;
+import org.ton.ton4j.tlb.Transaction;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Lazily iterates transactions of an account from the newest to the oldest. While the caller
+ * processes a page, the next pages are fetched: the cursor of the next page, prev_trans_lt and
+ * prev_trans_hash, is read from the header of the last transaction without deserializing it. Pages
+ * are queried without blocking a thread, and their transactions are deserialized on the executor.
+ *
+ * <pre>
+ * try (TransactionIterator it = new TransactionIterator(client, address, 0, null, 16, 4, pool)) {
+ *   while (it.hasNext()) {
+ *     Transaction tx = it.next();
+ *   }
+ * }
+ * </pre>
+ */
+@Slf4j
+public class TransactionIterator implements Iterator<Transaction>, AutoCloseable {
+
+  /** lite-servers return at most that many transactions per getTransactions */
+  public static final int MAX_PAGE_SIZE = 16;
+
+  private final AdnlLiteClient client;
+  private final Address address;
+  private final int pageSize;
+  private final int lookAhead;
+  private final Executor executor;
+
+  /** fetched or requested pages not yet taken by the caller, in order */
+  private final ArrayDeque<CompletableFuture<List<Transaction>>> pages = new ArrayDeque<>();
+
+  private long nextLt;
+  private byte[] nextHash;
+  private boolean fetching;
+  private boolean done;
+  private Iterator<Transaction> current = Collections.emptyIterator();
+
+  /**
+   * @param client connected lite client
+   * @param address account
+   * @param lt logical time of the newest transaction, 0 to start from the last transaction
+   * @param hash hash of the newest transaction, null to start from the last transaction
+   * @param pageSize transactions per query, at most MAX_PAGE_SIZE are returned
+   * @param lookAhead pages fetched ahead of the caller
+   * @param executor executor to deserialize pages in
+   */
+  public TransactionIterator(
+      AdnlLiteClient client,
+      Address address,
+      long lt,
+      byte[] hash,
+      int pageSize,
+      int lookAhead,
+      Executor executor) {
+    if (pageSize < 1 || lookAhead < 1) {
+      throw new IllegalArgumentException("pageSize and lookAhead must be positive");
+    }
+    this.client = client;
+    this.address = address;
+    this.pageSize = pageSize;
+    this.lookAhead = lookAhead;
+    this.executor = executor;
+    this.nextLt = lt;
+    this.nextHash = lt == 0 ? null : hash;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      CompletableFuture<List<Transaction>> page;
+      synchronized (this) {
+        fill();
+        page = pages.poll();
+        fill();
+      }
+      if (page == null) {
+        return false;
+      }
+      try {
+        current = page.join().iterator();
+      } catch (CompletionException e) {
+        close();
+        throw new Error("Cannot get transactions of " + address.toRaw(), e.getCause());
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Transaction next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  /** Stops fetching, pages being fetched are cancelled */
+  @Override
+  public synchronized void close() {
+    done = true;
+    for (CompletableFuture<List<Transaction>> page : pages) {
+      page.cancel(false);
+    }
+    pages.clear();
+  }
+
+  /** Requests the next page unless one is being fetched or lookAhead pages are waiting */
+  private void fill() {
+    if (fetching || done || pages.size() >= lookAhead) {
+      return;
+    }
+    fetching = true;
+    CompletableFuture<List<Transaction>> page = new CompletableFuture<>();
+    pages.add(page);
+    fetch(nextLt, nextHash)
+        .thenApplyAsync(this::cells, executor)
+        .whenComplete(
+            (cells, e) -> {
+              if (e != null) {
+                synchronized (this) {
+                  fetching = false;
+                  done = true;
+                }
+                page.completeExceptionally(e);
+                return;
+              }
+              CompletableFuture.supplyAsync(() -> deserialize(cells), executor)
+                  .whenComplete(
+                      (txs, de) -> {
+                        if (de != null) {
+                          page.completeExceptionally(de);
+                        } else {
+                          page.complete(txs);
+                        }
+                      });
+              synchronized (this) {
+                fetching = false;
+                fill();
+              }
+            });
+  }
+
+  /**
+   * Queries the page without blocking, the first page starts at the last transaction of the
+   * account
+   *
+   * @return future completed with the page, or with null if the account has no transactions
+   */
+  private CompletableFuture<TransactionList> fetch(long lt, byte[] hash) {
+    if (hash != null) {
+      return client.getTransactionsAsync(address, lt, hash, pageSize);
+    }
+    return client
+        .getLatestMasterchainInfoAsync()
+        .thenCompose(info -> client.getAccountStateAsync(info.getLast(), address))
+        .thenComposeAsync(
+            account -> {
+              if (account.getShardAccounts() == null
+                  || account.getShardAccounts().isEmpty()
+                  || account.getShardAccounts().get(0).getLastTransLt().signum() == 0) {
+                return CompletableFuture.completedFuture(null);
+              }
+              return client.getTransactionsAsync(
+                  address,
+                  account.getShardAccounts().get(0).getLastTransLt().longValue(),
+                  Utils.to32ByteArray(account.getShardAccounts().get(0).lastTransHash),
+                  pageSize);
+            },
+            executor);
+  }
+
+  /** Reads the roots of the page and moves the cursor to the page after it */
+  private List<Cell> cells(TransactionList list) {
+    if (list == null
+        || list.transactions == null
+        || list.transactions.length == 0
+        || list.getIds() == null
+        || list.getIds().isEmpty()) {
+      return finish(Collections.emptyList());
+    }
+    List<Cell> cells = CellBuilder.beginCell().fromBocMultiRoot(list.transactions).endCells();
+    if (cells.isEmpty()) {
+      return finish(cells);
+    }
+    // transaction$0111 account_addr:bits256 lt:uint64 prev_trans_hash:bits256
+    // prev_trans_lt:uint64 ...
+    CellSlice cs = CellSlice.beginParse(cells.get(cells.size() - 1));
+    cs.skipBits(4 + 256 + 64);
+    byte[] prevHash = cs.loadBytes(256);
+    long prevLt = cs.loadUintAsLong(64);
+    synchronized (this) {
+      nextLt = prevLt;
+      nextHash = prevHash;
+      if (prevLt == 0) {
+        done = true;
+      }
+    }
+    return cells;
+  }
+
+  private synchronized List<Cell> finish(List<Cell> cells) {
+    done = true;
+    return cells;
+  }
+
+  private static List<Transaction> deserialize(List<Cell> cells) {
+    List<Transaction> txs = new ArrayList<>(cells.size());
+    for (Cell c : cells) {
+      txs.add(Transaction.deserialize(CellSlice.beginParse(c)));
+    }
+    return txs;
+  }
+}
@@ -22,4 +22,16 @@ public class AdnlClientTest {
     assertThat(adnlTcpTransport.isConnected()).isTrue();
     adnlTcpTransport.close();
   }
+
+  @Test
+  void testAdnlNioClient() throws Exception {
+    byte[] serverPublicKey =
+        Base64.getDecoder().decode("n4VDnSCUuSpjnCyUk9e3QOOd6o0ItSWYbTnW3Wnn8wk=");
+
+    AdnlNioTransport adnlNioTransport = new AdnlNioTransport();
+    adnlNioTransport.connect("5.9.10.47", 19949, serverPublicKey);
+    assertThat(adnlNioTransport.isConnected()).isTrue();
+    assertThat(adnlNioTransport.ping().get().getRandomId()).isNotNull();
+    adnlNioTransport.close();
+  }
 }
@@ -80,4 +80,21 @@ public class AdnlLiteClientBuilderTest {
     assertNotNull(info.getLast(), "Last block should not be null");
     assertTrue(info.getLast().getSeqno() > 0, "Seqno should be positive");
   }
+
+  @Test
+  void testBuilderWithNio() throws Exception {
+    AdnlLiteClient client =
+        AdnlLiteClient.builder()
+            .configUrl("https://ton.org/global-config.json")
+            .useNio(true)
+            .maxRetries(3)
+            .build();
+
+    assertTrue(client.isConnected(), "Client should be connected");
+
+    MasterchainInfo info = client.getMasterchainInfo();
+    assertNotNull(info.getLast(), "Last block should not be null");
+    assertTrue(info.getLast().getSeqno() > 0, "Seqno should be positive");
+    client.close();
+  }
 }
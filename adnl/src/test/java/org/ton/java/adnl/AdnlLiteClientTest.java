@@ -4,7 +4,20 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -167,26 +180,272 @@ public class AdnlLiteClientTest {
     log.info("accountObject: {} ", accountState.getAccount());
   }
 
-  //  @Test
-  //  void testConnectionPool() throws Exception {
-  //    log.info("Testing connection pool");
-  //    TonGlobalConfig tonGlobalConfig = TonGlobalConfig.loadFromPath(CONFIG_PATH);
+  @Test
+  void testConnectionPool() throws Exception {
+    log.info("Testing connection pool");
+    TonGlobalConfig tonGlobalConfig =
+        TonGlobalConfig.loadFromUrl(
+            mainnet
+                ? Utils.getGlobalConfigUrlMainnetGithub()
+                : Utils.getGlobalConfigUrlTestnetGithub());
+
+    pool = LiteClientConnectionPool.builder().globalConfig(tonGlobalConfig).useNio(true).build();
+    try {
+      assertEquals(
+          tonGlobalConfig.getLiteservers().length,
+          pool.getTotalConnectionCount(),
+          "Pool should track all lite-servers");
+      assertTrue(pool.getActiveConnectionCount() > 0, "Should have active connections");
+
+      for (int i = 0; i < 20; i++) {
+        MasterchainInfo info = pool.getMasterchainInfo();
+        assertTrue(info.getLast().getSeqno() > 0, "Seqno should be positive");
+      }
+      for (LiteClientConnectionPool.PooledConnection connection : pool.getConnections()) {
+        log.info("{}", connection);
+      }
+    } finally {
+      pool.close();
+    }
+  }
 
-  //
-  //    pool = new LiteClientConnectionPool();
-  //    pool.addConnection(
-  //        Utils.int2ip(tonGlobalConfig.getLiteservers()[0].getIp()),
-  //        (int) tonGlobalConfig.getLiteservers()[0].getPort(),
-  //        tonGlobalConfig.getLiteservers()[0].getId().getKey());
-  //
-  //    assertEquals(1, pool.getTotalConnectionCount(), "Should have 1 connection");
-  //    assertEquals(1, pool.getActiveConnectionCount(), "Should have 1 active connection");
-  //
-  //    // Test query through pool
-  //    //    MasterchainInfo info = pool.getMasterchainInfo();
-  //    //    assertNotNull(info, "Masterchain info should not be null");
-  //    //    log.info("Pool query successful - Last block seqno: " + info.getLast().getSeqno());
-  //  }
+  @Test
+  void testBlockIndexer() throws Exception {
+    TonGlobalConfig tonGlobalConfig =
+        TonGlobalConfig.loadFromUrl(
+            mainnet
+                ? Utils.getGlobalConfigUrlMainnetGithub()
+                : Utils.getGlobalConfigUrlTestnetGithub());
+    pool = LiteClientConnectionPool.builder().globalConfig(tonGlobalConfig).useNio(true).build();
+    Path checkpoint = Files.createTempFile("indexer", ".checkpoint");
+    Files.delete(checkpoint);
+    try (BlockIndexer indexer =
+        BlockIndexer.builder().pool(pool).window(4).checkpoint(checkpoint).build()) {
+      int last = pool.getMasterchainInfo().getLast().getSeqno();
+      List<Integer> mcSeqnos = new ArrayList<>();
+      Set<String> blocks = new HashSet<>();
+      BlockIndexer.Listener listener =
+          (mcBlock, block, txs) -> {
+            String id = block.getWorkchain() + ":" + block.shard + ":" + block.getSeqno();
+            assertTrue(blocks.add(id), "Block should be emitted once " + id);
+            if (block.getWorkchain() == -1) {
+              assertEquals(mcBlock, block);
+              mcSeqnos.add(block.getSeqno());
+            }
+          };
+      indexer.run(last - 20, last - 11, listener);
+      log.info("{}", indexer.getStats());
+      assertEquals(last - 11, indexer.getIndexedSeqno());
+
+      indexer.run(last - 20, last - 1, listener);
+      log.info("{}", indexer.getStats());
+      for (int i = 0; i < mcSeqnos.size(); i++) {
+        assertEquals(last - 20 + i, mcSeqnos.get(i));
+      }
+      assertEquals(20, mcSeqnos.size());
+      assertTrue(blocks.size() > 40, "Shard blocks should be indexed");
+    } finally {
+      Files.deleteIfExists(checkpoint);
+      pool.close();
+    }
+  }
+
+  @Test
+  void testConnectionPoolHedging() throws Exception {
+    TonGlobalConfig tonGlobalConfig =
+        TonGlobalConfig.loadFromUrl(
+            mainnet
+                ? Utils.getGlobalConfigUrlMainnetGithub()
+                : Utils.getGlobalConfigUrlTestnetGithub());
+
+    pool =
+        LiteClientConnectionPool.builder()
+            .globalConfig(tonGlobalConfig)
+            .useNio(true)
+            .hedging(true)
+            .hedgePercentile(0.9)
+            .build();
+    try {
+      BlockIdExt last = pool.getMasterchainInfo().getLast();
+      for (int i = 0; i < 20; i++) {
+        AccountState accountState = pool.getAccountState(last, Address.of(getAddress()));
+        assertNotNull(accountState.getAccount(), "Account should not be null");
+        RunMethodResult result =
+            pool.runMethod(
+                last, 4, Address.of(getAddress()), Utils.calculateMethodId("seqno"), new byte[0]);
+        assertNotNull(result, "RunMethodResult should not be null");
+      }
+      log.info(
+          "hedged queries {}, won by hedge {}",
+          pool.getHedgedQueryCount(),
+          pool.getHedgeWinCount());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  void testGetAccountStatesBatch() throws Exception {
+    BlockIdExt last = client.getMasterchainInfo().getLast();
+    List<Address> addresses =
+        Arrays.asList(
+            Address.of(getAddress()), Address.of(ELECTOR_ADDRESS), Address.of(MAINNET_V5_ADDRESS));
+
+    List<AccountState> states = client.getAccountStates(last, addresses);
+    assertEquals(addresses.size(), states.size());
+    for (AccountState state : states) {
+      assertEquals(last.getSeqno(), state.getId().getSeqno(), "All states should be pinned");
+    }
+
+    List<RunMethodResult> results =
+        client.runMethods(
+            last,
+            Arrays.asList(
+                MethodCall.of(Address.of(getAddress()), "seqno"),
+                MethodCall.of(Address.of(MAINNET_V5_ADDRESS), "seqno")));
+    assertEquals(2, results.size());
+    log.info("seqno results {}", results);
+  }
+
+  @Test
+  void testResponseCache() throws Exception {
+    LruResponseCache cache = new LruResponseCache(16 * 1024 * 1024);
+    AdnlLiteClient cachedClient =
+        AdnlLiteClient.builder()
+            .configUrl(
+                mainnet
+                    ? Utils.getGlobalConfigUrlMainnetGithub()
+                    : Utils.getGlobalConfigUrlTestnetGithub())
+            .responseCache(cache)
+            .masterchainInfoTtlMillis(60_000)
+            .build();
+    try {
+      BlockIdExt last = cachedClient.getLatestMasterchainInfo().getLast();
+      BlockHeader header1 = cachedClient.getBlockHeader(last, 0);
+      BlockHeader header2 = cachedClient.getBlockHeader(last, 0);
+      assertEquals(header1.getHeaderProof(), header2.getHeaderProof());
+
+      cachedClient.getAccountState(last, Address.of(ELECTOR_ADDRESS));
+      cachedClient.getAccountState(last, Address.of(ELECTOR_ADDRESS));
+      log.info("{}", cache);
+      assertEquals(2, cache.getHitCount());
+      assertEquals(2, cache.getMissCount());
+      assertEquals(2, cache.getEntryCount());
+
+      assertSame(last, cachedClient.getLatestMasterchainInfo().getLast());
+    } finally {
+      cachedClient.close();
+    }
+  }
+
+  @Test
+  void testBlockSubscriber() throws Exception {
+    List<BlockIdExt> mcBlocks = new CopyOnWriteArrayList<>();
+    List<BlockIdExt> shardBlocks = new CopyOnWriteArrayList<>();
+    try (BlockSubscriber subscriber = new BlockSubscriber(client, true)) {
+      subscriber.addListener(
+          (mcBlock, shards) -> {
+            mcBlocks.add(mcBlock);
+            shardBlocks.addAll(shards);
+          });
+      subscriber.start();
+      BlockIdExt first = subscriber.nextMasterchainBlock().get(30, TimeUnit.SECONDS);
+      BlockIdExt second = subscriber.nextMasterchainBlock().get(30, TimeUnit.SECONDS);
+      log.info("mc blocks {}, shard blocks {}", mcBlocks, shardBlocks);
+      assertEquals(first.getSeqno() + 1, second.getSeqno());
+      assertEquals(-1, second.getWorkchain());
+      assertFalse(shardBlocks.isEmpty());
+      assertTrue(shardBlocks.stream().allMatch(b -> b.getWorkchain() == 0));
+      assertTrue(client.getLatestMasterchainInfo().getLast().getSeqno() >= second.getSeqno());
+    }
+  }
+
+  @Test
+  void testDeliveryTrackerExpiry() throws Exception {
+    try (DeliveryTracker tracker = new DeliveryTracker(client).start()) {
+      long validUntil = System.currentTimeMillis() / 1000 - 60;
+      byte[] hash = Utils.sha256AsArray(new byte[] {1});
+      CompletableFuture<Transaction> tx =
+          tracker.track(hash, Address.of(ELECTOR_ADDRESS), validUntil);
+      ExecutionException e =
+          assertThrows(ExecutionException.class, () -> tx.get(60, TimeUnit.SECONDS));
+      assertInstanceOf(TimeoutException.class, e.getCause());
+      assertEquals(0, tracker.getPendingCount());
+    }
+  }
+
+  @Test
+  void testTransactionIterator() throws Exception {
+    Address elector = Address.of(ELECTOR_ADDRESS);
+    List<Transaction> streamed;
+    try (Stream<Transaction> txs = client.streamTransactions(elector)) {
+      streamed = txs.limit(50).collect(Collectors.toList());
+    }
+    assertEquals(50, streamed.size());
+    for (int i = 1; i < streamed.size(); i++) {
+      assertEquals(streamed.get(i - 1).getPrevTxLt(), streamed.get(i).getLt());
+    }
+    Transaction last = client.getTransactions(elector, 0, null, 1).getTransactionsParsed().get(0);
+    assertTrue(streamed.get(0).getLt().compareTo(last.getLt()) <= 0);
+  }
+
+  @Test
+  void testDiskResponseCache() throws Exception {
+    Path directory = Files.createTempDirectory("responses");
+    BlockIdExt last = client.getMasterchainInfo().getLast();
+    BlockData block;
+    try (DiskResponseCache cache = new DiskResponseCache(directory, 64 << 20, 16 << 20)) {
+      AdnlLiteClient cachedClient =
+          AdnlLiteClient.builder()
+              .configUrl(
+                  mainnet
+                      ? Utils.getGlobalConfigUrlMainnetGithub()
+                      : Utils.getGlobalConfigUrlTestnetGithub())
+              .responseCache(cache)
+              .build();
+      try {
+        block = cachedClient.getBlock(last);
+        cachedClient.getBlockHeader(last, 0);
+        assertEquals(2, cache.getEntryCount());
+      } finally {
+        cachedClient.close();
+      }
+    }
+
+    try (DiskResponseCache cache = new DiskResponseCache(directory, 64 << 20, 16 << 20)) {
+      assertEquals(2, cache.getEntryCount());
+      AdnlLiteClient cachedClient =
+          AdnlLiteClient.builder()
+              .configUrl(
+                  mainnet
+                      ? Utils.getGlobalConfigUrlMainnetGithub()
+                      : Utils.getGlobalConfigUrlTestnetGithub())
+              .responseCache(cache)
+              .build();
+      try {
+        assertArrayEquals(block.data, cachedClient.getBlock(last).data);
+        cachedClient.getBlockHeader(last, 0);
+        log.info("{}", cache);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        cache.clear();
+      } finally {
+        cachedClient.close();
+      }
+    }
+  }
+
+  @Test
+  void testBlockchainConfigSnapshot() throws Exception {
+    BlockchainConfigSnapshot config = client.getBlockchainConfig();
+    log.info("{}", config);
+    assertTrue(config.contains(20));
+    ConfigParams20 gasPrices = config.getConfigParam20();
+    assertSame(gasPrices, config.getConfigParam20(), "Params should be deserialized once");
+    assertNotNull(config.getConfigParam25());
+    assertTrue(config.getKeyBlockSeqno() <= config.getBlock().getSeqno());
+    assertSame(config, client.getBlockchainConfig());
+  }
 
   @Test
   void testGetTime() throws Exception {
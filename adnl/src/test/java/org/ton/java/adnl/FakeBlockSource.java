@@ -0,0 +1,303 @@
+package org.ton.java.adnl;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellBuilder;
+import org.ton.ton4j.cell.TonHashMapE;
+import org.ton.ton4j.tl.liteserver.responses.AllShardsInfo;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tl.liteserver.responses.BlockTransactionsExt;
+import org.ton.ton4j.tl.liteserver.responses.TransactionId3;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Blocks built in memory, with a block info and no account blocks. Top shard blocks of masterchain
+ * blocks are served as the ShardHashes of liteServer.allShardsInfo, transactions added to a block
+ * are served in one page of liteServer.listBlockTransactionsExt.
+ */
+final class FakeBlockSource implements BlockSource {
+
+  static final long ROOT_SHARD = BlockSubscriber.MASTERCHAIN_SHARD;
+
+  private final Map<String, byte[]> blocks = new ConcurrentHashMap<>();
+  private final Map<Integer, BlockIdExt> masterchainBlocks = new ConcurrentHashMap<>();
+  private final Map<Integer, AllShardsInfo> shardsInfos = new ConcurrentHashMap<>();
+  private final Map<String, List<Cell>> transactions = new ConcurrentHashMap<>();
+
+  /** keys of the blocks read with getBlock, in order */
+  final List<String> fetched = new ArrayList<>();
+
+  /** seqnos of the masterchain blocks looked up, in order */
+  final List<Integer> masterchainLookups = new ArrayList<>();
+
+  static BlockIdExt id(int workchain, long shard, int seqno) {
+    byte[] hash =
+        Utils.sha256AsArray(key(workchain, shard, seqno).getBytes(StandardCharsets.UTF_8));
+    return BlockIdExt.builder()
+        .workchain(workchain)
+        .shard(shard)
+        .seqno(seqno)
+        .rootHash(hash)
+        .fileHash(hash)
+        .build();
+  }
+
+  static String key(BlockIdExt id) {
+    return key(id.getWorkchain(), id.shard, id.getSeqno());
+  }
+
+  private static String key(int workchain, long shard, int seqno) {
+    return workchain + ":" + Long.toHexString(shard) + ":" + seqno;
+  }
+
+  /** Adds a block following the previous block of its shard */
+  BlockIdExt addBlock(int workchain, long shard, int seqno) {
+    return add(id(workchain, shard, seqno), false, id(workchain, shard, seqno - 1));
+  }
+
+  /** Adds the first block of a child shard, following the last block of the parent */
+  BlockIdExt addSplitBlock(int workchain, long shard, int seqno) {
+    long bit = Long.lowestOneBit(shard);
+    long parent = (shard - bit) | (bit << 1);
+    return add(id(workchain, shard, seqno), true, id(workchain, parent, seqno - 1));
+  }
+
+  /** Adds the first block of a merged shard, following the last blocks of both children */
+  BlockIdExt addMergeBlock(int workchain, long shard, int seqno, int leftSeqno, int rightSeqno) {
+    long step = Long.lowestOneBit(shard) >>> 1;
+    return add(
+        id(workchain, shard, seqno),
+        false,
+        id(workchain, shard - step, leftSeqno),
+        id(workchain, shard + step, rightSeqno));
+  }
+
+  /** Adds a masterchain block committing the top blocks of all shards */
+  BlockIdExt addMasterchainBlock(int seqno, BlockIdExt... tops) {
+    BlockIdExt id = add(id(-1, ROOT_SHARD, seqno), false, id(-1, ROOT_SHARD, seqno - 1));
+    masterchainBlocks.put(seqno, id);
+    shardsInfos.put(seqno, shardsInfo(id, Arrays.asList(tops)));
+    return id;
+  }
+
+  /** Adds transactions to a block added before */
+  void addTransactions(BlockIdExt block, Cell... txs) {
+    transactions.computeIfAbsent(key(block), k -> new ArrayList<>()).addAll(Arrays.asList(txs));
+  }
+
+  @Override
+  public BlockIdExt lookupBlock(int workchain, long shard, int seqno) {
+    if (workchain == -1) {
+      synchronized (masterchainLookups) {
+        masterchainLookups.add(seqno);
+      }
+      BlockIdExt id = masterchainBlocks.get(seqno);
+      if (id == null) {
+        throw new IllegalArgumentException("Unknown masterchain block " + seqno);
+      }
+      return id;
+    }
+    BlockIdExt id = id(workchain, shard, seqno);
+    if (!blocks.containsKey(key(id))) {
+      throw new IllegalArgumentException("Unknown block " + key(id));
+    }
+    return id;
+  }
+
+  @Override
+  public List<BlockIdExt> topShardBlocks(BlockIdExt masterchainBlock) {
+    return BlockSubscriber.topShardBlocks(shardsInfos.get(masterchainBlock.getSeqno()));
+  }
+
+  @Override
+  public byte[] getBlock(BlockIdExt id) {
+    byte[] boc = blocks.get(key(id));
+    if (boc == null) {
+      throw new IllegalArgumentException("Unknown block " + key(id));
+    }
+    synchronized (fetched) {
+      fetched.add(key(id));
+    }
+    return boc;
+  }
+
+  @Override
+  public BlockTransactionsExt listBlockTransactionsExt(
+      BlockIdExt id, int mode, int count, TransactionId3 after) {
+    if (!blocks.containsKey(key(id))) {
+      throw new IllegalArgumentException("Unknown block " + key(id));
+    }
+    List<Cell> txs = transactions.getOrDefault(key(id), Collections.emptyList());
+    return BlockTransactionsExt.builder()
+        .id(id)
+        .req_count(count)
+        .incomplete(false)
+        .transactions(
+            txs.isEmpty()
+                ? new byte[0]
+                : txs.get(0).toBocMultiRoot(txs, true, false, false, false, false))
+        .build();
+  }
+
+  /**
+   * <pre>
+   * block#11ef55aa global_id:int32 info:^BlockInfo value_flow:^ValueFlow
+   *   state_update:^(MERKLE_UPDATE ShardState) extra:^BlockExtra = Block;
+   * block_extra in_msg_descr:^InMsgDescr out_msg_descr:^OutMsgDescr
+   *   account_blocks:^ShardAccountBlocks ... = BlockExtra;
+   * </pre>
+   */
+  private BlockIdExt add(BlockIdExt id, boolean afterSplit, BlockIdExt... prevs) {
+    Cell empty = CellBuilder.beginCell().endCell();
+    // ahme_empty$0 extra:CurrencyCollection
+    Cell accountBlocks =
+        CellBuilder.beginCell()
+            .storeBit(false)
+            .storeCoins(BigInteger.ZERO)
+            .storeBit(false)
+            .endCell();
+    Cell extra =
+        CellBuilder.beginCell().storeRef(empty).storeRef(empty).storeRef(accountBlocks).endCell();
+    Cell block =
+        CellBuilder.beginCell()
+            .storeUint(0x11ef55aaL, 32)
+            .storeInt(-239, 32)
+            .storeRef(info(id, afterSplit, prevs))
+            .storeRef(empty)
+            .storeRef(empty)
+            .storeRef(extra)
+            .endCell();
+    blocks.put(key(id), block.toBoc());
+    return id;
+  }
+
+  /**
+   * <pre>
+   * block_info#9bc7a987 version:uint32 not_master:(## 1) after_merge:(## 1) before_split:(## 1)
+   *   after_split:(## 1) want_split:Bool want_merge:Bool key_block:Bool vert_seqno_incr:(## 1)
+   *   flags:(## 8) seq_no:# vert_seq_no:# shard:ShardIdent gen_utime:uint32 start_lt:uint64
+   *   end_lt:uint64 gen_validator_list_hash_short:uint32 gen_catchain_seqno:uint32
+   *   min_ref_mc_seqno:uint32 prev_key_block_seqno:uint32 master_ref:not_master?^BlkMasterInfo
+   *   prev_ref:^(BlkPrevInfo after_merge) = BlockInfo;
+   * shard_ident$00 shard_pfx_bits:(#<= 60) workchain_id:int32 shard_prefix:uint64 = ShardIdent;
+   * </pre>
+   */
+  private static Cell info(BlockIdExt id, boolean afterSplit, BlockIdExt... prevs) {
+    boolean notMaster = id.getWorkchain() != -1;
+    CellBuilder info =
+        CellBuilder.beginCell()
+            .storeUint(0x9bc7a987L, 32)
+            .storeUint(0, 32)
+            .storeBit(notMaster)
+            .storeBit(prevs.length == 2)
+            .storeBit(false)
+            .storeBit(afterSplit)
+            .storeUint(0, 4)
+            .storeUint(0, 8)
+            .storeUint(id.getSeqno(), 32)
+            .storeUint(0, 32)
+            .storeUint(0, 2)
+            .storeUint(63 - Long.numberOfTrailingZeros(id.shard), 6)
+            .storeInt(id.getWorkchain(), 32)
+            .storeUint(new BigInteger(Long.toUnsignedString(id.shard)), 64)
+            .storeUint(0, 32)
+            .storeUint(0, 64)
+            .storeUint(0, 64)
+            .storeUint(0, 32)
+            .storeUint(0, 32)
+            .storeUint(0, 32)
+            .storeUint(0, 32);
+    if (notMaster) {
+      info.storeRef(ref(id(-1, ROOT_SHARD, 0)));
+    }
+    if (prevs.length == 2) {
+      // prev_blks_info$_ prev1:^ExtBlkRef prev2:^ExtBlkRef = BlkPrevInfo 1;
+      info.storeRef(
+          CellBuilder.beginCell().storeRef(ref(prevs[0])).storeRef(ref(prevs[1])).endCell());
+    } else {
+      info.storeRef(ref(prevs[0]));
+    }
+    return info.endCell();
+  }
+
+  /**
+   * <pre>
+   * ext_blk_ref$_ end_lt:uint64 seq_no:uint32 root_hash:bits256 file_hash:bits256 = ExtBlkRef;
+   * </pre>
+   */
+  private static Cell ref(BlockIdExt id) {
+    return CellBuilder.beginCell()
+        .storeUint(0, 64)
+        .storeUint(id.getSeqno(), 32)
+        .storeBytes(id.rootHash)
+        .storeBytes(id.fileHash)
+        .endCell();
+  }
+
+  /**
+   * <pre>
+   * _ (HashmapE 32 ^(BinTree ShardDescr)) = ShardHashes;
+   * </pre>
+   */
+  private static AllShardsInfo shardsInfo(BlockIdExt masterchainBlock, List<BlockIdExt> tops) {
+    Map<Integer, Map<Long, BlockIdExt>> leaves = new HashMap<>();
+    for (BlockIdExt top : tops) {
+      leaves.computeIfAbsent(top.getWorkchain(), wc -> new HashMap<>()).put(top.shard, top);
+    }
+    TonHashMapE workchains = new TonHashMapE(32);
+    for (Map.Entry<Integer, Map<Long, BlockIdExt>> entry : leaves.entrySet()) {
+      Cell binTree = binTree(entry.getValue(), ROOT_SHARD);
+      workchains.elements.put(
+          BigInteger.valueOf(entry.getKey()), CellBuilder.beginCell().storeRef(binTree).endCell());
+    }
+    Cell data =
+        CellBuilder.beginCell()
+            .storeDict(
+                workchains.serialize(
+                    k -> CellBuilder.beginCell().storeInt((BigInteger) k, 32).endCell().getBits(),
+                    v -> (Cell) v))
+            .endCell();
+    return AllShardsInfo.builder().id(masterchainBlock).data(data.toBoc()).build();
+  }
+
+  /**
+   * <pre>
+   * bt_leaf$0 {X:Type} leaf:X = BinTree X;
+   * bt_fork$1 {X:Type} left:^(BinTree X) right:^(BinTree X) = BinTree X;
+   * shard_descr#b seq_no:uint32 reg_mc_seqno:uint32 start_lt:uint64 end_lt:uint64
+   *   root_hash:bits256 file_hash:bits256 ... = ShardDescr;
+   * </pre>
+   */
+  private static Cell binTree(Map<Long, BlockIdExt> leaves, long shard) {
+    BlockIdExt leaf = leaves.get(shard);
+    if (leaf != null) {
+      return CellBuilder.beginCell()
+          .storeBit(false)
+          .storeUint(0xb, 4)
+          .storeUint(leaf.getSeqno(), 32)
+          .storeUint(0, 32)
+          .storeUint(0, 64)
+          .storeUint(0, 64)
+          .storeBytes(leaf.rootHash)
+          .storeBytes(leaf.fileHash)
+          .endCell();
+    }
+    long step = Long.lowestOneBit(shard) >>> 1;
+    if (step == 0) {
+      throw new IllegalArgumentException("Shards do not cover the workchain");
+    }
+    return CellBuilder.beginCell()
+        .storeBit(true)
+        .storeRef(binTree(leaves, shard - step))
+        .storeRef(binTree(leaves, shard + step))
+        .endCell();
+  }
+}
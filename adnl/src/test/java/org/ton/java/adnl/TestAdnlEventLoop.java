@@ -0,0 +1,104 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Timers of the event loop, cancelled timers must neither run nor stay queued */
+public class TestAdnlEventLoop {
+
+  private AdnlEventLoop loop;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    loop = new AdnlEventLoop("test-event-loop");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    loop.shutdown();
+  }
+
+  @Test
+  public void testCancelledTimerShouldNotRun() throws Exception {
+    AtomicBoolean cancelledRan = new AtomicBoolean();
+    CompletableFuture<Void> later = new CompletableFuture<>();
+    Future<?> timer = loop.schedule(() -> cancelledRan.set(true), 50, TimeUnit.MILLISECONDS);
+    Future<?> laterTimer = loop.schedule(() -> later.complete(null), 100, TimeUnit.MILLISECONDS);
+
+    assertTrue(timer.cancel(false));
+    later.get(5, TimeUnit.SECONDS);
+
+    assertEquals(0, timerCount());
+    assertFalse(cancelledRan.get());
+    assertTrue(timer.isCancelled());
+    assertTrue(laterTimer.isDone());
+    assertFalse(laterTimer.isCancelled());
+  }
+
+  @Test
+  public void testCancelledFixedRateTaskShouldStop() throws Exception {
+    AtomicInteger ticks = new AtomicInteger();
+    CompletableFuture<Void> ticked = new CompletableFuture<>();
+    Future<?> task =
+        loop.scheduleAtFixedRate(
+            () -> {
+              if (ticks.incrementAndGet() == 3) {
+                ticked.complete(null);
+              }
+            },
+            10,
+            10,
+            TimeUnit.MILLISECONDS);
+    ticked.get(5, TimeUnit.SECONDS);
+
+    task.cancel(false);
+    int stopped = runOnLoop(ticks::get);
+    Thread.sleep(100);
+
+    assertEquals(stopped, ticks.get());
+    assertEquals(0, timerCount());
+  }
+
+  @Test
+  public void testCancelledTimersShouldBePurged() throws Exception {
+    List<Future<?>> timers = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      timers.add(loop.schedule(() -> fail("cancelled timer ran"), 1, TimeUnit.HOURS));
+    }
+    Future<?> kept = loop.schedule(() -> {}, 1, TimeUnit.HOURS);
+    for (Future<?> timer : timers) {
+      timer.cancel(false);
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (timerCount() != 1 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, timerCount());
+    assertFalse(kept.isDone());
+  }
+
+  /**
+   * @return queued timers once the timers of the current iteration of the loop are processed
+   */
+  private int timerCount() throws Exception {
+    return runOnLoop(loop::getTimerCount);
+  }
+
+  private <T> T runOnLoop(Supplier<T> supplier) throws Exception {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    loop.execute(() -> result.complete(supplier.get()));
+    return result.get(5, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,183 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.ton.ton4j.tl.liteserver.responses.AdnlMessageAnswer;
+import org.ton.ton4j.tl.liteserver.responses.BlockData;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Compares decoding of adnl.message.answer frames carrying liteServer.blockData through {@link
+ * AdnlFrameCodec} with the previous byte[] copying path. Measures frames per second and bytes
+ * allocated per frame.
+ */
+@Slf4j
+public class TestAdnlFrameCodecPerformance {
+
+  private static final int WARMUP_ITERATIONS = 2_000;
+  private static final int TEST_ITERATIONS = 5_000;
+  private static final Random RANDOM = new Random(42); // Fixed seed for reproducibility
+
+  @Test
+  public void testEncodeDecodeRoundTrip() {
+    for (int size : new int[] {0, 1, 253, 254, 1000, 70_000}) {
+      byte[] payload = new byte[size];
+      RANDOM.nextBytes(payload);
+
+      ByteBuffer frame = ByteBuffer.allocate(AdnlFrameCodec.frameLength(size));
+      AdnlFrameCodec.encode(payload, frame);
+      assertFalse(frame.hasRemaining());
+
+      frame.flip();
+      assertEquals(size + 64, frame.order(ByteOrder.LITTLE_ENDIAN).getInt());
+      ByteBuffer decoded = AdnlFrameCodec.decode(frame.slice());
+      assertNotNull(decoded);
+      byte[] result = new byte[decoded.remaining()];
+      decoded.get(result);
+      assertArrayEquals(payload, result);
+
+      // corrupted checksum
+      frame.put(frame.limit() - 1, (byte) (frame.get(frame.limit() - 1) ^ 1));
+      frame.position(4);
+      assertNull(AdnlFrameCodec.decode(frame.slice()));
+    }
+  }
+
+  @Test
+  public void testUnwrapBytesMatchesUtils() {
+    for (int size : new int[] {0, 1, 3, 253, 254, 255, 1000, 70_000}) {
+      byte[] value = new byte[size];
+      RANDOM.nextBytes(value);
+      byte[] serialized = Utils.toBytes(value);
+
+      ByteBuffer unwrapped = AdnlFrameCodec.unwrapBytes(ByteBuffer.wrap(serialized));
+      byte[] result = new byte[unwrapped.remaining()];
+      unwrapped.get(result);
+      assertArrayEquals(Utils.fromBytes(serialized), result);
+    }
+  }
+
+  @Test
+  public void testDecodeBlockData1KbPerformance() throws Exception {
+    runBlockDataBenchmark(1024);
+  }
+
+  @Test
+  public void testDecodeBlockData1MbPerformance() throws Exception {
+    runBlockDataBenchmark(1024 * 1024);
+  }
+
+  private void runBlockDataBenchmark(int dataSize) throws Exception {
+    log.info("=== Decode liteServer.blockData {} bytes ===", dataSize);
+    byte[] data = new byte[dataSize];
+    RANDOM.nextBytes(data);
+    byte[] packet = createAnswerPacket(data);
+    int iterations = dataSize > 64 * 1024 ? TEST_ITERATIONS / 10 : TEST_ITERATIONS;
+
+    assertArrayEquals(data, decodeWithCodec(packet).data);
+    assertArrayEquals(data, decodeLegacy(packet).data);
+
+    for (int i = 0; i < WARMUP_ITERATIONS / 10; i++) {
+      decodeWithCodec(packet);
+      decodeLegacy(packet);
+    }
+
+    long codecAllocated = allocatedBytes();
+    long codecStart = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      decodeWithCodec(packet);
+    }
+    long codecTime = System.nanoTime() - codecStart;
+    codecAllocated = allocatedBytes() - codecAllocated;
+
+    long legacyAllocated = allocatedBytes();
+    long legacyStart = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      decodeLegacy(packet);
+    }
+    long legacyTime = System.nanoTime() - legacyStart;
+    legacyAllocated = allocatedBytes() - legacyAllocated;
+
+    log.info(
+        "AdnlFrameCodec: {} frames/s, {} bytes allocated per frame",
+        String.format("%.0f", iterations * 1e9 / codecTime),
+        codecAllocated / iterations);
+    log.info(
+        "Legacy: {} frames/s, {} bytes allocated per frame",
+        String.format("%.0f", iterations * 1e9 / legacyTime),
+        legacyAllocated / iterations);
+  }
+
+  /** Decodes the packet the way AdnlTransport does, from views of the receive buffer */
+  private static BlockData decodeWithCodec(byte[] packet) {
+    ByteBuffer payload = AdnlFrameCodec.decode(ByteBuffer.wrap(packet));
+    assertNotNull(payload);
+    assertEquals(AdnlMessageAnswer.constructorId, payload.getInt(0));
+    payload.position(36);
+    ByteBuffer answer = AdnlFrameCodec.unwrapBytes(payload);
+    assertEquals(BlockData.constructorId, answer.getInt(0));
+    answer.position(4);
+    return BlockData.deserialize(answer.slice().order(ByteOrder.LITTLE_ENDIAN));
+  }
+
+  /** Decodes the packet the way AdnlTransport did before, copying at every step */
+  private static BlockData decodeLegacy(byte[] packet) throws Exception {
+    byte[] packetData = Arrays.copyOf(packet, packet.length);
+    byte[] nonce = Arrays.copyOfRange(packetData, 0, 32);
+    byte[] payload = Arrays.copyOfRange(packetData, 32, packetData.length - 32);
+    byte[] checksum = Arrays.copyOfRange(packetData, packetData.length - 32, packetData.length);
+
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    digest.update(nonce);
+    digest.update(payload);
+    assertArrayEquals(checksum, digest.digest());
+
+    byte[] answer = Utils.fromBytes(Arrays.copyOfRange(payload, 36, payload.length));
+    byte[] body = Arrays.copyOfRange(answer, 4, answer.length);
+    return BlockData.deserialize(body);
+  }
+
+  /** Builds a decrypted packet, without the size prefix, of an adnl.message.answer */
+  private static byte[] createAnswerPacket(byte[] data) {
+    BlockIdExt blockIdExt =
+        BlockIdExt.builder()
+            .workchain(-1)
+            .shard(0x8000000000000000L)
+            .seqno(1)
+            .rootHash(new byte[32])
+            .fileHash(new byte[32])
+            .build();
+    byte[] blockId = blockIdExt.serialize();
+    byte[] wrappedData = Utils.toBytes(data);
+    ByteBuffer answer =
+        ByteBuffer.allocate(4 + blockId.length + wrappedData.length)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    answer.putInt(BlockData.constructorId).put(blockId).put(wrappedData);
+
+    byte[] queryId = new byte[32];
+    RANDOM.nextBytes(queryId);
+    byte[] wrappedAnswer = Utils.toBytes(answer.array());
+    ByteBuffer payload =
+        ByteBuffer.allocate(4 + 32 + wrappedAnswer.length).order(ByteOrder.LITTLE_ENDIAN);
+    payload.putInt(AdnlMessageAnswer.constructorId).put(queryId).put(wrappedAnswer);
+
+    ByteBuffer frame = ByteBuffer.allocate(AdnlFrameCodec.frameLength(payload.capacity()));
+    AdnlFrameCodec.encode(payload.array(), frame);
+    return Arrays.copyOfRange(frame.array(), AdnlFrameCodec.SIZE_LENGTH, frame.capacity());
+  }
+
+  private static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,165 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Sends batches of queries answered by a fake lite-server */
+public class TestBatchQueries {
+
+  private ExecutorService executor;
+  private ExecutorService server;
+
+  @BeforeEach
+  public void setUp() {
+    executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "batch"));
+    server = Executors.newFixedThreadPool(4, r -> new Thread(r, "server"));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void testAnswersShouldKeepOrderAndBoundInFlight() throws Exception {
+    List<Integer> items = IntStream.range(0, 500).boxed().collect(Collectors.toList());
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    List<CompletableFuture<Integer>> futures =
+        BatchQueries.execute(
+            items,
+            8,
+            i -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              return CompletableFuture.supplyAsync(
+                  () -> {
+                    inFlight.decrementAndGet();
+                    return i * 2;
+                  },
+                  server);
+            },
+            executor);
+
+    List<Integer> answers = BatchQueries.join(futures);
+    assertEquals(items.size(), answers.size());
+    for (int i = 0; i < answers.size(); i++) {
+      assertEquals(i * 2, answers.get(i));
+    }
+    assertTrue(maxInFlight.get() <= 8, "max in flight " + maxInFlight.get());
+  }
+
+  @Test
+  public void testAnswersShouldBeHandledOnTheExecutor() throws Exception {
+    List<String> threads = new ArrayList<>();
+    List<CompletableFuture<Integer>> futures =
+        BatchQueries.execute(
+            IntStream.range(0, 20).boxed().collect(Collectors.toList()),
+            2,
+            i -> {
+              synchronized (threads) {
+                threads.add(Thread.currentThread().getName());
+              }
+              return CompletableFuture.supplyAsync(() -> i, server);
+            },
+            executor);
+    BatchQueries.join(futures);
+
+    // queries are sent by the caller or the executor, never by the thread completing an answer
+    assertEquals(20, threads.size());
+    assertFalse(threads.contains("server"), threads.toString());
+  }
+
+  @Test
+  public void testFailedQueryShouldFailJoinAndCancelTheRest() throws Exception {
+    List<CompletableFuture<Integer>> sent = new ArrayList<>();
+    List<CompletableFuture<Integer>> futures =
+        BatchQueries.execute(
+            IntStream.range(0, 10).boxed().collect(Collectors.toList()),
+            4,
+            i -> {
+              CompletableFuture<Integer> answer = new CompletableFuture<>();
+              synchronized (sent) {
+                sent.add(answer);
+              }
+              if (i == 0) {
+                answer.completeExceptionally(new IllegalStateException("query 0 failed"));
+              }
+              return answer;
+            },
+            executor);
+
+    Exception e = assertThrows(IllegalStateException.class, () -> BatchQueries.join(futures));
+    assertEquals("query 0 failed", e.getMessage());
+    for (CompletableFuture<Integer> future : futures) {
+      assertTrue(future.isDone());
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    synchronized (sent) {
+      for (CompletableFuture<Integer> answer : sent) {
+        assertTrue(answer.isDone());
+      }
+    }
+  }
+
+  @Test
+  public void testCancelledItemShouldNotBeSent() throws Exception {
+    CompletableFuture<Integer> first = new CompletableFuture<>();
+    AtomicInteger queries = new AtomicInteger();
+    List<CompletableFuture<Integer>> futures =
+        BatchQueries.execute(
+            IntStream.range(0, 3).boxed().collect(Collectors.toList()),
+            1,
+            i -> {
+              queries.incrementAndGet();
+              return i == 0 ? first : CompletableFuture.completedFuture(i);
+            },
+            executor);
+
+    futures.get(1).cancel(false);
+    first.complete(0);
+    assertEquals(0, futures.get(0).get(5, TimeUnit.SECONDS));
+    assertEquals(2, futures.get(2).get(5, TimeUnit.SECONDS));
+    assertTrue(futures.get(1).isCancelled());
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  public void testSynchronousFailuresShouldNotStopTheBatch() throws Exception {
+    List<CompletableFuture<Integer>> futures =
+        BatchQueries.execute(
+            IntStream.range(0, 1000).boxed().collect(Collectors.toList()),
+            1,
+            i -> {
+              if (i % 2 == 0) {
+                throw new IllegalStateException("Not connected");
+              }
+              return CompletableFuture.completedFuture(i);
+            },
+            executor);
+
+    for (int i = 0; i < futures.size(); i++) {
+      CompletableFuture<Integer> future = futures.get(i);
+      assertTrue(future.isDone());
+      if (i % 2 == 0) {
+        assertTrue(future.isCompletedExceptionally());
+      } else {
+        assertEquals(i, future.get());
+      }
+    }
+  }
+}
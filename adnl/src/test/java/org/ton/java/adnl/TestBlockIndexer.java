@@ -0,0 +1,236 @@
+package org.ton.java.adnl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.ton.java.adnl.FakeBlockSource.ROOT_SHARD;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.tl.ArchivePacks;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tlb.Block;
+import org.ton.ton4j.tlb.BlockExtra;
+import org.ton.ton4j.tlb.Transaction;
+
+/**
+ * Decodes mainnet blocks of the archive packages of the tl module the way BlockIndexer does, and
+ * indexes fake chains offline
+ */
+@Slf4j
+public class TestBlockIndexer {
+
+  private static final long LEFT = 0x4000000000000000L;
+  private static final long RIGHT = 0xc000000000000000L;
+
+  @Test
+  public void testTransactionsShouldMatchBlockDeserialize() throws IOException {
+    int blocks = 0;
+    int transactions = 0;
+    for (Cell root : ArchivePacks.readBlocks()) {
+      List<Transaction> txs = BlockIndexer.transactions(root);
+      // only the extra, the state update of some blocks is not readable by Block.deserialize
+      Block block =
+          Block.builder()
+              .extra(BlockExtra.deserialize(CellSlice.beginParse(root.getRefs().get(3))))
+              .build();
+
+      Set<String> decoded = new HashSet<>();
+      BigInteger lt = BigInteger.ZERO;
+      for (Transaction tx : txs) {
+        assertThat(tx.getLt()).isGreaterThanOrEqualTo(lt);
+        lt = tx.getLt();
+        assertThat(decoded.add(key(tx))).isTrue();
+      }
+      // transactions with messages are referenced by InMsgDescr and OutMsgDescr as well
+      for (Transaction tx : block.getAllTransactions()) {
+        assertThat(decoded).contains(key(tx));
+      }
+      blocks++;
+      transactions += txs.size();
+    }
+    log.info("{} blocks, {} transactions", blocks, transactions);
+    assertThat(blocks).isPositive();
+    assertThat(transactions).isPositive();
+  }
+
+  @Test
+  public void testParentsOfSplitAndMergedShardsShouldBeIndexed() throws Exception {
+    FakeBlockSource chain = new FakeBlockSource();
+    chain.addMasterchainBlock(1, chain.addBlock(0, ROOT_SHARD, 10));
+
+    chain.addBlock(0, ROOT_SHARD, 11);
+    chain.addBlock(0, ROOT_SHARD, 12);
+    chain.addSplitBlock(0, LEFT, 13);
+    BlockIdExt right13 = chain.addSplitBlock(0, RIGHT, 13);
+    BlockIdExt mc2 = chain.addMasterchainBlock(2, chain.addBlock(0, LEFT, 14), right13);
+
+    chain.addBlock(0, LEFT, 15);
+    chain.addBlock(0, RIGHT, 14);
+    BlockIdExt mc3 = chain.addMasterchainBlock(3, chain.addMergeBlock(0, ROOT_SHARD, 16, 15, 14));
+
+    chain.addBlock(0, ROOT_SHARD, 17);
+    BlockIdExt mc4 = chain.addMasterchainBlock(4, chain.addBlock(0, ROOT_SHARD, 18));
+
+    Map<String, List<String>> indexed = new LinkedHashMap<>();
+    try (BlockIndexer indexer = BlockIndexer.builder().source(chain).build()) {
+      indexer.run(
+          2,
+          4,
+          (masterchainBlock, block, txs) ->
+              indexed
+                  .computeIfAbsent(FakeBlockSource.key(masterchainBlock), k -> new ArrayList<>())
+                  .add(FakeBlockSource.key(block)));
+    }
+
+    assertThat(indexed.keySet())
+        .containsExactly(
+            FakeBlockSource.key(mc2), FakeBlockSource.key(mc3), FakeBlockSource.key(mc4));
+    // the parent up to the split, then both children, the masterchain block last
+    assertThat(indexed.get(FakeBlockSource.key(mc2)))
+        .containsExactly(
+            block(ROOT_SHARD, 11),
+            block(ROOT_SHARD, 12),
+            block(LEFT, 13),
+            block(RIGHT, 13),
+            block(LEFT, 14),
+            FakeBlockSource.key(mc2));
+    assertThat(indexed.get(FakeBlockSource.key(mc3)))
+        .containsExactly(
+            block(RIGHT, 14), block(LEFT, 15), block(ROOT_SHARD, 16), FakeBlockSource.key(mc3));
+    assertThat(indexed.get(FakeBlockSource.key(mc4)))
+        .containsExactly(block(ROOT_SHARD, 17), block(ROOT_SHARD, 18), FakeBlockSource.key(mc4));
+  }
+
+  @Test
+  public void testBlocksShouldBeEmittedInOrderWithinWindow() throws Exception {
+    FakeBlockSource chain = linearChain(10);
+    int window = 2;
+
+    List<String> emitted = new ArrayList<>();
+    List<Integer> lookedUpAhead = new ArrayList<>();
+    try (BlockIndexer indexer =
+        BlockIndexer.builder().source(chain).window(window).fetchConcurrency(4).build()) {
+      indexer.run(
+          1,
+          10,
+          (masterchainBlock, block, txs) -> {
+            emitted.add(FakeBlockSource.key(block));
+            if (block.getWorkchain() == -1) {
+              synchronized (chain.masterchainLookups) {
+                lookedUpAhead.add(
+                    chain.masterchainLookups.stream().max(Integer::compare).get()
+                        - block.getSeqno());
+              }
+              // a slow listener must hold back fetching
+              Thread.sleep(20);
+            }
+          });
+    }
+
+    List<String> expected = new ArrayList<>();
+    for (int seqno = 1; seqno <= 10; seqno++) {
+      expected.add(block(ROOT_SHARD, seqno));
+      expected.add(FakeBlockSource.key(FakeBlockSource.id(-1, ROOT_SHARD, seqno)));
+    }
+    assertThat(emitted).isEqualTo(expected);
+    assertThat(lookedUpAhead).hasSize(10).allSatisfy(d -> assertThat(d).isLessThan(window));
+  }
+
+  @Test
+  public void testFirstMasterchainBlockShouldIndexShardsFromZeroState() throws Exception {
+    FakeBlockSource chain = new FakeBlockSource();
+    chain.addBlock(0, ROOT_SHARD, 1);
+    chain.addBlock(0, ROOT_SHARD, 2);
+    BlockIdExt mc1 = chain.addMasterchainBlock(1, chain.addBlock(0, ROOT_SHARD, 3));
+
+    List<String> emitted = new ArrayList<>();
+    try (BlockIndexer indexer = BlockIndexer.builder().source(chain).build()) {
+      indexer.run(1, 1, (masterchainBlock, block, txs) -> emitted.add(FakeBlockSource.key(block)));
+    }
+
+    assertThat(emitted)
+        .containsExactly(
+            block(ROOT_SHARD, 1),
+            block(ROOT_SHARD, 2),
+            block(ROOT_SHARD, 3),
+            FakeBlockSource.key(mc1));
+    assertThat(chain.masterchainLookups).doesNotContain(0);
+  }
+
+  @Test
+  public void testRunShouldResumeAfterCheckpoint() throws Exception {
+    FakeBlockSource chain = linearChain(5);
+    Path dir = Files.createTempDirectory("indexer");
+    Path checkpoint = dir.resolve("checkpoint");
+    try {
+      Exception failure = new Exception("listener failed");
+      try (BlockIndexer indexer =
+          BlockIndexer.builder().source(chain).checkpoint(checkpoint).build()) {
+        assertThatThrownBy(
+                () ->
+                    indexer.run(
+                        1,
+                        5,
+                        (masterchainBlock, block, txs) -> {
+                          if (masterchainBlock.getSeqno() == 3) {
+                            throw failure;
+                          }
+                        }))
+            .isSameAs(failure);
+        assertThat(indexer.getIndexedSeqno()).isEqualTo(2);
+      }
+      assertThat(new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8))
+          .isEqualTo("2");
+
+      List<Integer> resumed = new ArrayList<>();
+      try (BlockIndexer indexer =
+          BlockIndexer.builder().source(chain).checkpoint(checkpoint).build()) {
+        indexer.run(
+            1,
+            5,
+            (masterchainBlock, block, txs) -> {
+              if (block.getWorkchain() == -1) {
+                resumed.add(block.getSeqno());
+              }
+            });
+      }
+      assertThat(resumed).isEqualTo(Arrays.asList(3, 4, 5));
+      assertThat(new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8))
+          .isEqualTo("5");
+    } finally {
+      Files.deleteIfExists(checkpoint);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  /** Masterchain blocks 1..count, each committing the block of the same seqno of one shard */
+  private static FakeBlockSource linearChain(int count) {
+    FakeBlockSource chain = new FakeBlockSource();
+    for (int seqno = 1; seqno <= count; seqno++) {
+      chain.addMasterchainBlock(seqno, chain.addBlock(0, ROOT_SHARD, seqno));
+    }
+    return chain;
+  }
+
+  private static String block(long shard, int seqno) {
+    return FakeBlockSource.key(FakeBlockSource.id(0, shard, seqno));
+  }
+
+  private static String key(Transaction tx) {
+    return tx.getAccountAddr() + ":" + tx.getLt();
+  }
+}
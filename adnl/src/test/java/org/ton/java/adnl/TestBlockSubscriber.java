@@ -0,0 +1,91 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.ton.java.adnl.FakeBlockSource.ROOT_SHARD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+
+/** Publishes the blocks of a fake basechain whose only shard splits and merges again */
+public class TestBlockSubscriber {
+
+  private static final long LEFT = 0x4000000000000000L;
+  private static final long RIGHT = 0xc000000000000000L;
+
+  @Test
+  public void testBlocksAroundSplitAndMergeShouldBePublished() throws Exception {
+    FakeBlockSource chain = new FakeBlockSource();
+    BlockIdExt mc1 = chain.addMasterchainBlock(1, chain.addBlock(0, ROOT_SHARD, 10));
+
+    chain.addBlock(0, ROOT_SHARD, 11);
+    chain.addBlock(0, ROOT_SHARD, 12);
+    chain.addSplitBlock(0, LEFT, 13);
+    BlockIdExt right13 = chain.addSplitBlock(0, RIGHT, 13);
+    BlockIdExt left14 = chain.addBlock(0, LEFT, 14);
+    BlockIdExt mc2 = chain.addMasterchainBlock(2, left14, right13);
+
+    chain.addBlock(0, LEFT, 15);
+    chain.addBlock(0, RIGHT, 14);
+    BlockIdExt merged16 = chain.addMergeBlock(0, ROOT_SHARD, 16, 15, 14);
+    BlockIdExt mc3 = chain.addMasterchainBlock(3, merged16);
+
+    chain.addBlock(0, ROOT_SHARD, 17);
+    BlockIdExt mc4 = chain.addMasterchainBlock(4, chain.addBlock(0, ROOT_SHARD, 18));
+
+    List<List<String>> published = new ArrayList<>();
+    BlockSubscriber subscriber = new BlockSubscriber(null, chain, true);
+    subscriber.addListener(
+        (masterchainBlock, shardBlocks) -> {
+          List<String> keys = new ArrayList<>();
+          for (BlockIdExt block : shardBlocks) {
+            keys.add(FakeBlockSource.key(block));
+          }
+          published.add(keys);
+        });
+    subscriber.publish(mc1);
+    subscriber.publish(mc2);
+    subscriber.publish(mc3);
+    subscriber.publish(mc4);
+
+    assertEquals(4, published.size());
+    assertEquals(Arrays.asList(block(ROOT_SHARD, 10)), published.get(0));
+    // blocks of the parent before the split and the first block of the left shard
+    assertEquals(
+        Arrays.asList(
+            block(ROOT_SHARD, 11),
+            block(ROOT_SHARD, 12),
+            block(LEFT, 13),
+            block(LEFT, 14),
+            block(RIGHT, 13)),
+        published.get(1));
+    // blocks of both children before the merge
+    assertEquals(
+        Arrays.asList(block(RIGHT, 14), block(LEFT, 15), block(ROOT_SHARD, 16)),
+        published.get(2));
+    assertEquals(Arrays.asList(block(ROOT_SHARD, 17), block(ROOT_SHARD, 18)), published.get(3));
+    assertEquals(mc4, subscriber.getLast());
+  }
+
+  @Test
+  public void testFirstBlockShouldPublishTopBlocksOnly() throws Exception {
+    FakeBlockSource chain = new FakeBlockSource();
+    chain.addBlock(0, ROOT_SHARD, 9);
+    BlockIdExt mc1 = chain.addMasterchainBlock(1, chain.addBlock(0, ROOT_SHARD, 10));
+
+    List<BlockIdExt> published = new ArrayList<>();
+    BlockSubscriber subscriber = new BlockSubscriber(null, chain, true);
+    subscriber.addListener((masterchainBlock, shardBlocks) -> published.addAll(shardBlocks));
+    subscriber.publish(mc1);
+
+    assertEquals(1, published.size());
+    assertEquals(block(ROOT_SHARD, 10), FakeBlockSource.key(published.get(0)));
+    assertTrue(chain.fetched.isEmpty(), chain.fetched.toString());
+  }
+
+  private static String block(long shard, int seqno) {
+    return FakeBlockSource.key(FakeBlockSource.id(0, shard, seqno));
+  }
+}
@@ -0,0 +1,84 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.ton.java.adnl.FakeBlockSource.ROOT_SHARD;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.ton.ton4j.address.Address;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellBuilder;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.tl.liteserver.responses.BlockIdExt;
+import org.ton.ton4j.tlb.ExternalMessageInInfo;
+import org.ton.ton4j.tlb.Message;
+import org.ton.ton4j.tlb.MsgAddressIntStd;
+import org.ton.ton4j.tlb.Transaction;
+
+/** Matches messages in the blocks of a fake basechain whose only shard splits */
+public class TestDeliveryTracker {
+
+  private static final long LEFT = 0x4000000000000000L;
+  private static final long RIGHT = 0xc000000000000000L;
+
+  /** transaction of an internal message, see TestTlbTransactionReader */
+  private static final String TRANSACTION =
+      "te6cckECFQEAA3AAA7VyYTF8dw7uIbmU5EcPfNHTlioE2iWJZmjz/2qGkzNdA+AAAAAAAehILWPZ6MGtMXTT9FkIUnmxOBNGCeSKjFAHNiDQZwM772iQAAAAAAD0JCZ8mmqwADRqGJEIAQIDAgHgBAUAgnKhk5jjSyYYJl1o7Ytbka5zTj1KkYi4f1RAejr91iZBOqXmjeD6XTp5hP1vTkb03lCvlOOLRjypjxT02GvFbKr8AhcMQEkBfXhAGGkI5BETFAGxSACpFRiTBVuUqppFmYbNfkOHAYYerTesChmOKus0fdUbnQAJhMXx3Du4huZTkRw980dOWKgTaJYlmaPP/aoaTM10D5AX14QABhJ9YAAAAAAAPQkCz5NNVMAGAQHfBwFn9xhRDwAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAABaAAAAz6UKpwAoD2WgATCYvjuHdxDcynIjh75o6csVAm0SxLM0ef+1Q0mZroH0AD/B7JeLjfk6uHw+0I24t4RL3+D5FhlGm5q2K4YT9zDPQFlCGQAYh9dIAAAAAAD0JBs+TTVenHP7ogAAAAAAAAAAAgAAZ9KFU4BAICQoCATQLDAIBzQ0OAQHREQhCAjEumlFlZP3IAC+FZhCS6kVR4mcL0Q4wmHT57XvkCy6/AIOABMJi+O4d3ENzKciOHvmjpyxUCbRLEszR5/7VDSZmugfAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAtACASAPEABDSAFsX4nuifsBUa4ScvNZJKkMDWvbEQDs4JDac0DM79GRlwBDIAKkVGJMFW5SqmkWZhs1+Q4cBhh6tN6wKGY4q6zR91RudABDIAHUarpdQMEZETREl5ZRB8zl23epXL0i4r1GxUYaEF07LAEK8TgeWwESAGhCABlGiUHOJSmCa+iPUw7PmMIhG6xwUNvBjBVENuHSGxx1IAmJaAAAAAAAAAAAAAAAAAAAAJ5FyEwPQkAAAAAAAAAAAUMAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAG/JjLwoTCH1nAAAAAAAAgAAAAAAAjkRso/3Py77Ew5f90AM67UmV0455WELrC/TViVV+FpIQxBb5CjTWUQ=";
+
+  @Test
+  public void testMessageInBlockBeforeSplitShouldBeMatched() throws Exception {
+    FakeBlockSource chain = new FakeBlockSource();
+    BlockIdExt mc1 = chain.addMasterchainBlock(1, chain.addBlock(0, ROOT_SHARD, 10));
+
+    chain.addBlock(0, ROOT_SHARD, 11);
+    BlockIdExt root12 = chain.addBlock(0, ROOT_SHARD, 12);
+    chain.addSplitBlock(0, LEFT, 13);
+    BlockIdExt right13 = chain.addSplitBlock(0, RIGHT, 13);
+    BlockIdExt left14 = chain.addBlock(0, LEFT, 14);
+    BlockIdExt mc2 = chain.addMasterchainBlock(2, left14, right13);
+
+    Cell internal = CellBuilder.beginCell().fromBocBase64(TRANSACTION).endCell();
+    Address account =
+        Address.of("0:" + Transaction.deserialize(CellSlice.beginParse(internal)).getAccountAddr());
+    Message message =
+        Message.builder()
+            .info(ExternalMessageInInfo.builder().dstAddr(MsgAddressIntStd.of(account)).build())
+            .body(CellBuilder.beginCell().storeUint(7, 32).endCell())
+            .build();
+    // ROOT:12 is committed by no masterchain block, only mc2 commits its children
+    chain.addTransactions(root12, withInMessage(internal, message));
+
+    BlockSubscriber subscriber = new BlockSubscriber(null, chain, true);
+    DeliveryTracker tracker = new DeliveryTracker(null, subscriber, chain);
+    CompletableFuture<Transaction> delivered =
+        tracker.track(message.getNormalizedHash(), account, 0);
+    subscriber.publish(mc1);
+    assertFalse(delivered.isDone());
+    subscriber.publish(mc2);
+
+    assertTrue(delivered.isDone());
+    Message in = delivered.get().getInOut().getIn();
+    assertTrue(in.getInfo() instanceof ExternalMessageInInfo);
+    assertArrayEquals(message.getNormalizedHash(), in.getNormalizedHash());
+    assertEquals(0, tracker.getPendingCount());
+  }
+
+  /**
+   * @return the transaction with its inbound message replaced, the first ref of both the
+   *     transaction and its in_msg/out_msgs cell
+   */
+  private static Cell withInMessage(Cell tx, Message message) {
+    Cell io = tx.getRefs().get(0);
+    Cell newIo =
+        CellBuilder.beginCell()
+            .storeBitString(io.getBits())
+            .storeRef(message.toCell())
+            .storeRefs(io.getRefs().subList(1, io.getRefs().size()))
+            .endCell();
+    return CellBuilder.beginCell()
+        .storeBitString(tx.getBits())
+        .storeRef(newIo)
+        .storeRefs(tx.getRefs().subList(1, tx.getRefs().size()))
+        .endCell();
+  }
+}
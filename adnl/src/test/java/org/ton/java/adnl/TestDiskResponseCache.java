@@ -0,0 +1,164 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ton.ton4j.tl.liteserver.responses.RawAnswer;
+
+/** Stores answers in a temporary directory with small segments, so segments roll and compact */
+public class TestDiskResponseCache {
+
+  private static final long MAX_SIZE = 4L << 20;
+  private static final long SEGMENT_SIZE = 1L << 20;
+  private static final int ENTRIES = 2000;
+
+  private Path directory;
+  private DiskResponseCache cache;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("ton4j-response-cache");
+    cache = new DiskResponseCache(directory, MAX_SIZE, SEGMENT_SIZE);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    cache.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void testAnswersShouldRoundTrip() {
+    putAll(0, ENTRIES);
+    for (int i = 0; i < ENTRIES; i++) {
+      assertAnswer(i, cache.get(query(i)));
+    }
+    assertNull(cache.get(query(ENTRIES)));
+    assertEquals(ENTRIES, cache.getEntryCount());
+    assertEquals(ENTRIES, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertTrue(cache.getSizeBytes() <= MAX_SIZE);
+  }
+
+  @Test
+  public void testAnswersShouldSurviveReopen() throws IOException {
+    putAll(0, ENTRIES);
+    cache.close();
+
+    cache = new DiskResponseCache(directory, MAX_SIZE, SEGMENT_SIZE);
+    assertEquals(ENTRIES, cache.getEntryCount());
+    for (int i = 0; i < ENTRIES; i++) {
+      assertAnswer(i, cache.get(query(i)));
+    }
+  }
+
+  @Test
+  public void testCompactionShouldKeepRecentlyReadAnswers() {
+    putAll(0, ENTRIES);
+    for (int i = ENTRIES; i < 4 * ENTRIES; i++) {
+      cache.put(query(i), answer(i));
+      if (i % 200 == 0) {
+        for (int k = 0; k < 100; k++) {
+          cache.get(query(k));
+        }
+      }
+    }
+
+    for (int k = 0; k < 100; k++) {
+      assertAnswer(k, cache.get(query(k)));
+    }
+    int cold = 0;
+    for (int k = 100; k < ENTRIES; k++) {
+      if (cache.get(query(k)) != null) {
+        cold++;
+      }
+    }
+    assertTrue(cold < ENTRIES - 100, "cold answers kept " + cold);
+    assertTrue(cache.getEvictionCount() > 0);
+    assertTrue(cache.getSizeBytes() <= MAX_SIZE);
+  }
+
+  @Test
+  public void testCorruptedRecordsShouldBeDropped() throws IOException {
+    putAll(0, ENTRIES);
+    cache.close();
+
+    List<Path> segments;
+    try (Stream<Path> files = Files.list(directory)) {
+      segments = files.sorted().collect(Collectors.toList());
+    }
+    Path last = segments.get(segments.size() - 1);
+    try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 100);
+    }
+
+    cache = new DiskResponseCache(directory, MAX_SIZE, SEGMENT_SIZE);
+    assertTrue(cache.getEntryCount() < ENTRIES);
+    assertTrue(cache.getEntryCount() > 0);
+    for (int i = 0; i < ENTRIES; i++) {
+      RawAnswer answer = cache.get(query(i));
+      if (answer != null) {
+        assertAnswer(i, answer);
+      }
+    }
+  }
+
+  @Test
+  public void testClearShouldRemoveAllAnswers() throws IOException {
+    putAll(0, ENTRIES);
+    cache.clear();
+    assertEquals(0, cache.getEntryCount());
+    assertNull(cache.get(query(0)));
+
+    cache.put(query(0), answer(0));
+    cache.close();
+    cache = new DiskResponseCache(directory, MAX_SIZE, SEGMENT_SIZE);
+    assertEquals(1, cache.getEntryCount());
+    assertAnswer(0, cache.get(query(0)));
+  }
+
+  private void putAll(int from, int to) {
+    for (int i = from; i < to; i++) {
+      cache.put(query(i), answer(i));
+    }
+  }
+
+  private static byte[] query(int i) {
+    return ("query-" + i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static RawAnswer answer(int i) {
+    return RawAnswer.builder().id(i).data(data(i)).build();
+  }
+
+  /** 1000 to 1499 bytes, so a few hundred answers fit in a segment */
+  private static byte[] data(int i) {
+    byte[] data = new byte[1000 + i % 500];
+    new Random(i).nextBytes(data);
+    return data;
+  }
+
+  private static void assertAnswer(int i, RawAnswer answer) {
+    assertNotNull(answer, "answer " + i);
+    assertEquals(i, answer.getId());
+    assertArrayEquals(data(i), answer.data);
+  }
+}
@@ -0,0 +1,132 @@
+package org.ton.java.adnl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.ton.ton4j.tl.liteserver.responses.RawAnswer;
+
+/** Size accounting and eviction order of the in-memory response cache */
+public class TestLruResponseCache {
+
+  /** bookkeeping bytes of an entry, see LruResponseCache */
+  private static final int OVERHEAD = 96;
+
+  @Test
+  public void testAnswersShouldRoundTrip() {
+    LruResponseCache cache = new LruResponseCache(1 << 20);
+    cache.put(query(1), answer(1, 100));
+
+    RawAnswer answer = cache.get(query(1));
+    assertNotNull(answer);
+    assertEquals(1, answer.getId());
+    assertEquals(100, answer.data.length);
+    assertNull(cache.get(query(2)));
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0.5, cache.getHitRate());
+    assertEquals(OVERHEAD + query(1).length + 100, cache.getSizeBytes());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedAnswerShouldBeEvicted() {
+    long entry = OVERHEAD + query(0).length + 100;
+    LruResponseCache cache = new LruResponseCache(3 * entry);
+    cache.put(query(0), answer(0, 100));
+    cache.put(query(1), answer(1, 100));
+    cache.put(query(2), answer(2, 100));
+
+    assertNotNull(cache.get(query(0))); // 1 is now the least recently used
+    cache.put(query(3), answer(3, 100));
+
+    assertNull(cache.get(query(1)));
+    assertNotNull(cache.get(query(0)));
+    assertNotNull(cache.get(query(2)));
+    assertNotNull(cache.get(query(3)));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(3, cache.getEntryCount());
+    assertEquals(3 * entry, cache.getSizeBytes());
+  }
+
+  @Test
+  public void testReplacedAnswerShouldBeAccountedOnce() {
+    LruResponseCache cache = new LruResponseCache(1 << 20);
+    cache.put(query(1), answer(1, 100));
+    cache.put(query(1), answer(2, 300));
+
+    assertEquals(1, cache.getEntryCount());
+    assertEquals(2, cache.get(query(1)).getId());
+    assertEquals(OVERHEAD + query(1).length + 300, cache.getSizeBytes());
+  }
+
+  @Test
+  public void testAnswerLargerThanCacheShouldNotBeCached() {
+    LruResponseCache cache = new LruResponseCache(1000);
+    cache.put(query(1), answer(1, 100));
+    cache.put(query(2), answer(2, 1000));
+
+    assertNull(cache.get(query(2)));
+    assertNotNull(cache.get(query(1)));
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testClearShouldRemoveAllAnswers() {
+    LruResponseCache cache = new LruResponseCache(1 << 20);
+    for (int i = 0; i < 10; i++) {
+      cache.put(query(i), answer(i, 100));
+    }
+    cache.clear();
+
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(0, cache.getSizeBytes());
+    assertNull(cache.get(query(0)));
+  }
+
+  @Test
+  public void testConcurrentAccessShouldStayWithinBounds() throws Exception {
+    LruResponseCache cache = new LruResponseCache(64 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 10_000; i++) {
+                    int key = (thread * 31 + i) % 2000;
+                    RawAnswer answer = cache.get(query(key));
+                    if (answer == null) {
+                      cache.put(query(key), answer(key, 100 + key % 200));
+                    } else {
+                      assertEquals(key, answer.getId());
+                    }
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getSizeBytes() <= cache.getMaxSizeBytes());
+    assertEquals(80_000, cache.getHitCount() + cache.getMissCount());
+    assertTrue(cache.getEvictionCount() > 0);
+  }
+
+  private static byte[] query(int i) {
+    return String.format("query-%04d", i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static RawAnswer answer(int id, int size) {
+    return RawAnswer.builder().id(id).data(new byte[size]).build();
+  }
+}
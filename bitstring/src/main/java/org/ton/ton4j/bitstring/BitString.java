@@ -7,38 +7,36 @@ import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 import org.ton.ton4j.address.Address;
 import org.ton.ton4j.utils.Utils;
 
 /**
- * Each element is one bit in memory. Implementation uses Java's BitSet for efficient bit
- * manipulation.
+ * Bits are packed MSB-first into a long array, like in TON cells, so ints, byte arrays and other
+ * BitStrings are read and written a word at a time instead of bit by bit.
  */
 public class BitString implements Serializable {
   private static final Logger log = Logger.getLogger(BitString.class.getName());
-  private BitSet bitSet;
+  // bit i is bit (63 - i % 64) of words[i / 64], grows on write
+  private long[] words;
   public int writeCursor;
   public int readCursor;
   public int length;
 
   public BitString() {
-    bitSet = new BitSet(1023);
+    words = new long[wordsFor(1023)];
     writeCursor = 0;
     readCursor = 0;
     length = 1023;
   }
 
   public BitString(BitString bs) {
-    bitSet = new BitSet();
+    words = new long[wordsFor(bs.length)];
     writeCursor = 0;
     readCursor = 0;
     length = bs.length;
-    for (int i = bs.readCursor; i < bs.writeCursor; i++) {
-      writeBit(bs.get(i));
-    }
+    copyBits(bs, bs.readCursor, bs.writeCursor - bs.readCursor);
   }
 
   /**
@@ -47,7 +45,7 @@ public class BitString implements Serializable {
    * @param length int length of BitString in bits
    */
   public BitString(int length) {
-    bitSet = new BitSet(length);
+    words = new long[wordsFor(length)];
     writeCursor = 0;
     readCursor = 0;
     this.length = length;
@@ -59,82 +57,168 @@ public class BitString implements Serializable {
    * @param bytes byte[] array of bytes
    */
   public BitString(byte[] bytes) {
-    this(Utils.signedBytesToUnsigned(bytes));
+    this(bytes, bytes.length * 8);
   }
 
   /**
-   * Create BitString from byte array with specified size using BitSet methods
+   * Create BitString from byte array with specified size
    *
    * @param bytes byte[] array of bytes
    * @param size int number of bits to read
    */
   public BitString(byte[] bytes, int size) {
+    writeCursor = 0;
+    readCursor = 0;
     if (bytes.length == 0) {
-      bitSet = new BitSet(0);
-      writeCursor = 0;
-      readCursor = 0;
+      words = new long[0];
       length = 0;
     } else {
       length = size;
-      bitSet = new BitSet(length);
-      writeCursor = 0;
-      readCursor = 0;
-
-      // Calculate how many complete bytes we can process
-      int bytesToProcess = Math.min(bytes.length, (size + 7) / 8);
-
-      for (int i = 0; i < bytesToProcess; i++) {
-        int value = bytes[i] & 0xFF; // Ensure we treat the value as unsigned byte
-        for (int j = 0; j < 8; j++) {
-          // Check if we've reached the size limit
-          if (writeCursor >= size) {
-            break;
-          }
-
-          // Check if the bit at position j (from MSB) is set
-          boolean bitValue = ((value >> (7 - j)) & 1) == 1;
-          if (bitValue) {
-            bitSet.set(writeCursor);
-          } else {
-            bitSet.clear(writeCursor);
-          }
-          writeCursor++;
-        }
-      }
+      words = new long[wordsFor(size)];
+      writePrefix(bytes, Math.min(bytes.length * 8, size));
     }
   }
 
   /**
-   * Create BitString from int array using BitSet methods
+   * Create BitString from int array
    *
    * @param bytes int[] array of bytes
    */
   public BitString(int[] bytes) {
-    if (bytes.length == 0) {
-      bitSet = new BitSet();
-      writeCursor = 0;
-      readCursor = 0;
-      length = 0;
-    } else {
-      length = bytes.length * 8;
-      bitSet = new BitSet(length);
-      writeCursor = 0;
-      readCursor = 0;
-
-      for (int aByte : bytes) {
-        int value = aByte & 0xFF; // Ensure we treat the value as unsigned byte
-        for (int j = 0; j < 8; j++) {
-          // Check if the bit at position j (from MSB) is set
-          boolean bitValue = ((value >> (7 - j)) & 1) == 1;
-          if (bitValue) {
-            bitSet.set(writeCursor);
-          } else {
-            bitSet.clear(writeCursor);
-          }
-          writeCursor++;
-        }
+    writeCursor = 0;
+    readCursor = 0;
+    length = bytes.length * 8;
+    words = new long[wordsFor(length)];
+    for (int aByte : bytes) {
+      writeBitsLong(aByte & 0xFF, 8); // Ensure we treat the value as unsigned byte
+    }
+  }
+
+  private static int wordsFor(int bits) {
+    return (Math.max(bits, 0) + 63) >>> 6;
+  }
+
+  private void ensureCapacity(int bits) {
+    int required = wordsFor(bits);
+    if (required > words.length) {
+      words = Arrays.copyOf(words, Math.max(required, words.length * 2));
+    }
+  }
+
+  private long word(int index) {
+    return index < words.length ? words[index] : 0;
+  }
+
+  private boolean bit(int n) {
+    return (word(n >>> 6) << (n & 63)) < 0;
+  }
+
+  /**
+   * Reads bits without range checks
+   *
+   * @param pos position of the first bit
+   * @param n number of bits, 1..64
+   * @return bits right aligned
+   */
+  private long getBits(int pos, int n) {
+    int w = pos >>> 6;
+    int off = pos & 63;
+    long v = word(w) << off;
+    if (off + n > 64) {
+      v |= word(w + 1) >>> (64 - off);
+    }
+    return n == 64 ? v : v >>> (64 - n);
+  }
+
+  /**
+   * Overwrites bits
+   *
+   * @param pos position of the first bit
+   * @param value bits right aligned, higher bits are ignored
+   * @param n number of bits, 1..64
+   */
+  private void putBits(int pos, long value, int n) {
+    ensureCapacity(pos + n);
+    long v = n == 64 ? value : value << (64 - n);
+    long mask = n == 64 ? -1L : -1L << (64 - n);
+    int w = pos >>> 6;
+    int off = pos & 63;
+    words[w] = (words[w] & ~(mask >>> off)) | (v >>> off);
+    if (off + n > 64) {
+      int shift = 64 - off;
+      words[w + 1] = (words[w + 1] & ~(mask << shift)) | (v << shift);
+    }
+  }
+
+  private void writeBitsLong(long value, int n) {
+    putBits(writeCursor, value, n);
+    writeCursor += n;
+  }
+
+  /** Writes the first n bits of bytes */
+  private void writePrefix(byte[] bytes, int n) {
+    int full = n >>> 3;
+    int i = 0;
+    for (; i + 8 <= full; i += 8) {
+      writeBitsLong(longAt(bytes, i), 64);
+    }
+    for (; i < full; i++) {
+      writeBitsLong(bytes[i] & 0xFF, 8);
+    }
+    int rest = n & 7;
+    if (rest > 0) {
+      writeBitsLong((bytes[i] & 0xFF) >>> (8 - rest), rest);
+    }
+  }
+
+  private static long longAt(byte[] b, int i) {
+    return ((b[i] & 0xFFL) << 56)
+        | ((b[i + 1] & 0xFFL) << 48)
+        | ((b[i + 2] & 0xFFL) << 40)
+        | ((b[i + 3] & 0xFFL) << 32)
+        | ((b[i + 4] & 0xFFL) << 24)
+        | ((b[i + 5] & 0xFFL) << 16)
+        | ((b[i + 6] & 0xFFL) << 8)
+        | (b[i + 7] & 0xFFL);
+  }
+
+  /** Appends n bits of src starting at from, a word at a time */
+  private void copyBits(BitString src, int from, int n) {
+    ensureCapacity(writeCursor + n);
+    while (n >= 64) {
+      writeBitsLong(src.getBits(from, 64), 64);
+      from += 64;
+      n -= 64;
+    }
+    if (n > 0) {
+      writeBitsLong(src.getBits(from, n), n);
+    }
+  }
+
+  /** Same check as reading the bits one by one with get() */
+  private void checkRead(int n) {
+    if (n > 0 && readCursor + n > length) {
+      checkRange(Math.max(readCursor, length));
+    }
+  }
+
+  /** Copies n bits from pos into dst starting at dstOffset, the last byte is padded with zeros */
+  private void getBytes(int pos, byte[] dst, int dstOffset, int n) {
+    int full = dstOffset + (n >>> 3);
+    int i = dstOffset;
+    for (; i + 8 <= full; i += 8, pos += 64) {
+      long v = getBits(pos, 64);
+      for (int k = 0; k < 8; k++) {
+        dst[i + k] = (byte) (v >>> (56 - 8 * k));
       }
     }
+    for (; i < full; i++, pos += 8) {
+      dst[i] = (byte) getBits(pos, 8);
+    }
+    int rest = n & 7;
+    if (rest > 0) {
+      dst[i] = (byte) (getBits(pos, rest) << (8 - rest));
+    }
   }
 
   /**
@@ -170,7 +254,7 @@ public class BitString implements Serializable {
    */
   public Boolean get(int n) {
     checkRange(n);
-    return bitSet.get(n);
+    return bit(n);
   }
 
   /**
@@ -190,10 +274,9 @@ public class BitString implements Serializable {
    * @param n int
    */
   void on(int n) {
-    try {
-      bitSet.set(n);
-    } catch (Exception e) {
-      // ignore
+    if (n >= 0) {
+      ensureCapacity(n + 1);
+      words[n >>> 6] |= Long.MIN_VALUE >>> (n & 63);
     }
   }
 
@@ -203,10 +286,8 @@ public class BitString implements Serializable {
    * @param n int
    */
   void off(int n) {
-    try {
-      bitSet.clear(n);
-    } catch (Exception e) {
-      // ignore
+    if (n >= 0 && (n >>> 6) < words.length) {
+      words[n >>> 6] &= ~(Long.MIN_VALUE >>> (n & 63));
     }
   }
 
@@ -216,10 +297,9 @@ public class BitString implements Serializable {
    * @param n int
    */
   void toggle(int n) {
-    try {
-      bitSet.flip(n);
-    } catch (Exception e) {
-      // ignore
+    if (n >= 0) {
+      ensureCapacity(n + 1);
+      words[n >>> 6] ^= Long.MIN_VALUE >>> (n & 63);
     }
   }
 
@@ -302,14 +382,16 @@ public class BitString implements Serializable {
           "bitLength is too small for number, got number=" + number + ", bitLength=" + bitLength);
     }
 
-    String s = number.toString(2);
-
-    if (s.length() != bitLength) {
-      s = repeatZeros(bitLength - s.length()) + s;
+    if (bitLength <= 64) {
+      writeBitsLong(number.longValue(), bitLength);
+      return;
     }
-
-    for (int i = 0; i < bitLength; i++) {
-      writeBit(s.charAt(i) == '1');
+    ensureCapacity(writeCursor + bitLength);
+    int rest = bitLength;
+    while (rest > 0) {
+      int n = (rest & 63) == 0 ? 64 : rest & 63;
+      rest -= n;
+      writeBitsLong(number.shiftRight(rest).longValue(), n);
     }
   }
 
@@ -326,7 +408,14 @@ public class BitString implements Serializable {
    * @param bitLength size of uint in bits
    */
   public void writeUint(long number, int bitLength) {
-    writeUint(BigInteger.valueOf(number), bitLength);
+    if (number < 0
+        || bitLength == 0
+        || bitLength > 64
+        || 64 - Long.numberOfLeadingZeros(number) > bitLength) {
+      writeUint(BigInteger.valueOf(number), bitLength); // checks and throws
+      return;
+    }
+    writeBitsLong(number, bitLength);
   }
 
   /**
@@ -336,6 +425,10 @@ public class BitString implements Serializable {
    * @param bitLength int size of int in bits
    */
   public void writeInt(BigInteger number, int bitLength) {
+    if (bitLength > 1 && bitLength <= 64 && number.bitLength() < bitLength) {
+      writeBitsLong(number.longValue(), bitLength); // two's complement
+      return;
+    }
     if (bitLength == 1) {
       if (number.compareTo(BigInteger.valueOf(-1)) == 0) {
         writeBit(true);
@@ -365,7 +458,7 @@ public class BitString implements Serializable {
    * @param ui8 int
    */
   public void writeUint8(int ui8) {
-    writeUint(BigInteger.valueOf(ui8), 8);
+    writeUint(ui8, 8);
   }
 
   /**
@@ -374,9 +467,8 @@ public class BitString implements Serializable {
    * @param ui8 byte[]
    */
   public void writeBytes(byte[] ui8) {
-    for (byte b : ui8) {
-      writeUint8(b & 0xff);
-    }
+    ensureCapacity(writeCursor + ui8.length * 8);
+    writePrefix(ui8, ui8.length * 8);
   }
 
   /**
@@ -461,9 +553,10 @@ public class BitString implements Serializable {
    * @param anotherBitString BitString
    */
   public void writeBitString(BitString anotherBitString) {
-    for (int i = anotherBitString.readCursor; i < anotherBitString.writeCursor; i++) {
-      writeBit(anotherBitString.get(i));
-    }
+    copyBits(
+        anotherBitString,
+        anotherBitString.readCursor,
+        anotherBitString.writeCursor - anotherBitString.readCursor);
   }
 
   /**
@@ -493,12 +586,9 @@ public class BitString implements Serializable {
    * @return BitString with length n read from original BitString
    */
   public BitString preReadBits(int n) {
-    int oldReadCursor = readCursor;
+    checkRead(n);
     BitString result = new BitString(n);
-    for (int i = 0; i < n; i++) {
-      result.writeBit(readBit());
-    }
-    readCursor = oldReadCursor;
+    result.copyBits(this, readCursor, n);
     return result;
   }
 
@@ -509,10 +599,8 @@ public class BitString implements Serializable {
    * @return BitString with length n read from original BitString
    */
   public BitString readBits(int n) {
-    BitString result = new BitString(n);
-    for (int i = 0; i < n; i++) {
-      result.writeBit(readBit());
-    }
+    BitString result = preReadBits(n);
+    readCursor += n;
     return result;
   }
 
@@ -523,9 +611,10 @@ public class BitString implements Serializable {
    */
   public BitString readBits() {
     BitString result = new BitString(); // todo
-    for (int i = 0; i < writeCursor; i++) {
-      result.writeBit(readBit());
-    }
+    int n = writeCursor;
+    checkRead(n);
+    result.copyBits(this, readCursor, n);
+    readCursor += n;
     return result;
   }
 
@@ -537,21 +626,54 @@ public class BitString implements Serializable {
    */
   public BigInteger preReadUint(int bitLength) {
     int oldReadCursor = readCursor;
+    try {
+      return readUint(bitLength);
+    } finally {
+      readCursor = oldReadCursor;
+    }
+  }
 
-    if (bitLength < 1) {
+  /**
+   * Read unsigned int of up to 64 bits without moving readCursor
+   *
+   * @param bitLength size of uint in bits, 0..64
+   * @return value, a 64-bit value above Long.MAX_VALUE is negative
+   */
+  public long preReadUintLong(int bitLength) {
+    if (bitLength < 0 || bitLength > 64) {
       throw new Error("Incorrect bitLength");
     }
-    StringBuilder s = new StringBuilder();
-    for (int i = 0; i < bitLength; i++) {
-      boolean b = readBit();
-      if (b) {
-        s.append("1");
-      } else {
-        s.append("0");
-      }
+    if (bitLength == 0) {
+      return 0;
+    }
+    checkRead(bitLength);
+    return getBits(readCursor, bitLength);
+  }
+
+  /**
+   * Read unsigned int of up to 64 bits
+   *
+   * @param bitLength size of uint in bits, 0..64
+   * @return value, a 64-bit value above Long.MAX_VALUE is negative
+   */
+  public long readUintLong(int bitLength) {
+    long result = preReadUintLong(bitLength);
+    readCursor += bitLength;
+    return result;
+  }
+
+  /**
+   * Read signed int of up to 64 bits
+   *
+   * @param bitLength size of int in bits, 1..64
+   * @return value
+   */
+  public long readIntLong(int bitLength) {
+    if (bitLength < 1) {
+      throw new Error("Incorrect bitLength");
     }
-    readCursor = oldReadCursor;
-    return new BigInteger(s.toString(), 2);
+    long result = readUintLong(bitLength);
+    return bitLength == 64 ? result : (result << (64 - bitLength)) >> (64 - bitLength);
   }
 
   /**
@@ -564,16 +686,16 @@ public class BitString implements Serializable {
     if (bitLength < 1) {
       throw new Error("Incorrect bitLength");
     }
-    StringBuilder s = new StringBuilder();
-    for (int i = 0; i < bitLength; i++) {
-      boolean b = readBit();
-      if (b) {
-        s.append("1");
-      } else {
-        s.append("0");
-      }
+    if (bitLength < 64) {
+      return BigInteger.valueOf(readUintLong(bitLength));
     }
-    return new BigInteger(s.toString(), 2);
+    checkRead(bitLength);
+    byte[] bytes = new byte[(bitLength + 7) / 8];
+    int head = bitLength - (bytes.length - 1) * 8;
+    bytes[0] = (byte) getBits(readCursor, head);
+    getBytes(readCursor + head, bytes, 1, bitLength - head);
+    readCursor += bitLength;
+    return new BigInteger(1, bytes);
   }
 
   /**
@@ -587,16 +709,14 @@ public class BitString implements Serializable {
       throw new Error("Incorrect bitLength");
     }
 
-    boolean sign = readBit();
-    if (bitLength == 1) {
-      return sign ? new BigInteger("-1") : BigInteger.ZERO;
+    if (bitLength <= 64) {
+      return BigInteger.valueOf(readIntLong(bitLength));
     }
 
+    boolean sign = readBit();
     BigInteger number = readUint(bitLength - 1);
     if (sign) {
-      BigInteger b = BigInteger.valueOf(2);
-      BigInteger nb = b.pow(bitLength - 1);
-      number = number.subtract(nb);
+      number = number.subtract(BigInteger.ONE.shiftLeft(bitLength - 1));
     }
     return number;
   }
@@ -650,8 +770,7 @@ public class BitString implements Serializable {
   }
 
   public String readString(int length) {
-    BitString BitString = readBits(length);
-    return new String(BitString.toByteArray());
+    return new String(readBytes(length));
   }
 
   /**
@@ -659,8 +778,24 @@ public class BitString implements Serializable {
    * @return byte array
    */
   public byte[] readBytes(int length) {
-    BitString BitString = readBits(length);
-    return BitString.toByteArray();
+    byte[] result = new byte[(length + 7) / 8];
+    readBytesInto(result, length);
+    return result;
+  }
+
+  /**
+   * Read bits into an existing array, 8 bits per byte, the last byte is padded with zeros
+   *
+   * @param dst destination, at least (length + 7) / 8 bytes
+   * @param length in bits
+   */
+  public void readBytesInto(byte[] dst, int length) {
+    if (dst.length < (length + 7) / 8) {
+      throw new Error("Destination is too small for " + length + " bits");
+    }
+    checkRead(length);
+    getBytes(readCursor, dst, 0, length);
+    readCursor += length;
   }
 
   /**
@@ -674,12 +809,11 @@ public class BitString implements Serializable {
    * @return BitString from 0 to writeCursor
    */
   public String toBitString() {
-    StringBuilder s = new StringBuilder();
+    char[] s = new char[writeCursor];
     for (int i = 0; i < writeCursor; i++) {
-      char bit = get(i) ? '1' : '0';
-      s.append(bit);
+      s[i] = bit(i) ? '1' : '0';
     }
-    return s.toString();
+    return new String(s);
   }
 
   public Boolean[] toBooleanArray() {
@@ -692,15 +826,20 @@ public class BitString implements Serializable {
   }
 
   public int getLength() {
-    // Calculate length based on BitSet capacity
-    return Math.max(length, bitSet.length());
+    // length or the position after the highest set bit, whatever is bigger
+    for (int w = words.length - 1; w >= 0; w--) {
+      if (words[w] != 0) {
+        return Math.max(length, w * 64 + 64 - Long.numberOfTrailingZeros(words[w]));
+      }
+    }
+    return length;
   }
 
   /**
    * @return BitString from current position to writeCursor
    */
   public String getBitString() {
-    StringBuilder s = new StringBuilder();
+    StringBuilder s = new StringBuilder(Math.max(writeCursor - readCursor, 0));
     for (int i = readCursor; i < writeCursor; i++) {
       char bit = get(i) ? '1' : '0';
       s.append(bit);
@@ -712,30 +851,8 @@ public class BitString implements Serializable {
     if (writeCursor == 0) {
       return new byte[0];
     }
-
-    // Create a temporary BitSet with the same bits but in reverse order (MSB to LSB)
-    BitSet reversedBitSet = new BitSet(writeCursor);
-    for (int i = 0; i < writeCursor; i++) {
-      if (bitSet.get(i)) {
-        // For each byte, reverse the bit order
-        int byteIndex = i / 8;
-        int bitPosition = i % 8;
-        // Convert from MSB-first to LSB-first within each byte
-        int reversedBitPosition = 7 - bitPosition;
-        reversedBitSet.set(byteIndex * 8 + reversedBitPosition);
-      }
-    }
-
-    // Calculate the number of bytes needed
-    int numBytes = (writeCursor + 7) / 8;
-    byte[] result = new byte[numBytes];
-
-    // Convert the reversed BitSet to a byte array
-    byte[] tempBytes = reversedBitSet.toByteArray();
-
-    // Copy bytes, ensuring we have the right number of bytes
-    System.arraycopy(tempBytes, 0, result, 0, Math.min(tempBytes.length, numBytes));
-
+    byte[] result = new byte[(writeCursor + 7) / 8];
+    getBytes(0, result, 0, writeCursor);
     return result;
   }
 
@@ -810,8 +927,8 @@ public class BitString implements Serializable {
   }
 
   public BitString clone() {
-    BitString result = new BitString(bitSet.size());
-    result.bitSet = (BitSet) bitSet.clone();
+    BitString result = new BitString(0);
+    result.words = words.clone();
     result.length = length;
     result.writeCursor = writeCursor;
     result.readCursor = readCursor;
@@ -819,18 +936,13 @@ public class BitString implements Serializable {
   }
 
   public BitString cloneFrom(int from) {
-    BitString result = new BitString(bitSet.size());
-    result.bitSet = (BitSet) bitSet.clone();
-    result.length = length;
+    BitString result = clone();
     result.writeCursor = writeCursor - (from * 8);
-    result.readCursor = readCursor;
     return result;
   }
 
   public BitString cloneClear() {
-    BitString result = new BitString(bitSet.size());
-    result.bitSet = (BitSet) bitSet.clone();
-    result.length = length;
+    BitString result = clone();
     result.writeCursor = 0;
     result.readCursor = 0;
     return result;
@@ -274,4 +274,49 @@ public class TestBitString {
     Address address = Address.of("0QAs9VlT6S776tq3unJcP5Ogsj-ELLunLXuOb1EKcOQi4-QO");
     bitString.writeAddress(address);
   }
+
+  @Test
+  public void testBitStringPrimitiveReaders() {
+    BitString bitString = new BitString(206);
+    bitString.writeBit(true); // unaligned from here on
+    bitString.writeUint(0xFFFFFFFFL, 32);
+    bitString.writeInt(BigInteger.valueOf(-5), 13);
+    bitString.writeUint(new BigInteger("FFFFFFFFFFFFFFFF", 16), 64);
+    bitString.writeInt(BigInteger.valueOf(Long.MIN_VALUE), 64);
+    bitString.writeBytes(new byte[] {1, 2, 3, -1});
+
+    assertThat(bitString.readBit()).isTrue();
+    assertThat(bitString.preReadUintLong(32)).isEqualTo(0xFFFFFFFFL);
+    assertThat(bitString.readUintLong(32)).isEqualTo(0xFFFFFFFFL);
+    assertThat(bitString.readIntLong(13)).isEqualTo(-5);
+    assertThat(bitString.readUintLong(64)).isEqualTo(-1L);
+    assertThat(bitString.readIntLong(64)).isEqualTo(Long.MIN_VALUE);
+
+    byte[] bytes = new byte[4];
+    bitString.readBytesInto(bytes, 28);
+    assertThat(Utils.bytesToHex(bytes)).isEqualTo("010203f0");
+    assertThat(bitString.getUsedBits()).isEqualTo(4);
+    assertThrows(Error.class, () -> bitString.readUintLong(5));
+  }
+
+  @Test
+  public void testBitStringUnalignedCopy() {
+    BitString source = new BitString(1023);
+    source.writeBits("101");
+    for (int i = 0; i < 10; i++) {
+      source.writeUint(0x0123456789ABCDEFL + i, 64);
+    }
+    source.readBits(3);
+
+    BitString target = new BitString(1023);
+    target.writeBits("11111");
+    target.writeBitString(source);
+
+    assertThat(target.getUsedBits()).isEqualTo(5 + 640);
+    assertThat(target.readUint(5).intValue()).isEqualTo(31);
+    for (int i = 0; i < 10; i++) {
+      assertThat(target.readUint(64).longValue()).isEqualTo(0x0123456789ABCDEFL + i);
+    }
+    assertThat(target.clone().toBitString()).isEqualTo(target.toBitString());
+  }
 }
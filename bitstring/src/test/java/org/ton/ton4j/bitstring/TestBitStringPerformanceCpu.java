@@ -498,6 +498,130 @@ public class TestBitStringPerformanceCpu {
         String.format("%.2f", bitStringReadAvg / realBitStringReadAvg));
   }
 
+  /**
+   * Regression benchmark of the reads done by cell deserialization: uints of typical TL-B widths,
+   * read as BigInteger and as long, compared with the bit-per-element BitString1.
+   */
+  @Test
+  public void testReadUintPerformance() {
+    log.info("=== Read Uint Performance Test ===");
+    int[] widths = {1, 4, 8, 32, 64, 256};
+
+    BitString bs = new BitString(LARGE_SIZE * 16);
+    BitString1 bs1 = new BitString1(LARGE_SIZE * 16);
+    int count = 0;
+    while (bs.getFreeBits() > 256) {
+      int width = widths[count++ % widths.length];
+      BigInteger value = new BigInteger(width, RANDOM);
+      bs.writeUint(value, width);
+      bs1.writeUint(value, width);
+    }
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      readUints(bs.clone(), widths, count);
+      readUintLongs(bs.clone(), widths, count);
+      readUints(bs1.clone(), widths, count);
+    }
+
+    long[] bitStringTimes = new long[TEST_ITERATIONS];
+    long[] longTimes = new long[TEST_ITERATIONS];
+    long[] bitString1Times = new long[TEST_ITERATIONS];
+    for (int i = 0; i < TEST_ITERATIONS; i++) {
+      BitString clone = bs.clone();
+      long startTime = System.nanoTime();
+      readUints(clone, widths, count);
+      bitStringTimes[i] = System.nanoTime() - startTime;
+
+      clone = bs.clone();
+      startTime = System.nanoTime();
+      readUintLongs(clone, widths, count);
+      longTimes[i] = System.nanoTime() - startTime;
+
+      BitString1 clone1 = bs1.clone();
+      startTime = System.nanoTime();
+      readUints(clone1, widths, count);
+      bitString1Times[i] = System.nanoTime() - startTime;
+    }
+
+    double bitStringAvg = calculateAverage(bitStringTimes);
+    double longAvg = calculateAverage(longTimes);
+    double bitString1Avg = calculateAverage(bitString1Times);
+    log.info(
+        "BitString readUint of {} values average time: {} ms",
+        count,
+        String.format("%.2f", bitStringAvg / 1_000_000));
+    log.info(
+        "BitString readUintLong/readUint average time: {} ms",
+        String.format("%.2f", longAvg / 1_000_000));
+    log.info(
+        "BitString1 readUint average time: {} ms",
+        String.format("%.2f", bitString1Avg / 1_000_000));
+    log.info(
+        "Ratio (BitString1/BitString): {}", String.format("%.2f", bitString1Avg / bitStringAvg));
+  }
+
+  /** Tests the performance of copying unaligned bit strings, as done by CellBuilder. */
+  @Test
+  public void testWriteBitStringPerformance() {
+    log.info("=== Write BitString Performance Test ===");
+
+    BitString source = new BitString(1023);
+    source.writeBit(true);
+    while (source.getFreeBits() >= 64) {
+      source.writeUint(RANDOM.nextLong() >>> 1, 64);
+    }
+    source.readBit();
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      copyBitStrings(source, LARGE_SIZE);
+    }
+
+    long[] times = new long[TEST_ITERATIONS];
+    for (int i = 0; i < TEST_ITERATIONS; i++) {
+      long startTime = System.nanoTime();
+      copyBitStrings(source, LARGE_SIZE);
+      times[i] = System.nanoTime() - startTime;
+    }
+
+    double avg = calculateAverage(times);
+    log.info(
+        "BitString {} copies of {} bits average time: {} ms",
+        LARGE_SIZE,
+        source.getUsedBits(),
+        String.format("%.2f", avg / 1_000_000));
+  }
+
+  private void readUints(BitString bs, int[] widths, int count) {
+    for (int i = 0; i < count; i++) {
+      bs.readUint(widths[i % widths.length]);
+    }
+  }
+
+  private void readUintLongs(BitString bs, int[] widths, int count) {
+    for (int i = 0; i < count; i++) {
+      int width = widths[i % widths.length];
+      if (width <= 64) {
+        bs.readUintLong(width);
+      } else {
+        bs.readUint(width);
+      }
+    }
+  }
+
+  private void readUints(BitString1 bs, int[] widths, int count) {
+    for (int i = 0; i < count; i++) {
+      bs.readUint(widths[i % widths.length]);
+    }
+  }
+
+  private void copyBitStrings(BitString source, int count) {
+    for (int i = 0; i < count; i++) {
+      BitString target = new BitString(1023);
+      target.writeBits("11");
+      target.writeBitString(source);
+    }
+  }
+
   /** Tests the performance of complex operations that combine multiple operations. */
   @Test
   public void testComplexOperationsPerformance() {
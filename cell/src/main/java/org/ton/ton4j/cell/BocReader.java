@@ -0,0 +1,327 @@
+package org.ton.ton4j.cell;
+
+import static java.util.Objects.isNull;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import org.ton.ton4j.bitstring.BitString;
+
+/**
+ * Reads cells of a BoC from a buffer, typically a memory-mapped file, on demand. A cell is parsed
+ * on the first access through {@link #cellAt(int)}, {@link #root(int)} or the refs of a parent and
+ * then shared. Cell offsets come from the BoC index, or from a single scan of cell headers if the
+ * BoC has no index.
+ *
+ * <p>Hashes stored in the BoC, see {@link Cell#writeBoc(java.nio.channels.WritableByteChannel,
+ * List, boolean, boolean, boolean, boolean, boolean)}, are trusted as is, so read only BoCs of a
+ * trusted source, such as your own cache, if they have them. Other hashes are calculated on first
+ * use, like with lazy hashes in {@link Cell#fromBoc(byte[], boolean)}.
+ *
+ * <pre>
+ * BocReader boc = Cell.openBoc(path);
+ * Cell root = boc.root(0);
+ * byte[] hash = root.getHash(); // no hashing if the BoC was written with hasTopHash
+ * </pre>
+ */
+public final class BocReader {
+
+  private final ByteBuffer data;
+  private final boolean hasCacheBits;
+  private final int refSzBytes;
+  private final int offsetSzBytes;
+  private final int cellsNum;
+  private final int[] rootsIndex;
+
+  /** position of the BoC index in data, or -1 */
+  private final int indexOffset;
+
+  /** end offsets of cells in the payload if the BoC has no index */
+  private final int[] cellEnds;
+
+  private final int payloadOffset;
+  private final int payloadLength;
+  private final Cell[] cells;
+
+  /**
+   * @param data BoC from position to limit, must not be modified while cells are read
+   */
+  BocReader(ByteBuffer data) {
+    this.data = data.slice();
+    if (this.data.remaining() < 10) {
+      throw new Error("Invalid boc");
+    }
+    if (this.data.getInt(0) != 0xB5EE9C72) {
+      throw new Error("Invalid boc magic header");
+    }
+
+    BocFlags bocFlags = Cell.parseBocFlags(this.data.get(4));
+    hasCacheBits = bocFlags.hasCacheBits;
+    refSzBytes = bocFlags.cellNumSizeBytes;
+    offsetSzBytes = this.data.get(5) & 0xFF;
+
+    int pos = 6;
+    long cells = readUint(pos, refSzBytes);
+    pos += refSzBytes;
+    long rootsNum = readUint(pos, refSzBytes);
+    pos += refSzBytes;
+    pos += refSzBytes; // absent
+    long dataLen = readUint(pos, offsetSzBytes);
+    pos += offsetSzBytes;
+
+    if (cells > dataLen / 2) {
+      throw new Error("cells num looks malicious: data len " + dataLen + ", cells " + cells);
+    }
+    cellsNum = (int) cells;
+
+    if (bocFlags.hasCrc32c) {
+      ByteBuffer withoutCrc = this.data.duplicate();
+      withoutCrc.limit(this.data.limit() - 4);
+      CRC32C crc32c = new CRC32C();
+      crc32c.update(withoutCrc);
+      if (Integer.reverseBytes(this.data.getInt(this.data.limit() - 4))
+          != (int) crc32c.getValue()) {
+        throw new Error("Crc32c hash mismatch");
+      }
+    }
+
+    rootsIndex = new int[(int) rootsNum];
+    for (int i = 0; i < rootsNum; i++) {
+      rootsIndex[i] = (int) readUint(pos, refSzBytes);
+      pos += refSzBytes;
+    }
+
+    if (bocFlags.hasCacheBits && !bocFlags.hasIndex) {
+      throw new Error("cache flag cant be set without index flag");
+    }
+
+    if (bocFlags.hasIndex) {
+      indexOffset = pos;
+      pos += cellsNum * offsetSzBytes;
+    } else {
+      indexOffset = -1;
+    }
+
+    payloadOffset = pos;
+    if (dataLen > this.data.limit() - payloadOffset) {
+      throw new Error("failed to parse payload, corrupted data");
+    }
+    payloadLength = (int) dataLen;
+
+    cellEnds = indexOffset < 0 ? scanCellEnds() : null;
+    this.cells = new Cell[cellsNum];
+  }
+
+  public int getCellsCount() {
+    return cellsNum;
+  }
+
+  public int getRootsCount() {
+    return rootsIndex.length;
+  }
+
+  /**
+   * @return all roots, parsed
+   */
+  public List<Cell> getRoots() {
+    List<Cell> roots = new ArrayList<>(rootsIndex.length);
+    for (int i = 0; i < rootsIndex.length; i++) {
+      roots.add(root(i));
+    }
+    return roots;
+  }
+
+  /**
+   * @param i index of the root, 0 to getRootsCount() - 1
+   * @return root cell, its refs are parsed on access
+   */
+  public Cell root(int i) {
+    if (i < 0 || i >= rootsIndex.length) {
+      throw new IllegalArgumentException("root " + i + " out of " + rootsIndex.length);
+    }
+    if (rootsIndex[i] >= cellsNum) {
+      throw new Error("invalid index, out of scope");
+    }
+    return cell(rootsIndex[i]);
+  }
+
+  /**
+   * @param i index of the cell in the BoC, 0 to getCellsCount() - 1
+   * @return cell, its refs are parsed on access
+   */
+  public Cell cellAt(int i) {
+    if (i < 0 || i >= cellsNum) {
+      throw new IllegalArgumentException("cell " + i + " out of " + cellsNum);
+    }
+    return cell(i);
+  }
+
+  private synchronized Cell cell(int i) {
+    Cell c = cells[i];
+    if (isNull(c)) {
+      c = parseCell(i);
+      cells[i] = c;
+    }
+    return c;
+  }
+
+  private long readUint(int pos, int bytes) {
+    long v = 0;
+    for (int i = 0; i < bytes; i++) {
+      v = (v << 8) | (data.get(pos + i) & 0xFF);
+    }
+    return v;
+  }
+
+  /** @return start offset of the cell in the payload */
+  private int cellStart(int i) {
+    if (i == 0) {
+      return 0;
+    }
+    if (isNull(cellEnds)) {
+      long end = readUint(indexOffset + (i - 1) * offsetSzBytes, offsetSzBytes);
+      return (int) (hasCacheBits ? end / 2 : end);
+    }
+    return cellEnds[i - 1];
+  }
+
+  private int[] scanCellEnds() {
+    int[] ends = new int[cellsNum];
+    int offset = 0;
+    for (int i = 0; i < cellsNum; i++) {
+      if (payloadLength - offset < 2) {
+        throw new Error("failed to parse cell header, corrupted data");
+      }
+      int flags = data.get(payloadOffset + offset);
+      int ln = data.get(payloadOffset + offset + 1) & 0xFF;
+      offset += 2 + hashesSize(flags) + (ln / 2 + ln % 2) + (flags & 0b111) * refSzBytes;
+      ends[i] = offset;
+    }
+    return ends;
+  }
+
+  private static int hashesSize(int flags) {
+    if ((flags & 0b10000) == 0) {
+      return 0;
+    }
+    int hashesNum = new LevelMask(flags >> 5).getHashIndex() + 1;
+    return hashesNum * 32 + hashesNum * 2;
+  }
+
+  /** Same as Cell.parseCells for a single cell, refs are left unresolved */
+  private Cell parseCell(int i) {
+    int offset = cellStart(i);
+    if (payloadLength - offset < 2) {
+      throw new Error("failed to parse cell header, corrupted data");
+    }
+
+    int flags = data.get(payloadOffset + offset);
+    int refsNum = flags & 0b111;
+    boolean special = (flags & 0b1000) != 0;
+    LevelMask levelMask = new LevelMask(flags >> 5);
+
+    if (refsNum > 4) {
+      throw new Error("too many refs in cell");
+    }
+
+    int ln = data.get(payloadOffset + offset + 1) & 0xFF;
+    int sz = ln / 2 + ln % 2;
+
+    int hashesOffset = offset + 2;
+    offset += 2 + hashesSize(flags);
+    if (payloadLength - offset < sz + refsNum * refSzBytes) {
+      throw new Error("failed to parse cell payload, corrupted data");
+    }
+
+    byte[] payload = new byte[sz];
+    ByteBuffer src = data.duplicate();
+    src.position(payloadOffset + offset);
+    src.get(payload);
+    offset += sz;
+
+    int[] refsIndex = new int[refsNum];
+    for (int j = 0; j < refsNum; j++) {
+      refsIndex[j] = (int) readUint(payloadOffset + offset, refSzBytes);
+      if (refsIndex[j] >= cellsNum) {
+        throw new Error("invalid index, out of scope");
+      }
+      offset += refSzBytes;
+    }
+
+    int bitSz = ln * 4;
+
+    // if not full byte
+    if ((ln % 2) != 0) {
+      // find last bit of byte which indicates the end and cut it and next
+      for (int y = 0; y < 8; y++) {
+        if (((payload[payload.length - 1] >> y) & 1) == 1) {
+          bitSz += 3 - y;
+          break;
+        }
+      }
+    }
+
+    Cell c = new Cell();
+    c.bits = new BitString(payload, bitSz);
+    c.refs = refsNum == 0 ? new ArrayList<>(0) : new Refs(refsIndex);
+    c.exotic = special;
+    c.levelMask = levelMask;
+    CellType type = c.getCellType();
+    c.setCellType(type);
+    if ((flags & 0b10000) != 0) {
+      setStoredHashes(c, type, payloadOffset + hashesOffset);
+    }
+    return c;
+  }
+
+  /**
+   * Sets hashes and depths stored at pos, the hashes of all significant levels followed by their
+   * depths, in the layout of {@link Cell#calculateHashes()}.
+   */
+  private void setStoredHashes(Cell c, CellType type, int pos) {
+    int hashesNum = c.levelMask.getHashIndex() + 1;
+    byte[] hashes = new byte[hashesNum * 32];
+    int[] depths = new int[hashesNum];
+    ByteBuffer src = data.duplicate();
+    if (type == CellType.PRUNED_BRANCH) {
+      // lower hashes are in the data, only the representation hash is kept
+      src.position(pos + (hashesNum - 1) * 32);
+      src.get(hashes, 0, 32);
+      depths[0] = (int) readUint(pos + hashesNum * 32 + (hashesNum - 1) * 2, 2);
+    } else {
+      src.position(pos);
+      src.get(hashes);
+      for (int i = 0; i < hashesNum; i++) {
+        depths[i] = (int) readUint(pos + hashesNum * 32 + i * 2, 2);
+      }
+    }
+    c.setHashes(hashes, depths);
+  }
+
+  /** Refs of a cell, parsed on access */
+  private final class Refs extends AbstractList<Cell> implements Serializable {
+    private final int[] indexes;
+
+    Refs(int[] indexes) {
+      this.indexes = indexes;
+    }
+
+    @Override
+    public Cell get(int index) {
+      return cell(indexes[index]);
+    }
+
+    @Override
+    public int size() {
+      return indexes.length;
+    }
+
+    /** Serialized as a plain list of parsed cells */
+    private Object writeReplace() {
+      return new ArrayList<>(this);
+    }
+  }
+}
@@ -5,14 +5,23 @@ import static java.util.Objects.nonNull;
 import static org.ton.ton4j.cell.CellType.ORDINARY;
 import static org.ton.ton4j.cell.CellType.UNKNOWN;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32C;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.tuple.Pair;
 import org.ton.ton4j.bitstring.BitString;
 import org.ton.ton4j.utils.Utils;
 
@@ -26,8 +35,9 @@ public class Cell implements Serializable {
   public int index;
   public boolean exotic;
   public LevelMask levelMask;
-  // Use lazy initialization for hashes and depthLevels
-  private byte[] hashes;
+  // Use lazy initialization for hashes and depthLevels, depthLevels is published by the volatile
+  // write of hashes
+  private volatile byte[] hashes;
   private int[] depthLevels;
 
   public BitString getBits() {
@@ -165,10 +175,10 @@ public class Cell implements Serializable {
   public LevelMask resolveMask() {
     // taken from pytoniq-core
     if (this.type == ORDINARY) {
-      // Ordinary Cell level = max(Cell refs)
+      // Ordinary Cell level = max(Cell refs), the masks of refs are already resolved
       int mask = 0;
       for (Cell r : refs) {
-        mask |= r.getMaxLevel();
+        mask |= r.levelMask.getMask();
       }
       return new LevelMask(mask);
     } else if (this.type == CellType.PRUNED_BRANCH) {
@@ -193,14 +203,14 @@ public class Cell implements Serializable {
   }
 
   /**
-   * Calculate cell hashes - highly optimized version This is a performance-critical method used in
-   * many operations
+   * Calculate cell hashes and depths. Descriptors, data and the hashes of refs are streamed into a
+   * reused thread-local SHA-256 digest, see {@link CellHasher} for hashing large graphs in parallel.
    */
   public void calculateHashes() {
 
     int totalHashCount = levelMask.getHashIndex() + 1;
-    hashes = new byte[32 * totalHashCount];
-    depthLevels = new int[totalHashCount];
+    byte[] hashes = new byte[32 * totalHashCount];
+    int[] depthLevels = new int[totalHashCount];
 
     int hashCount = totalHashCount;
     if (type == CellType.PRUNED_BRANCH) {
@@ -210,6 +220,14 @@ public class Cell implements Serializable {
     int hashIndexOffset = totalHashCount - hashCount;
     int hashIndex = 0;
     int level = levelMask.getLevel();
+    boolean merkle = (type == CellType.MERKLE_PROOF) || (type == CellType.MERKLE_UPDATE);
+    // refs are hashed first, their hashing must not interleave with this one on the same digest
+    for (Cell r : refs) {
+      r.ensureHashes();
+    }
+    MessageDigest digest = CellHasher.sha256();
+    // a previous cell may have thrown between update() and digest()
+    digest.reset();
 
     int off;
 
@@ -222,39 +240,28 @@ public class Cell implements Serializable {
         continue;
       }
 
-      byte[] dsc = getDescriptors(levelMask.apply(li).getLevel());
-
-      byte[] hash = new byte[0];
-      hash = Utils.concatBytes(hash, dsc);
+      digest.update(getRefsDescriptor(levelMask.apply(li).getLevel())[0]);
+      digest.update(getBitsDescriptor()[0]);
 
       if (hashIndex == hashIndexOffset) {
         if ((li != 0) && (type != CellType.PRUNED_BRANCH)) {
           throw new Error("invalid cell");
         }
-
-        byte[] data = getDataBytes();
-        hash = Utils.concatBytes(hash, data);
+        digest.update(getDataBytes());
       } else {
         if ((li == 0) && (type == CellType.PRUNED_BRANCH)) {
           throw new Error("neither pruned nor 0");
         }
         off = hashIndex - hashIndexOffset - 1;
-        byte[] partHash = new byte[32];
-        System.arraycopy(hashes, off * 32, partHash, 0, (off + 1) * 32);
-        hash = Utils.concatBytes(hash, partHash);
+        digest.update(hashes, off * 32, 32);
       }
 
+      int childLevel = merkle ? li + 1 : li;
       int depth = 0;
-
       for (Cell r : refs) {
-        int childDepth;
-        if ((type == CellType.MERKLE_PROOF) || (type == CellType.MERKLE_UPDATE)) {
-          childDepth = r.getDepth(li + 1);
-        } else {
-          childDepth = r.getDepth(li);
-        }
-
-        hash = Utils.concatBytes(hash, Utils.intToByteArray(childDepth));
+        int childDepth = r.getDepth(childLevel);
+        digest.update((byte) (childDepth >>> 8));
+        digest.update((byte) childDepth);
         if (childDepth > depth) {
           depth = childDepth;
         }
@@ -267,18 +274,56 @@ public class Cell implements Serializable {
       }
 
       for (Cell r : refs) {
-        if ((type == CellType.MERKLE_PROOF) || (type == CellType.MERKLE_UPDATE)) {
-          hash = Utils.concatBytes(hash, r.getHash(li + 1));
-        } else {
-          hash = Utils.concatBytes(hash, r.getHash(li));
-        }
+        r.updateDigest(digest, childLevel);
       }
 
       off = hashIndex - hashIndexOffset;
       depthLevels[off] = depth;
-      System.arraycopy(Utils.sha256AsArray(hash), 0, hashes, off * 32, 32);
+      try {
+        digest.digest(hashes, off * 32, 32);
+      } catch (DigestException e) {
+        throw new Error(e);
+      }
       hashIndex++;
     }
+    this.depthLevels = depthLevels;
+    this.hashes = hashes;
+  }
+
+  /** Same bytes as getHash(lvl), without copying them */
+  private void updateDigest(MessageDigest digest, int lvl) {
+    int hashIndex = levelMask.apply(lvl).getHashIndex();
+    if (type == CellType.PRUNED_BRANCH) {
+      int prunedHashIndex = levelMask.getHashIndex();
+      if (hashIndex != prunedHashIndex) {
+        digest.update(getDataBytes(), 2 + (hashIndex * 32), 32);
+        return;
+      }
+      hashIndex = 0;
+    }
+    digest.update(ensureHashes(), hashIndex * 32, 32);
+  }
+
+  /**
+   * Hashes of the cell, calculated on first access if the cell was parsed with lazy hashes.
+   * Concurrent first accesses may both calculate them, with the same result.
+   */
+  private byte[] ensureHashes() {
+    byte[] h = hashes;
+    if (h == null || h.length == 0) {
+      calculateHashes();
+      h = hashes;
+    }
+    return h;
+  }
+
+  /**
+   * Sets hashes and depths read from a BoC instead of calculating them, as stored for every
+   * significant level, except that a pruned branch keeps only its representation hash and depth.
+   */
+  void setHashes(byte[] pHashes, int[] pDepthLevels) {
+    depthLevels = pDepthLevels;
+    hashes = pHashes;
   }
 
   void setCellType(CellType pCellType) {
@@ -313,6 +358,18 @@ public class Cell implements Serializable {
     return fromBocMultiRoot(data).get(0);
   }
 
+  /**
+   * Converts BoC to Cell
+   *
+   * @param data BoC bytes
+   * @param lazyHashes calculate hashes and depths of a cell only on its first getHash(), e.g. to
+   *     read a few fields of a large block
+   * @return Cell
+   */
+  public static Cell fromBoc(byte[] data, boolean lazyHashes) {
+    return fromBocMultiRoot(data, lazyHashes).get(0);
+  }
+
   public static List<Cell> fromBocMultiRoots(String data) {
     return fromBocMultiRoot(Utils.hexToSignedBytes(data));
   }
@@ -321,6 +378,10 @@ public class Cell implements Serializable {
     return fromBocMultiRoot(data);
   }
 
+  public static List<Cell> fromBocMultiRoots(byte[] data, boolean lazyHashes) {
+    return fromBocMultiRoot(data, lazyHashes);
+  }
+
   public String toString() {
     return bits.toHex();
   }
@@ -423,7 +484,126 @@ public class Cell implements Serializable {
     }
   }
 
+  /**
+   * Reads roots of a BoC file without loading it into the heap. The file is memory-mapped and cells
+   * are parsed on first access, using the BoC index if present, so the heap holds only the cells
+   * actually visited.
+   *
+   * @param path BoC file, must not be modified while its cells are in use
+   * @return roots of the BoC
+   */
+  public static List<Cell> readBoc(Path path) throws IOException {
+    return openBoc(path).getRoots();
+  }
+
+  /**
+   * Opens a BoC file for random access to its cells, see {@link BocReader}. The file is
+   * memory-mapped, nothing but the header is parsed.
+   *
+   * @param path BoC file, must not be modified while its cells are in use
+   */
+  public static BocReader openBoc(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return openBoc(channel);
+    }
+  }
+
+  /**
+   * Reads roots of a BoC from the channel, cells are parsed on first access. A file channel is
+   * memory-mapped from its position, any other channel is read into a direct buffer of the BoC size.
+   *
+   * @return roots of the BoC
+   */
+  public static List<Cell> readBoc(ReadableByteChannel channel) throws IOException {
+    return openBoc(channel).getRoots();
+  }
+
+  /**
+   * Opens a BoC for random access to its cells, a file channel is memory-mapped from its position,
+   * any other channel is read into a direct buffer of the BoC size.
+   */
+  public static BocReader openBoc(ReadableByteChannel channel) throws IOException {
+    if (channel instanceof FileChannel) {
+      FileChannel fc = (FileChannel) channel;
+      long size = fc.size() - fc.position();
+      if (size > Integer.MAX_VALUE) {
+        throw new Error("BoC is too large to map, " + size + " bytes");
+      }
+      return openBoc(fc.map(FileChannel.MapMode.READ_ONLY, fc.position(), size));
+    }
+
+    // magic, flags and size bytes, then cells num, roots num, absent num and len of payload
+    ByteBuffer header = ByteBuffer.allocate(6);
+    readFully(channel, header);
+    if (header.getInt(0) != 0xB5EE9C72) {
+      throw new Error("Invalid boc magic header");
+    }
+    BocFlags bocFlags = parseBocFlags(header.get(4));
+    int cellSizeBytes = bocFlags.cellNumSizeBytes;
+    int sizeBytes = header.get(5) & 0xFF;
+    ByteBuffer counts = ByteBuffer.allocate(3 * cellSizeBytes + sizeBytes);
+    readFully(channel, counts);
+
+    long cellsNum = 0;
+    long rootsNum = 0;
+    long dataLen = 0;
+    for (int i = 0; i < cellSizeBytes; i++) {
+      cellsNum = (cellsNum << 8) | (counts.get(i) & 0xFF);
+      rootsNum = (rootsNum << 8) | (counts.get(cellSizeBytes + i) & 0xFF);
+    }
+    for (int i = 0; i < sizeBytes; i++) {
+      dataLen = (dataLen << 8) | (counts.get(3 * cellSizeBytes + i) & 0xFF);
+    }
+    long length =
+        header.capacity()
+            + counts.capacity()
+            + rootsNum * cellSizeBytes
+            + (bocFlags.hasIndex ? cellsNum * sizeBytes : 0)
+            + dataLen
+            + (bocFlags.hasCrc32c ? 4 : 0);
+    if (length > Integer.MAX_VALUE) {
+      throw new Error("BoC is too large, " + length + " bytes");
+    }
+
+    ByteBuffer boc = ByteBuffer.allocateDirect((int) length);
+    boc.put(header.array()).put(counts.array());
+    readFully(channel, boc);
+    boc.flip();
+    return openBoc(boc);
+  }
+
+  /**
+   * Reads roots of a BoC from the buffer, cells are parsed on first access.
+   *
+   * @param boc BoC from position to limit, must not be modified while its cells are in use
+   * @return roots of the BoC
+   */
+  public static List<Cell> readBoc(ByteBuffer boc) {
+    return openBoc(boc).getRoots();
+  }
+
+  /**
+   * Opens a BoC for random access to its cells.
+   *
+   * @param boc BoC from position to limit, must not be modified while its cells are in use
+   */
+  public static BocReader openBoc(ByteBuffer boc) {
+    return new BocReader(boc);
+  }
+
+  private static void readFully(ReadableByteChannel channel, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      if (channel.read(buf) < 0) {
+        throw new Error("Invalid boc, unexpected end of stream");
+      }
+    }
+  }
+
   static List<Cell> fromBocMultiRoot(byte[] data) {
+    return fromBocMultiRoot(data, false);
+  }
+
+  static List<Cell> fromBocMultiRoot(byte[] data, boolean lazyHashes) {
     if (data.length < 10) {
       throw new Error("Invalid boc");
     }
@@ -487,11 +667,21 @@ public class Cell implements Serializable {
 
     byte[] payload = r.readBytes(dataLen);
 
-    return parseCells(rootsIndex, rootsNum, cellsNum, bocFlags.cellNumSizeBytes, payload, index);
+    return parseCells(
+        rootsIndex, rootsNum, cellsNum, bocFlags.cellNumSizeBytes, payload, index, lazyHashes);
   }
 
+  /** BoCs with at least this number of cells are hashed in parallel in the common pool */
+  private static final int PARALLEL_HASHING_CELLS = 65536;
+
   private static List<Cell> parseCells(
-      int[] rootsIndex, long rootsNum, long cellsNum, int refSzBytes, byte[] data, int[] index) {
+      int[] rootsIndex,
+      long rootsNum,
+      long cellsNum,
+      int refSzBytes,
+      byte[] data,
+      int[] index,
+      boolean lazyHashes) {
     Cell[] cells = new Cell[(int) cellsNum];
     for (int i = 0; i < cellsNum; i++) {
       cells[i] = new Cell();
@@ -531,8 +721,7 @@ public class Cell implements Serializable {
       }
 
       if (withHashes) {
-        int maskBits = (int) Math.ceil(Math.log(levelMask.mask + 1) / Math.log(2));
-        int hashesNum = maskBits + 1;
+        int hashesNum = levelMask.getHashIndex() + 1;
         offset += hashesNum * 32 + hashesNum * 2;
       }
       byte[] payload = Arrays.copyOfRange(data, offset, offset + sz);
@@ -594,8 +783,14 @@ public class Cell implements Serializable {
 
     Cell[] roots = new Cell[rootsIndex.length];
 
-    for (int i = cells.length - 1; i >= 0; i--) {
-      cells[i].calculateHashes();
+    if (!lazyHashes) {
+      if (cells.length >= PARALLEL_HASHING_CELLS && ForkJoinPool.getCommonPoolParallelism() > 1) {
+        CellHasher.calculateHashes(Arrays.asList(cells), ForkJoinPool.commonPool());
+      } else {
+        for (int i = cells.length - 1; i >= 0; i--) {
+          cells[i].calculateHashes();
+        }
+      }
     }
 
     for (int i = 0; i < rootsIndex.length; i++) {
@@ -652,9 +847,13 @@ public class Cell implements Serializable {
 
   /** Saves BoC to file */
   public void toFile(String filename, boolean withCrc) {
-    byte[] boc = toBoc(withCrc);
-    try {
-      Files.write(Paths.get(filename), boc);
+    try (FileChannel channel =
+        FileChannel.open(
+            Paths.get(filename),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      writeBoc(channel, Collections.singletonList(this), withCrc, false, false);
     } catch (Exception e) {
       log.error("Cannot write to file. Error: {} ", e.getMessage());
     }
@@ -744,7 +943,7 @@ public class Cell implements Serializable {
       hashIndex = 0;
     }
 
-    return Utils.slice(hashes, hashIndex * 32, 32);
+    return Utils.slice(ensureHashes(), hashIndex * 32, 32);
   }
 
   public byte[] getRefsDescriptor(int lvl) {
@@ -801,26 +1000,86 @@ public class Cell implements Serializable {
       boolean hasCacheBits,
       boolean hasTopHash,
       boolean hasIntHashes) {
-    Pair<List<IdxItem>, Map<String, IdxItem>> sortedCellsAndIndex = flattenIndex(roots, hasTopHash);
+    try {
+      return serializeBoc(roots, hasCrc32c, hasIdx, hasCacheBits, hasTopHash, hasIntHashes, null);
+    } catch (IOException e) {
+      throw new Error("Cannot serialize BoC. Error " + e.getMessage(), e);
+    }
+  }
 
-    List<IdxItem> sortedCells = sortedCellsAndIndex.getLeft();
-    Map<String, IdxItem> index = sortedCellsAndIndex.getRight();
+  /**
+   * Streams roots as a BoC into the channel through a fixed-size buffer, without building the BoC
+   * in memory. The channel is not closed.
+   */
+  public static void writeBoc(
+      WritableByteChannel channel,
+      List<Cell> roots,
+      boolean hasCrc32c,
+      boolean hasIdx,
+      boolean hasCacheBits)
+      throws IOException {
+    serializeBoc(roots, hasCrc32c, hasIdx, hasCacheBits, false, false, channel);
+  }
+
+  /**
+   * Streams roots as a BoC into the channel, see {@link #writeBoc(WritableByteChannel, List,
+   * boolean, boolean, boolean)}. Stored hashes let {@link BocReader} skip hashing the cells, e.g.
+   * for BoCs cached on disk.
+   *
+   * @param hasTopHash store hashes and depths of the roots
+   * @param hasIntHashes store hashes and depths of all other cells
+   */
+  public static void writeBoc(
+      WritableByteChannel channel,
+      List<Cell> roots,
+      boolean hasCrc32c,
+      boolean hasIdx,
+      boolean hasCacheBits,
+      boolean hasTopHash,
+      boolean hasIntHashes)
+      throws IOException {
+    serializeBoc(roots, hasCrc32c, hasIdx, hasCacheBits, hasTopHash, hasIntHashes, channel);
+  }
 
-    int cellSizeBits = Utils.log2(sortedCells.size() + 1);
-    int cellSizeBytes = (int) Math.ceil((double) cellSizeBits / 8);
+  /**
+   * @param channel destination of the BoC, or null to serialize into an array of the BoC size
+   * @return serialized BoC, or null if written to the channel
+   */
+  private static byte[] serializeBoc(
+      List<Cell> roots,
+      boolean hasCrc32c,
+      boolean hasIdx,
+      boolean hasCacheBits,
+      boolean hasTopHash,
+      boolean hasIntHashes,
+      WritableByteChannel channel)
+      throws IOException {
+    BocIndex index = new BocIndex(roots);
+    int cellsNum = index.cells.size();
+
+    int cellSizeBits = Utils.log2(cellsNum + 1);
+    int cellSizeBytes = (cellSizeBits + 7) / 8;
+
+    // positions of cells serialized with their hashes
+    boolean[] withHashes = new boolean[cellsNum];
+    Arrays.fill(withHashes, hasIntHashes);
+    for (Cell c : roots) {
+      withHashes[index.positions.get(new HashKey(c.getHash()))] = hasTopHash;
+    }
 
-    byte[] payload = new byte[0];
-    for (IdxItem sortedCell : sortedCells) {
-      payload =
-          Utils.concatBytes(
-              payload,
-              sortedCell.getCell().serialize(cellSizeBytes, index, sortedCell.isWithHash()));
-      sortedCell.dataIndex = payload.length;
+    long payloadLength = 0;
+    for (int i = 0; i < cellsNum; i++) {
+      int pos = index.order[i];
+      payloadLength += index.cells.get(pos).serializedSize(cellSizeBytes, withHashes[pos]);
+    }
+    if (payloadLength > Integer.MAX_VALUE) {
+      throw new Error("BoC is too large, payload " + payloadLength + " bytes");
     }
 
-    // bytes needed to store len of payload
-    int sizeBits = Utils.log2Ceil(payload.length + 1);
-    byte sizeBytes = (byte) ((sizeBits + 7) / 8);
+    // bytes needed to store len of payload, and offsets with cache bits
+    long maxOffset = hasCacheBits ? payloadLength * 2 + 1 : payloadLength;
+    int sizeBits = 64 - Long.numberOfLeadingZeros(maxOffset);
+    int sizeBytes = (sizeBits + 7) / 8;
 
     // has_idx 1bit, hash_crc32 1bit,  has_cache_bits 1bit, flags 2bit, size_bytes 3 bit
     byte flagsByte = 0;
@@ -836,61 +1095,120 @@ public class Cell implements Serializable {
 
     flagsByte |= (byte) cellSizeBytes;
 
-    byte[] data = new byte[0];
-
-    byte[] bocMagic = new byte[] {(byte) 0xB5, (byte) 0xEE, (byte) 0x9C, 0x72};
-
-    data = Utils.concatBytes(data, bocMagic);
-
-    data = Utils.concatBytes(data, Utils.byteToBytes(flagsByte));
-
+    long length =
+        4 // magic
+            + 2 // flags and size bytes
+            + 3L * cellSizeBytes // cells num, roots num, complete BOCs
+            + sizeBytes // len of payload
+            + (long) roots.size() * cellSizeBytes
+            + (hasIdx ? (long) cellsNum * sizeBytes : 0)
+            + payloadLength
+            + (hasCrc32c ? 4 : 0);
+    BocOutput out = new BocOutput(length, channel);
+
+    ByteBuffer buf = out.reserve(6 + 3 * cellSizeBytes + sizeBytes);
+    buf.put(new byte[] {(byte) 0xB5, (byte) 0xEE, (byte) 0x9C, 0x72});
+    buf.put(flagsByte);
     // bytes needed to store size
-    data = Utils.concatBytes(data, Utils.byteToBytes(sizeBytes));
-
-    // cells num
-    data =
-        Utils.concatBytes(
-            data, Utils.dynamicIntBytes(BigInteger.valueOf(sortedCells.size()), cellSizeBytes));
-
-    // roots num
-    data = Utils.concatBytes(data, Utils.dynamicIntBytes(BigInteger.ONE, cellSizeBytes));
-
+    buf.put((byte) sizeBytes);
+    putUint(buf, cellsNum, cellSizeBytes);
+    putUint(buf, roots.size(), cellSizeBytes);
     // complete BOCs = 0
-    data = Utils.concatBytes(data, Utils.dynamicIntBytes(BigInteger.ZERO, cellSizeBytes));
-
-    // len of data
-    data =
-        Utils.concatBytes(
-            data, Utils.dynamicIntBytes(BigInteger.valueOf(payload.length), sizeBytes));
+    putUint(buf, 0, cellSizeBytes);
+    putUint(buf, payloadLength, sizeBytes);
 
     for (Cell c : roots) {
-      data =
-          Utils.concatBytes(
-              data,
-              Utils.dynamicIntBytes(index.get(Utils.bytesToHex(c.getHash())).index, cellSizeBytes));
+      putUint(out.reserve(cellSizeBytes), index.indexOf(c), cellSizeBytes);
     }
 
     if (hasIdx) {
-      for (IdxItem sc : sortedCells) {
-        long idx = sc.dataIndex;
+      // end offsets of serialized cells in the payload
+      long dataIndex = 0;
+      for (int i = 0; i < cellsNum; i++) {
+        int pos = index.order[i];
+        dataIndex += index.cells.get(pos).serializedSize(cellSizeBytes, withHashes[pos]);
+        long idx = dataIndex;
         if (hasCacheBits) {
           idx *= 2;
-          if (sc.repeats > 0) {
+          if (index.repeats[pos] > 0) {
             // cache cells which has refs
             idx++;
           }
         }
-        data = Utils.concatBytes(data, Utils.dynamicIntBytes(BigInteger.valueOf(idx), sizeBytes));
+        putUint(out.reserve(sizeBytes), idx, sizeBytes);
       }
     }
 
-    data = Utils.appendByteArray(data, payload);
+    for (int i = 0; i < cellsNum; i++) {
+      int pos = index.order[i];
+      Cell c = index.cells.get(pos);
+      int size = c.serializedSize(cellSizeBytes, withHashes[pos]);
+      c.serialize(out.reserve(size), cellSizeBytes, index, pos, withHashes[pos]);
+    }
 
     if (hasCrc32c) {
-      data = Utils.appendByteArray(data, Utils.getCRC32ChecksumAsBytesReversed(data));
+      out.putCrc32c();
     }
+    return out.finish();
+  }
+
+  /** Destination of a serialized BoC, either an array of the BoC size or a buffer of a channel */
+  private static final class BocOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buf;
+    private final CRC32C crc32c = new CRC32C();
 
-    return data;
+    BocOutput(long length, WritableByteChannel channel) {
+      this.channel = channel;
+      if (isNull(channel)) {
+        if (length > Integer.MAX_VALUE) {
+          throw new Error("BoC is too large, " + length + " bytes");
+        }
+        buf = ByteBuffer.wrap(new byte[(int) length]);
+      } else {
+        buf = ByteBuffer.allocate((int) Math.min(length, BUFFER_SIZE));
+      }
+    }
+
+    /** Makes room for n bytes, n must not exceed the buffer size */
+    ByteBuffer reserve(int n) throws IOException {
+      if (buf.remaining() < n) {
+        flush();
+      }
+      return buf;
+    }
+
+    private void flush() throws IOException {
+      if (isNull(channel)) {
+        return;
+      }
+      buf.flip();
+      crc32c.update(buf.duplicate());
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+      buf.clear();
+    }
+
+    void putCrc32c() throws IOException {
+      if (isNull(channel)) {
+        crc32c.update(buf.array(), 0, buf.position());
+      } else {
+        flush();
+      }
+      reserve(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc32c.getValue());
+      buf.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    byte[] finish() throws IOException {
+      if (isNull(channel)) {
+        return buf.array();
+      }
+      flush();
+      return null;
+    }
   }
 
   public byte[] toBoc(
@@ -914,93 +1232,175 @@ public class Cell implements Serializable {
     return internalToBoc(roots, hasCrc32c, hasIdx, hasCacheBits, hasTopHash, hasIntHashes);
   }
 
-  /** reworked in order to coincide with tonutils-go */
-  private Pair<List<IdxItem>, Map<String, IdxItem>> flattenIndex(
-      List<Cell> roots, boolean hasTopHash) {
-    Map<String, IdxItem> index = new HashMap<>();
-
-    BigInteger idx = BigInteger.ZERO;
-
-    while (!roots.isEmpty()) {
-      List<Cell> next = new ArrayList<>(roots.size() * 4);
-      for (Cell p : roots) {
-        String hash = Utils.bytesToHex(p.getHash());
+  /** Writes the lowest {@code bytes} bytes of the value, big-endian */
+  private static void putUint(ByteBuffer buf, long value, int bytes) {
+    for (int i = bytes - 1; i >= 0; i--) {
+      buf.put((byte) (value >>> (i * 8)));
+    }
+  }
 
-        IdxItem v = index.get(hash);
-        if (nonNull(v)) {
-          v.repeats++;
-          continue;
-        }
+  /** Cell hash compared by content, key of {@link BocIndex} and {@link CellArena} */
+  static final class HashKey {
+    final byte[] hash;
+    final int hashCode;
 
-        index.put(hash, IdxItem.builder().cell(p).index(idx).withHash(hasTopHash).build());
-        idx = idx.add(BigInteger.ONE);
+    HashKey(byte[] hash) {
+      this.hash = hash;
+      this.hashCode = Arrays.hashCode(hash);
+    }
 
-        next.addAll(p.getRefs());
-      }
-      roots = next;
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof HashKey
+          && hashCode == ((HashKey) o).hashCode
+          && Arrays.equals(hash, ((HashKey) o).hash);
     }
 
-    List<IdxItem> idxSlice = new ArrayList<>(index.size());
-    for (Map.Entry<String, IdxItem> entry : index.entrySet()) {
-      String key = entry.getKey();
-      IdxItem value = entry.getValue();
-      idxSlice.add(value);
+    @Override
+    public int hashCode() {
+      return hashCode;
     }
+  }
 
-    idxSlice.sort(Comparator.comparing(lhs -> lhs.index));
+  /**
+   * Unique cells of a BoC with their output order. Cells are numbered in BFS order, then refs
+   * pointing backwards are moved to the end until all refs point forward, in order to coincide
+   * with tonutils-go.
+   */
+  private static final class BocIndex {
+    /** unique cells in BFS order, positions below refer to this list */
+    final List<Cell> cells = new ArrayList<>();
 
-    boolean verifyOrder = true;
-    while (verifyOrder) {
-      verifyOrder = false;
-      for (IdxItem id : idxSlice) {
-        for (Cell ref : id.getCell().getRefs()) {
-          IdxItem idRef = index.get(Utils.bytesToHex(ref.getHash()));
-          if (idRef.index.compareTo(id.index) < 0) {
-            idRef.index = idx;
-            idx = idx.add(BigInteger.ONE); // idx++
-            verifyOrder = true;
+    final Map<HashKey, Integer> positions = new HashMap<>();
+    int[] repeats = new int[16];
+
+    /** refs of cell at position p are refTargets[refStart[p]..refStart[p + 1]) */
+    final int[] refStart;
+
+    final int[] refTargets;
+
+    /** position of the i-th cell of the output */
+    final int[] order;
+
+    /** output index of the cell at a position */
+    final int[] rank;
+
+    BocIndex(List<Cell> roots) {
+      List<Cell> level = roots;
+      while (!level.isEmpty()) {
+        List<Cell> next = new ArrayList<>(level.size() * 4);
+        for (Cell p : level) {
+          Integer pos = positions.putIfAbsent(new HashKey(p.getHash()), cells.size());
+          if (nonNull(pos)) {
+            repeats[pos]++;
+            continue;
+          }
+          cells.add(p);
+          if (cells.size() > repeats.length) {
+            repeats = Arrays.copyOf(repeats, repeats.length * 2);
           }
+          next.addAll(p.getRefs());
         }
+        level = next;
+      }
+
+      int n = cells.size();
+      refStart = new int[n + 1];
+      for (int p = 0; p < n; p++) {
+        refStart[p + 1] = refStart[p] + cells.get(p).refs.size();
+      }
+      refTargets = new int[refStart[n]];
+      for (int p = 0; p < n; p++) {
+        int r = refStart[p];
+        for (Cell ref : cells.get(p).refs) {
+          refTargets[r++] = positions.get(new HashKey(ref.getHash()));
+        }
+      }
+
+      long[] index = new long[n];
+      for (int p = 0; p < n; p++) {
+        index[p] = p;
+      }
+      long nextIndex = n;
+      boolean verifyOrder = true;
+      while (verifyOrder) {
+        verifyOrder = false;
+        for (int p = 0; p < n; p++) {
+          for (int r = refStart[p]; r < refStart[p + 1]; r++) {
+            int ref = refTargets[r];
+            if (index[ref] < index[p]) {
+              index[ref] = nextIndex++;
+              verifyOrder = true;
+            }
+          }
+        }
+      }
+
+      order = new int[n];
+      if (nextIndex == n) {
+        // BFS order is already topological
+        for (int p = 0; p < n; p++) {
+          order[p] = p;
+        }
+      } else {
+        // sort positions by index, both packed into a long
+        long[] packed = new long[n];
+        for (int p = 0; p < n; p++) {
+          packed[p] = index[p] << 32 | p;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < n; i++) {
+          order[i] = (int) packed[i];
+        }
+      }
+      rank = new int[n];
+      for (int i = 0; i < n; i++) {
+        rank[order[i]] = i;
       }
     }
-    idxSlice.sort(Comparator.comparing(lhs -> lhs.index));
 
-    for (int i = 0; i < idxSlice.size(); i++) {
-      idxSlice.get(i).index = BigInteger.valueOf(i);
+    int indexOf(Cell c) {
+      return rank[positions.get(new HashKey(c.getHash()))];
     }
+  }
 
-    return Pair.of(idxSlice, index);
+  private int serializedSize(int refIndexSzBytes, boolean withHashes) {
+    int hashesSize = withHashes ? (levelMask.getHashIndex() + 1) * (32 + 2) : 0;
+    return 2 + hashesSize + (bits.writeCursor + 7) / 8 + refs.size() * refIndexSzBytes;
   }
 
-  private byte[] serialize(int refIndexSzBytes, Map<String, IdxItem> index, boolean hasHash) {
+  private void serialize(
+      ByteBuffer buf, int refIndexSzBytes, BocIndex index, int pos, boolean withHashes) {
+    byte d1 = getRefsDescriptor(levelMask.getMask())[0];
+    buf.put(withHashes ? (byte) (d1 | 0b10000) : d1);
+    buf.put(getBitsDescriptor()[0]);
+
+    if (withHashes) {
+      // hashes, then depths of all significant levels
+      int level = levelMask.getLevel();
+      for (int li = 0; li <= level; li++) {
+        if (levelMask.isSignificant(li)) {
+          buf.put(getHash(li));
+        }
+      }
+      for (int li = 0; li <= level; li++) {
+        if (levelMask.isSignificant(li)) {
+          buf.putShort((short) getDepth(li));
+        }
+      }
+    }
+
     byte[] body = this.getBits().toByteArray();
     int unusedBits = 8 - (bits.getUsedBits() % 8);
 
     if (unusedBits != 8) {
       body[body.length - 1] += 1 << (unusedBits - 1);
     }
+    buf.put(body);
 
-    int refsLn = this.getRefs().size() * refIndexSzBytes;
-    int bufLn = 2 + body.length + refsLn;
-
-    byte[] data;
-
-    byte[] descriptors = getDescriptors(levelMask.getMask());
-
-    data = Utils.concatBytes(descriptors, body);
-
-    long refsOffset = bufLn - refsLn;
-    for (Cell ref : refs) {
-      String refIndex = Utils.bytesToHex(ref.getHash());
-      byte[] src = Utils.dynamicIntBytes(index.get(refIndex).index, refIndexSzBytes);
-      data = Utils.concatBytes(data, src);
+    for (int r = index.refStart[pos]; r < index.refStart[pos + 1]; r++) {
+      putUint(buf, index.rank[index.refTargets[r]], refIndexSzBytes);
     }
-
-    return data;
-  }
-
-  private byte[] getDescriptors(int lvl) {
-    return Utils.concatBytes(getRefsDescriptor(lvl), getBitsDescriptor());
   }
 
   private int getDepth(int lvlMask) {
@@ -1012,24 +1412,18 @@ public class Cell implements Serializable {
         return Utils.bytesToIntX(Utils.slice(getDataBytes(), off, 2));
       }
     }
+    ensureHashes();
     return depthLevels[hashIndex];
   }
 
   private byte[] getDataBytes() {
     if ((bits.getUsedBits() % 8) > 0) {
-      byte[] a = bits.toBitString().getBytes(StandardCharsets.UTF_8);
-      int sz = a.length;
-      byte[] b = new byte[sz + 1];
-
-      System.arraycopy(a, 0, b, 0, sz);
-      b[sz] = (byte) '1';
-
-      int mod = b.length % 8;
-      if (mod > 0) {
-        b = Utils.rightPadBytes(b, b.length + (8 - mod), '0');
-      }
-
-      return Utils.bitStringToByteArray(new String(b));
+      // append the completion tag bit
+      int w = bits.writeCursor;
+      byte[] a = bits.toByteArray();
+      byte[] b = (w % 8) == 0 ? Arrays.copyOf(a, a.length + 1) : a;
+      b[w / 8] |= (byte) (0x80 >>> (w % 8));
+      return b;
     } else {
       return bits.toByteArray();
     }
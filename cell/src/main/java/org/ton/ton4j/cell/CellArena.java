@@ -0,0 +1,247 @@
+package org.ton.ton4j.cell;
+
+import static java.util.Objects.isNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interns cells by representation hash, so that equal subtrees of many parsed BoCs share one
+ * in-memory copy. Cells are held by weak or soft references and dropped from the arena once no
+ * interned tree uses them. Thread safe.
+ *
+ * <p>Interning takes ownership of the cell: refs of a cell not yet known to the arena are replaced
+ * with their canonical copies, so the original tree must not be used afterwards.
+ */
+public class CellArena {
+
+  private final boolean softReferences;
+  private final ConcurrentHashMap<Cell.HashKey, Entry> cells = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Cell> queue = new ReferenceQueue<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong bytesSaved = new AtomicLong();
+
+  private interface Entry {
+    Cell.HashKey key();
+
+    Cell get();
+  }
+
+  private static final class WeakEntry extends WeakReference<Cell> implements Entry {
+    private final Cell.HashKey key;
+
+    WeakEntry(Cell.HashKey key, Cell cell, ReferenceQueue<Cell> queue) {
+      super(cell, queue);
+      this.key = key;
+    }
+
+    @Override
+    public Cell.HashKey key() {
+      return key;
+    }
+  }
+
+  private static final class SoftEntry extends SoftReference<Cell> implements Entry {
+    private final Cell.HashKey key;
+
+    SoftEntry(Cell.HashKey key, Cell cell, ReferenceQueue<Cell> queue) {
+      super(cell, queue);
+      this.key = key;
+    }
+
+    @Override
+    public Cell.HashKey key() {
+      return key;
+    }
+  }
+
+  /** Arena with weak references, cells are dropped as soon as they are unreachable */
+  public CellArena() {
+    this(false);
+  }
+
+  /**
+   * @param softReferences keep unreachable cells until the heap runs low, so that repeated subtrees
+   *     of BoCs parsed one after another are shared even if the previous BoC was released
+   */
+  public CellArena(boolean softReferences) {
+    this.softReferences = softReferences;
+  }
+
+  /**
+   * @return canonical copy of the cell, either a known equal cell or the cell itself with
+   *     canonical refs
+   */
+  public Cell intern(Cell cell) {
+    expunge();
+    return intern(cell, new IdentityHashMap<>());
+  }
+
+  /**
+   * @return canonical copies of the cells
+   */
+  public List<Cell> intern(List<Cell> roots) {
+    expunge();
+    IdentityHashMap<Cell, Cell> interned = new IdentityHashMap<>();
+    List<Cell> result = new ArrayList<>(roots.size());
+    for (Cell root : roots) {
+      result.add(intern(root, interned));
+    }
+    return result;
+  }
+
+  /** Parses the BoC and interns its root */
+  public Cell fromBoc(byte[] data) {
+    return intern(Cell.fromBoc(data));
+  }
+
+  /**
+   * @param interned cells of the current call and their canonical copies
+   */
+  private Cell intern(Cell cell, IdentityHashMap<Cell, Cell> interned) {
+    Cell result = interned.get(cell);
+    if (!isNull(result)) {
+      return result;
+    }
+
+    Cell.HashKey key = new Cell.HashKey(cell.getHash());
+    Cell canonical = lookup(key);
+    if (canonical == cell) {
+      // interned before, so are its refs
+      interned.put(cell, cell);
+      return cell;
+    }
+    if (isNull(canonical)) {
+      List<Cell> refs = cell.getRefs();
+      List<Cell> canonicalRefs = null;
+      for (int i = 0; i < refs.size(); i++) {
+        Cell ref = refs.get(i);
+        Cell canonicalRef = intern(ref, interned);
+        if (canonicalRef != ref && isNull(canonicalRefs)) {
+          canonicalRefs = new ArrayList<>(refs);
+        }
+        if (!isNull(canonicalRefs)) {
+          canonicalRefs.set(i, canonicalRef);
+        }
+      }
+      if (!isNull(canonicalRefs)) {
+        cell.refs = canonicalRefs;
+      }
+      canonical = add(key, cell);
+    }
+
+    if (canonical == cell) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+      Set<Cell> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      bytesSaved.addAndGet(duplicateBytes(cell, visited));
+    }
+    interned.put(cell, canonical);
+    return canonical;
+  }
+
+  private Cell lookup(Cell.HashKey key) {
+    Entry entry = cells.get(key);
+    return isNull(entry) ? null : entry.get();
+  }
+
+  /** @return the cell, or an equal cell added concurrently */
+  private Cell add(Cell.HashKey key, Cell cell) {
+    Entry entry =
+        softReferences ? new SoftEntry(key, cell, queue) : new WeakEntry(key, cell, queue);
+    while (true) {
+      Entry previous = cells.putIfAbsent(key, entry);
+      if (isNull(previous)) {
+        return cell;
+      }
+      Cell existing = previous.get();
+      if (!isNull(existing)) {
+        return existing;
+      }
+      cells.replace(key, previous, entry);
+    }
+  }
+
+  /** Estimated size of the cells of a replaced subtree which are not canonical themselves */
+  private long duplicateBytes(Cell cell, Set<Cell> visited) {
+    if (!visited.add(cell) || lookup(new Cell.HashKey(cell.getHash())) == cell) {
+      return 0;
+    }
+    long size = estimateSize(cell);
+    for (Cell ref : cell.getRefs()) {
+      size += duplicateBytes(ref, visited);
+    }
+    return size;
+  }
+
+  /** Rough heap size of a cell with its bit string, hashes and refs list */
+  static long estimateSize(Cell cell) {
+    long size = 48; // Cell
+    size += 32 + 16 + 8L * ((cell.getBits().getLength() + 63) / 64); // BitString and words
+    size += 16 + cell.getHashes().length; // hashes
+    size += 16 + 4L * cell.getDepthLevels().length; // depthLevels
+    size += 24 + 16 + 4L * cell.getRefs().size(); // refs list
+    return size;
+  }
+
+  private void expunge() {
+    Object ref;
+    while (!isNull(ref = queue.poll())) {
+      Entry entry = (Entry) ref;
+      cells.remove(entry.key(), entry);
+    }
+  }
+
+  /**
+   * @return number of distinct cells held by the arena, including released ones not expunged yet
+   */
+  public int size() {
+    expunge();
+    return cells.size();
+  }
+
+  /** Removes all cells */
+  public void clear() {
+    cells.clear();
+    expunge();
+  }
+
+  /**
+   * @return number of interned cells replaced by a known equal cell
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of interned cells which became canonical
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return estimated heap bytes of the duplicate cells replaced by canonical ones
+   */
+  public long getBytesSaved() {
+    return bytesSaved.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "CellArena cells=%d hits=%d misses=%d bytesSaved=%d",
+        size(), hits.get(), misses.get(), bytesSaved.get());
+  }
+}
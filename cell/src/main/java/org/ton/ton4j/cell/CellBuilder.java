@@ -88,7 +88,12 @@ public class CellBuilder {
   }
 
   public CellBuilder storeUint(long number, int bitLength) {
-    return storeUint(BigInteger.valueOf(number), bitLength);
+    checkBitsOverflow(bitLength);
+    if (number < 0) {
+      checkSign(BigInteger.valueOf(number));
+    }
+    cell.bits.writeUint(number, bitLength);
+    return this;
   }
 
   public CellBuilder storeUintMaybe(long number, int bitLength) {
@@ -96,7 +101,7 @@ public class CellBuilder {
   }
 
   public CellBuilder storeUint(int number, int bitLength) {
-    return storeUint(BigInteger.valueOf(number), bitLength);
+    return storeUint((long) number, bitLength);
   }
 
   public CellBuilder storeUintMaybe(int number, int bitLength) {
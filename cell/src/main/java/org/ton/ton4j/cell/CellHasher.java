@@ -0,0 +1,166 @@
+package org.ton.ton4j.cell;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calculates hashes of large cell graphs, such as blocks or shard states parsed with lazy hashes,
+ * in parallel. Cells are grouped by their height above the already hashed cells, so all cells of a
+ * level depend only on lower levels and are hashed concurrently, a level at a time.
+ *
+ * <pre>
+ * Cell state = Cell.fromBoc(boc, true);
+ * CellHasher.calculateHashes(Collections.singletonList(state), ForkJoinPool.commonPool());
+ * </pre>
+ */
+public final class CellHasher {
+
+  /** Levels with fewer cells and subranges of this size are hashed by a single thread */
+  private static final int BATCH_SIZE = 256;
+
+  private static final ThreadLocal<MessageDigest> SHA256 =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+              throw new Error(e);
+            }
+          });
+
+  private CellHasher() {}
+
+  /**
+   * @return SHA-256 digest of the current thread, to be reset before use as it may hold input of
+   *     a cell whose hashing failed
+   */
+  static MessageDigest sha256() {
+    return SHA256.get();
+  }
+
+  /**
+   * Calculates hashes of all cells reachable from the roots which do not have them yet.
+   *
+   * @param roots roots of the graph
+   * @param pool pool to hash the levels in, null to hash in the current thread
+   * @return number of hashed cells
+   */
+  public static int calculateHashes(List<Cell> roots, ForkJoinPool pool) {
+    if (pool == null || pool.getParallelism() == 1) {
+      return walk(roots, null);
+    }
+    List<List<Cell>> levels = new ArrayList<>();
+    int count = walk(roots, levels);
+    for (List<Cell> level : levels) {
+      if (level.size() < BATCH_SIZE) {
+        hash(level, 0, level.size());
+      } else {
+        pool.invoke(new HashRange(level, 0, level.size()));
+      }
+    }
+    return count;
+  }
+
+  private static boolean hasHashes(Cell cell) {
+    byte[] h = cell.getHashes();
+    return h != null && h.length != 0;
+  }
+
+  /**
+   * Walks cells without hashes in post-order. Without levels the cells are hashed as they are
+   * visited, otherwise they are grouped by height: cells of level 0 reference only hashed cells,
+   * cells of level n reference cells of lower levels.
+   *
+   * @return number of visited cells
+   */
+  private static int walk(List<Cell> roots, List<List<Cell>> levels) {
+    Map<Cell, Integer> heights = levels == null ? null : new IdentityHashMap<>();
+    // a frame is a cell and the position of its next ref
+    Cell[] cells = new Cell[64];
+    int[] positions = new int[64];
+    int count = 0;
+    for (Cell root : roots) {
+      if (visited(root, heights)) {
+        continue;
+      }
+      int top = 0;
+      cells[0] = root;
+      positions[0] = 0;
+      while (top >= 0) {
+        Cell cell = cells[top];
+        int pos = positions[top];
+        if (pos < cell.refs.size()) {
+          positions[top] = pos + 1;
+          Cell ref = cell.refs.get(pos);
+          if (!visited(ref, heights)) {
+            if (++top == cells.length) {
+              cells = Arrays.copyOf(cells, top * 2);
+              positions = Arrays.copyOf(positions, top * 2);
+            }
+            cells[top] = ref;
+            positions[top] = 0;
+          }
+          continue;
+        }
+        cells[top--] = null;
+        count++;
+        if (heights == null) {
+          cell.calculateHashes();
+          continue;
+        }
+        int height = 0;
+        for (Cell ref : cell.refs) {
+          Integer h = heights.get(ref);
+          if (h != null && h >= height) {
+            height = h + 1;
+          }
+        }
+        heights.put(cell, height);
+        while (levels.size() <= height) {
+          levels.add(new ArrayList<>());
+        }
+        levels.get(height).add(cell);
+      }
+    }
+    return count;
+  }
+
+  private static boolean visited(Cell cell, Map<Cell, Integer> heights) {
+    return hasHashes(cell) || (heights != null && heights.containsKey(cell));
+  }
+
+  private static void hash(List<Cell> cells, int from, int to) {
+    for (int i = from; i < to; i++) {
+      cells.get(i).calculateHashes();
+    }
+  }
+
+  private static final class HashRange extends RecursiveAction {
+    private final List<Cell> cells;
+    private final int from;
+    private final int to;
+
+    HashRange(List<Cell> cells, int from, int to) {
+      this.cells = cells;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= BATCH_SIZE) {
+        hash(cells, from, to);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new HashRange(cells, from, mid), new HashRange(cells, mid, to));
+    }
+  }
+}
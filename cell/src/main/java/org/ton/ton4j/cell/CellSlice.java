@@ -245,6 +245,32 @@ public class CellSlice implements Serializable {
     }
   }
 
+  /**
+   * Returns a lazy view of the HashMap stored in this slice, entries are parsed on lookup only.
+   * Like loadDict, does not move the slice.
+   */
+  public TonHashMapView loadDictView(int n) {
+    return new TonHashMapView(this.clone(), n);
+  }
+
+  /** Loads HashMapE as a lazy view, entries are parsed on lookup only. */
+  public TonHashMapView loadDictViewE(int n) {
+    boolean isEmpty = !this.loadBit();
+    return new TonHashMapView(isEmpty ? null : this.loadRef(), n);
+  }
+
+  /**
+   * Loads HashMapAugE as a lazy view, entries are parsed on lookup only. Values start with the
+   * extra of the leaf, the extra of the root is left in the slice.
+   */
+  public TonHashMapView loadDictViewAugE(int n) {
+    if (this.isExotic()) {
+      return new TonHashMapView((Cell) null, n);
+    }
+    boolean isEmpty = !this.loadBit();
+    return new TonHashMapView(isEmpty ? null : this.loadRef(), n);
+  }
+
   public TonPfxHashMap loadDictPfx(
       int n, Function<BitString, Object> keyParser, Function<Cell, Object> valueParser) {
     TonPfxHashMap x = new TonPfxHashMap(n);
@@ -326,6 +352,16 @@ public class CellSlice implements Serializable {
     return bits.readBit();
   }
 
+  /**
+   * Same as loadBit(), without boxing
+   *
+   * @return boolean
+   */
+  public boolean loadBoolean() {
+    checkBitsOverflow(1);
+    return bits.readUintLong(1) != 0;
+  }
+
   public boolean preloadBit() {
     checkBitsOverflow(1);
     return bits.get(bits.readCursor);
@@ -372,8 +408,7 @@ public class CellSlice implements Serializable {
    */
   public byte[] loadBytes(int length) {
     checkBitsOverflow(length);
-    BitString bitString = bits.readBits(length);
-    return bitString.toByteArray();
+    return bits.readBytes(length);
   }
 
   public List<BigInteger> loadList(int elementNum, int elementBitLength) {
@@ -410,39 +445,17 @@ public class CellSlice implements Serializable {
   public int[] loadSlice(int length) {
     checkBitsOverflow(length);
 
-    // Calculate how many bytes we'll need
-    int bytesNeeded = (length + 7) / 8;
-    int[] result = new int[bytesNeeded];
-
-    // Save current position
-    int savedPosition = bits.readCursor;
-
-    // Read directly into result array without creating intermediate BitString
-    for (int i = 0; i < bytesNeeded; i++) {
-      int value = 0;
-      for (int j = 0; j < 8 && (i * 8 + j) < length; j++) {
-        if (bits.readCursor < bits.writeCursor) {
-          if (bits.readBit()) {
-            value |= (1 << (7 - j));
-          }
-        }
-      }
-      result[i] = value & 0xFF;
-    }
-
-    // If we didn't read exactly 'length' bits due to partial byte at the end,
-    // adjust the cursor position
-    if (bits.readCursor != savedPosition + length) {
-      bits.readCursor = savedPosition + length;
+    byte[] bytes = bits.readBytes(length);
+    int[] result = new int[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      result[i] = bytes[i] & 0xFF;
     }
-
     return result;
   }
 
   public String loadString(int length) {
     checkBitsOverflow(length);
-    BitString bitString = bits.readBits(length);
-    return new String(bitString.toByteArray());
+    return new String(bits.readBytes(length));
   }
 
   /**
@@ -493,6 +506,54 @@ public class CellSlice implements Serializable {
     return bits.readInt(length);
   }
 
+  /**
+   * Loads unsigned int without allocating a BigInteger, same as loadUint(length).longValue()
+   *
+   * @param length in bits, 0..64
+   * @return long, a 64-bit value above Long.MAX_VALUE is negative
+   */
+  public long loadUintAsLong(int length) {
+    checkBitsOverflow(length);
+    return bits.readUintLong(length);
+  }
+
+  /**
+   * Loads unsigned int without allocating a BigInteger, same as loadUint(length).intValue()
+   *
+   * @param length in bits, 0..32
+   * @return int, a 32-bit value above Integer.MAX_VALUE is negative
+   */
+  public int loadUintAsInt(int length) {
+    if (length > 32) {
+      throw new Error("Can't load " + length + " bits into int");
+    }
+    return (int) loadUintAsLong(length);
+  }
+
+  /**
+   * Loads signed int without allocating a BigInteger, same as loadInt(length).longValue()
+   *
+   * @param length in bits, 1..64
+   * @return long
+   */
+  public long loadIntAsLong(int length) {
+    checkBitsOverflow(length);
+    return bits.readIntLong(length);
+  }
+
+  /**
+   * Loads signed int without allocating a BigInteger, same as loadInt(length).intValue()
+   *
+   * @param length in bits, 1..32
+   * @return int
+   */
+  public int loadIntAsInt(int length) {
+    if (length > 32) {
+      throw new Error("Can't load " + length + " bits into int");
+    }
+    return (int) loadIntAsLong(length);
+  }
+
   public BigInteger loadIntMaybe(int length) {
     if (bits.readBit()) {
       return bits.readInt(length);
@@ -512,7 +573,7 @@ public class CellSlice implements Serializable {
   public BigInteger loadUint(int length) {
     checkBitsOverflow(length);
     if (length == 0) return BigInteger.ZERO;
-    return new BigInteger(loadBits(length).toBitString(), 2);
+    return bits.readUint(length);
   }
 
   public BigInteger preloadInt(int bitLength) {
@@ -531,49 +592,16 @@ public class CellSlice implements Serializable {
   }
 
   /**
-   * Preload an unsigned integer without advancing the read cursor Optimized version with special
-   * handling for small integers
+   * Preload an unsigned integer without advancing the read cursor
    *
    * @param bitLength Length of the integer in bits
-   * @return The integer value
+   * @return The integer value, zero if there are not enough bits
    */
   public BigInteger preloadUint(int bitLength) {
-    // Fast path for common small bit lengths
-    if (bitLength <= 64 && bits.readCursor + bitLength <= bits.writeCursor) {
-      // Save current position
-      int savedPosition = bits.readCursor;
-      try {
-        // For small integers, use a more efficient approach
-        long result = 0;
-        for (int i = 0; i < bitLength; i++) {
-          if (bits.readBit()) {
-            result = (result << 1) | 1;
-          } else {
-            result = result << 1;
-          }
-        }
-        // Restore position
-        bits.readCursor = savedPosition;
-        return BigInteger.valueOf(result);
-      } catch (Throwable e) {
-        // Restore position on error
-        bits.readCursor = savedPosition;
-        return BigInteger.ZERO;
-      }
-    } else {
-      // For larger integers, use the standard approach
-      int savedPosition = bits.readCursor;
-      try {
-        BigInteger result = loadUint(bitLength);
-        // Restore position
-        bits.readCursor = savedPosition;
-        return result;
-      } catch (Throwable e) {
-        // Restore position on error
-        bits.readCursor = savedPosition;
-        return BigInteger.ZERO;
-      }
+    if (bitLength == 0 || bitLength > bits.getUsedBits()) {
+      return BigInteger.ZERO;
     }
+    return bits.preReadUint(bitLength);
   }
 
   public BigInteger loadUintLEQ(BigInteger n) {
@@ -614,6 +642,32 @@ public class CellSlice implements Serializable {
     return loadVarUInteger(16);
   }
 
+  /**
+   * Loads coins amount without allocating a BigInteger if it fits into long, i.e. for any amount
+   * below 2^63 nano-coins.
+   *
+   * @return amount in nano-coins
+   * @throws ArithmeticException if the amount does not fit into long, the slice is left unchanged
+   *     so loadCoins() can be used instead
+   */
+  public long loadCoinsAsLong() {
+    int len = loadUintAsInt(4);
+    if (len == 0) {
+      return 0;
+    }
+    if (len < 8) {
+      return loadUintAsLong(len * 8);
+    }
+    checkBitsOverflow(len * 8);
+    long value = bits.preReadUintLong(64);
+    if (len > 8 || value < 0) {
+      bits.readCursor -= 4;
+      throw new ArithmeticException("Coins amount does not fit into long");
+    }
+    bits.readCursor += 64;
+    return value;
+  }
+
   public BigInteger preloadCoins() {
     // Save current position instead of cloning the entire BitString
     int savedPosition = bits.readCursor;
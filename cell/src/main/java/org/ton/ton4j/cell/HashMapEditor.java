@@ -0,0 +1,228 @@
+package org.ton.ton4j.cell;
+
+import static java.util.Objects.isNull;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.ton.ton4j.bitstring.BitString;
+
+/**
+ * Copy-on-write updates of Hashmap edges. Only the edges on the path to the key are rebuilt, all
+ * other subtrees are shared with the original dictionary, so an update costs O(key size) cells and
+ * hashes instead of serializing the whole dictionary.
+ */
+final class HashMapEditor {
+
+  private final int keySize;
+  private final boolean prefix;
+
+  /** loads the extra of an edge from the slice positioned after the label, null if not augmented */
+  private final Function<CellSlice, Cell> extraLoader;
+
+  private final BiFunction<Cell, Cell, Cell> forkExtra;
+
+  /**
+   * @param keySize key size in bits, the maximal key size for prefix dictionaries
+   * @param prefix PfxHashmap with phmn_leaf$0 and phmn_fork$1 nodes
+   * @param extraLoader loads the extra of HashmapAug edges, null for not augmented dictionaries
+   * @param forkExtra computes the extra of a fork from the extras of its children
+   */
+  HashMapEditor(
+      int keySize,
+      boolean prefix,
+      Function<CellSlice, Cell> extraLoader,
+      BiFunction<Cell, Cell, Cell> forkExtra) {
+    this.keySize = keySize;
+    this.prefix = prefix;
+    this.extraLoader = extraLoader;
+    this.forkExtra = forkExtra;
+  }
+
+  /**
+   * @param root root edge, or null if empty
+   * @param leaf bits and refs of the leaf after the label
+   * @return new root edge
+   */
+  Cell set(Cell root, BitString key, Cell leaf) {
+    return set(root, keySize, toBits(key), 0, leaf);
+  }
+
+  /**
+   * @param root root edge, or null if empty
+   * @return new root edge, null if the dictionary became empty, root if the key is absent
+   */
+  Cell delete(Cell root, BitString key) {
+    return delete(root, keySize, toBits(key), 0);
+  }
+
+  private boolean[] toBits(BitString key) {
+    int n = key.getUsedBits();
+    if (prefix ? n > keySize : n != keySize) {
+      throw new IllegalArgumentException("key size " + n + " bits, expected " + keySize);
+    }
+    boolean[] bits = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      bits[i] = key.get(key.readCursor + i);
+    }
+    return bits;
+  }
+
+  /**
+   * @param m maximal label length of the edge
+   * @param pos position in the key of the first bit of the edge label
+   */
+  private Cell set(Cell edgeCell, int m, boolean[] key, int pos, Cell leaf) {
+    int rest = key.length - pos;
+    if (isNull(edgeCell)) {
+      return leafEdge(key, pos, rest, m, leaf);
+    }
+    CellSlice edge = parseEdge(edgeCell);
+    HmLabel label = HmLabel.load(edge, m);
+    boolean[] labelBits = label.bits(edge);
+    label.skip(edge);
+
+    int common = 0;
+    int max = Math.min(label.length, rest);
+    while (common < max && labelBits[common] == key[pos + common]) {
+      common++;
+    }
+
+    if (common < label.length) {
+      if (common == rest) {
+        throw new IllegalArgumentException("key is a prefix of another key of the dictionary");
+      }
+      // split the edge by a fork at the first differing bit
+      int childM = m - common - 1;
+      Cell existing = edge(labelBits, common + 1, label.length - common - 1, childM, edge);
+      Cell added = leafEdge(key, pos + common + 1, rest - common - 1, childM, leaf);
+      return labelBits[common]
+          ? fork(labelBits, common, m, added, existing)
+          : fork(labelBits, common, m, existing, added);
+    }
+
+    if (isLeaf(edge, m, label.length)) {
+      if (rest != label.length) {
+        throw new IllegalArgumentException("another key of the dictionary is a prefix of key");
+      }
+      return leafEdge(labelBits, 0, label.length, m, leaf);
+    }
+    if (rest == label.length) {
+      throw new IllegalArgumentException("key is a prefix of another key of the dictionary");
+    }
+
+    int childM = m - label.length - 1;
+    int b = key[pos + label.length] ? 1 : 0;
+    Cell[] children = {edge.refs.get(0), edge.refs.get(1)};
+    children[b] = set(children[b], childM, key, pos + label.length + 1, leaf);
+    return fork(labelBits, label.length, m, children[0], children[1]);
+  }
+
+  private Cell delete(Cell edgeCell, int m, boolean[] key, int pos) {
+    if (isNull(edgeCell)) {
+      return null;
+    }
+    int rest = key.length - pos;
+    CellSlice edge = parseEdge(edgeCell);
+    HmLabel label = HmLabel.load(edge, m);
+    if (label.length > rest) {
+      return edgeCell;
+    }
+    for (int i = 0; i < label.length; i++) {
+      if (label.bit(edge, i) != key[pos + i]) {
+        return edgeCell;
+      }
+    }
+    boolean[] labelBits = label.bits(edge);
+    label.skip(edge);
+
+    if (isLeaf(edge, m, label.length)) {
+      return rest == label.length ? null : edgeCell;
+    }
+    if (rest == label.length) {
+      return edgeCell;
+    }
+
+    int childM = m - label.length - 1;
+    int b = key[pos + label.length] ? 1 : 0;
+    Cell[] children = {edge.refs.get(0), edge.refs.get(1)};
+    Cell child = delete(children[b], childM, key, pos + label.length + 1);
+    if (child == children[b]) {
+      return edgeCell;
+    }
+    if (!isNull(child)) {
+      children[b] = child;
+      return fork(labelBits, label.length, m, children[0], children[1]);
+    }
+
+    // the fork has a single child left, merge it into this edge
+    CellSlice other = parseEdge(children[1 - b]);
+    HmLabel otherLabel = HmLabel.load(other, childM);
+    boolean[] merged = new boolean[label.length + 1 + otherLabel.length];
+    System.arraycopy(labelBits, 0, merged, 0, label.length);
+    merged[label.length] = b == 0;
+    System.arraycopy(otherLabel.bits(other), 0, merged, label.length + 1, otherLabel.length);
+    otherLabel.skip(other);
+    return edge(merged, 0, merged.length, m, other);
+  }
+
+  private CellSlice parseEdge(Cell edgeCell) {
+    if (edgeCell.isExotic()) {
+      throw new Error("cannot update a pruned branch of the dictionary");
+    }
+    return CellSlice.beginParse(edgeCell);
+  }
+
+  /**
+   * @param edge slice positioned after the label
+   */
+  private boolean isLeaf(CellSlice edge, int m, int labelLength) {
+    if (prefix) {
+      return !edge.bits.get(edge.bits.readCursor);
+    }
+    return labelLength == m;
+  }
+
+  /**
+   * @return edge with the label and the node of an existing edge
+   */
+  private Cell edge(boolean[] label, int from, int length, int m, CellSlice node) {
+    CellBuilder b = CellBuilder.beginCell();
+    HmLabel.store(b, label, from, length, m);
+    b.storeSlice(node);
+    return b.endCell();
+  }
+
+  private Cell leafEdge(boolean[] label, int from, int length, int m, Cell leaf) {
+    CellBuilder b = CellBuilder.beginCell();
+    HmLabel.store(b, label, from, length, m);
+    if (prefix) {
+      b.storeBit(false); // phmn_leaf$0
+    }
+    b.storeCell(leaf);
+    return b.endCell();
+  }
+
+  private Cell fork(boolean[] label, int length, int m, Cell left, Cell right) {
+    CellBuilder b = CellBuilder.beginCell();
+    HmLabel.store(b, label, 0, length, m);
+    if (prefix) {
+      b.storeBit(true); // phmn_fork$1
+    }
+    if (!isNull(extraLoader)) {
+      int childM = m - length - 1;
+      b.storeCell(forkExtra.apply(extra(left, childM), extra(right, childM)));
+    }
+    b.storeRef(left);
+    b.storeRef(right);
+    return b.endCell();
+  }
+
+  /**
+   * @return extra of a HashmapAug edge, stored after the label of both leaves and forks
+   */
+  Cell extra(Cell edgeCell, int m) {
+    CellSlice edge = parseEdge(edgeCell);
+    HmLabel.load(edge, m).skip(edge);
+    return extraLoader.apply(edge);
+  }
+}
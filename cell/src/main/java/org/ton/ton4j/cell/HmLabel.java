@@ -0,0 +1,145 @@
+package org.ton.ton4j.cell;
+
+import org.ton.ton4j.bitstring.BitString;
+
+/** HmLabel of a Hashmap edge, read without moving the slice until skipped */
+final class HmLabel {
+  /** offset of label bits from the slice position, for hml_same the offset of v */
+  final int offset;
+
+  final int length;
+  final boolean same;
+
+  /** label size in the slice */
+  final int size;
+
+  private HmLabel(int offset, int length, boolean same, int size) {
+    this.offset = offset;
+    this.length = length;
+    this.same = same;
+    this.size = size;
+  }
+
+  /**
+   * @param m maximal length of the label
+   */
+  static HmLabel load(CellSlice edge, int m) {
+    BitString bits = edge.bits;
+    int p = bits.readCursor;
+    int lenBits = lengthBits(m);
+    if (!bits.get(p)) {
+      // hml_short$0 {m:#} {n:#} len:(Unary ~n) s:(n * Bit) = HmLabel ~n m;
+      int n = 0;
+      while (bits.get(p + 1 + n)) {
+        n++;
+      }
+      return new HmLabel(n + 2, n, false, 2 + 2 * n);
+    }
+    if (!bits.get(p + 1)) {
+      // hml_long$10 {m:#} n:(#<= m) s:(n * Bit) = HmLabel ~n m;
+      int n = (int) readUint(bits, p + 2, lenBits);
+      return new HmLabel(2 + lenBits, n, false, 2 + lenBits + n);
+    }
+    // hml_same$11 {m:#} v:Bit n:(#<= m) = HmLabel ~n m;
+    int n = (int) readUint(bits, p + 3, lenBits);
+    return new HmLabel(2, n, true, 3 + lenBits);
+  }
+
+  /**
+   * @return i-th bit of the label
+   */
+  boolean bit(CellSlice edge, int i) {
+    return edge.bits.get(edge.bits.readCursor + (same ? offset : offset + i));
+  }
+
+  /**
+   * @return label bits
+   */
+  boolean[] bits(CellSlice edge) {
+    boolean[] result = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = bit(edge, i);
+    }
+    return result;
+  }
+
+  void skip(CellSlice edge) {
+    edge.skipBits(size);
+  }
+
+  /** Source of label bits */
+  interface Bits {
+    boolean get(int i);
+
+    /**
+     * @return n bits starting at from as the low bits of a long, n is at most 63
+     */
+    default long get(int from, int n) {
+      long v = 0;
+      for (int i = 0; i < n; i++) {
+        v = (v << 1) | (get(from + i) ? 1 : 0);
+      }
+      return v;
+    }
+  }
+
+  /**
+   * @param label bits of the label, starting at from
+   * @param m maximal length of the label
+   */
+  static void store(CellBuilder builder, boolean[] label, int from, int length, int m) {
+    store(builder, i -> label[from + i], length, m);
+  }
+
+  /**
+   * Stores the shortest encoding of the label, the same one the reference implementation picks, so
+   * the resulting cells have canonical hashes.
+   *
+   * @param m maximal length of the label
+   */
+  static void store(CellBuilder builder, Bits label, int length, int m) {
+    int lenBits = lengthBits(m);
+    boolean first = length > 0 && label.get(0);
+    boolean same = length > 1;
+    for (int i = 1; same && i < length; i++) {
+      same = label.get(i) == first;
+    }
+    if (same && lenBits < 2 * length - 1) {
+      builder.storeBit(true);
+      builder.storeBit(true);
+      builder.storeBit(first);
+      builder.storeUint(length, lenBits);
+      return;
+    }
+    if (lenBits < length) {
+      builder.storeBit(true);
+      builder.storeBit(false);
+      builder.storeUint(length, lenBits);
+    } else {
+      builder.storeBit(false);
+      for (int i = 0; i < length; i++) {
+        builder.storeBit(true);
+      }
+      builder.storeBit(false);
+    }
+    for (int i = 0; i < length; i += 63) {
+      int n = Math.min(63, length - i);
+      builder.storeUint(label.get(i, n), n);
+    }
+  }
+
+  /**
+   * @return size of the n field of hml_long and hml_same, ceil(log2(m + 1))
+   */
+  static int lengthBits(int m) {
+    return 32 - Integer.numberOfLeadingZeros(m);
+  }
+
+  private static long readUint(BitString bits, int pos, int n) {
+    long v = 0;
+    for (int i = 0; i < n; i++) {
+      v = (v << 1) | (bits.get(pos + i) ? 1 : 0);
+    }
+    return v;
+  }
+}
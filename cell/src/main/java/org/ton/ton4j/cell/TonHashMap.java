@@ -279,6 +279,32 @@ public class TonHashMap implements Serializable {
     return b.endCell();
   }
 
+  /**
+   * Sets the value of a key without re-serializing the dictionary. Only the cells on the path to
+   * the key are rebuilt, all other subtrees are shared with root, so the update costs O(keySize).
+   *
+   * @param root root edge of Hashmap, or null for an empty HashmapE
+   * @param keySize key size in bits
+   * @param key key of keySize bits
+   * @param value bits and refs of the value
+   * @return new root edge
+   */
+  public static Cell set(Cell root, int keySize, BitString key, Cell value) {
+    return new HashMapEditor(keySize, false, null, null).set(root, key, value);
+  }
+
+  /**
+   * Removes a key without re-serializing the dictionary, see {@link #set}.
+   *
+   * @param root root edge of Hashmap, or null for an empty HashmapE
+   * @param keySize key size in bits
+   * @param key key of keySize bits
+   * @return new root edge, null if the dictionary became empty, root if the key is absent
+   */
+  public static Cell delete(Cell root, int keySize, BitString key) {
+    return new HashMapEditor(keySize, false, null, null).delete(root, key);
+  }
+
   /**
    * Deserialize label
    *
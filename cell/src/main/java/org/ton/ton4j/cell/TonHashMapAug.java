@@ -225,6 +225,46 @@ public class TonHashMapAug  implements Serializable {
         return b.endCell();
     }
 
+    /**
+     * Sets the value and extra of a key without re-serializing the dictionary. Only the cells on the
+     * path to the key are rebuilt and the fork extras along it are recomputed, all other subtrees are
+     * shared with root.
+     *
+     * @param root        root edge of HashmapAug, or null for an empty HashmapAugE
+     * @param keySize     key size in bits
+     * @param key         key of keySize bits
+     * @param value       bits and refs of the value
+     * @param extra       bits and refs of the extra of the leaf
+     * @param extraLoader loads an extra from the slice, the extra of every edge follows its label
+     * @param forkExtra   computes the extra of a fork from the extras of its left and right edges
+     * @return new root edge
+     */
+    public static Cell set(Cell root, int keySize, BitString key, Cell value, Cell extra,
+                           Function<CellSlice, Cell> extraLoader,
+                           BiFunction<Cell, Cell, Cell> forkExtra) {
+        Cell leaf = CellBuilder.beginCell().storeCell(extra).storeCell(value).endCell();
+        return new HashMapEditor(keySize, false, extraLoader, forkExtra).set(root, key, leaf);
+    }
+
+    /**
+     * Removes a key without re-serializing the dictionary, see {@link #set}.
+     *
+     * @return new root edge, null if the dictionary became empty, root if the key is absent
+     */
+    public static Cell delete(Cell root, int keySize, BitString key,
+                              Function<CellSlice, Cell> extraLoader,
+                              BiFunction<Cell, Cell, Cell> forkExtra) {
+        return new HashMapEditor(keySize, false, extraLoader, forkExtra).delete(root, key);
+    }
+
+    /**
+     * @param root root edge of HashmapAug
+     * @return extra of the whole dictionary, i.e. of its root edge
+     */
+    public static Cell getExtra(Cell root, int keySize, Function<CellSlice, Cell> extraLoader) {
+        return new HashMapEditor(keySize, false, extraLoader, null).extra(root, keySize);
+    }
+
     public BitString deserializeLabel(CellSlice edge, int m) {
         if (!edge.loadBit()) {
             // hml_short$0 {m:#} {n:#} len:(Unary ~n) s:(n * Bit) = HmLabel ~n m;
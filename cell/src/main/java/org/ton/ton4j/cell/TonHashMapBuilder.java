@@ -0,0 +1,320 @@
+package org.ton.ton4j.cell;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.ton.ton4j.bitstring.BitString;
+
+/**
+ * Builds a Hashmap with fixed length keys in a single bottom-up pass. Keys are kept packed in a
+ * long array, so there are no per entry BitString, label String or PatriciaTreeNode objects as in
+ * {@link TonHashMap#serialize}. Keys added in ascending order are used as is, otherwise they are
+ * sorted on build.
+ *
+ * <p>The result is the same cell as serialize gives for the same entries, with labels in their
+ * shortest form.
+ *
+ * <pre>
+ * TonHashMapBuilder builder = new TonHashMapBuilder(16, messages.size());
+ * for (int i = 0; i &lt; messages.size(); i++) {
+ *   builder.put(i, messages.get(i));
+ * }
+ * Cell dict = CellBuilder.beginCell().storeDict(builder.build()).endCell();
+ * </pre>
+ */
+public class TonHashMapBuilder {
+
+  /** Subtrees with fewer entries are built by the current thread */
+  private static final int PARALLEL_THRESHOLD = 2048;
+
+  private final int keySize;
+  private final int keyWords;
+
+  /** keys packed MSB-first, keyWords longs per key */
+  private long[] keys;
+
+  private Cell[] values;
+  private int size;
+  private boolean sorted = true;
+
+  /**
+   * @param keySize key size in bits
+   */
+  public TonHashMapBuilder(int keySize) {
+    this(keySize, 16);
+  }
+
+  /**
+   * @param keySize key size in bits
+   * @param expectedSize expected number of entries
+   */
+  public TonHashMapBuilder(int keySize, int expectedSize) {
+    if (keySize <= 0 || keySize > 1023) {
+      throw new IllegalArgumentException("keySize must be in 1..1023, " + keySize);
+    }
+    this.keySize = keySize;
+    this.keyWords = (keySize + 63) >>> 6;
+    int capacity = Math.max(expectedSize, 1);
+    this.keys = new long[capacity * keyWords];
+    this.values = new Cell[capacity];
+  }
+
+  /**
+   * @param key key of keySize bits
+   * @param value bits and refs of the value
+   */
+  public TonHashMapBuilder put(BitString key, Cell value) {
+    if (key.getUsedBits() != keySize) {
+      throw new IllegalArgumentException(
+          "key size " + key.getUsedBits() + " bits, expected " + keySize);
+    }
+    int base = append(value);
+    for (int i = 0; i < keySize; i++) {
+      if (key.get(key.readCursor + i)) {
+        keys[base + (i >>> 6)] |= 1L << (63 - (i & 63));
+      }
+    }
+    checkOrder();
+    return this;
+  }
+
+  /**
+   * @param key unsigned key of at most keySize bits
+   * @param value bits and refs of the value
+   */
+  public TonHashMapBuilder put(BigInteger key, Cell value) {
+    if (key.signum() < 0 || key.bitLength() > keySize) {
+      throw new IllegalArgumentException("key " + key + " does not fit " + keySize + " bits");
+    }
+    int base = append(value);
+    BigInteger aligned = key.shiftLeft(keyWords * 64 - keySize);
+    for (int w = 0; w < keyWords; w++) {
+      keys[base + w] = aligned.shiftRight((keyWords - 1 - w) * 64).longValue();
+    }
+    checkOrder();
+    return this;
+  }
+
+  /**
+   * @param key unsigned key of at most keySize bits, keySize must not exceed 64
+   * @param value bits and refs of the value
+   */
+  public TonHashMapBuilder put(long key, Cell value) {
+    if (keySize > 64) {
+      throw new IllegalArgumentException("keySize " + keySize + " does not fit long");
+    }
+    if (keySize < 64 && (key >>> keySize) != 0) {
+      throw new IllegalArgumentException("key " + key + " does not fit " + keySize + " bits");
+    }
+    int base = append(value);
+    keys[base] = key << (64 - keySize);
+    checkOrder();
+    return this;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Builds the dictionary in the current thread
+   *
+   * @return root edge of the Hashmap, or null if there are no entries (empty HashmapE)
+   */
+  public Cell build() {
+    return build(null);
+  }
+
+  /**
+   * Builds the dictionary, subtrees of large dictionaries are built in parallel in the pool
+   *
+   * @param pool pool for subtrees, null to build in the current thread
+   * @return root edge of the Hashmap, or null if there are no entries (empty HashmapE)
+   */
+  public Cell build(ForkJoinPool pool) {
+    if (size == 0) {
+      return null;
+    }
+    if (!sorted) {
+      sort();
+    }
+    if (pool == null || size < PARALLEL_THRESHOLD) {
+      return edge(0, size, 0, null);
+    }
+    return pool.invoke(new EdgeTask(0, size, 0));
+  }
+
+  private int append(Cell value) {
+    if (size == values.length) {
+      int capacity = values.length * 2;
+      keys = Arrays.copyOf(keys, capacity * keyWords);
+      values = Arrays.copyOf(values, capacity);
+    }
+    values[size] = value;
+    return size++ * keyWords;
+  }
+
+  private void checkOrder() {
+    if (sorted && size > 1 && compare(size - 2, size - 1) >= 0) {
+      sorted = false;
+    }
+  }
+
+  private int compare(int i, int j) {
+    for (int w = 0; w < keyWords; w++) {
+      int c = Long.compareUnsigned(keys[i * keyWords + w], keys[j * keyWords + w]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private boolean bit(int i, int pos) {
+    return (keys[i * keyWords + (pos >>> 6)] << (pos & 63)) < 0;
+  }
+
+  /**
+   * @return length of the common prefix of keys i and j
+   */
+  private int commonPrefix(int i, int j) {
+    for (int w = 0; w < keyWords; w++) {
+      long x = keys[i * keyWords + w] ^ keys[j * keyWords + w];
+      if (x != 0) {
+        return Math.min(w * 64 + Long.numberOfLeadingZeros(x), keySize);
+      }
+    }
+    return keySize;
+  }
+
+  /** Sorts entries by key with a merge sort of their indexes and rejects duplicates */
+  private void sort() {
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    int[] buffer = new int[size];
+    for (int width = 1; width < size; width *= 2) {
+      for (int lo = 0; lo < size; lo += 2 * width) {
+        int mid = Math.min(lo + width, size);
+        int hi = Math.min(lo + 2 * width, size);
+        int a = lo;
+        int b = mid;
+        for (int k = lo; k < hi; k++) {
+          boolean takeLeft = b >= hi || (a < mid && compare(order[a], order[b]) <= 0);
+          buffer[k] = takeLeft ? order[a++] : order[b++];
+        }
+      }
+      int[] t = order;
+      order = buffer;
+      buffer = t;
+    }
+
+    long[] sortedKeys = new long[size * keyWords];
+    Cell[] sortedValues = new Cell[size];
+    for (int i = 0; i < size; i++) {
+      System.arraycopy(keys, order[i] * keyWords, sortedKeys, i * keyWords, keyWords);
+      sortedValues[i] = values[order[i]];
+    }
+    keys = sortedKeys;
+    values = sortedValues;
+    for (int i = 1; i < size; i++) {
+      if (compare(i - 1, i) == 0) {
+        throw new IllegalArgumentException("duplicate key at index " + order[i]);
+      }
+    }
+    sorted = true;
+  }
+
+  /**
+   * Builds the edge of the sorted keys lo..hi-1, which share the first pos bits
+   *
+   * @param pool pool to fork large subtrees in, null to build them in the current thread
+   */
+  private Cell edge(int lo, int hi, int pos, ForkJoinPool pool) {
+    int m = keySize - pos;
+    CellBuilder b = CellBuilder.beginCell();
+    if (hi - lo == 1) {
+      HmLabel.store(b, new KeyBits(lo, pos), m, m);
+      b.storeCell(values[lo]);
+      return b.endCell();
+    }
+
+    int fork = commonPrefix(lo, hi - 1);
+    // first key with 1 at the fork bit
+    int left = lo;
+    int right = hi - 1;
+    while (left < right) {
+      int mid = (left + right) >>> 1;
+      if (bit(mid, fork)) {
+        right = mid;
+      } else {
+        left = mid + 1;
+      }
+    }
+
+    Cell leftEdge;
+    Cell rightEdge;
+    if (pool != null && hi - lo >= PARALLEL_THRESHOLD) {
+      EdgeTask task = new EdgeTask(lo, left, fork + 1);
+      task.fork();
+      rightEdge = edge(left, hi, fork + 1, pool);
+      leftEdge = task.join();
+    } else {
+      leftEdge = edge(lo, left, fork + 1, pool);
+      rightEdge = edge(left, hi, fork + 1, pool);
+    }
+
+    HmLabel.store(b, new KeyBits(lo, pos), fork - pos, m);
+    b.storeRef(leftEdge);
+    b.storeRef(rightEdge);
+    return b.endCell();
+  }
+
+  /** Bits of key i from pos, read a word at a time */
+  private final class KeyBits implements HmLabel.Bits {
+    private final int base;
+    private final int pos;
+
+    KeyBits(int i, int pos) {
+      this.base = i * keyWords;
+      this.pos = pos;
+    }
+
+    @Override
+    public boolean get(int i) {
+      int p = pos + i;
+      return (keys[base + (p >>> 6)] << (p & 63)) < 0;
+    }
+
+    @Override
+    public long get(int from, int n) {
+      int p = pos + from;
+      int w = base + (p >>> 6);
+      int shift = p & 63;
+      long v = keys[w] << shift;
+      if (shift + n > 64) {
+        v |= keys[w + 1] >>> (64 - shift);
+      }
+      return v >>> (64 - n);
+    }
+  }
+
+  private final class EdgeTask extends RecursiveTask<Cell> {
+    private final int lo;
+    private final int hi;
+    private final int pos;
+
+    EdgeTask(int lo, int hi, int pos) {
+      this.lo = lo;
+      this.hi = hi;
+      this.pos = pos;
+    }
+
+    @Override
+    protected Cell compute() {
+      return edge(lo, hi, pos, getPool());
+    }
+  }
+}
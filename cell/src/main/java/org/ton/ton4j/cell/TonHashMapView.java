@@ -0,0 +1,306 @@
+package org.ton.ton4j.cell;
+
+import static java.util.Objects.isNull;
+
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.ton.ton4j.bitstring.BitString;
+
+/**
+ * Read-only view of a Hashmap (Patricia Tree) with fixed length keys, which parses only the edges
+ * on the path to the requested keys. A lookup costs O(key size) edges, range iteration visits only
+ * the branches that intersect the range. Use {@link CellSlice#loadDict} to parse all entries.
+ *
+ * <p>Values are returned as slices of the leaf edges positioned after the label. For HashmapAug and
+ * HashmapAugE the slice starts with the extra of the leaf, followed by the value. Pruned branches
+ * are treated as absent.
+ */
+public class TonHashMapView implements Iterable<Map.Entry<BitString, CellSlice>> {
+
+  private final CellSlice root;
+  private final int keySize;
+
+  /**
+   * @param root root edge of a Hashmap, or null for an empty HashmapE
+   * @param keySize key size in bits
+   */
+  public TonHashMapView(CellSlice root, int keySize) {
+    this.root = root;
+    this.keySize = keySize;
+  }
+
+  /**
+   * @param root root edge cell of a Hashmap, or null for an empty HashmapE
+   * @param keySize key size in bits
+   */
+  public TonHashMapView(Cell root, int keySize) {
+    this(isNull(root) ? null : CellSlice.beginParse(root), keySize);
+  }
+
+  public int getKeySize() {
+    return keySize;
+  }
+
+  public boolean isEmpty() {
+    return isNull(root) || !iterator().hasNext();
+  }
+
+  /**
+   * @param key unsigned integer key of keySize bits
+   * @return key as BitString
+   */
+  public BitString key(BigInteger key) {
+    BitString bs = new BitString(keySize);
+    bs.writeUint(key, keySize);
+    return bs;
+  }
+
+  /**
+   * @return slice of the value, or null if the key is absent
+   */
+  public CellSlice get(BitString key) {
+    boolean[] k = toBits(key);
+    if (isNull(root)) {
+      return null;
+    }
+    CellSlice edge = root.clone();
+    int pos = 0;
+    while (true) {
+      if (edge.isExotic()) {
+        return null;
+      }
+      HmLabel label = HmLabel.load(edge, keySize - pos);
+      for (int i = 0; i < label.length; i++) {
+        if (label.bit(edge, i) != k[pos + i]) {
+          return null;
+        }
+      }
+      label.skip(edge);
+      pos += label.length;
+      if (pos == keySize) {
+        return edge;
+      }
+      edge = CellSlice.beginParse(edge.refs.get(k[pos] ? 1 : 0));
+      pos++;
+    }
+  }
+
+  public CellSlice get(BigInteger key) {
+    return get(key(key));
+  }
+
+  public boolean containsKey(BitString key) {
+    return !isNull(get(key));
+  }
+
+  public boolean containsKey(BigInteger key) {
+    return containsKey(key(key));
+  }
+
+  /**
+   * @return entry with the least key, or null if empty
+   */
+  public Map.Entry<BitString, CellSlice> first() {
+    return firstOf(iterator(null, null, false));
+  }
+
+  /**
+   * @return entry with the greatest key, or null if empty
+   */
+  public Map.Entry<BitString, CellSlice> last() {
+    return firstOf(iterator(null, null, true));
+  }
+
+  /**
+   * @return entry with the least key greater than or equal to the key, or null
+   */
+  public Map.Entry<BitString, CellSlice> ceiling(BitString key) {
+    return firstOf(iterator(key, null, false));
+  }
+
+  /**
+   * @return entry with the greatest key less than or equal to the key, or null
+   */
+  public Map.Entry<BitString, CellSlice> floor(BitString key) {
+    return firstOf(iterator(null, key, true));
+  }
+
+  private static Map.Entry<BitString, CellSlice> firstOf(
+      Iterator<Map.Entry<BitString, CellSlice>> it) {
+    return it.hasNext() ? it.next() : null;
+  }
+
+  /** Iterates all entries in ascending key order */
+  @Override
+  public Iterator<Map.Entry<BitString, CellSlice>> iterator() {
+    return iterator(null, null, false);
+  }
+
+  /**
+   * Iterates entries with keys in the range, edges are parsed as the iteration advances.
+   *
+   * @param from least key, inclusive, or null for no lower bound
+   * @param to greatest key, inclusive, or null for no upper bound
+   * @param descending iterate from the greatest key
+   */
+  public Iterator<Map.Entry<BitString, CellSlice>> iterator(
+      BitString from, BitString to, boolean descending) {
+    return new RangeIterator(
+        isNull(from) ? null : toBits(from), isNull(to) ? null : toBits(to), descending);
+  }
+
+  private boolean[] toBits(BitString key) {
+    if (key.getUsedBits() != keySize) {
+      throw new IllegalArgumentException(
+          "key size " + key.getUsedBits() + " bits, expected " + keySize);
+    }
+    boolean[] bits = new boolean[keySize];
+    for (int i = 0; i < keySize; i++) {
+      bits[i] = key.get(key.readCursor + i);
+    }
+    return bits;
+  }
+
+  /** Edge waiting for a visit, pos is the key position of its first bit */
+  private static final class Frame {
+    final CellSlice edge;
+    final int pos;
+    /** bit of the fork leading to the edge, the root has none */
+    final Boolean forkBit;
+
+    final boolean lowerBound;
+    final boolean upperBound;
+
+    Frame(CellSlice edge, int pos, Boolean forkBit, boolean lowerBound, boolean upperBound) {
+      this.edge = edge;
+      this.pos = pos;
+      this.forkBit = forkBit;
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+    }
+  }
+
+  /**
+   * Depth-first walk over the edges, skipping the subtrees outside the range. lowerBound and
+   * upperBound tell that the key prefix so far equals the prefix of from and to, so the next bits
+   * still have to be compared.
+   */
+  private final class RangeIterator implements Iterator<Map.Entry<BitString, CellSlice>> {
+    private final boolean[] from;
+    private final boolean[] to;
+    private final boolean descending;
+    private final boolean[] key = new boolean[keySize];
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private Map.Entry<BitString, CellSlice> next;
+
+    RangeIterator(boolean[] from, boolean[] to, boolean descending) {
+      this.from = from;
+      this.to = to;
+      this.descending = descending;
+      if (!isNull(root)) {
+        stack.push(new Frame(root.clone(), 0, null, !isNull(from), !isNull(to)));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (isNull(next) && !stack.isEmpty()) {
+        next = visit(stack.pop());
+      }
+      return !isNull(next);
+    }
+
+    @Override
+    public Map.Entry<BitString, CellSlice> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<BitString, CellSlice> result = next;
+      next = null;
+      return result;
+    }
+
+    /**
+     * Compares the key bit at pos with the bounds
+     *
+     * @return false if the subtree is outside the range
+     */
+    private boolean inRange(int pos, boolean[] bounds) {
+      boolean b = key[pos];
+      if (bounds[0] && !isNull(from)) {
+        if (b != from[pos]) {
+          if (!b) {
+            return false;
+          }
+          bounds[0] = false;
+        }
+      }
+      if (bounds[1] && !isNull(to)) {
+        if (b != to[pos]) {
+          if (b) {
+            return false;
+          }
+          bounds[1] = false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return entry of a leaf edge, or null after pushing the children of a fork
+     */
+    private Map.Entry<BitString, CellSlice> visit(Frame frame) {
+      CellSlice edge = frame.edge;
+      boolean[] bounds = {frame.lowerBound, frame.upperBound};
+      int pos = frame.pos;
+      if (!isNull(frame.forkBit)) {
+        key[pos] = frame.forkBit;
+        if (!inRange(pos, bounds)) {
+          return null;
+        }
+        pos++;
+      }
+      if (edge.isExotic()) {
+        return null;
+      }
+
+      HmLabel label = HmLabel.load(edge, keySize - pos);
+      for (int i = 0; i < label.length; i++) {
+        key[pos + i] = label.bit(edge, i);
+        if (!inRange(pos + i, bounds)) {
+          return null;
+        }
+      }
+      label.skip(edge);
+      pos += label.length;
+
+      if (pos == keySize) {
+        BitString k = new BitString(keySize);
+        for (boolean b : key) {
+          k.writeBit(b);
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(k, edge);
+      }
+
+      Frame left = new Frame(child(edge, 0), pos, false, bounds[0], bounds[1]);
+      Frame right = new Frame(child(edge, 1), pos, true, bounds[0], bounds[1]);
+      if (descending) {
+        stack.push(left);
+        stack.push(right);
+      } else {
+        stack.push(right);
+        stack.push(left);
+      }
+      return null;
+    }
+
+    private CellSlice child(CellSlice edge, int i) {
+      return CellSlice.beginParse(edge.refs.get(i));
+    }
+  }
+}
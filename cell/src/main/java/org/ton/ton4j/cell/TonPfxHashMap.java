@@ -81,6 +81,28 @@ public class TonPfxHashMap extends TonHashMap {
         }
     }
 
+    /**
+     * Sets the value of a key without re-serializing the dictionary, see {@link TonHashMap#set}.
+     *
+     * @param root    root edge of PfxHashmap, or null for an empty PfxHashmapE
+     * @param keySize maximal key size in bits
+     * @param key     key of at most keySize bits, must not be a prefix of another key or vice versa
+     * @param value   bits and refs of the value
+     * @return new root edge
+     */
+    public static Cell set(Cell root, int keySize, BitString key, Cell value) {
+        return new HashMapEditor(keySize, true, null, null).set(root, key, value);
+    }
+
+    /**
+     * Removes a key without re-serializing the dictionary, see {@link TonHashMap#set}.
+     *
+     * @return new root edge, null if the dictionary became empty, root if the key is absent
+     */
+    public static Cell delete(Cell root, int keySize, BitString key) {
+        return new HashMapEditor(keySize, true, null, null).delete(root, key);
+    }
+
     public Cell serialize(Function<Object, BitString> keyParser, Function<Object, Cell> valueParser) {
         List<Node> nodes = new ArrayList<>();
         for (Map.Entry<Object, Object> entry : elements.entrySet()) {
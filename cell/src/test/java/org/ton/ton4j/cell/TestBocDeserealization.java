@@ -2,8 +2,19 @@ package org.ton.ton4j.cell;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Hex;
@@ -426,4 +437,107 @@ public class TestBocDeserealization {
     assertThat(hash)
         .isEqualTo("bf76eed0ac2f54e30c93c36e587a6dacd4526f45dcbf01a476c149f1991cb78a"); // works
   }
+
+  @Test
+  public void testLazyHashesShouldEqualEagerHashes() throws IOException {
+    String boc =
+        IOUtils.toString(
+            Objects.requireNonNull(getClass().getResourceAsStream("/allconfig-boc-as-hex.txt")),
+            StandardCharsets.UTF_8);
+    byte[] data = Utils.hexToSignedBytes(StringUtils.trim(boc));
+
+    Cell eager = Cell.fromBoc(data);
+    Cell lazy = Cell.fromBoc(data, true);
+    assertThat(lazy.getHashes()).isEmpty();
+
+    Cell eagerLeaf = eager;
+    Cell lazyLeaf = lazy;
+    while (!eagerLeaf.getRefs().isEmpty()) {
+      eagerLeaf = eagerLeaf.getRefs().get(eagerLeaf.getRefs().size() - 1);
+      lazyLeaf = lazyLeaf.getRefs().get(lazyLeaf.getRefs().size() - 1);
+    }
+    assertThat(lazyLeaf.getHash()).isEqualTo(eagerLeaf.getHash());
+    assertThat(lazy.getHashes()).isEmpty();
+
+    assertThat(lazy.getHash()).isEqualTo(eager.getHash());
+    assertThat(lazy.toBoc()).isEqualTo(eager.toBoc());
+  }
+
+  @Test
+  public void testStreamedBocShouldEqualInMemoryBoc() throws IOException {
+    String boc =
+        IOUtils.toString(
+            Objects.requireNonNull(getClass().getResourceAsStream("/allconfig-boc-as-hex.txt")),
+            StandardCharsets.UTF_8);
+    Cell c = Cell.fromBoc(Utils.hexToSignedBytes(StringUtils.trim(boc)));
+
+    for (boolean withIdx : new boolean[] {false, true}) {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      Cell.writeBoc(Channels.newChannel(os), Collections.singletonList(c), true, withIdx, withIdx);
+      assertThat(os.toByteArray()).isEqualTo(c.toBoc(true, withIdx, withIdx));
+
+      ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+      Cell read = Cell.readBoc(Channels.newChannel(is)).get(0);
+      assertThat(read.getHash()).isEqualTo(c.getHash());
+      assertThat(read.toBoc(true, withIdx, withIdx)).isEqualTo(os.toByteArray());
+    }
+  }
+
+  @Test
+  public void testReadBocFromFileOnDemand() throws IOException {
+    Cell c1 = CellBuilder.beginCell().storeUint(42, 7).endCell();
+    Cell c2 = CellBuilder.beginCell().storeUint(12, 8).storeRef(c1).storeRef(c1).endCell();
+    Cell c3 = CellBuilder.beginCell().storeUint(13, 8).storeRef(c2).endCell();
+
+    Path file = Files.createTempFile("boc", ".boc");
+    try {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        Cell.writeBoc(channel, Arrays.asList(c3, c1), true, true, true);
+      }
+      List<Cell> roots = Cell.readBoc(file);
+      assertThat(roots).hasSize(2);
+      assertThat(roots.get(0).getHash()).isEqualTo(c3.getHash());
+      assertThat(roots.get(1).getHash()).isEqualTo(c1.getHash());
+
+      // shared cells are parsed once
+      Cell readC2 = roots.get(0).getRefs().get(0);
+      assertThat(readC2.getRefs().get(0)).isSameAs(roots.get(1));
+      assertThat(readC2.getRefs().get(1)).isSameAs(roots.get(1));
+
+      c3.toFile(file.toString());
+      assertThat(Files.readAllBytes(file)).isEqualTo(c3.toBoc(true));
+      assertThat(Cell.readBoc(file).get(0).getHash()).isEqualTo(c3.getHash());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testOpenBocShouldTrustStoredHashes() throws IOException {
+    String boc =
+        IOUtils.toString(
+            Objects.requireNonNull(getClass().getResourceAsStream("/allconfig-boc-as-hex.txt")),
+            StandardCharsets.UTF_8);
+    Cell c = Cell.fromBoc(Utils.hexToSignedBytes(StringUtils.trim(boc)));
+
+    byte[] withHashes = c.toBoc(true, true, true, true, true);
+    assertThat(withHashes.length).isGreaterThan(c.toBoc(true, true, true).length);
+    assertThat(Cell.fromBoc(withHashes).getHash()).isEqualTo(c.getHash());
+
+    BocReader reader = Cell.openBoc(ByteBuffer.wrap(withHashes));
+    assertThat(reader.getRootsCount()).isEqualTo(1);
+    Cell root = reader.root(0);
+    // read from the BoC, not calculated
+    assertThat(root.getHashes()).isEqualTo(c.getHashes());
+    assertThat(root.getDepthLevels()).isEqualTo(c.getDepthLevels());
+    Cell last = reader.cellAt(reader.getCellsCount() - 1);
+    assertThat(last.getHashes()).isNotEmpty();
+    assertThat(root.toBoc(true, true, true)).isEqualTo(c.toBoc(true, true, true));
+
+    BocReader topHashOnly = Cell.openBoc(ByteBuffer.wrap(c.toBoc(true, true, false, true, false)));
+    assertThat(topHashOnly.root(0).getHashes()).isEqualTo(c.getHashes());
+    Cell ref = topHashOnly.root(0).getRefs().get(0);
+    assertThat(ref.getHashes()).isEmpty();
+    assertThat(ref.getHash()).isEqualTo(c.getRefs().get(0).getHash());
+  }
 }
@@ -0,0 +1,57 @@
+package org.ton.ton4j.cell;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestCellArena {
+
+  private static Cell wallet(long seqno) {
+    Cell code = CellBuilder.beginCell().storeUint(0x7f00f4a413f4bcf2L, 64).endCell();
+    Cell data = CellBuilder.beginCell().storeUint(seqno, 32).storeUint(698983191, 32).endCell();
+    return CellBuilder.beginCell().storeUint(6, 5).storeRef(code).storeRef(data).endCell();
+  }
+
+  @Test
+  public void testArenaShouldShareEqualSubtrees() {
+    CellArena arena = new CellArena();
+
+    Cell w1 = arena.intern(Cell.fromBoc(wallet(1).toBoc()));
+    Cell w2 = arena.intern(Cell.fromBoc(wallet(2).toBoc()));
+    Cell w1again = arena.intern(Cell.fromBoc(wallet(1).toBoc()));
+    log.info("{}", arena);
+
+    assertThat(w1.getHash()).isEqualTo(wallet(1).getHash());
+    assertThat(w2.getHash()).isEqualTo(wallet(2).getHash());
+    assertThat(w1again).isSameAs(w1);
+    // code cell is shared, data cells differ
+    assertThat(w2.getRefs().get(0)).isSameAs(w1.getRefs().get(0));
+    assertThat(w2.getRefs().get(1)).isNotSameAs(w1.getRefs().get(1));
+
+    assertThat(arena.getMissCount()).isEqualTo(5);
+    assertThat(arena.getHitCount()).isEqualTo(2);
+    assertThat(arena.getBytesSaved()).isPositive();
+    assertThat(arena.size()).isEqualTo(5);
+
+    // interning a canonical cell is a no-op
+    assertThat(arena.intern(w2)).isSameAs(w2);
+    assertThat(arena.getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testArenaShouldKeepSliceContent() {
+    CellArena arena = new CellArena(true);
+    Cell c = arena.fromBoc(wallet(42).toBoc());
+    CellSlice cs = CellSlice.beginParse(c.getRefs().get(1));
+    assertThat(cs.loadUint(32)).isEqualTo(BigInteger.valueOf(42));
+
+    arena.clear();
+    assertThat(arena.size()).isZero();
+  }
+}
@@ -30,6 +30,21 @@ public class TestCellBuilder {
         log.info("CellType {}", c.getCellType());
     }
 
+    @Test
+    public void testCellHashAfterFailedHashing() {
+        String emptyHash = Utils.bytesToHex(CellBuilder.beginCell().endCell().getHash());
+
+        // hashing fails after the thread-local digest has been fed the descriptors of the cell
+        Cell c = CellBuilder.beginCell().endCell();
+        for (int i = 0; i < 1023; i++) {
+            c = CellBuilder.beginCell().storeRef(c).endCell();
+        }
+        Cell tooDeep = c;
+        assertThrows(Error.class, () -> CellBuilder.beginCell().storeRef(tooDeep).endCell());
+
+        assertThat(Utils.bytesToHex(CellBuilder.beginCell().endCell().getHash())).isEqualTo(emptyHash);
+    }
+
     @Test(expected = java.lang.Error.class)
     public void testCellTooManyBitsAdded() {
         CellBuilder cellBuilder = CellBuilder.beginCell().storeUint(0, 2000);
@@ -7,7 +7,6 @@ import java.util.Arrays;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -435,7 +434,6 @@ public class TestCellSerialization {
     log.info("cc levelMask {}, maxLevel {}", cc.resolveMask(), cc.getMaxLevel());
   }
 
-  @Ignore
   @Test
   public void testMultiRootCellDeSerialization() {
     Cell c1 = CellBuilder.beginCell().storeUint(42, 7).endCell();
@@ -447,5 +445,24 @@ public class TestCellSerialization {
     List<Cell> cellWithRoots = Cell.fromBocMultiRoot(bocWithRoots);
     log.info("cell with size {}", cellWithRoots.size());
     log.info("cell with roots {}", cellWithRoots.size());
+    assertThat(bocWithRootsHex)
+        .isEqualTo("b5ee9c72c1010303000c02010005090c02020d020101020c020001559432fe10");
+    assertThat(cellWithRoots).hasSize(3);
+    assertThat(cellWithRoots.get(0).getHash()).isEqualTo(c1.getHash());
+    assertThat(cellWithRoots.get(1).getHash()).isEqualTo(c2.getHash());
+    assertThat(cellWithRoots.get(2).getHash()).isEqualTo(c3.getHash());
+  }
+
+  @Test
+  public void testBocRefsShouldPointForward() {
+    // BFS order is root, b, a, but a refs b, so b is moved after a
+    Cell b = CellBuilder.beginCell().storeUint(2, 8).endCell();
+    Cell a = CellBuilder.beginCell().storeUint(1, 8).storeRef(b).endCell();
+    Cell root = CellBuilder.beginCell().storeUint(0, 8).storeRef(b).storeRef(a).endCell();
+
+    assertThat(root.toHex(true)).isEqualTo("b5ee9c7241010301000c000202000201010201020002029237d3dd");
+    assertThat(root.toHex(true, true, true))
+        .isEqualTo("b5ee9c72e1010301000c000a1219020200020101020102000202bfe78843");
+    assertThat(Cell.fromBoc(root.toBoc(true, true, true)).getHash()).isEqualTo(root.getHash());
   }
 }
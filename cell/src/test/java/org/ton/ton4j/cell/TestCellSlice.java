@@ -755,4 +755,36 @@ public class TestCellSlice {
       j++;
     }
   }
+
+  @Test
+  public void testCellSlicePrimitiveLoads() {
+    Cell c =
+        CellBuilder.beginCell()
+            .storeBit(true)
+            .storeUint(0xFFFFFFFFL, 32)
+            .storeInt(-100, 32)
+            .storeUint(new BigInteger("FFFFFFFFFFFFFFFF", 16), 64)
+            .storeInt(-3, 7)
+            .storeCoins(BigInteger.valueOf(1_000_000_000L))
+            .storeCoins(new BigInteger("FFFFFFFFFFFFFFFF", 16))
+            .endCell();
+
+    CellSlice cs = CellSlice.beginParse(c);
+    assertThat(cs.loadBoolean()).isTrue();
+    assertThat(cs.loadUintAsLong(32)).isEqualTo(0xFFFFFFFFL);
+    assertThat(cs.loadIntAsInt(32)).isEqualTo(-100);
+    assertThat(cs.loadUintAsLong(64)).isEqualTo(-1L);
+    assertThat(cs.loadIntAsLong(7)).isEqualTo(-3);
+    assertThat(cs.loadCoinsAsLong()).isEqualTo(1_000_000_000L);
+
+    int restBits = cs.getRestBits();
+    assertThrows(ArithmeticException.class, cs::loadCoinsAsLong);
+    assertThat(cs.getRestBits()).isEqualTo(restBits);
+    assertThat(cs.loadCoins()).isEqualTo(new BigInteger("FFFFFFFFFFFFFFFF", 16));
+    assertThrows(Error.class, () -> cs.loadUintAsInt(1));
+
+    CellSlice cs1 = CellSlice.beginParse(c).skipBits(1);
+    CellSlice cs2 = CellSlice.beginParse(c).skipBits(1);
+    assertThat(cs1.loadUintAsInt(32)).isEqualTo(cs2.loadUint(32).intValue());
+  }
 }
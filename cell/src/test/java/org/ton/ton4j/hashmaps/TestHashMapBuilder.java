@@ -0,0 +1,137 @@
+package org.ton.ton4j.hashmaps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.bitstring.BitString;
+import org.ton.ton4j.cell.*;
+
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestHashMapBuilder {
+
+  @Test
+  public void testEmptyBuilder() {
+    assertThat(new TonHashMapBuilder(32).build()).isNull();
+  }
+
+  @Test
+  public void testBuilderShouldMatchSerialize() {
+    Random random = new Random(1);
+    for (int keySize : new int[] {1, 16, 64, 65, 267}) {
+      TreeMap<BigInteger, Long> expected = new TreeMap<>();
+      for (int i = 0; i < 2000; i++) {
+        expected.put(new BigInteger(keySize, random), random.nextLong() & 0xffffffffL);
+      }
+      List<BigInteger> keys = new ArrayList<>(expected.keySet());
+      Collections.shuffle(keys, random);
+
+      TonHashMapBuilder builder = new TonHashMapBuilder(keySize);
+      for (BigInteger key : keys) {
+        if (random.nextBoolean()) {
+          builder.put(key, value(expected.get(key)));
+        } else {
+          builder.put(key(key, keySize), value(expected.get(key)));
+        }
+      }
+      Cell built = builder.build();
+
+      TonHashMapE x = new TonHashMapE(keySize);
+      x.elements.putAll(expected);
+      Cell serialized = x.serialize(k -> key((BigInteger) k, keySize), v -> value((Long) v));
+      assertThat(built.getHash()).isEqualTo(serialized.getHash());
+      assertThat(builder.build(ForkJoinPool.commonPool()).getHash()).isEqualTo(built.getHash());
+
+      TonHashMapE loaded =
+          CellSlice.beginParse(CellBuilder.beginCell().storeDict(built).endCell())
+              .loadDictE(
+                  keySize,
+                  k -> k.readUint(keySize),
+                  v -> CellSlice.beginParse(v).loadUint(32).longValue());
+      assertThat(new TreeMap<>(loaded.elements)).isEqualTo(new TreeMap<Object, Object>(expected));
+    }
+  }
+
+  @Test
+  public void testBuilderShouldRejectDuplicates() {
+    TonHashMapBuilder builder =
+        new TonHashMapBuilder(8).put(3, value(1)).put(1, value(2)).put(3, value(3));
+    assertThatThrownBy(builder::build).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new TonHashMapBuilder(8).put(256, value(1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testBuilderPerformance() {
+    Random random = new Random(2);
+    for (int n : new int[] {10_000, 100_000, 1_000_000}) {
+      long[] keys = new long[n];
+      Cell[] values = new Cell[n];
+      for (int i = 0; i < n; i++) {
+        keys[i] = random.nextLong();
+        values[i] = value(i % 1024);
+      }
+
+      long start = System.nanoTime();
+      TonHashMapBuilder builder = new TonHashMapBuilder(64, n);
+      for (int i = 0; i < n; i++) {
+        builder.put(keys[i], values[i]);
+      }
+      byte[] hash = builder.build().getHash();
+      long builderNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      builder = new TonHashMapBuilder(64, n);
+      for (int i = 0; i < n; i++) {
+        builder.put(keys[i], values[i]);
+      }
+      byte[] parallelHash = builder.build(ForkJoinPool.commonPool()).getHash();
+      long parallelNanos = System.nanoTime() - start;
+      assertThat(parallelHash).isEqualTo(hash);
+
+      String serializeMillis = "-";
+      if (n <= 100_000) {
+        start = System.nanoTime();
+        TonHashMapE x = new TonHashMapE(64);
+        for (int i = 0; i < n; i++) {
+          x.elements.put(keys[i], values[i]);
+        }
+        Cell serialized =
+            x.serialize(
+                k -> CellBuilder.beginCell().storeUint(toUnsigned((Long) k), 64).endCell().getBits(),
+                v -> (Cell) v);
+        serializeMillis = String.valueOf((System.nanoTime() - start) / 1_000_000);
+        assertThat(serialized.getHash()).isEqualTo(hash);
+      }
+      log.info(
+          "{} entries: TonHashMapBuilder {} ms, parallel {} ms, TonHashMapE.serialize {} ms",
+          n,
+          builderNanos / 1_000_000,
+          parallelNanos / 1_000_000,
+          serializeMillis);
+    }
+  }
+
+  private static BigInteger toUnsigned(long v) {
+    return new BigInteger(Long.toUnsignedString(v));
+  }
+
+  private static BitString key(BigInteger key, int keySize) {
+    return CellBuilder.beginCell().storeUint(key, keySize).endCell().getBits();
+  }
+
+  private static Cell value(long value) {
+    return CellBuilder.beginCell().storeUint(value, 32).endCell();
+  }
+}
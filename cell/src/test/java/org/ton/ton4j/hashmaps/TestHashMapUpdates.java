@@ -0,0 +1,225 @@
+package org.ton.ton4j.hashmaps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.bitstring.BitString;
+import org.ton.ton4j.cell.*;
+
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestHashMapUpdates {
+
+  private static final Function<CellSlice, Cell> EXTRA_LOADER =
+      cs -> CellBuilder.beginCell().storeUint(cs.loadUint(64), 64).endCell();
+
+  private static final BiFunction<Cell, Cell, Cell> EXTRA_SUM =
+      (left, right) ->
+          CellBuilder.beginCell()
+              .storeUint(
+                  CellSlice.beginParse(left)
+                      .loadUint(64)
+                      .add(CellSlice.beginParse(right).loadUint(64)),
+                  64)
+              .endCell();
+
+  @Test
+  public void testSetShouldMatchSerialize() {
+    Random random = new Random(1);
+    for (int keySize : new int[] {4, 32, 267}) {
+      TreeMap<BigInteger, Long> expected = new TreeMap<>();
+      Cell root = null;
+      for (int i = 0; i < 300; i++) {
+        BigInteger key = new BigInteger(keySize, random);
+        if (!expected.isEmpty() && random.nextInt(3) == 0) {
+          key = new ArrayList<>(expected.keySet()).get(random.nextInt(expected.size()));
+          expected.remove(key);
+          root = TonHashMap.delete(root, keySize, key(key, keySize));
+        } else {
+          long value = random.nextInt(1 << 30);
+          expected.put(key, value);
+          root = TonHashMap.set(root, keySize, key(key, keySize), value(value));
+        }
+      }
+
+      TonHashMapE x = new TonHashMapE(keySize);
+      x.elements.putAll(expected);
+      Cell serialized = x.serialize(k -> key((BigInteger) k, keySize), v -> value((Long) v));
+      assertThat(root.getHash()).isEqualTo(serialized.getHash());
+
+      TonHashMapE loaded =
+          CellSlice.beginParse(CellBuilder.beginCell().storeDict(root).endCell())
+              .loadDictE(
+                  keySize,
+                  k -> k.readUint(keySize),
+                  v -> CellSlice.beginParse(v).loadUint(32).longValue());
+      assertThat(new TreeMap<>(loaded.elements)).isEqualTo(new TreeMap<Object, Object>(expected));
+    }
+  }
+
+  @Test
+  public void testSetShouldShareUntouchedSubtrees() {
+    int keySize = 32;
+    Cell root = null;
+    for (long i = 0; i < 64; i++) {
+      root = TonHashMap.set(root, keySize, key(BigInteger.valueOf(i), keySize), value(i));
+    }
+    // keys 0..63 share the label, the fork splits them by bit 26
+    Cell updated = TonHashMap.set(root, keySize, key(BigInteger.ONE, keySize), value(100));
+
+    assertThat(updated.getHash()).isNotEqualTo(root.getHash());
+    assertThat(updated.getRefs().get(1).getHash()).isEqualTo(root.getRefs().get(1).getHash());
+    assertThat(updated.getRefs().get(0).getHash()).isNotEqualTo(root.getRefs().get(0).getHash());
+  }
+
+  @Test
+  public void testDelete() {
+    int keySize = 16;
+    Cell root = TonHashMap.set(null, keySize, key(BigInteger.valueOf(5), keySize), value(5));
+    Cell one = root;
+    root = TonHashMap.set(root, keySize, key(BigInteger.valueOf(7), keySize), value(7));
+
+    assertThat(TonHashMap.delete(root, keySize, key(BigInteger.valueOf(6), keySize)))
+        .isSameAs(root);
+    Cell deleted = TonHashMap.delete(root, keySize, key(BigInteger.valueOf(7), keySize));
+    assertThat(deleted.getHash()).isEqualTo(one.getHash());
+    assertThat(TonHashMap.delete(deleted, keySize, key(BigInteger.valueOf(5), keySize))).isNull();
+  }
+
+  @Test
+  public void testSetOrderShouldNotMatter() {
+    Random random = new Random(2);
+    int keySize = 64;
+    List<BigInteger> keys = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      keys.add(new BigInteger(keySize, random));
+    }
+    Cell ordered = null;
+    for (BigInteger key : keys) {
+      ordered = TonHashMap.set(ordered, keySize, key(key, keySize), value(key.longValue() >>> 32));
+    }
+    Collections.shuffle(keys, random);
+    Cell shuffled = null;
+    for (BigInteger key : keys) {
+      shuffled = TonHashMap.set(shuffled, keySize, key(key, keySize), value(key.longValue() >>> 32));
+    }
+    assertThat(shuffled.getHash()).isEqualTo(ordered.getHash());
+  }
+
+  @Test
+  public void testAugSetShouldRecomputeExtras() {
+    Random random = new Random(3);
+    int keySize = 32;
+    Map<BigInteger, Long> expected = new TreeMap<>();
+    Cell root = null;
+    for (int i = 0; i < 300; i++) {
+      BigInteger key = BigInteger.valueOf(random.nextInt(500));
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        root = TonHashMapAug.delete(root, keySize, key(key, keySize), EXTRA_LOADER, EXTRA_SUM);
+      } else {
+        long value = random.nextInt(1 << 20);
+        expected.put(key, value);
+        root =
+            TonHashMapAug.set(
+                root,
+                keySize,
+                key(key, keySize),
+                value(value),
+                CellBuilder.beginCell().storeUint(value, 64).endCell(),
+                EXTRA_LOADER,
+                EXTRA_SUM);
+      }
+    }
+
+    long sum = expected.values().stream().mapToLong(Long::longValue).sum();
+    Cell extra = TonHashMapAug.getExtra(root, keySize, EXTRA_LOADER);
+    assertThat(CellSlice.beginParse(extra).loadUint(64).longValue()).isEqualTo(sum);
+
+    TonHashMapAug loaded =
+        CellSlice.beginParse(root)
+            .loadDictAug(
+                keySize,
+                k -> k.readUint(keySize),
+                v -> v.loadUint(32).longValue(),
+                e -> e.loadUint(64).longValue());
+    assertThat(loaded.elements).hasSize(expected.size());
+    for (Map.Entry<BigInteger, Long> entry : expected.entrySet()) {
+      assertThat(loaded.elements.get(entry.getKey()).getLeft()).isEqualTo(entry.getValue());
+      assertThat(loaded.elements.get(entry.getKey()).getRight()).isEqualTo(entry.getValue());
+    }
+  }
+
+  @Test
+  public void testPfxSetShouldMatchSerialize() {
+    int keySize = 8;
+    TonPfxHashMap x = new TonPfxHashMap(keySize);
+    Cell root = null;
+    for (String key : new String[] {"0", "10", "110", "1110", "11110000", "11111"}) {
+      x.elements.put(key, (long) key.length());
+      root = TonPfxHashMap.set(root, keySize, bits(key), value(key.length()));
+    }
+    Cell serialized = x.serialize(k -> bits((String) k), v -> value((Long) v));
+    assertThat(root.getHash()).isEqualTo(serialized.getHash());
+
+    final Cell dict = root;
+    assertThatThrownBy(() -> TonPfxHashMap.set(dict, keySize, bits("11"), value(0)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> TonPfxHashMap.set(dict, keySize, bits("100"), value(0)))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    root = TonPfxHashMap.delete(root, keySize, bits("11110000"));
+    x.elements.remove("11110000");
+    serialized = x.serialize(k -> bits((String) k), v -> value((Long) v));
+    assertThat(root.getHash()).isEqualTo(serialized.getHash());
+  }
+
+  @Test
+  public void testSetPerformance() {
+    Random random = new Random(4);
+    int keySize = 256;
+    TonHashMapE x = new TonHashMapE(keySize);
+    for (int i = 0; i < 20_000; i++) {
+      x.elements.put(new BigInteger(keySize, random), (long) i);
+    }
+    long start = System.nanoTime();
+    Cell root = x.serialize(k -> key((BigInteger) k, keySize), v -> value((Long) v));
+    long serializeNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      root = TonHashMap.set(root, keySize, key(new BigInteger(keySize, random), keySize), value(i));
+    }
+    long setNanos = System.nanoTime() - start;
+    log.info(
+        "serialize of {} entries {} ms, 1000 TonHashMap.set {} ms",
+        x.elements.size(),
+        serializeNanos / 1_000_000,
+        setNanos / 1_000_000);
+  }
+
+  private static BitString key(BigInteger key, int keySize) {
+    return CellBuilder.beginCell().storeUint(key, keySize).endCell().getBits();
+  }
+
+  private static BitString bits(String key) {
+    return CellBuilder.beginCell().storeBits(key).endCell().getBits();
+  }
+
+  private static Cell value(long value) {
+    return CellBuilder.beginCell().storeUint(value, 32).endCell();
+  }
+}
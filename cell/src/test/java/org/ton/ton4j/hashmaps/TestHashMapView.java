@@ -0,0 +1,158 @@
+package org.ton.ton4j.hashmaps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.bitstring.BitString;
+import org.ton.ton4j.cell.*;
+
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestHashMapView {
+
+  @Test
+  public void testEmptyHashMapEView() {
+    Cell cell = CellBuilder.beginCell().storeDict(null).endCell();
+    TonHashMapView view = CellSlice.beginParse(cell).loadDictViewE(32);
+
+    assertThat(view.isEmpty()).isTrue();
+    assertThat(view.get(BigInteger.ONE)).isNull();
+    assertThat(view.first()).isNull();
+    assertThat(view.iterator().hasNext()).isFalse();
+  }
+
+  @Test
+  public void testHashMapViewShouldMatchLoadedDict() {
+    Random random = new Random(42);
+    for (int keySize : new int[] {9, 32, 267}) {
+      TreeMap<BigInteger, Long> expected = randomEntries(random, keySize, 500);
+      Cell cell = serialize(expected, keySize);
+
+      TonHashMapE loaded =
+          CellSlice.beginParse(cell)
+              .loadDictE(
+                  keySize, k -> k.readUint(keySize), v -> CellSlice.beginParse(v).loadUint(32));
+      TonHashMapView view = CellSlice.beginParse(cell).loadDictViewE(keySize);
+
+      assertThat(view.isEmpty()).isFalse();
+      List<BigInteger> keys = new ArrayList<>();
+      for (Map.Entry<BitString, CellSlice> entry : view) {
+        BigInteger key = entry.getKey().readUint(keySize);
+        keys.add(key);
+        assertThat(entry.getValue().loadUint(32)).isEqualTo(loaded.elements.get(key));
+      }
+      assertThat(keys).containsExactlyElementsOf(expected.keySet());
+
+      for (int i = 0; i < 1000; i++) {
+        BigInteger key = randomKey(random, keySize);
+        if (random.nextBoolean()) {
+          key = keys.get(random.nextInt(keys.size()));
+        }
+        CellSlice value = view.get(key);
+        if (expected.containsKey(key)) {
+          assertThat(value.loadUint(32).longValue()).isEqualTo(expected.get(key));
+        } else {
+          assertThat(value).isNull();
+        }
+        assertThat(keyOf(view.ceiling(view.key(key)), keySize)).isEqualTo(expected.ceilingKey(key));
+        assertThat(keyOf(view.floor(view.key(key)), keySize)).isEqualTo(expected.floorKey(key));
+      }
+      assertThat(keyOf(view.first(), keySize)).isEqualTo(expected.firstKey());
+      assertThat(keyOf(view.last(), keySize)).isEqualTo(expected.lastKey());
+    }
+  }
+
+  @Test
+  public void testHashMapViewRangeIteration() {
+    Random random = new Random(7);
+    int keySize = 64;
+    TreeMap<BigInteger, Long> expected = randomEntries(random, keySize, 1000);
+    TonHashMapView view = CellSlice.beginParse(serialize(expected, keySize)).loadDictViewE(keySize);
+
+    for (int i = 0; i < 100; i++) {
+      BigInteger from = randomKey(random, keySize);
+      BigInteger to = randomKey(random, keySize);
+      if (from.compareTo(to) > 0) {
+        BigInteger t = from;
+        from = to;
+        to = t;
+      }
+      boolean descending = random.nextBoolean();
+      List<BigInteger> keys = new ArrayList<>();
+      Iterator<Map.Entry<BitString, CellSlice>> it =
+          view.iterator(view.key(from), view.key(to), descending);
+      while (it.hasNext()) {
+        keys.add(it.next().getKey().readUint(keySize));
+      }
+      NavigableMap<BigInteger, Long> range = expected.subMap(from, true, to, true);
+      assertThat(keys)
+          .containsExactlyElementsOf(descending ? range.descendingKeySet() : range.keySet());
+    }
+  }
+
+  @Test
+  public void testHashMapAugEView() {
+    TonHashMapAug hashmapAug = new TonHashMapAug(32);
+    for (long i = 1; i <= 10; i++) {
+      hashmapAug.elements.put(i, Pair.of(i * 3, i * i));
+    }
+    Cell root =
+        hashmapAug.serialize(
+            k -> CellBuilder.beginCell().storeUint((Long) k, 32).endCell().getBits(),
+            v -> CellBuilder.beginCell().storeUint((Long) v, 32).endCell(),
+            e -> CellBuilder.beginCell().storeUint((Long) e, 32).endCell(),
+            (fv, fe) ->
+                CellBuilder.beginCell()
+                    .storeUint(
+                        CellSlice.beginParse((Cell) fv).loadUint(32).longValue()
+                            + CellSlice.beginParse((Cell) fe).loadUint(32).longValue(),
+                        32));
+    Cell cell = CellBuilder.beginCell().storeBit(true).storeRef(root).endCell();
+
+    TonHashMapView view = CellSlice.beginParse(cell).loadDictViewAugE(32);
+
+    CellSlice leaf = view.get(BigInteger.valueOf(7));
+    assertThat(leaf.loadUint(32).longValue()).isEqualTo(49); // extra
+    assertThat(leaf.loadUint(32).longValue()).isEqualTo(21); // value
+    assertThat(view.get(BigInteger.valueOf(11))).isNull();
+    assertThat(keyOf(view.last(), 32)).isEqualTo(BigInteger.TEN);
+  }
+
+  private static TreeMap<BigInteger, Long> randomEntries(Random random, int keySize, int count) {
+    TreeMap<BigInteger, Long> entries = new TreeMap<>();
+    for (int i = 0; i < count; i++) {
+      entries.put(randomKey(random, keySize), random.nextLong() & 0xffffffffL);
+    }
+    return entries;
+  }
+
+  private static BigInteger randomKey(Random random, int keySize) {
+    return new BigInteger(keySize, random);
+  }
+
+  private static Cell serialize(Map<BigInteger, Long> entries, int keySize) {
+    TonHashMapE x = new TonHashMapE(keySize);
+    x.elements.putAll(entries);
+    Cell dict =
+        x.serialize(
+            k -> CellBuilder.beginCell().storeUint((BigInteger) k, keySize).endCell().getBits(),
+            v -> CellBuilder.beginCell().storeUint((Long) v, 32).endCell());
+    return CellBuilder.beginCell().storeDict(dict).endCell();
+  }
+
+  private static BigInteger keyOf(Map.Entry<BitString, CellSlice> entry, int keySize) {
+    return entry == null ? null : entry.getKey().readUint(keySize);
+  }
+}
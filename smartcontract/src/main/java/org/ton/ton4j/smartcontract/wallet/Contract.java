@@ -167,13 +167,23 @@ public interface Contract {
     }
   }
 
-  /** Checks every 2 seconds for 60 seconds if account state was deployed at address */
+  /**
+   * Checks on every new masterchain block, or every 2 seconds with tonlib, for 60 seconds if
+   * account state was deployed at address
+   */
   default void waitForDeployment() {
     waitForDeployment(60);
   }
 
-  /** Checks every 2 seconds for timeoutSeconds if account state was deployed at address */
+  /**
+   * Checks on every new masterchain block, or every 2 seconds with tonlib, for timeoutSeconds if
+   * account state was deployed at address
+   */
   default void waitForDeployment(int timeoutSeconds) {
+    if (nonNull(getAdnlLiteClient())) {
+      getAdnlLiteClient().waitForDeployment(getAddress(), timeoutSeconds);
+      return;
+    }
     int i = 0;
     do {
       if (++i * 2 >= timeoutSeconds) {
@@ -183,17 +193,21 @@ public interface Contract {
     } while (!isDeployed());
   }
 
-  /** Checks every 2 seconds for 60 if account balance was changed */
+  /** Checks for 60 seconds if account balance was changed */
   default void waitForBalanceChange() {
     waitForBalanceChange(60);
   }
 
   /**
-   * Checks every 2 seconds for timeoutSeconds if account balance was changed. Notice, storage fee
-   * changes often by 1 nanocoin with few seconds, if you need to tolerate that consider using
-   * waitForBalanceChangeWithTolerance().
+   * Checks on every new masterchain block, or every 2 seconds with tonlib, for timeoutSeconds if
+   * account balance was changed. Notice, storage fee changes often by 1 nanocoin with few seconds,
+   * if you need to tolerate that consider using waitForBalanceChangeWithTolerance().
    */
   default void waitForBalanceChange(int timeoutSeconds) {
+    if (nonNull(getAdnlLiteClient())) {
+      getAdnlLiteClient().waitForBalanceChange(getAddress(), timeoutSeconds);
+      return;
+    }
     BigInteger initialBalance = getBalance();
     int i = 0;
     do {
@@ -212,6 +226,11 @@ public interface Contract {
    * @param tolerateNanoCoins tolerate value
    */
   default void waitForBalanceChangeWithTolerance(int timeoutSeconds, BigInteger tolerateNanoCoins) {
+    if (nonNull(getAdnlLiteClient())) {
+      getAdnlLiteClient()
+          .waitForBalanceChangeWithTolerance(getAddress(), timeoutSeconds, tolerateNanoCoins);
+      return;
+    }
 
     BigInteger initialBalance = getBalance();
     long diff;
@@ -0,0 +1,36 @@
+package org.ton.ton4j.tl.liteserver.queries;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import lombok.Builder;
+import lombok.Data;
+import org.ton.ton4j.tl.liteserver.responses.LiteServerQueryData;
+
+/**
+ * Prefix of a query, the lite-server holds the query until it has the masterchain block seqno, or
+ * answers with an error after timeoutMs. The answer is the answer of the wrapped query.
+ */
+@Builder
+@Data
+public class WaitMasterchainSeqnoQuery implements LiteServerQueryData {
+  public static final int WAIT_MASTERCHAIN_SEQNO_QUERY = -1159022446; // 0xbaeab892
+
+  private int seqno;
+  private int timeoutMs;
+  private LiteServerQueryData query;
+
+  public String getQueryName() {
+    return "liteServer.waitMasterchainSeqno seqno:int timeout_ms:int = Object";
+  }
+
+  public byte[] getQueryData() {
+    byte[] queryData = query.getQueryData();
+    return ByteBuffer.allocate(4 + 4 + 4 + queryData.length)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(WAIT_MASTERCHAIN_SEQNO_QUERY)
+        .putInt(seqno)
+        .putInt(timeoutMs)
+        .put(queryData)
+        .array();
+  }
+}
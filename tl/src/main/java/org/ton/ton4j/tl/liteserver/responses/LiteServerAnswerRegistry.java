@@ -0,0 +1,172 @@
+package org.ton.ton4j.tl.liteserver.responses;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Maps TL constructor ids of lite-server answers to their deserializers. Lookups go through an
+ * immutable open-addressing table without boxing, registrations replace the table (copy on write),
+ * so the registry can be extended at any time while answers are being decoded.
+ *
+ * <p>{@link #shared()} knows every answer of {@code org.ton.ton4j.tl.liteserver.responses}; custom
+ * answer types can be added to it or to a separate registry created by {@link #withDefaults()}.
+ */
+public final class LiteServerAnswerRegistry {
+
+  /** Deserializer of the TL body of an answer, the constructor id is already consumed */
+  @FunctionalInterface
+  public interface Deserializer {
+    LiteServerAnswer deserialize(ByteBuffer body);
+  }
+
+  private static final LiteServerAnswerRegistry SHARED = withDefaults();
+
+  private volatile Table table = new Table(16);
+
+  /** Immutable table, slots with null deserializer are free */
+  private static final class Table {
+    final int[] ids;
+    final Deserializer[] deserializers;
+    final int mask;
+    final int size;
+
+    Table(int capacity) {
+      this(new int[capacity], new Deserializer[capacity], 0);
+    }
+
+    private Table(int[] ids, Deserializer[] deserializers, int size) {
+      this.ids = ids;
+      this.deserializers = deserializers;
+      this.mask = ids.length - 1;
+      this.size = size;
+    }
+
+    int slot(int id) {
+      int i = mix(id) & mask;
+      while (deserializers[i] != null && ids[i] != id) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+
+    Deserializer get(int id) {
+      return deserializers[slot(id)];
+    }
+
+    Table with(int id, Deserializer deserializer) {
+      int capacity = ids.length;
+      if ((size + 1) * 2 > capacity) {
+        capacity *= 2;
+      }
+      Table copy = new Table(capacity);
+      int count = 0;
+      for (int i = 0; i < ids.length; i++) {
+        if (deserializers[i] != null && ids[i] != id) {
+          copy.put(ids[i], deserializers[i]);
+          count++;
+        }
+      }
+      copy.put(id, deserializer);
+      return new Table(copy.ids, copy.deserializers, count + 1);
+    }
+
+    private void put(int id, Deserializer deserializer) {
+      int i = slot(id);
+      ids[i] = id;
+      deserializers[i] = deserializer;
+    }
+
+    private static int mix(int id) {
+      int h = id * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+
+  /**
+   * @return registry used by the ADNL transports unless configured otherwise
+   */
+  public static LiteServerAnswerRegistry shared() {
+    return SHARED;
+  }
+
+  /**
+   * @return new registry with deserializers of all built-in lite-server answers
+   */
+  public static LiteServerAnswerRegistry withDefaults() {
+    LiteServerAnswerRegistry registry = new LiteServerAnswerRegistry();
+    registry.register(LiteServerError.constructorId, LiteServerError::deserialize);
+    registry.register(MasterchainInfo.constructorId, MasterchainInfo::deserialize);
+    registry.register(MasterchainInfoExt.constructorId, MasterchainInfoExt::deserialize);
+    registry.register(CurrentTime.constructorId, CurrentTime::deserialize);
+    registry.register(Version.constructorId, Version::deserialize);
+    registry.register(BlockData.constructorId, BlockData::deserialize);
+    registry.register(BlockState.constructorId, BlockState::deserialize);
+    registry.register(BlockHeader.constructorId, BlockHeader::deserialize);
+    registry.register(LookupBlockResult.constructorId, LookupBlockResult::deserialize);
+    registry.register(SendMsgStatus.constructorId, SendMsgStatus::deserialize);
+    registry.register(AccountState.constructorId, AccountState::deserialize);
+    registry.register(ConfigInfo.constructorId, ConfigInfo::deserialize);
+    registry.register(ShardInfo.constructorId, ShardInfo::deserialize);
+    registry.register(AllShardsInfo.constructorId, AllShardsInfo::deserialize);
+    registry.register(TransactionList.constructorId, TransactionList::deserialize);
+    registry.register(TransactionInfo.constructorId, TransactionInfo::deserialize);
+    registry.register(BlockTransactions.constructorId, BlockTransactions::deserialize);
+    registry.register(BlockTransactionsExt.constructorId, BlockTransactionsExt::deserialize);
+    registry.register(RunMethodResult.constructorId, RunMethodResult::deserialize);
+    registry.register(ValidatorStats.constructorId, ValidatorStats::deserialize);
+    registry.register(PartialBlockProof.constructorId, PartialBlockProof::deserialize);
+    registry.register(ShardBlockProof.constructorId, ShardBlockProof::deserialize);
+    registry.register(DispatchQueueInfo.constructorId, DispatchQueueInfo::deserialize);
+    registry.register(DispatchQueueMessages.constructorId, DispatchQueueMessages::deserialize);
+    registry.register(LibraryResult.constructorId, LibraryResult::deserialize);
+    registry.register(LibraryResultWithProof.constructorId, LibraryResultWithProof::deserialize);
+    registry.register(OutMsgQueueSizes.constructorId, OutMsgQueueSizes::deserialize);
+    registry.register(BlockOutMsgQueueSize.constructorId, BlockOutMsgQueueSize::deserialize);
+    return registry;
+  }
+
+  /**
+   * Registers a deserializer, replacing the one registered for the same constructor id before
+   *
+   * @param constructorId TL constructor id as read from the wire, little-endian
+   * @param deserializer reads the answer body following the constructor id
+   */
+  public synchronized void register(int constructorId, Deserializer deserializer) {
+    if (deserializer == null) {
+      throw new IllegalArgumentException("deserializer is null");
+    }
+    table = table.with(constructorId, deserializer);
+  }
+
+  /**
+   * @return deserializer registered for the constructor id, or null
+   */
+  public Deserializer get(int constructorId) {
+    return table.get(constructorId);
+  }
+
+  public boolean contains(int constructorId) {
+    return get(constructorId) != null;
+  }
+
+  /**
+   * @return number of registered constructor ids
+   */
+  public int size() {
+    return table.size;
+  }
+
+  /**
+   * Deserializes an answer body
+   *
+   * @param constructorId constructor id of the answer
+   * @param body answer body following the constructor id
+   * @return deserialized answer, or {@link RawAnswer} with the body if the id is not registered
+   */
+  public LiteServerAnswer deserialize(int constructorId, ByteBuffer body) {
+    Deserializer deserializer = get(constructorId);
+    if (deserializer == null) {
+      return RawAnswer.deserialize(constructorId, body);
+    }
+    return deserializer.deserialize(body);
+  }
+}
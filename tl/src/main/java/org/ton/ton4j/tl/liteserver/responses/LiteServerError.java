@@ -6,6 +6,7 @@ import java.nio.ByteOrder;
 import lombok.Builder;
 import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
+import org.ton.ton4j.utils.Utils;
 
 /** liteServer.error code:int message:string = liteServer.Error; */
 @Builder
@@ -28,7 +29,7 @@ public class LiteServerError implements Serializable, LiteServerAnswer {
   public static LiteServerError deserialize(ByteBuffer byteBuffer) {
     byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
     int code = byteBuffer.getInt();
-    String message = new String(byteBuffer.array(), byteBuffer.position(), byteBuffer.remaining());
+    String message = new String(Utils.read(byteBuffer, byteBuffer.remaining()));
     if (StringUtils.isNotEmpty(message)) {
       message = message.substring(1, message.length() - 1).trim();
     }
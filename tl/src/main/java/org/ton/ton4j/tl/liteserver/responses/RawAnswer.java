@@ -0,0 +1,30 @@
+package org.ton.ton4j.tl.liteserver.responses;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import lombok.Builder;
+import lombok.Data;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Answer with a constructor id that has no deserializer in {@link LiteServerAnswerRegistry}, or
+ * that could not be deserialized. Keeps the TL body, without the constructor id, as is.
+ */
+@Builder
+@Data
+public class RawAnswer implements Serializable, LiteServerAnswer {
+
+  int id;
+  public byte[] data;
+
+  public String getData() {
+    if (data == null) {
+      return "";
+    }
+    return Utils.bytesToHex(data);
+  }
+
+  public static RawAnswer deserialize(int id, ByteBuffer buffer) {
+    return RawAnswer.builder().id(id).data(Utils.read(buffer, buffer.remaining())).build();
+  }
+}
@@ -2,6 +2,7 @@ package org.ton.ton4j.tl.liteserver.responses;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import lombok.Builder;
 import lombok.Data;
 
@@ -14,6 +15,10 @@ public class TcpPong implements Serializable, LiteServerAnswer {
   long randomId;
   public static final int constructorId = TCP_PONG_ANSWER;
 
+  public static TcpPong deserialize(ByteBuffer buffer) {
+    return TcpPong.builder().randomId(buffer.order(ByteOrder.LITTLE_ENDIAN).getLong()).build();
+  }
+
   public static TcpPong deserialize(byte[] payload) {
 
     return TcpPong.builder()
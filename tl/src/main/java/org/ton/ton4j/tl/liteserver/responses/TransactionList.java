@@ -23,7 +23,7 @@ public class TransactionList implements Serializable, LiteServerAnswer {
   public static final int TRANSACTION_LIST_ANSWER = 1864812043;
 
   List<BlockIdExt> ids;
-  byte[] transactions;
+  public byte[] transactions;
 
   public String getTransactions() {
     if (transactions == null) {
@@ -0,0 +1,68 @@
+package org.ton.ton4j.tl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.ton.ton4j.cell.ByteReader;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.utils.Utils;
+
+/**
+ * Mainnet blocks and block proofs of the archive packages used by the performance tests, shared
+ * with the tests of adnl through the test jar
+ */
+public final class ArchivePacks {
+
+  static final String[] PACKS = {
+    "rocksdb/archive.00000.pack", "rocksdb/archive.00100.pack", "rocksdb/archive.00200.pack"
+  };
+
+  static final int WARMUP_ROUNDS = 3;
+  static final int ROUNDS = 10;
+
+  private ArchivePacks() {}
+
+  /** BoCs of all entries of the archive packages */
+  static List<byte[]> readBocs() throws IOException {
+    List<byte[]> bocs = new ArrayList<>();
+    for (String pack : PACKS) {
+      InputStream is = ArchivePacks.class.getClassLoader().getResourceAsStream(pack);
+      ByteReader r = new ByteReader(IOUtils.toByteArray(is));
+      if (r.readIntLittleEndian() != 0xae8fdd01) {
+        throw new Error("wrong package header magic in " + pack);
+      }
+      while (r.getDataSize() != 0) {
+        if (r.readShortLittleEndian() != 0x1e8b) {
+          throw new Error("wrong entry header magic in " + pack);
+        }
+        int filenameLength = r.readShortLittleEndian();
+        int bocSize = r.readIntLittleEndian();
+        r.readBytes(filenameLength);
+        bocs.add(Utils.unsignedBytesToSigned(r.readBytes(bocSize)));
+      }
+    }
+    return bocs;
+  }
+
+  /** Roots of all entries of the archive packages */
+  static List<Cell> readCells() throws IOException {
+    List<Cell> cells = new ArrayList<>();
+    for (byte[] boc : readBocs()) {
+      cells.add(Cell.fromBoc(boc));
+    }
+    return cells;
+  }
+
+  /** Block roots of all entries of the archive packages, block proofs are skipped */
+  public static List<Cell> readBlocks() throws IOException {
+    List<Cell> blocks = new ArrayList<>();
+    for (Cell c : readCells()) {
+      if (c.getBits().preReadUint(32).longValue() == 0x11ef55aaL) {
+        blocks.add(c);
+      }
+    }
+    return blocks;
+  }
+}
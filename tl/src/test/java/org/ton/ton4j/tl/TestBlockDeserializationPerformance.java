@@ -0,0 +1,138 @@
+package org.ton.ton4j.tl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ton.ton4j.tl.ArchivePacks.ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.WARMUP_ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.readBlocks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.tlb.Block;
+
+/**
+ * Throughput of Block.deserialize over the mainnet blocks of the archive packages, and of reading
+ * BlockInfo fields through BigInteger vs the primitive CellSlice methods.
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestBlockDeserializationPerformance {
+
+  @Test
+  public void testBlockDeserializationThroughput() throws IOException {
+    List<Cell> blocks = readBlocks();
+    assertThat(blocks).isNotEmpty();
+
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      deserialize(blocks);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      deserialize(blocks);
+    }
+    long elapsed = System.nanoTime() - start;
+    log.info(
+        "Block.deserialize of {} blocks: {} ms/round, {} blocks/s",
+        blocks.size(),
+        elapsed / ROUNDS / 1_000_000,
+        String.format("%.0f", blocks.size() * ROUNDS * 1e9 / elapsed));
+  }
+
+  @Test
+  public void testPrimitiveLoadsPerformance() throws IOException {
+    List<Cell> blocks = readBlocks();
+    List<Cell> infos = new ArrayList<>();
+    for (Cell block : blocks) {
+      infos.add(block.getRefs().get(0));
+    }
+    int repeat = Math.max(1, 100_000 / infos.size());
+
+    long bigIntegerSum = 0;
+    long primitiveSum = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      bigIntegerSum = readWithBigIntegers(infos, repeat);
+      primitiveSum = readWithPrimitives(infos, repeat);
+    }
+    assertThat(primitiveSum).isEqualTo(bigIntegerSum);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      readWithBigIntegers(infos, repeat);
+    }
+    long bigIntegerNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      readWithPrimitives(infos, repeat);
+    }
+    long primitiveNanos = System.nanoTime() - start;
+
+    log.info(
+        "BlockInfo header x{}: loadUint().longValue() {} ms, loadUintAsLong() {} ms, ratio {}",
+        infos.size() * repeat,
+        bigIntegerNanos / ROUNDS / 1_000_000,
+        primitiveNanos / ROUNDS / 1_000_000,
+        String.format("%.2f", (double) bigIntegerNanos / primitiveNanos));
+  }
+
+  private static void deserialize(List<Cell> blocks) {
+    for (Cell block : blocks) {
+      Block.deserialize(CellSlice.beginParse(block));
+    }
+  }
+
+  /** Reads the fixed part of BlockInfo the way deserializers did before the primitive methods */
+  private static long readWithBigIntegers(List<Cell> infos, int repeat) {
+    long sum = 0;
+    for (int r = 0; r < repeat; r++) {
+      for (Cell info : infos) {
+        CellSlice cs = CellSlice.beginParse(info);
+        sum += cs.loadUint(32).longValue(); // magic
+        sum += cs.loadUint(32).longValue(); // version
+        cs.skipBits(8);
+        sum += cs.loadUint(8).longValue(); // flags
+        sum += cs.loadUint(32).longValue(); // seqno
+        sum += cs.loadUint(32).longValue(); // vert_seqno
+        cs.skipBits(104); // shard
+        sum += cs.loadUint(32).longValue(); // gen_utime
+        sum += cs.loadUint(64).longValue(); // start_lt
+        sum += cs.loadUint(64).longValue(); // end_lt
+        sum += cs.loadUint(32).longValue(); // gen_validator_list_hash_short
+        sum += cs.loadUint(32).longValue(); // gen_catchain_seqno
+        sum += cs.loadUint(32).longValue(); // min_ref_mc_seqno
+        sum += cs.loadUint(32).longValue(); // prev_key_block_seqno
+      }
+    }
+    return sum;
+  }
+
+  private static long readWithPrimitives(List<Cell> infos, int repeat) {
+    long sum = 0;
+    for (int r = 0; r < repeat; r++) {
+      for (Cell info : infos) {
+        CellSlice cs = CellSlice.beginParse(info);
+        sum += cs.loadUintAsLong(32);
+        sum += cs.loadUintAsLong(32);
+        cs.skipBits(8);
+        sum += cs.loadUintAsLong(8);
+        sum += cs.loadUintAsLong(32);
+        sum += cs.loadUintAsLong(32);
+        cs.skipBits(104);
+        sum += cs.loadUintAsLong(32);
+        sum += cs.loadUintAsLong(64);
+        sum += cs.loadUintAsLong(64);
+        sum += cs.loadUintAsLong(32);
+        sum += cs.loadUintAsLong(32);
+        sum += cs.loadUintAsLong(32);
+        sum += cs.loadUintAsLong(32);
+      }
+    }
+    return sum;
+  }
+}
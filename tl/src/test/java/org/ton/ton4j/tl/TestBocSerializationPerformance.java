@@ -0,0 +1,60 @@
+package org.ton.ton4j.tl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ton.ton4j.tl.ArchivePacks.ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.WARMUP_ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.readCells;
+
+import java.io.IOException;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.cell.Cell;
+
+/** Throughput of Cell.toBoc over the mainnet blocks and proofs of the archive packages */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestBocSerializationPerformance {
+
+  @Test
+  public void testBocSerializationRoundTrip() throws IOException {
+    List<Cell> cells = readCells();
+    assertThat(cells).isNotEmpty();
+    for (Cell c : cells) {
+      byte[] boc = c.toBoc(true, true, true);
+      assertThat(Cell.fromBoc(boc).getHash()).isEqualTo(c.getHash());
+      assertThat(Cell.fromBoc(boc).toBoc(true, true, true)).isEqualTo(boc);
+    }
+  }
+
+  @Test
+  public void testBocSerializationPerformance() throws IOException {
+    List<Cell> cells = readCells();
+
+    long bytes = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      bytes = serialize(cells);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      serialize(cells);
+    }
+    long elapsed = System.nanoTime() - start;
+    log.info(
+        "toBoc of {} cell trees, {} bytes: {} ms/round, {} MB/s",
+        cells.size(),
+        bytes,
+        elapsed / ROUNDS / 1_000_000,
+        String.format("%.1f", bytes * ROUNDS * 1000.0 / elapsed));
+  }
+
+  private static long serialize(List<Cell> cells) {
+    long bytes = 0;
+    for (Cell c : cells) {
+      bytes += c.toBoc(true, true, true).length;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,97 @@
+package org.ton.ton4j.tl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ton.ton4j.tl.ArchivePacks.ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.WARMUP_ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.readBocs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellHasher;
+
+/** Compares serial and parallel hashing of mainnet blocks and proofs of archive packages */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestCellHashingPerformance {
+
+  @Test
+  public void testCellHasherShouldMatchEagerHashes() throws IOException {
+    List<byte[]> bocs = readBocs();
+    assertThat(bocs).isNotEmpty();
+    for (byte[] boc : bocs) {
+      Cell eager = Cell.fromBoc(boc);
+      Cell lazy = Cell.fromBoc(boc, true);
+      CellHasher.calculateHashes(Collections.singletonList(lazy), ForkJoinPool.commonPool());
+      assertThat(lazy.getHashes()).isEqualTo(eager.getHashes());
+    }
+  }
+
+  @Test
+  public void testCellHashingPerformance() throws IOException {
+    List<byte[]> bocs = readBocs();
+    long cells = CellHasher.calculateHashes(parse(bocs), null);
+    log.info(
+        "{} BoCs, {} cells, common pool parallelism {}",
+        bocs.size(),
+        cells,
+        ForkJoinPool.getCommonPoolParallelism());
+
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      for (Mode mode : Mode.values()) {
+        hash(parse(bocs), mode);
+      }
+    }
+
+    for (Mode mode : Mode.values()) {
+      long nanos = 0;
+      for (int i = 0; i < ROUNDS; i++) {
+        nanos += hash(parse(bocs), mode);
+      }
+      log.info(
+          "{} {} ms/round, {} cells/s",
+          mode,
+          nanos / ROUNDS / 1_000_000,
+          String.format("%.0f", cells * ROUNDS * 1e9 / nanos));
+    }
+  }
+
+  private enum Mode {
+    /** getHash() of the roots, each cell hashes its refs first */
+    RECURSIVE,
+    /** CellHasher in the current thread */
+    SERIAL,
+    /** CellHasher in the common pool */
+    PARALLEL
+  }
+
+  private static List<Cell> parse(List<byte[]> bocs) {
+    List<Cell> roots = new ArrayList<>();
+    for (byte[] boc : bocs) {
+      roots.add(Cell.fromBoc(boc, true));
+    }
+    return roots;
+  }
+
+  /**
+   * @return elapsed nanos
+   */
+  private static long hash(List<Cell> roots, Mode mode) {
+    long start = System.nanoTime();
+    if (mode == Mode.RECURSIVE) {
+      for (Cell root : roots) {
+        root.getHash();
+      }
+    } else {
+      CellHasher.calculateHashes(roots, mode == Mode.PARALLEL ? ForkJoinPool.commonPool() : null);
+    }
+    return System.nanoTime() - start;
+  }
+}
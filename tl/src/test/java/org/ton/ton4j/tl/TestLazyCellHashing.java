@@ -0,0 +1,79 @@
+package org.ton.ton4j.tl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ton.ton4j.tl.ArchivePacks.ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.WARMUP_ROUNDS;
+import static org.ton.ton4j.tl.ArchivePacks.readBocs;
+
+import java.io.IOException;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.cell.Cell;
+import org.ton.ton4j.cell.CellSlice;
+import org.ton.ton4j.tlb.BlockInfo;
+
+/** Compares eager and lazy hashing when parsing mainnet blocks and proofs of archive packages */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestLazyCellHashing {
+
+  @Test
+  public void testLazyHashesShouldEqualEagerHashes() throws IOException {
+    List<byte[]> bocs = readBocs();
+    assertThat(bocs).isNotEmpty();
+    for (byte[] boc : bocs) {
+      Cell eager = Cell.fromBoc(boc);
+      Cell lazy = Cell.fromBoc(boc, true);
+      assertThat(lazy.getHash()).isEqualTo(eager.getHash());
+    }
+  }
+
+  @Test
+  public void testLazyHashingPerformance() throws IOException {
+    List<byte[]> bocs = readBocs();
+    long bytes = bocs.stream().mapToLong(b -> b.length).sum();
+    log.info("{} BoCs, {} bytes", bocs.size(), bytes);
+
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      parse(bocs, false);
+      parse(bocs, true);
+    }
+
+    long eagerNanos = 0;
+    long lazyNanos = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      eagerNanos += parse(bocs, false);
+      lazyNanos += parse(bocs, true);
+    }
+    log.info(
+        "eager {} ms/round, {} MB/s",
+        eagerNanos / ROUNDS / 1_000_000,
+        String.format("%.1f", bytes * ROUNDS * 1000.0 / eagerNanos));
+    log.info(
+        "lazy {} ms/round, {} MB/s",
+        lazyNanos / ROUNDS / 1_000_000,
+        String.format("%.1f", bytes * ROUNDS * 1000.0 / lazyNanos));
+  }
+
+  /**
+   * Parses all BoCs and reads the BlockInfo of blocks, like an indexer reading a few fields
+   *
+   * @return elapsed nanos
+   */
+  private static long parse(List<byte[]> bocs, boolean lazyHashes) {
+    long start = System.nanoTime();
+    long seqnos = 0;
+    for (byte[] boc : bocs) {
+      Cell c = Cell.fromBoc(boc, lazyHashes);
+      if (c.getBits().preReadUint(32).longValue() == 0x11ef55aaL) {
+        seqnos += BlockInfo.deserialize(CellSlice.beginParse(c.getRefs().get(0))).getSeqno();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    assertThat(seqnos).isGreaterThanOrEqualTo(0);
+    return elapsed;
+  }
+}
@@ -0,0 +1,65 @@
+package org.ton.ton4j.tl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.ton.ton4j.tl.liteserver.responses.*;
+
+@Slf4j
+@RunWith(JUnit4.class)
+public class TestLiteServerAnswerRegistry {
+
+  @Test
+  public void testDeserializeKnownAnswer() {
+    ByteBuffer body = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(1700000000);
+    body.flip();
+
+    LiteServerAnswer answer =
+        LiteServerAnswerRegistry.shared().deserialize(CurrentTime.constructorId, body);
+
+    assertThat(answer).isInstanceOf(CurrentTime.class);
+    assertThat(((CurrentTime) answer).getNow()).isEqualTo(1700000000);
+  }
+
+  @Test
+  public void testDeserializeUnknownAnswer() {
+    ByteBuffer body = ByteBuffer.wrap(new byte[] {1, 2, 3, 4});
+
+    LiteServerAnswer answer = LiteServerAnswerRegistry.shared().deserialize(0x12345678, body);
+
+    assertThat(answer).isInstanceOf(RawAnswer.class);
+    assertThat(((RawAnswer) answer).getId()).isEqualTo(0x12345678);
+    assertThat(((RawAnswer) answer).getData()).isEqualTo("01020304");
+  }
+
+  @Test
+  public void testRegisterCustomAnswer() {
+    LiteServerAnswerRegistry registry = LiteServerAnswerRegistry.withDefaults();
+    int size = registry.size();
+    registry.register(0x12345678, body -> CurrentTime.builder().now(body.get()).build());
+
+    LiteServerAnswer answer = registry.deserialize(0x12345678, ByteBuffer.wrap(new byte[] {42}));
+
+    assertThat(answer).isInstanceOf(CurrentTime.class);
+    assertThat(((CurrentTime) answer).getNow()).isEqualTo(42);
+    assertThat(registry.size()).isEqualTo(size + 1);
+    assertThat(LiteServerAnswerRegistry.shared().contains(0x12345678)).isFalse();
+  }
+
+  @Test
+  public void testDefaultsContainAllAnswers() {
+    LiteServerAnswerRegistry registry = LiteServerAnswerRegistry.shared();
+    assertThat(registry.size()).isEqualTo(28);
+    assertThat(registry.contains(LiteServerError.constructorId)).isTrue();
+    assertThat(registry.contains(MasterchainInfo.constructorId)).isTrue();
+    assertThat(registry.contains(BlockData.constructorId)).isTrue();
+    assertThat(registry.contains(AccountState.constructorId)).isTrue();
+    assertThat(registry.contains(RunMethodResult.constructorId)).isTrue();
+    assertThat(registry.contains(BlockOutMsgQueueSize.constructorId)).isTrue();
+  }
+}
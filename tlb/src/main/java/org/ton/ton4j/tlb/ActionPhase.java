@@ -79,12 +79,12 @@ public class ActionPhase implements Serializable {
         .statusChange(AccStatusChange.deserialize(cs))
         .totalFwdFees(cs.loadBit() ? cs.loadCoins() : null)
         .totalActionFees(cs.loadBit() ? cs.loadCoins() : null)
-        .resultCode(cs.loadInt(32).longValue())
+        .resultCode(cs.loadIntAsLong(32))
         .resultArg(cs.loadBit() ? cs.loadInt(32) : null)
-        .totalActions(cs.loadUint(16).longValue())
-        .specActions(cs.loadUint(16).longValue())
-        .skippedActions(cs.loadUint(16).longValue())
-        .messagesCreated(cs.loadUint(16).longValue())
+        .totalActions(cs.loadUintAsLong(16))
+        .specActions(cs.loadUintAsLong(16))
+        .skippedActions(cs.loadUintAsLong(16))
+        .messagesCreated(cs.loadUintAsLong(16))
         .actionListHash(cs.loadUint(256))
         .totalMsgSize(StorageUsed.deserialize(cs))
         .build();
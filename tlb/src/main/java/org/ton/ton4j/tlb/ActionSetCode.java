@@ -27,7 +27,7 @@ public class ActionSetCode implements OutAction, Serializable {
 
   public static ActionSetCode deserialize(CellSlice cs) {
     return ActionSetCode.builder()
-        .magic(cs.loadUint(32).intValue())
+        .magic(cs.loadUintAsInt(32))
         .newCode(cs.sliceToCell())
         .build();
   }
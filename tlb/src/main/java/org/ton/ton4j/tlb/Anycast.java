@@ -29,7 +29,7 @@ public class Anycast implements Serializable {
   }
 
   public static Anycast deserialize(CellSlice cs) {
-    int depth = cs.loadUint(5).intValue();
+    int depth = cs.loadUintAsInt(5);
     return Anycast.builder().depth(depth).rewritePfx(cs.loadUint(depth).byteValueExact()).build();
   }
 }
@@ -16,7 +16,7 @@ public interface BlockCreateStats {
   Cell toCell();
 
   static BlockCreateStats deserialize(CellSlice cs) {
-    long magic = cs.loadUint(8).longValue();
+    long magic = cs.loadUintAsLong(8);
     if (magic == 0x17) {
       return BlockCreateStatsOrdinary.deserialize(cs);
     } else if (magic == 0x34) {
@@ -54,7 +54,7 @@ public class BlockIdExtShardIdent implements Serializable {
   public static BlockIdExtShardIdent deserialize(CellSlice cs) {
     return BlockIdExtShardIdent.builder()
         .shardId(ShardIdent.deserialize(cs))
-        .seqno(cs.loadUint(32).longValue())
+        .seqno(cs.loadUintAsLong(32))
         .rootHash(cs.loadUint(256))
         .fileHash(cs.loadUint(256))
         .build();
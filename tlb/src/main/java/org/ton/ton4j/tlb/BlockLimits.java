@@ -26,7 +26,7 @@ public class BlockLimits implements Serializable {
 
   public static BlockLimits deserialize(CellSlice cs) {
     return BlockLimits.builder()
-        .magic(cs.loadUint(8).intValue())
+        .magic(cs.loadUintAsInt(8))
         .bytes(ParamLimits.deserialize(cs))
         .gas(ParamLimits.deserialize(cs))
         .ltDelta(ParamLimits.deserialize(cs))
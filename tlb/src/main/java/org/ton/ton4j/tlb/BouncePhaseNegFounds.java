@@ -25,7 +25,7 @@ public class BouncePhaseNegFounds implements BouncePhase, Serializable {
   }
 
   public static BouncePhaseNegFounds deserialize(CellSlice cs) {
-    long magic = cs.loadUint(2).intValue(); // review, should be 2
+    long magic = cs.loadUintAsInt(2); // review, should be 2
     assert (magic == 0b00)
         : "BouncePhaseNegFounds: magic not equal to 0b00, found 0x" + Long.toHexString(magic);
 
@@ -38,7 +38,7 @@ public class BouncePhaseNoFounds implements BouncePhase, Serializable {
   }
 
   public static BouncePhaseNoFounds deserialize(CellSlice cs) {
-    long magic = cs.loadUint(2).intValue();
+    long magic = cs.loadUintAsInt(2);
     assert (magic == 0b01)
         : "BouncePhaseNoFounds: magic not equal to 0b01, found 0x" + Long.toHexString(magic);
 
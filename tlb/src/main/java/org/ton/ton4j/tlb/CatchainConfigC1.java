@@ -28,11 +28,11 @@ public class CatchainConfigC1 implements CatchainConfig, Serializable {
 
   public static CatchainConfigC1 deserialize(CellSlice cs) {
     return CatchainConfigC1.builder()
-        .magic(cs.loadUint(8).intValue())
-        .mcCatchainLifetime(cs.loadUint(32).longValue())
-        .shardCatchainLifetime(cs.loadUint(32).longValue())
-        .shardValidatorsLifetime(cs.loadUint(32).longValue())
-        .shardValidatorsNum(cs.loadUint(32).longValue())
+        .magic(cs.loadUintAsInt(8))
+        .mcCatchainLifetime(cs.loadUintAsLong(32))
+        .shardCatchainLifetime(cs.loadUintAsLong(32))
+        .shardValidatorsLifetime(cs.loadUintAsLong(32))
+        .shardValidatorsNum(cs.loadUintAsLong(32))
         .build();
   }
 }
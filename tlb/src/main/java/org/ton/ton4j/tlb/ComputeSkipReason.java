@@ -35,7 +35,7 @@ public class ComputeSkipReason implements ComputePhase, Serializable {
   }
 
   public static ComputePhase deserialize(CellSlice cs) {
-    int skipReasonFlag = cs.loadUint(2).intValue();
+    int skipReasonFlag = cs.loadUintAsInt(2);
 
     switch (skipReasonFlag) {
       case 0b00:
@@ -35,7 +35,7 @@ public class ConfigParams14 implements Serializable {
 
   public static ConfigParams14 deserialize(CellSlice cs) {
     return ConfigParams14.builder()
-        .magic(cs.loadUint(8).longValue())
+        .magic(cs.loadUintAsLong(8))
         .masterchainBlockFee(cs.loadCoins())
         .basechainBlockFee(cs.loadCoins())
         .build();
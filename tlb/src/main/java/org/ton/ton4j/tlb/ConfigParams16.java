@@ -38,9 +38,9 @@ public class ConfigParams16 implements Serializable {
 
   public static ConfigParams16 deserialize(CellSlice cs) {
     return ConfigParams16.builder()
-        .maxValidators(cs.loadUint(16).longValue())
-        .maxMainValidators(cs.loadUint(16).longValue())
-        .minValidators(cs.loadUint(16).longValue())
+        .maxValidators(cs.loadUintAsLong(16))
+        .maxMainValidators(cs.loadUintAsLong(16))
+        .minValidators(cs.loadUintAsLong(16))
         .build();
   }
 }
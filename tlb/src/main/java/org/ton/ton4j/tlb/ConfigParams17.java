@@ -40,7 +40,7 @@ public class ConfigParams17 implements Serializable {
         .minStake(cs.loadCoins())
         .maxStake(cs.loadCoins())
         .minTotalStake(cs.loadCoins())
-        .maxStakeFactor(cs.loadUint(32).longValue())
+        .maxStakeFactor(cs.loadUintAsLong(32))
         .build();
   }
 }
@@ -64,18 +64,18 @@ public class ConfigParams40 implements Serializable {
 
   public static ConfigParams40 deserialize(CellSlice cs) {
     return ConfigParams40.builder()
-        .magic(cs.loadUint(8).longValue())
+        .magic(cs.loadUintAsLong(8))
         .defaultFlatFine(cs.loadCoins())
-        .defaultProportionalFine(cs.loadUint(32).longValue())
-        .severityFlatMult(cs.loadUint(16).intValue())
-        .severityProportionalMult(cs.loadUint(16).intValue())
-        .unpunishableInterval(cs.loadUint(16).intValue())
-        .longInterval(cs.loadUint(16).intValue())
-        .longFlatMult(cs.loadUint(16).intValue())
-        .longProportionalMult(cs.loadUint(16).intValue())
-        .mediumInterval(cs.loadUint(16).intValue())
-        .mediumFlatMult(cs.loadUint(16).intValue())
-        .mediumProportionalMult(cs.loadUint(16).intValue())
+        .defaultProportionalFine(cs.loadUintAsLong(32))
+        .severityFlatMult(cs.loadUintAsInt(16))
+        .severityProportionalMult(cs.loadUintAsInt(16))
+        .unpunishableInterval(cs.loadUintAsInt(16))
+        .longInterval(cs.loadUintAsInt(16))
+        .longFlatMult(cs.loadUintAsInt(16))
+        .longProportionalMult(cs.loadUintAsInt(16))
+        .mediumInterval(cs.loadUintAsInt(16))
+        .mediumFlatMult(cs.loadUintAsInt(16))
+        .mediumProportionalMult(cs.loadUintAsInt(16))
         .build();
   }
 }
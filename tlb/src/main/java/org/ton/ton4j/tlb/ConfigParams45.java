@@ -39,7 +39,7 @@ public class ConfigParams45 implements Serializable {
 
   public static ConfigParams45 deserialize(CellSlice cs) {
     return ConfigParams45.builder()
-        .magic(cs.loadUint(8).intValue())
+        .magic(cs.loadUintAsInt(8))
         .precompiledContractsList(
             cs.loadDictE(
                 256,
@@ -51,17 +51,17 @@ public class ConsensusConfigNew implements ConsensusConfig, Serializable {
 
   public static ConsensusConfigNew deserialize(CellSlice cs) {
     return ConsensusConfigNew.builder()
-        .magic(cs.loadUint(8).intValue())
-        .flags(cs.loadUint(7).intValue())
+        .magic(cs.loadUintAsInt(8))
+        .flags(cs.loadUintAsInt(7))
         .newCatchainIds(cs.loadBit())
-        .roundCandidates(cs.loadUint(32).intValue())
-        .nextCandidateDelayMs(cs.loadUint(32).longValue())
-        .consensusTimeoutMs(cs.loadUint(32).longValue())
-        .fastAttempts(cs.loadUint(32).longValue())
-        .attemptDuration(cs.loadUint(32).longValue())
-        .catchainNaxDeps(cs.loadUint(32).longValue())
-        .maxBlockBytes(cs.loadUint(32).longValue())
-        .maxCollatedBytes(cs.loadUint(32).longValue())
+        .roundCandidates(cs.loadUintAsInt(32))
+        .nextCandidateDelayMs(cs.loadUintAsLong(32))
+        .consensusTimeoutMs(cs.loadUintAsLong(32))
+        .fastAttempts(cs.loadUintAsLong(32))
+        .attemptDuration(cs.loadUintAsLong(32))
+        .catchainNaxDeps(cs.loadUintAsLong(32))
+        .maxBlockBytes(cs.loadUintAsLong(32))
+        .maxCollatedBytes(cs.loadUintAsLong(32))
         .build();
   }
 }
@@ -30,7 +30,7 @@ public class DepthBalanceInfo implements Serializable {
 
   public static DepthBalanceInfo deserialize(CellSlice cs) {
     return DepthBalanceInfo.builder()
-        .depth(cs.loadUint(5).intValue()) // tlb #<= 60
+        .depth(cs.loadUintAsInt(5)) // tlb #<= 60
         .currencies(CurrencyCollection.deserialize(cs))
         .build();
   }
@@ -31,7 +31,7 @@ public class ExtendedAction implements Serializable {
 
   public static ExtendedAction deserialize(CellSlice cs) {
     ExtendedAction extendedAction = ExtendedAction.builder().build();
-    int actionType = cs.loadUint(8).intValue();
+    int actionType = cs.loadUintAsInt(8);
     if ((actionType == 2) || (actionType == 3)) {
       extendedAction.setActionType(ExtendedActionType.getExtensionType(actionType));
       extendedAction.setAddress(cs.loadAddress());
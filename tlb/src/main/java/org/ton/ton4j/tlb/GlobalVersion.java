@@ -35,13 +35,13 @@ public class GlobalVersion implements Serializable {
   }
 
   public static GlobalVersion deserialize(CellSlice cs) {
-    long magic = cs.loadUint(8).longValue();
+    long magic = cs.loadUintAsLong(8);
     assert (magic == 0xc4L)
         : "GlobalVersion: magic not equal to 0xc4, found 0x" + Long.toHexString(magic);
 
     return GlobalVersion.builder()
         .magic(0xc4L)
-        .version(cs.loadUint(32).longValue())
+        .version(cs.loadUintAsLong(32))
         .capabilities(cs.loadUint(64))
         .build();
   }
@@ -44,7 +44,7 @@ public class HashUpdate implements Serializable {
   }
 
   public static HashUpdate deserialize(CellSlice cs) {
-    long magic = cs.loadUint(8).intValue();
+    long magic = cs.loadUintAsInt(8);
     assert (magic == 0x72)
         : "HashUpdate: magic not equal to 0x72, found 0x" + Long.toHexString(magic);
 
@@ -23,7 +23,7 @@ public interface InMsg {
   Cell toCell();
 
   static InMsg deserialize(CellSlice cs) {
-    int inMsgFlag = cs.loadUint(3).intValue();
+    int inMsgFlag = cs.loadUintAsInt(3);
     switch (inMsgFlag) {
       case 0b000:
         {
@@ -84,7 +84,7 @@ public interface InMsg {
         }
       case 0b001:
         {
-          int inMsgSubFlag = cs.loadUint(2).intValue();
+          int inMsgSubFlag = cs.loadUintAsInt(2);
           if (inMsgSubFlag == 0) {
             return InMsgImportDeferredFin.builder()
                 .inMsg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
@@ -17,16 +17,16 @@ public interface IntermediateAddress {
 
   static IntermediateAddress deserialize(CellSlice cs) {
     if (!cs.loadBit()) {
-      return IntermediateAddressRegular.builder().use_dest_bits(cs.loadUint(7).intValue()).build();
+      return IntermediateAddressRegular.builder().use_dest_bits(cs.loadUintAsInt(7)).build();
     }
     if (!cs.loadBit()) {
       return IntermediateAddressSimple.builder()
-          .workchainId(cs.loadUint(8).intValue())
+          .workchainId(cs.loadUintAsInt(8))
           .addrPfx(cs.loadUint(64))
           .build();
     }
     return IntermediateAddressExt.builder()
-        .workchainId(cs.loadInt(32).intValue())
+        .workchainId(cs.loadIntAsInt(32))
         .addrPfx(cs.loadUint(64))
         .build();
   }
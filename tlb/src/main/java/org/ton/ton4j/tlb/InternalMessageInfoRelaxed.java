@@ -84,7 +84,7 @@ public class InternalMessageInfoRelaxed implements CommonMsgInfoRelaxed, Seriali
         .iHRFee(cs.loadCoins())
         .fwdFee(cs.loadCoins())
         .createdLt(cs.loadUint(64))
-        .createdAt(cs.loadUint(32).longValue())
+        .createdAt(cs.loadUintAsLong(32))
         .build();
   }
 }
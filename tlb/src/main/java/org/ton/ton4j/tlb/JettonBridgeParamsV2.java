@@ -37,12 +37,12 @@ public class JettonBridgeParamsV2 implements JettonBridgeParams {
 
   public static JettonBridgeParamsV2 deserialize(CellSlice cs) {
     return JettonBridgeParamsV2.builder()
-        .magic(cs.loadUint(8).intValue())
+        .magic(cs.loadUintAsInt(8))
         .bridgeAddress(cs.loadUint(256))
         .oracleAddress(cs.loadUint(256))
         .oracles(
             cs.loadDictE(256, k -> k.readUint(256), v -> CellSlice.beginParse(v).loadUint(256)))
-        .stateFlags(cs.loadUint(8).intValue())
+        .stateFlags(cs.loadUintAsInt(8))
         .prices(JettonBridgePrices.deserialize(CellSlice.beginParse(cs.loadRef())))
         .externalChainAddress(cs.loadUint(256))
         .build();
@@ -37,7 +37,7 @@ public class KeyMaxLt implements Serializable {
   public static KeyMaxLt deserialize(CellSlice cs) {
     return KeyMaxLt.builder()
         .endLt(cs.loadUint(64))
-        .seqno(cs.loadUint(32).intValue())
+        .seqno(cs.loadUintAsInt(32))
         .rootHash(cs.loadUint(256))
         .fileHash(cs.loadUint(256))
         .build();
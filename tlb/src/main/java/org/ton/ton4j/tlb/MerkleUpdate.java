@@ -45,7 +45,7 @@ public class MerkleUpdate implements Serializable {
       return null;
     }
 
-    long magic = cs.loadUint(8).intValue();
+    long magic = cs.loadUintAsInt(8);
     assert (magic == 0x04)
         : "MerkleUpdate: magic not equal to 0x04, found 0x" + Long.toHexString(magic);
 
@@ -35,11 +35,11 @@ public class MsgMetaData implements Serializable {
   }
 
   public static MsgMetaData deserialize(CellSlice cs) {
-    long magic = cs.loadUint(4).longValue();
+    long magic = cs.loadUintAsLong(4);
     assert (magic == 0) : "MsgMetaData: magic not equal to 0, found 0x" + Long.toHexString(magic);
 
     return MsgMetaData.builder()
-        .depth(cs.loadUint(32).longValue())
+        .depth(cs.loadUintAsLong(32))
         .initiatorAddress(MsgAddressInt.deserialize(cs))
         .initiatorLt(cs.loadUint(64))
         .build();
@@ -21,7 +21,7 @@ public interface OutMsg {
   Cell toCell();
 
   static OutMsg deserialize(CellSlice cs) {
-    int outMsgFlag = cs.loadUint(3).intValue();
+    int outMsgFlag = cs.loadUintAsInt(3);
     switch (outMsgFlag) {
       case 0b000:
         {
@@ -72,7 +72,7 @@ public interface OutMsg {
           if (outMsgSubFlag) {
             return OutMsgDeqShort.builder()
                 .msgEnvHash(cs.loadUint(256))
-                .nextWorkchain(cs.loadInt(32).longValue())
+                .nextWorkchain(cs.loadIntAsLong(32))
                 .nextAddrPfx(cs.loadUint(64))
                 .importBlockLt(cs.loadUint(64))
                 .build();
@@ -85,7 +85,7 @@ public interface OutMsg {
         }
       case 0b101:
         {
-          int outMsgSubFlag = cs.loadUint(2).intValue();
+          int outMsgSubFlag = cs.loadUintAsInt(2);
           if (outMsgSubFlag == 0) {
             return OutMsgNewDefer.builder()
                 .outMsg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
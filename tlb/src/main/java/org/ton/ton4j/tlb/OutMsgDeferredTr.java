@@ -33,7 +33,7 @@ public class OutMsgDeferredTr implements OutMsg, Serializable {
 
   public static OutMsgDeferredTr deserialize(CellSlice cs) {
     return OutMsgDeferredTr.builder()
-        .magic(cs.loadUint(5).intValue())
+        .magic(cs.loadUintAsInt(5))
         .outMsg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
         .imported(InMsg.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
@@ -33,7 +33,7 @@ public class OutMsgDeqImm implements OutMsg, Serializable {
 
   public static OutMsgDeqImm deserialize(CellSlice cs) {
     return OutMsgDeqImm.builder()
-        .magic(cs.loadUint(3).intValue())
+        .magic(cs.loadUintAsInt(3))
         .msg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
         .reimport(InMsg.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
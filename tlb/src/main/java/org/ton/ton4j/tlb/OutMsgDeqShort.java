@@ -41,9 +41,9 @@ public class OutMsgDeqShort implements OutMsg, Serializable {
 
   public static OutMsgDeqShort deserialize(CellSlice cs) {
     return OutMsgDeqShort.builder()
-        .magic(cs.loadUint(4).intValue())
+        .magic(cs.loadUintAsInt(4))
         .msgEnvHash(cs.loadUint(256))
-        .nextWorkchain(cs.loadInt(32).longValue())
+        .nextWorkchain(cs.loadIntAsLong(32))
         .nextAddrPfx(cs.loadUint(64))
         .importBlockLt(cs.loadUint(64))
         .build();
@@ -33,7 +33,7 @@ public class OutMsgNew implements OutMsg, Serializable {
 
   public static OutMsgNew deserialize(CellSlice cs) {
     return OutMsgNew.builder()
-        .magic(cs.loadUint(3).intValue())
+        .magic(cs.loadUintAsInt(3))
         .outMsg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
         .transaction(Transaction.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
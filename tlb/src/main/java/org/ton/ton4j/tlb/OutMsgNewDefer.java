@@ -33,7 +33,7 @@ public class OutMsgNewDefer implements OutMsg, Serializable {
 
   public static OutMsgNewDefer deserialize(CellSlice cs) {
     return OutMsgNewDefer.builder()
-        .magic(cs.loadUint(5).intValue())
+        .magic(cs.loadUintAsInt(5))
         .outMsg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
         .transaction(Transaction.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
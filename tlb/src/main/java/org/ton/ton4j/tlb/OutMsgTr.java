@@ -33,7 +33,7 @@ public class OutMsgTr implements OutMsg, Serializable {
 
   public static OutMsgTr deserialize(CellSlice cs) {
     return OutMsgTr.builder()
-        .magic(cs.loadUint(3).intValue())
+        .magic(cs.loadUintAsInt(3))
         .outMsg(MsgEnvelope.deserialize(CellSlice.beginParse(cs.loadRef())))
         .imported(InMsg.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
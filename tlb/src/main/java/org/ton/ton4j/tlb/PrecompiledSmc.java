@@ -21,7 +21,7 @@ public class PrecompiledSmc implements Serializable {
 
   public static PrecompiledSmc deserialize(CellSlice cs) {
     return PrecompiledSmc.builder()
-        .magic(cs.loadUint(8).intValue())
+        .magic(cs.loadUintAsInt(8))
         .gasUsage(cs.loadUint(64))
         .build();
   }
@@ -149,12 +149,12 @@ public class ShardDescr implements Serializable {
   }
 
   public static ShardDescr deserialize(CellSlice cs) {
-    long magic = cs.loadUint(8).intValue();
+    long magic = cs.loadUintAsInt(8);
     if (magic == 0xB) {
       return ShardDescr.builder()
           .magic(0xb)
-          .seqNo(cs.loadUint(32).longValue())
-          .regMcSeqno(cs.loadUint(32).longValue())
+          .seqNo(cs.loadUintAsLong(32))
+          .regMcSeqno(cs.loadUintAsLong(32))
           .startLt(cs.loadUint(64))
           .endLt(cs.loadUint(64))
           .rootHash(cs.loadUint(64))
@@ -164,11 +164,11 @@ public class ShardDescr implements Serializable {
           .wantSplit(cs.loadBit())
           .wantMerge(cs.loadBit())
           .nXCCUpdated(cs.loadBit())
-          .flags(cs.loadUint(3).intValue())
-          .nextCatchainSeqNo(cs.loadUint(32).longValue())
+          .flags(cs.loadUintAsInt(3))
+          .nextCatchainSeqNo(cs.loadUintAsLong(32))
           .nextValidatorShard(cs.loadUint(64))
-          .minRefMcSeqNo(cs.loadUint(32).longValue())
-          .genUTime(cs.loadUint(32).longValue())
+          .minRefMcSeqNo(cs.loadUintAsLong(32))
+          .genUTime(cs.loadUintAsLong(32))
           .splitMergeAt(FutureSplitMerge.deserialize(cs))
           .feesCollected(CurrencyCollection.deserialize(cs))
           .fundsCreated(CurrencyCollection.deserialize(cs))
@@ -177,8 +177,8 @@ public class ShardDescr implements Serializable {
     if (magic == 0xA) {
       return ShardDescr.builder()
           .magic(0xb)
-          .seqNo(cs.loadUint(32).longValue())
-          .regMcSeqno(cs.loadUint(32).longValue())
+          .seqNo(cs.loadUintAsLong(32))
+          .regMcSeqno(cs.loadUintAsLong(32))
           .startLt(cs.loadUint(64))
           .endLt(cs.loadUint(64))
           .rootHash(cs.loadUint(64))
@@ -188,11 +188,11 @@ public class ShardDescr implements Serializable {
           .wantSplit(cs.loadBit())
           .wantMerge(cs.loadBit())
           .nXCCUpdated(cs.loadBit())
-          .flags(cs.loadUint(3).intValue())
-          .nextCatchainSeqNo(cs.loadUint(32).longValue())
+          .flags(cs.loadUintAsInt(3))
+          .nextCatchainSeqNo(cs.loadUintAsLong(32))
           .nextValidatorShard(cs.loadUint(64))
-          .minRefMcSeqNo(cs.loadUint(32).longValue())
-          .genUTime(cs.loadUint(32).longValue())
+          .minRefMcSeqNo(cs.loadUintAsLong(32))
+          .genUTime(cs.loadUintAsLong(32))
           .splitMergeAt(FutureSplitMerge.deserialize(cs))
           .refInfoA(cs.loadRef()) // minor todo
           .build();
@@ -44,13 +44,13 @@ public class ShardIdent {
   }
 
   public static ShardIdent deserialize(CellSlice cs) {
-    long magic = cs.loadUint(2).longValue();
+    long magic = cs.loadUintAsLong(2);
     assert (magic == 0b00)
         : "ShardIdent: magic not equal to 0b00, found 0b" + Long.toBinaryString(magic);
     return ShardIdent.builder()
         .magic(0L)
-        .prefixBits(cs.loadUint(6).intValue())
-        .workchain(cs.loadInt(32).intValue())
+        .prefixBits(cs.loadUintAsInt(6))
+        .workchain(cs.loadIntAsInt(32))
         .shardPrefix(cs.loadUint(64))
         .build();
   }
@@ -28,7 +28,7 @@ public class StorageExtraInformation implements StorageExtraInfo, Serializable {
 
   public static StorageExtraInformation deserialize(CellSlice cs) {
     return StorageExtraInformation.builder()
-        .magic(cs.loadUint(3).intValue())
+        .magic(cs.loadUintAsInt(3))
         .dictHash(cs.loadUint(256))
         .build();
   }
@@ -40,7 +40,7 @@ public class StorageInfo implements Serializable {
     return StorageInfo.builder()
         .storageUsed(StorageUsed.deserialize(cs))
         .storageExtraInfo(StorageExtraInfo.deserialize(cs))
-        .lastPaid(cs.loadUint(32).longValue())
+        .lastPaid(cs.loadUintAsLong(32))
         .duePayment(cs.loadBit() ? cs.loadCoins() : null)
         .build();
   }
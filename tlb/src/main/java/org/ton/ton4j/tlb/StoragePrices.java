@@ -31,8 +31,8 @@ public class StoragePrices implements Serializable {
 
   public static StoragePrices deserialize(CellSlice cs) {
     return StoragePrices.builder()
-        .magic(cs.loadUint(8).longValue())
-        .utimeSince(cs.loadUint(32).longValue())
+        .magic(cs.loadUintAsLong(8))
+        .utimeSince(cs.loadUintAsLong(32))
         .bitPricePs(cs.loadUint(64))
         .cellPricePs(cs.loadUint(64))
         .mcBitPricePs(cs.loadUint(64))
@@ -39,7 +39,7 @@ public class TransactionDescriptionSplitInstall implements TransactionDescriptio
   }
 
   public static TransactionDescriptionSplitInstall deserialize(CellSlice cs) {
-    long magic = cs.loadUint(4).intValue();
+    long magic = cs.loadUintAsInt(4);
     assert (magic == 0b0101)
         : "TransactionDescriptionSplitInstall: magic not equal to 0b0101, found 0x"
             + Long.toHexString(magic);
@@ -31,7 +31,7 @@ public class TransactionDescriptionStorage implements TransactionDescription, Se
   }
 
   public static TransactionDescriptionStorage deserialize(CellSlice cs) {
-    long magic = cs.loadUint(4).intValue();
+    long magic = cs.loadUintAsInt(4);
     assert (magic == 0b0001)
         : "TransactionDescriptionStorage: magic not equal to 0b0001, found 0x"
             + Long.toHexString(magic);
@@ -48,7 +48,7 @@ public class TransactionDescriptionTickTock implements TransactionDescription, S
   }
 
   public static TransactionDescriptionTickTock deserialize(CellSlice cs) {
-    long magic = cs.loadUint(3).intValue();
+    long magic = cs.loadUintAsInt(3);
     assert (magic == 0b001)
         : "TransactionDescriptionTickTock: magic not equal to 0b001, found 0x"
             + Long.toHexString(magic);
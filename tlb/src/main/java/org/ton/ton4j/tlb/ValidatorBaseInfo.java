@@ -33,8 +33,8 @@ public class ValidatorBaseInfo implements Serializable {
 
   public static ValidatorBaseInfo deserialize(CellSlice cs) {
     return ValidatorBaseInfo.builder()
-        .validatorListHashShort(cs.loadUint(32).longValue())
-        .catchainSeqno(cs.loadUint(32).longValue())
+        .validatorListHashShort(cs.loadUintAsLong(32))
+        .catchainSeqno(cs.loadUintAsLong(32))
         .build();
   }
 }
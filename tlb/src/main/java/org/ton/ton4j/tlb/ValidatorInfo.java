@@ -36,8 +36,8 @@ public class ValidatorInfo implements Serializable {
 
   public static ValidatorInfo deserialize(CellSlice cs) {
     return ValidatorInfo.builder()
-        .validatorListHashShort(cs.loadUint(32).longValue())
-        .catchainSeqno(cs.loadUint(32).longValue())
+        .validatorListHashShort(cs.loadUintAsLong(32))
+        .catchainSeqno(cs.loadUintAsLong(32))
         .nXCcUpdated(cs.loadBit())
         .build();
   }
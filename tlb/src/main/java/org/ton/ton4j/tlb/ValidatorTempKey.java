@@ -30,11 +30,11 @@ public class ValidatorTempKey implements Serializable {
 
   public static ValidatorTempKey deserialize(CellSlice cs) {
     return ValidatorTempKey.builder()
-        .magic(cs.loadUint(4).intValue())
+        .magic(cs.loadUintAsInt(4))
         .adnlAddr(cs.loadUint(256))
         .tempPublicKey(SigPubKey.deserialize(cs))
-        .seqno(cs.loadUint(32).longValue())
-        .validUntil(cs.loadUint(32).longValue())
+        .seqno(cs.loadUintAsLong(32))
+        .validUntil(cs.loadUintAsLong(32))
         .build();
   }
 }
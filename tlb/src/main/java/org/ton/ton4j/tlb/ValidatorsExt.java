@@ -56,11 +56,11 @@ public class ValidatorsExt implements ValidatorSet {
 
   public static Validators deserialize(CellSlice cs) {
     return Validators.builder()
-        .magic(cs.loadUint(8).intValue())
-        .uTimeSince(cs.loadUint(32).longValue())
-        .uTimeUntil(cs.loadUint(32).longValue())
-        .total(cs.loadUint(16).intValue())
-        .main(cs.loadUint(16).intValue())
+        .magic(cs.loadUintAsInt(8))
+        .uTimeSince(cs.loadUintAsLong(32))
+        .uTimeUntil(cs.loadUintAsLong(32))
+        .total(cs.loadUintAsInt(16))
+        .main(cs.loadUintAsInt(16))
         .total(cs.loadUint(64).intValue())
         .list(
             cs.loadDictE(
@@ -21,7 +21,7 @@ public class VmStackValueCont implements VmStackValue, Serializable {
 
   public static VmStackValueCont deserialize(CellSlice cs) {
     return VmStackValueCont.builder()
-        .magic(cs.loadUint(8).intValue())
+        .magic(cs.loadUintAsInt(8))
         .cont(VmCont.deserialize(cs))
         .build();
   }
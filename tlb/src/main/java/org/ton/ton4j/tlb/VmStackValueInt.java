@@ -22,7 +22,7 @@ public class VmStackValueInt implements VmStackValue, Serializable {
 
   public static VmStackValueInt deserialize(CellSlice cs) {
     return VmStackValueInt.builder()
-        .magic(cs.loadUint(15).intValue())
+        .magic(cs.loadUintAsInt(15))
         .value(cs.loadInt(257))
         .build();
   }
@@ -19,6 +19,6 @@ public class VmStackValueNaN implements VmStackValue, Serializable {
   }
 
   public static VmStackValueNaN deserialize(CellSlice cs) {
-    return VmStackValueNaN.builder().magic(cs.loadUint(16).intValue()).build();
+    return VmStackValueNaN.builder().magic(cs.loadUintAsInt(16)).build();
   }
 }
@@ -19,6 +19,6 @@ public class VmStackValueNull implements VmStackValue, Serializable {
   }
 
   public static VmStackValueNull deserialize(CellSlice cs) {
-    return VmStackValueNull.builder().value(cs.loadUint(8).intValue()).build();
+    return VmStackValueNull.builder().value(cs.loadUintAsInt(8)).build();
   }
 }
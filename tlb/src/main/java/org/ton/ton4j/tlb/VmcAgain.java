@@ -21,7 +21,7 @@ public class VmcAgain implements VmCont, Serializable {
 
   public static VmcAgain deserialize(CellSlice cs) {
     return VmcAgain.builder()
-        .magic(cs.loadUint(6).intValue())
+        .magic(cs.loadUintAsInt(6))
         .body(VmCont.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
   }
@@ -21,8 +21,8 @@ public class VmcQuit implements VmCont, Serializable {
 
   public static VmcQuit deserialize(CellSlice cs) {
     return VmcQuit.builder()
-        .magic(cs.loadUint(4).intValue())
-        .exitCode(cs.loadInt(32).longValue())
+        .magic(cs.loadUintAsInt(4))
+        .exitCode(cs.loadIntAsLong(32))
         .build();
   }
 }
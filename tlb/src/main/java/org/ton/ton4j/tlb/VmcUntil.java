@@ -26,7 +26,7 @@ public class VmcUntil implements VmCont, Serializable {
 
   public static VmcUntil deserialize(CellSlice cs) {
     return VmcUntil.builder()
-        .magic(cs.loadUint(6).intValue())
+        .magic(cs.loadUintAsInt(6))
         .body(VmCont.deserialize(CellSlice.beginParse(cs.loadRef())))
         .after(VmCont.deserialize(CellSlice.beginParse(cs.loadRef())))
         .build();
@@ -38,11 +38,11 @@ public class WcSplitMergeTimings implements Serializable {
 
   public static WcSplitMergeTimings deserialize(CellSlice cs) {
     return WcSplitMergeTimings.builder()
-        .magic(cs.loadUint(4).intValue())
-        .splitMergeDelay(cs.loadInt(32).longValue())
-        .splitMergeInterval(cs.loadInt(32).longValue())
-        .minSplitMergeInterval(cs.loadInt(32).longValue())
-        .minSplitMergeDelay(cs.loadInt(32).longValue())
+        .magic(cs.loadUintAsInt(4))
+        .splitMergeDelay(cs.loadIntAsLong(32))
+        .splitMergeInterval(cs.loadIntAsLong(32))
+        .minSplitMergeInterval(cs.loadIntAsLong(32))
+        .minSplitMergeDelay(cs.loadIntAsLong(32))
         .build();
   }
 }
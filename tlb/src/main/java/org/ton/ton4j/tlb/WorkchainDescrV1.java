@@ -46,11 +46,11 @@ public class WorkchainDescrV1 implements WorkchainDescr, Serializable {
   public static WorkchainDescrV1 deserialize(CellSlice cs) {
     WorkchainDescrV1 workchainDescrV1 =
         WorkchainDescrV1.builder()
-            .workchain(cs.loadUint(8).intValue())
-            .enabledSince(cs.loadUint(32).intValue())
-            .actualMinSplit(cs.loadUint(8).intValue())
-            .minSplit(cs.loadUint(8).intValue())
-            .maxSplit(cs.loadUint(8).intValue())
+            .workchain(cs.loadUintAsInt(8))
+            .enabledSince(cs.loadUintAsInt(32))
+            .actualMinSplit(cs.loadUintAsInt(8))
+            .minSplit(cs.loadUintAsInt(8))
+            .maxSplit(cs.loadUintAsInt(8))
             .build();
     boolean basic = cs.loadBit();
     workchainDescrV1.setBasic(basic);
@@ -58,7 +58,7 @@ public class WorkchainDescrV1 implements WorkchainDescr, Serializable {
     workchainDescrV1.setAcceptMsgs(cs.loadBit());
     workchainDescrV1.setZeroStateRootHash(cs.loadUint(256));
     workchainDescrV1.setZeroStateFileHash(cs.loadUint(256));
-    workchainDescrV1.setVersion(cs.loadUint(32).intValue());
+    workchainDescrV1.setVersion(cs.loadUintAsInt(32));
     workchainDescrV1.setFormat(WorkchainFormat.deserialize(cs, basic));
     return workchainDescrV1;
   }
@@ -48,11 +48,11 @@ public class WorkchainDescrV2 implements WorkchainDescr, Serializable {
   public static WorkchainDescrV2 deserialize(CellSlice cs) {
     WorkchainDescrV2 workchainDescrV2 =
         WorkchainDescrV2.builder()
-            .workchain(cs.loadUint(8).intValue())
-            .enabledSince(cs.loadUint(32).intValue())
-            .actualMinSplit(cs.loadUint(8).intValue())
-            .minSplit(cs.loadUint(8).intValue())
-            .maxSplit(cs.loadUint(8).intValue())
+            .workchain(cs.loadUintAsInt(8))
+            .enabledSince(cs.loadUintAsInt(32))
+            .actualMinSplit(cs.loadUintAsInt(8))
+            .minSplit(cs.loadUintAsInt(8))
+            .maxSplit(cs.loadUintAsInt(8))
             .build();
     boolean basic = cs.loadBit();
     workchainDescrV2.setBasic(basic);
@@ -60,7 +60,7 @@ public class WorkchainDescrV2 implements WorkchainDescr, Serializable {
     workchainDescrV2.setAcceptMsgs(cs.loadBit());
     workchainDescrV2.setZeroStateRootHash(cs.loadUint(256));
     workchainDescrV2.setZeroStateFileHash(cs.loadUint(256));
-    workchainDescrV2.setVersion(cs.loadUint(32).intValue());
+    workchainDescrV2.setVersion(cs.loadUintAsInt(32));
     workchainDescrV2.setFormat(WorkchainFormat.deserialize(cs, basic));
     workchainDescrV2.setWcSplitMergeTimings(WcSplitMergeTimings.deserialize(cs));
     return workchainDescrV2;
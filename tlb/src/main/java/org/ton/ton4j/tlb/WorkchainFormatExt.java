@@ -32,11 +32,11 @@ public class WorkchainFormatExt implements WorkchainFormat, Serializable {
 
   public static WorkchainFormatExt deserialize(CellSlice cs) {
     return WorkchainFormatExt.builder()
-        .wfmtExt(cs.loadUint(4).intValue())
-        .minAddrLen(cs.loadUint(12).intValue())
-        .maxAddrLen(cs.loadUint(12).intValue())
-        .addrLenStep(cs.loadUint(12).intValue())
-        .workchainTypeId(cs.loadUint(32).longValue())
+        .wfmtExt(cs.loadUintAsInt(4))
+        .minAddrLen(cs.loadUintAsInt(12))
+        .maxAddrLen(cs.loadUintAsInt(12))
+        .addrLenStep(cs.loadUintAsInt(12))
+        .workchainTypeId(cs.loadUintAsLong(32))
         .build();
   }
 }